@@ -6,11 +6,9 @@ import org.sft.tabletoprpg.security.*;
 import org.sft.tabletoprpg.service.UserService;
 import org.sft.tabletoprpg.service.dto.auth.*;
 import org.sft.tabletoprpg.service.dto.user.*;
-import org.sft.tabletoprpg.service.exception.BadRequestException;
 import org.sft.tabletoprpg.service.exception.AuthException;
 import org.springframework.http.*;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,8 +20,9 @@ public class AuthController {
 
     private final UserService userService;             // для регистрации (createUser)
     private final UserDetailsService userDetailsService;
-    private final PasswordEncoder encoder;
+    private final PasswordHasher passwordHasher;
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
 
     @PostMapping("/register")
     public ResponseEntity<UserDto> register(@Valid @RequestBody UserRegisterRequest req) {
@@ -42,32 +41,28 @@ public class AuthController {
         } catch (org.springframework.security.core.userdetails.UsernameNotFoundException ex) {
             throw new AuthException("Invalid username or password");
         }
-        if (!encoder.matches(req.password(), p.getPassword())) {
+        if (!passwordHasher.matches(req.password(), p.getPassword())) {
             throw new AuthException("Invalid username or password");
         }
+        // стоимость BCrypt поменялась в настройках — перехэшируем, пока знаем пароль
+        if (passwordHasher.needsRehash(p.getPassword())) {
+            userService.updatePasswordHash(p.getId(), passwordHasher.encode(req.password()));
+        }
         var access = jwtService.generateAccessToken(p);
-        // при необходимости — выдать рефреш:
-        var refresh = jwtService.generateRefreshToken(p);
+        var refresh = refreshTokenService.issue(p);
 
         return ResponseEntity.ok(new LoginResponse(access, refresh));
     }
 
     @PostMapping("/refresh")
     public ResponseEntity<LoginResponse> refresh(@Valid @RequestBody RefreshTokenRequest req) {
-        var claims = jwtService.parseAndValidate(req.refreshToken());
-        var username = claims.getSubject();
-        if (username == null || username.isBlank()) {
-            throw new BadRequestException("Invalid refresh token");
-        }
-
-        var ud = userDetailsService.loadUserByUsername(username);
-        if (!(ud instanceof UserPrincipal p)) {
-            throw new BadRequestException("Bad principal type");
-        }
-
-        var newAccess = jwtService.generateAccessToken(p);
-        var newRefresh = jwtService.generateRefreshToken(p); // если у тебя одноразовый refresh — ок; если многоразовый — можешь вернуть старый
+        // одноразовый refresh: старый помечается использованным, выдаётся новая пара
+        return ResponseEntity.ok(refreshTokenService.rotate(req.refreshToken()));
+    }
 
-        return ResponseEntity.ok(new LoginResponse(newAccess, newRefresh));
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenRequest req) {
+        refreshTokenService.revoke(req.refreshToken());
+        return ResponseEntity.noContent().build();
     }
 }
@@ -5,8 +5,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.sft.tabletoprpg.service.InventoryService;
 import org.sft.tabletoprpg.service.dto.inventory.CharacterInventoryEntryDto;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryBatchRequest;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryBatchResultDto;
 import org.sft.tabletoprpg.service.dto.inventory.InventoryChangeRequest;
 import org.sft.tabletoprpg.service.dto.inventory.InventoryQuantityRequest;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryTransferRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
@@ -54,6 +57,26 @@ public class InventoryController {
         return ResponseEntity.noContent().build();
     }
 
+    // TRANSFER -> POST /api/inventory/transfer  {fromCharacterId, toCharacterId, itemId, quantity}
+    @PostMapping("/inventory/transfer")
+    public ResponseEntity<Void> transferItem(
+        @AuthenticationPrincipal(expression = "id") UUID requesterId,
+        @Valid @RequestBody InventoryTransferRequest req
+    ){
+        inventoryService.transferItem(req.fromCharacterId(), req.toCharacterId(), req.itemId(), req.quantity(), requesterId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // BATCH -> POST /api/inventory/batch  {"operations": [{characterId, itemId, delta}, ...]}
+    // Одна транзакция; ответ — итог по каждой операции (отклонённые не отменяют остальные)
+    @PostMapping("/inventory/batch")
+    public ResponseEntity<InventoryBatchResultDto> applyBatch(
+        @AuthenticationPrincipal(expression = "id") UUID requesterId,
+        @Valid @RequestBody InventoryBatchRequest req
+    ){
+        return ResponseEntity.ok(inventoryService.applyBatch(req.operations(), requesterId));
+    }
+
     // Canonical: GIVE -> POST /api/characters/{characterId}/inventory
     @PostMapping("/characters/{characterId}/inventory")
     public ResponseEntity<Void> giveItem(
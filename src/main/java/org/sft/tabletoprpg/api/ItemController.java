@@ -6,7 +6,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.sft.tabletoprpg.service.ItemService;
 import org.sft.tabletoprpg.service.dto.item.ItemCreateRequest;
 import org.sft.tabletoprpg.service.dto.item.ItemDto;
+import org.sft.tabletoprpg.service.dto.item.ItemSearchPageDto;
 import org.sft.tabletoprpg.service.dto.item.ItemUpdateRequest;
+import org.sft.tabletoprpg.service.dto.item.ItemUsagePageDto;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
@@ -102,6 +104,26 @@ public class ItemController {
         return ResponseEntity.ok(itemService.getItem(itemId));
     }
 
+    // Canonical: GET /api/items/search?q=...&offset=...&limit=... (ранжированно, с опечатками)
+    @GetMapping("/search")
+    public ResponseEntity<ItemSearchPageDto> search(
+        @RequestParam(name = "q", required = false) String q,
+        @RequestParam(name = "offset", required = false) Integer offset,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ){
+        return ResponseEntity.ok(itemService.search(q, offset, limit));
+    }
+
+    // Canonical: GET /api/items/usage?page=...&size=... (ADMIN; популярные сверху)
+    @GetMapping("/usage")
+    public ResponseEntity<ItemUsagePageDto> usageStats(
+        @AuthenticationPrincipal(expression = "id") UUID requesterId,
+        @RequestParam(name = "page", required = false) Integer page,
+        @RequestParam(name = "size", required = false) Integer size
+    ){
+        return ResponseEntity.ok(itemService.usageStats(page, size, requesterId));
+    }
+
     // Canonical: GET /api/items/{itemId}
     @GetMapping("/{itemId}")
     public ResponseEntity<ItemDto> getItemById(@PathVariable UUID itemId){
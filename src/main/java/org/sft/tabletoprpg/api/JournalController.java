@@ -1,16 +1,26 @@
 package org.sft.tabletoprpg.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.sft.tabletoprpg.domain.JournalVisibility;
 import org.sft.tabletoprpg.service.JournalService;
 import org.sft.tabletoprpg.service.dto.journal.JournalEntryCreateRequest;
 import org.sft.tabletoprpg.service.dto.journal.JournalEntryDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntrySummaryDto;
 import org.sft.tabletoprpg.service.dto.journal.JournalEntryUpdateRequest;
+import org.sft.tabletoprpg.service.dto.journal.JournalPageDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalSearchPageDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalTagFacetDto;
+import org.sft.tabletoprpg.service.exception.BadRequestException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
@@ -25,6 +35,7 @@ import java.util.UUID;
 public class JournalController {
 
     private final JournalService journalService;
+    private final ObjectMapper objectMapper;
 
     // ---------- CREATE ----------
 
@@ -120,33 +131,123 @@ public class JournalController {
     // ---------- READ ----------
 
     // Legacy: GET /api/journals/list-journals/{campaignId}
+    // JSON-массив всех записей (элементы — краткие, без текста), читается и отдаётся страницами:
+    // в памяти не больше одной страницы, клиент получает начало ответа сразу
     @GetMapping("/journals/list-journals/{campaignId}")
-    public ResponseEntity<List<JournalEntryDto>> listJournalLegacy(
+    public ResponseEntity<StreamingResponseBody> listJournalLegacy(
         @PathVariable UUID campaignId,
         @AuthenticationPrincipal(expression = "id") UUID requesterId,
         @RequestParam(name = "type", required = false) String type,
         @RequestParam(name = "onlyPlayersVisible", required = false) Boolean onlyPlayersVisible
     ){
-        return ResponseEntity.ok(
-            journalService.listJournals(campaignId, requesterId, type, onlyPlayersVisible)
-        );
+        // первая страница — до начала ответа, чтобы 403/404 ушли обычным статусом
+        var first = journalService.listJournalPage(
+            campaignId, requesterId, type, onlyPlayersVisible, null, JournalService.MAX_PAGE_SIZE);
+
+        // страницы читаются каждая в своей транзакции: медленный клиент не держит соединение пула весь ответ.
+        // Статус 200 к сбою посреди ответа уже отправлен, поэтому массив тогда не закрывается и поток
+        // не завершается штатно — клиент видит оборванный ответ, а не короткий, но корректный JSON
+        StreamingResponseBody body = out -> {
+            JsonGenerator json = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            try {
+                json.writeStartArray();
+                var page = first;
+                while (true) {
+                    for (JournalEntrySummaryDto dto : page.items()) {
+                        json.writeObject(dto);
+                    }
+                    json.flush();
+                    if (page.nextCursor() == null) break;
+                    page = journalService.listJournalPage(
+                        campaignId, requesterId, type, onlyPlayersVisible, page.nextCursor(), JournalService.MAX_PAGE_SIZE);
+                }
+                json.writeEndArray();
+                json.close();
+            } catch (RuntimeException ex) {
+                log.warn("Journal export of campaign {} aborted mid-stream: {}", campaignId, ex.getMessage());
+                throw ex;
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
-    // Canonical: GET /api/campaigns/{campaignId}/journal?type=...&include=all
+    // Canonical: GET /api/campaigns/{campaignId}/journal?type=...&include=all&cursor=...&limit=...
     @GetMapping("/campaigns/{campaignId}/journal")
-    public ResponseEntity<List<JournalEntryDto>> listJournal(
+    public ResponseEntity<JournalPageDto<JournalEntrySummaryDto>> listJournal(
         @PathVariable UUID campaignId,
         @AuthenticationPrincipal(expression = "id") UUID requesterId,
         @RequestParam(name = "type", required = false) String type,
-        @RequestParam(name = "include", required = false) String include
+        @RequestParam(name = "include", required = false) String include,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
     ){
         // include=all → для GM показать все; иначе игрокам только PLAYERS
         Boolean onlyPlayersVisible = (include == null || !"all".equalsIgnoreCase(include));
         return ResponseEntity.ok(
-            journalService.listJournals(campaignId, requesterId, type, onlyPlayersVisible)
+            journalService.listJournalPage(campaignId, requesterId, type, onlyPlayersVisible, cursor, limit)
+        );
+    }
+
+    // Canonical: GET /api/campaigns/{campaignId}/journal/by-tags?tags=a,b&match=all|any&cursor=...&limit=...
+    // match=all (по умолчанию) — есть все теги, any — хотя бы один
+    @GetMapping("/campaigns/{campaignId}/journal/by-tags")
+    public ResponseEntity<JournalPageDto<JournalEntrySummaryDto>> listJournalByTags(
+        @PathVariable UUID campaignId,
+        @AuthenticationPrincipal(expression = "id") UUID requesterId,
+        @RequestParam(name = "tags") List<String> tags,
+        @RequestParam(name = "match", required = false, defaultValue = "all") String match,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ){
+        boolean matchAll = parseMatch(match);
+        return ResponseEntity.ok(
+            journalService.listJournalByTags(campaignId, requesterId, tags, matchAll, cursor, limit)
         );
     }
 
+    // Canonical: GET /api/campaigns/{campaignId}/journal/filter?type=..&tag=..&match=all|any&author=..&visibility=..
+    // Параметры повторяемые; внутри параметра — любое из значений, между параметрами — И
+    @GetMapping("/campaigns/{campaignId}/journal/filter")
+    public ResponseEntity<JournalPageDto<JournalEntrySummaryDto>> filterJournal(
+        @PathVariable UUID campaignId,
+        @AuthenticationPrincipal(expression = "id") UUID requesterId,
+        @RequestParam(name = "type", required = false) List<String> types,
+        @RequestParam(name = "tag", required = false) List<String> tags,
+        @RequestParam(name = "match", required = false, defaultValue = "all") String match,
+        @RequestParam(name = "author", required = false) List<UUID> authors,
+        @RequestParam(name = "visibility", required = false) JournalVisibility visibility,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ){
+        boolean matchAll = parseMatch(match);
+        return ResponseEntity.ok(journalService.filterJournal(
+            campaignId, requesterId, types, tags, matchAll, authors, visibility, cursor, limit));
+    }
+
+    // Canonical: GET /api/campaigns/{campaignId}/journal/tags — теги кампании со счётчиками
+    @GetMapping("/campaigns/{campaignId}/journal/tags")
+    public ResponseEntity<List<JournalTagFacetDto>> listTagFacets(
+        @PathVariable UUID campaignId,
+        @AuthenticationPrincipal(expression = "id") UUID requesterId
+    ){
+        return ResponseEntity.ok(journalService.listTagFacets(campaignId, requesterId));
+    }
+
+    // Canonical: GET /api/campaigns/{campaignId}/journal/search?q=...&offset=...&limit=...
+    // Игроки находят только PLAYERS-записи, GM — все
+    @GetMapping("/campaigns/{campaignId}/journal/search")
+    public ResponseEntity<JournalSearchPageDto> searchJournal(
+        @PathVariable UUID campaignId,
+        @AuthenticationPrincipal(expression = "id") UUID requesterId,
+        @RequestParam(name = "q") String q,
+        @RequestParam(name = "offset", required = false) Integer offset,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ){
+        return ResponseEntity.ok(journalService.searchJournal(campaignId, requesterId, q, offset, limit));
+    }
+
     // Canonical: GET /api/campaigns/{campaignId}/journal/{entryId}
     @GetMapping("/campaigns/{campaignId}/journal/{entryId}")
     public ResponseEntity<JournalEntryDto> getJournalById(
@@ -159,11 +260,27 @@ public class JournalController {
         );
     }
 
+    // Personal: GET /api/journals/{entryId} — полный текст личной записи (у неё нет кампании для canonical URL)
+    @GetMapping("/journals/{entryId}")
+    public ResponseEntity<JournalEntryDto> getPersonalJournal(
+        @PathVariable UUID entryId,
+        @AuthenticationPrincipal(expression = "id") UUID requesterId
+    ){
+        return ResponseEntity.ok(journalService.getJournalById(entryId, requesterId));
+    }
+
     // Personal: GET /api/journals/me
     @GetMapping("/journals/me")
-    public ResponseEntity<List<JournalEntryDto>> listMyJournals(
+    public ResponseEntity<List<JournalEntrySummaryDto>> listMyJournals(
         @AuthenticationPrincipal(expression = "id") UUID requesterId
     ){
         return ResponseEntity.ok(journalService.listPersonal(requesterId));
     }
+
+    // match=all|any без учёта регистра; иное значение — 400, а не молчаливое all
+    private static boolean parseMatch(String match) {
+        if ("all".equalsIgnoreCase(match)) return true;
+        if ("any".equalsIgnoreCase(match)) return false;
+        throw new BadRequestException("match должен быть all или any");
+    }
 }
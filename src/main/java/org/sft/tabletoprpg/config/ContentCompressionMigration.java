@@ -0,0 +1,104 @@
+package org.sft.tabletoprpg.config;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.sft.tabletoprpg.domain.converter.TextCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Фоновое сжатие строк, записанных до появления {@link org.sft.tabletoprpg.domain.converter.CompressedTextConverter}.
+ * Идёт пачками по id после старта приложения; строка переписывается, только если её не изменили
+ * параллельно (UPDATE ... WHERE значение = прочитанному). Повторный запуск безопасен.
+ * Прочитанное значение от сжатия не меняется, поэтому кэш второго уровня (кампании) не сбрасывается.
+ */
+@Slf4j
+@Component
+public class ContentCompressionMigration {
+
+    private record Target(String table, String column) {}
+
+    private static final List<Target> TARGETS = List.of(
+        new Target("journal_entries", "content"),
+        new Target("campaigns", "description")
+    );
+    private static final int BATCH_SIZE = 200;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TextCodec codec;
+    private final boolean onStartup;
+    private final Duration pause;
+    private volatile boolean stopped;
+
+    public ContentCompressionMigration(JdbcTemplate jdbcTemplate,
+                                       TextCodec codec,
+                                       @Value("${storage.compression.migrate-on-startup:true}") boolean onStartup,
+                                       @Value("${storage.compression.migrate-pause:PT0.05S}") Duration pause) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.codec = codec;
+        this.onStartup = onStartup;
+        this.pause = pause;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInBackground() {
+        if (!onStartup || !codec.isEnabled()) return;
+        Thread worker = new Thread(this::migrate, "content-compression");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        stopped = true;
+    }
+
+    /** Сжимает все подходящие строки; возвращает число переписанных. */
+    public int migrate() {
+        int total = 0;
+        for (Target target : TARGETS) {
+            try {
+                total += migrate(target);
+            } catch (Exception ex) {
+                log.debug("Content compression of {}.{} skipped: {}", target.table(), target.column(), ex.getMessage());
+            }
+        }
+        if (total > 0) {
+            log.info("Compressed {} stored texts", total);
+        }
+        return total;
+    }
+
+    private int migrate(Target target) throws InterruptedException {
+        String select = "SELECT id, " + target.column() + " FROM " + target.table()
+            + " WHERE id > ? AND LENGTH(" + target.column() + ") >= ? ORDER BY id LIMIT " + BATCH_SIZE;
+        String update = "UPDATE " + target.table() + " SET " + target.column() + " = ?"
+            + " WHERE id = ? AND " + target.column() + " = ?";
+
+        int rewritten = 0;
+        UUID after = new UUID(0L, 0L);
+        while (!stopped) {
+            var rows = jdbcTemplate.queryForList(select, after, codec.threshold());
+            if (rows.isEmpty()) break;
+            for (var row : rows) {
+                String stored = (String) row.get(target.column());
+                if (TextCodec.isTagged(stored)) continue;
+                String encoded = codec.encode(stored);
+                if (!encoded.equals(stored)) {
+                    rewritten += jdbcTemplate.update(update, encoded, row.get("id"), stored);
+                }
+            }
+            after = (UUID) rows.get(rows.size() - 1).get("id");
+            if (rows.size() < BATCH_SIZE) break;
+            Thread.sleep(pause.toMillis());
+        }
+        return rewritten;
+    }
+}
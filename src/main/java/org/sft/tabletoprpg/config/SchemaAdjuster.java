@@ -2,17 +2,25 @@ package org.sft.tabletoprpg.config;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.sft.tabletoprpg.domain.JournalEntry;
+import org.sft.tabletoprpg.domain.UserLoginKey;
+import org.sft.tabletoprpg.domain.converter.TextCodec;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.UUID;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class SchemaAdjuster implements ApplicationRunner {
 
     private final JdbcTemplate jdbcTemplate;
+    private final TextCodec textCodec;
 
     @Override
     public void run(ApplicationArguments args) {
@@ -31,6 +39,225 @@ public class SchemaAdjuster implements ApplicationRunner {
         } catch (Exception ex) {
             log.debug("Schema adjust (campaign_id nullable) skipped: {}", ex.getMessage());
         }
+
+        // Normalized login keys (single-lookup login by username or email)
+        try {
+            jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS user_login_keys (
+                    login_key VARCHAR(255) PRIMARY KEY,
+                    user_id   UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE
+                )""");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_user_login_keys_user ON user_login_keys (user_id)");
+            backfillLoginKeys();
+        } catch (DataAccessException ex) {
+            log.debug("Schema adjust (user_login_keys) skipped: {}", ex.getMessage());
+        }
+
+        // Server-side refresh tokens (security.jwt.refresh-store=jdbc)
+        try {
+            jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS refresh_tokens (
+                    token_id         VARCHAR(64) PRIMARY KEY,
+                    family_id        UUID NOT NULL,
+                    user_id          UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+                    security_version INT NOT NULL,
+                    expires_at       TIMESTAMP WITH TIME ZONE NOT NULL,
+                    used             BOOLEAN NOT NULL DEFAULT FALSE
+                )""");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_refresh_family ON refresh_tokens (family_id)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_refresh_user ON refresh_tokens (user_id)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_refresh_expires_at ON refresh_tokens (expires_at)");
+            // имя и роли берутся из пользователя при ротации — в записи токена они не нужны
+            jdbcTemplate.execute("ALTER TABLE refresh_tokens DROP COLUMN IF EXISTS username");
+            jdbcTemplate.execute("ALTER TABLE refresh_tokens DROP COLUMN IF EXISTS roles");
+        } catch (Exception ex) {
+            log.debug("Schema adjust (refresh_tokens) skipped: {}", ex.getMessage());
+        }
+
+        // Journal list summaries: length and excerpt are stored next to the LOB
+        try {
+            jdbcTemplate.execute("ALTER TABLE journal_entries ADD COLUMN IF NOT EXISTS content_length INT");
+            jdbcTemplate.execute("ALTER TABLE journal_entries ADD COLUMN IF NOT EXISTS excerpt VARCHAR(" + JournalEntry.EXCERPT_LENGTH + ")");
+            backfillJournalSummaries();
+        } catch (Exception ex) {
+            log.debug("Schema adjust (journal summaries) skipped: {}", ex.getMessage());
+        }
+
+        // Normalized journal tags and per-campaign tag counts
+        try {
+            jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS journal_entry_tags (
+                    entry_id UUID NOT NULL REFERENCES journal_entries(id) ON DELETE CASCADE,
+                    tag      VARCHAR(50) NOT NULL,
+                    PRIMARY KEY (entry_id, tag)
+                )""");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_entry_tags_tag ON journal_entry_tags (tag, entry_id)");
+            jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS journal_tag_facets (
+                    campaign_id   UUID NOT NULL REFERENCES campaigns(id) ON DELETE CASCADE,
+                    tag           VARCHAR(50) NOT NULL,
+                    total_count   INT NOT NULL DEFAULT 0,
+                    players_count INT NOT NULL DEFAULT 0,
+                    PRIMARY KEY (campaign_id, tag)
+                )""");
+            backfillJournalTags();
+        } catch (Exception ex) {
+            log.debug("Schema adjust (journal tags) skipped: {}", ex.getMessage());
+        }
+
+        // Inventory totals per character (weight, price, item count), maintained incrementally
+        try {
+            jdbcTemplate.execute("ALTER TABLE characters ADD COLUMN IF NOT EXISTS total_weight NUMERIC(14,2) NOT NULL DEFAULT 0");
+            jdbcTemplate.execute("ALTER TABLE characters ADD COLUMN IF NOT EXISTS total_price BIGINT NOT NULL DEFAULT 0");
+            jdbcTemplate.execute("ALTER TABLE characters ADD COLUMN IF NOT EXISTS item_count BIGINT NOT NULL DEFAULT 0");
+            backfillInventoryTotals();
+        } catch (Exception ex) {
+            log.debug("Schema adjust (inventory totals) skipped: {}", ex.getMessage());
+        }
+
+        // Per-item usage counters (holders, total quantity), maintained incrementally
+        try {
+            jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS item_stats (
+                    item_id        UUID PRIMARY KEY REFERENCES items(id) ON DELETE CASCADE,
+                    holders        BIGINT NOT NULL DEFAULT 0,
+                    total_quantity BIGINT NOT NULL DEFAULT 0
+                )""");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_item_stats_popularity ON item_stats (holders DESC, total_quantity DESC, item_id)");
+            backfillItemStats();
+        } catch (Exception ex) {
+            log.debug("Schema adjust (item stats) skipped: {}", ex.getMessage());
+        }
+    }
+
+    // счётчики для предметов, которые лежат в инвентарях, но строки в item_stats ещё не имеют
+    private void backfillItemStats() {
+        int inserted = jdbcTemplate.update("""
+            INSERT INTO item_stats (item_id, holders, total_quantity)
+            SELECT ci.item_id, COUNT(*), SUM(ci.quantity)
+            FROM character_inventory ci
+            WHERE NOT EXISTS (SELECT 1 FROM item_stats s WHERE s.item_id = ci.item_id)
+            GROUP BY ci.item_id""");
+        if (inserted > 0) {
+            log.info("Adjusted schema: backfilled usage counters for {} items", inserted);
+        }
+    }
+
+    // только что добавленные колонки нулевые: пересчёт для персонажей, у которых инвентарь есть
+    private void backfillInventoryTotals() {
+        int updated = jdbcTemplate.update("""
+            UPDATE characters c SET
+                total_weight = (SELECT COALESCE(SUM(ci.quantity * COALESCE(i.weight, 0)), 0)
+                                FROM character_inventory ci JOIN items i ON i.id = ci.item_id WHERE ci.character_id = c.id),
+                total_price  = (SELECT COALESCE(SUM(CAST(ci.quantity AS BIGINT) * COALESCE(i.price, 0)), 0)
+                                FROM character_inventory ci JOIN items i ON i.id = ci.item_id WHERE ci.character_id = c.id),
+                item_count   = (SELECT COALESCE(SUM(ci.quantity), 0)
+                                FROM character_inventory ci WHERE ci.character_id = c.id)
+            WHERE c.item_count = 0
+              AND EXISTS (SELECT 1 FROM character_inventory ci WHERE ci.character_id = c.id)""");
+        if (updated > 0) {
+            log.info("Adjusted schema: backfilled inventory totals for {} characters", updated);
+        }
+    }
+
+    // теги разбираются тем же кодом, что и в сущности; фасеты после дозаполнения пересчитываются целиком
+    private void backfillJournalTags() {
+        var batch = new java.util.ArrayList<Object[]>();
+        jdbcTemplate.query("""
+            SELECT e.id, e.tags FROM journal_entries e
+            WHERE e.tags IS NOT NULL
+              AND NOT EXISTS (SELECT 1 FROM journal_entry_tags t WHERE t.entry_id = e.id)""", rs -> {
+            for (String tag : JournalEntry.parseTags(rs.getString("tags"))) {
+                batch.add(new Object[]{rs.getObject("id"), tag});
+            }
+        });
+        if (batch.isEmpty()) return;
+        jdbcTemplate.batchUpdate("INSERT INTO journal_entry_tags (entry_id, tag) VALUES (?, ?) ON CONFLICT DO NOTHING", batch);
+        jdbcTemplate.update("DELETE FROM journal_tag_facets");
+        jdbcTemplate.update("""
+            INSERT INTO journal_tag_facets (campaign_id, tag, total_count, players_count)
+            SELECT e.campaign_id, t.tag, COUNT(*), SUM(CASE WHEN e.visibility = 'PLAYERS' THEN 1 ELSE 0 END)
+            FROM journal_entry_tags t JOIN journal_entries e ON e.id = t.entry_id
+            WHERE e.campaign_id IS NOT NULL
+            GROUP BY e.campaign_id, t.tag""");
+        log.info("Adjusted schema: backfilled {} journal tags and rebuilt tag facets", batch.size());
+    }
+
+    // отрывок считается тем же кодом, что и в сущности; записи читаются потоком, обновляются пачками
+    private void backfillJournalSummaries() {
+        var batch = new java.util.ArrayList<Object[]>();
+        int[] total = {0};
+        jdbcTemplate.query("SELECT id, content FROM journal_entries WHERE content_length IS NULL", rs -> {
+            String content = textCodec.decode(rs.getString("content"));
+            batch.add(new Object[]{
+                content == null ? 0 : content.length(),
+                JournalEntry.excerptOf(content),
+                rs.getObject("id")
+            });
+            if (batch.size() == 500) {
+                total[0] += flushJournalSummaries(batch);
+            }
+        });
+        total[0] += flushJournalSummaries(batch);
+        if (total[0] > 0) {
+            log.info("Adjusted schema: backfilled journal summaries for {} entries", total[0]);
+        }
+    }
+
+    private int flushJournalSummaries(java.util.List<Object[]> batch) {
+        if (batch.isEmpty()) return 0;
+        jdbcTemplate.batchUpdate("UPDATE journal_entries SET content_length = ?, excerpt = ? WHERE id = ?", batch);
+        int n = batch.size();
+        batch.clear();
+        return n;
+    }
+
+    /**
+     * Ключи входа для пользователей, у которых их ещё нет. Ключи пользователя пишутся все или ни одного:
+     * если после нормализации логин или почта совпадает с чужим ключом (старые данные — логины,
+     * различающиеся только регистром, или логин = чужая почта), пользователь пропускается и остаётся
+     * без входа, а в лог (WARN) уходят его id, логин, почта и владелец совпавшего ключа вместе с тем,
+     * что сделать. Запуск не останавливается; переименованные пользователи дописываются при следующем.
+     * @return id пропущенных пользователей
+     */
+    List<UUID> backfillLoginKeys() {
+        var missing = jdbcTemplate.queryForList("""
+            SELECT u.id, u.username, u.email FROM users u
+            WHERE NOT EXISTS (SELECT 1 FROM user_login_keys k WHERE k.user_id = u.id)""");
+        var conflicts = new java.util.ArrayList<String>();
+        var skipped = new java.util.ArrayList<UUID>();
+        int backfilled = 0;
+        for (var row : missing) {
+            UUID userId = (UUID) row.get("id");
+            var keys = new java.util.LinkedHashSet<String>();
+            keys.add(UserLoginKey.normalize((String) row.get("username")));
+            keys.add(UserLoginKey.normalize((String) row.get("email")));
+            var owners = new java.util.ArrayList<String>();
+            for (String key : keys) {
+                jdbcTemplate.queryForList("SELECT user_id FROM user_login_keys WHERE login_key = ?", Object.class, key)
+                    .forEach(owner -> owners.add("'" + key + "' -> " + owner));
+            }
+            if (!owners.isEmpty()) {
+                conflicts.add("user " + userId + " (" + row.get("username") + ", " + row.get("email") + "): "
+                    + String.join(", ", owners));
+                skipped.add(userId);
+                continue;
+            }
+            for (String key : keys) {
+                jdbcTemplate.update("INSERT INTO user_login_keys (login_key, user_id) VALUES (?, ?)", key, userId);
+            }
+            backfilled++;
+        }
+        if (backfilled > 0) {
+            log.info("Adjusted schema: backfilled login keys for {} users", backfilled);
+        }
+        if (!conflicts.isEmpty()) {
+            log.warn("Login keys collide after normalization (trim + lower case); {} users were skipped and cannot "
+                + "log in until renamed. Make their username and email unique case-insensitively "
+                + "(UPDATE users SET username = ... / email = ... WHERE id = ...) and restart:\n  {}",
+                conflicts.size(), String.join("\n  ", conflicts));
+        }
+        return skipped;
     }
 }
 
@@ -0,0 +1,56 @@
+package org.sft.tabletoprpg.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Кэш второго уровня Hibernate: JCache поверх Caffeine в памяти процесса.
+ * Регионы (имена из {@code @Cache(region = ...)}) создаются здесь с границами из
+ * {@code storage.second-level-cache.regions}; региона без настроек Hibernate не заведёт — упадёт при старте.
+ * Статистика по регионам — метрики cache.gets / cache.puts / cache.removals с тегом cache=регион.
+ */
+@Configuration
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfig {
+
+    // свой менеджер на контекст (уникальный URI): несколько контекстов в одной JVM не делят регионы
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(SecondLevelCacheProperties props, MeterRegistry meters) {
+        CacheManager manager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(URI.create("second-level-cache:" + UUID.randomUUID()), getClass().getClassLoader());
+        props.regions().forEach((name, region) -> {
+            var config = new CaffeineConfiguration<Object, Object>();
+            config.setMaximumSize(OptionalLong.of(region.maxSize()));
+            config.setExpireAfterWrite(OptionalLong.of(region.ttl().toNanos()));
+            config.setStoreByValue(false);    // записи Hibernate и так разобраны в массивы значений
+            config.setStatisticsEnabled(true);
+            JCacheMetrics.monitor(meters, manager.createCache(name, config));
+        });
+        return manager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(SecondLevelCacheProperties props, CacheManager secondLevelCacheManager) {
+        return hibernate -> {
+            hibernate.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, props.enabled());
+            if (!props.enabled()) return;
+            hibernate.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernate.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            hibernate.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
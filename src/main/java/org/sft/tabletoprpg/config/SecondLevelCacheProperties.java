@@ -0,0 +1,18 @@
+package org.sft.tabletoprpg.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "storage.second-level-cache")
+public record SecondLevelCacheProperties(
+    boolean enabled,              // false -> Hibernate работает без кэша второго уровня
+    Map<String, Region> regions   // регион (имя из @Cache(region = ...)) -> его границы
+) {
+
+    public record Region(
+        long maxSize,  // сколько записей держит регион; сверх этого вытесняются редко используемые
+        Duration ttl   // сколько живёт запись после записи в кэш; страховка от правок в обход Hibernate
+    ) {}
+}
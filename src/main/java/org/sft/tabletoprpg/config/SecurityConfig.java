@@ -5,6 +5,8 @@ import org.sft.tabletoprpg.repo.UserRepository;
 import org.sft.tabletoprpg.security.JwtAuthenticationFilter;
 import org.sft.tabletoprpg.security.JwtProperties;
 import org.sft.tabletoprpg.security.JwtService;
+import org.sft.tabletoprpg.security.PasswordHashingProperties;
+import org.sft.tabletoprpg.security.SecurityVersionRegistry;
 import org.springframework.boot.autoconfigure.security.servlet.PathRequest;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -29,16 +31,19 @@ import java.util.List;
 
 @Configuration
 @EnableMethodSecurity
-@EnableConfigurationProperties(JwtProperties.class)
+@EnableConfigurationProperties({JwtProperties.class, PasswordHashingProperties.class})
 @RequiredArgsConstructor
 public class SecurityConfig {
 
     private final JwtService jwtService;
     private final UserRepository userRepository;
+    private final JwtProperties jwtProperties;
+    private final SecurityVersionRegistry securityVersions;
+    private final PasswordHashingProperties passwordHashingProperties;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
-        var jwtFilter = new JwtAuthenticationFilter(jwtService, userRepository);
+        var jwtFilter = new JwtAuthenticationFilter(jwtService, userRepository, jwtProperties, securityVersions);
 
         http
             .csrf(csrf -> csrf
@@ -70,6 +75,10 @@ public class SecurityConfig {
                 // публичные эндпоинты
                 .requestMatchers("/auth/**", "/error", "/h2-console/**").permitAll()
 
+                // actuator: открыт только health, метрики (имена кэшей, регионов, пулов) — админам
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                 // права
                 .requestMatchers("/api/items/**").hasRole("ADMIN")
                 .requestMatchers("/api/**").authenticated()
@@ -124,7 +133,7 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(passwordHashingProperties.bcryptStrength());
     }
 
     @Bean
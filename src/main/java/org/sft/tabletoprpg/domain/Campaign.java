@@ -3,8 +3,11 @@ package org.sft.tabletoprpg.domain;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.sft.tabletoprpg.domain.converter.CompressedTextConverter;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -17,6 +20,9 @@ import static jakarta.persistence.FetchType.LAZY;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @NoArgsConstructor @AllArgsConstructor
 @Entity
+// кампанию правит только GM, а ссылаются на неё почти все операции — кэш второго уровня
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "campaigns")
 @Builder
 @Table(name = "campaigns",
         uniqueConstraints = {@UniqueConstraint(columnNames = {"name"})},
@@ -33,6 +39,7 @@ public class Campaign {
     private String name;
 
     @Lob
+    @Convert(converter = CompressedTextConverter.class)
     private String description;
 
     @ManyToOne(fetch = LAZY, optional = false)
@@ -50,7 +57,7 @@ public class Campaign {
     @PrePersist
     void  prePersist() {
         if (this.id == null) {
-            this.id = UUID.randomUUID();
+            this.id = TimeOrderedUuid.next();
         }
 
     }
@@ -8,6 +8,7 @@ import org.hibernate.annotations.Check;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
+import java.math.BigDecimal;
 import java.util.UUID;
 
 
@@ -85,11 +86,23 @@ public class Character {
     @OnDelete(action = OnDeleteAction.CASCADE)
     private Campaign campaign;
 
+    // Агрегаты инвентаря. Сдвигаются дельтами в БД операциями с инвентарём и правкой веса/цены предметов,
+    // поэтому сущность их не перезаписывает (updatable = false)
+    @Column(name = "total_weight", nullable = false, updatable = false, precision = 14, scale = 2)
+    @Builder.Default
+    private BigDecimal totalWeight = BigDecimal.ZERO;
+
+    @Column(name = "total_price", nullable = false, updatable = false)
+    private long totalPrice;
+
+    @Column(name = "item_count", nullable = false, updatable = false)
+    private long itemCount;
+
 
     @PrePersist
     public void prePersist(){
         if (this.id == null) {
-            this.id = UUID.randomUUID();
+            this.id = TimeOrderedUuid.next();
         }
     }
 }
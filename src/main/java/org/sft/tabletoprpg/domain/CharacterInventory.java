@@ -7,6 +7,7 @@ import org.hibernate.annotations.Check;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 import org.sft.tabletoprpg.domain.compositeKeys.CharacterInventoryId;
+import org.springframework.data.domain.Persistable;
 
 
 @ToString
@@ -25,7 +26,7 @@ import org.sft.tabletoprpg.domain.compositeKeys.CharacterInventoryId;
             @Index(name = "idx_charinv_character", columnList = "character_id")
         })
 
-public class CharacterInventory {
+public class CharacterInventory implements Persistable<CharacterInventoryId> {
 
     @EmbeddedId
     @EqualsAndHashCode.Include
@@ -46,5 +47,27 @@ public class CharacterInventory {
     @Min(1)
     private int quantity;
 
+    // id составной и задаётся вручную: без этого флага save() новой строки шёл бы через merge с лишним SELECT
+    @Transient
+    @ToString.Exclude
+    private boolean persisted;
+
+    public CharacterInventory(Character character, Item item, int quantity) {
+        this.id = new CharacterInventoryId(character.getId(), item.getId());
+        this.character = character;
+        this.item = item;
+        this.quantity = quantity;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 
 }
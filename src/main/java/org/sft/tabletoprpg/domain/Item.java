@@ -3,6 +3,8 @@ package org.sft.tabletoprpg.domain;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Check;
 
 import java.math.BigDecimal;
@@ -17,6 +19,9 @@ import java.util.UUID;
 @Check(constraints = "(price >= 0) AND (weight >= 0)")
 @Entity
 @Table(name = "items")
+// справочник правит только админ, читают все операции с инвентарём — кэш второго уровня
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "items")
 public class Item {
 
     @Id
@@ -41,7 +46,7 @@ public class Item {
     @PrePersist
     public void prePersist(){
         if (this.id == null) {
-            this.id = UUID.randomUUID();
+            this.id = TimeOrderedUuid.next();
         }
     }
 }
@@ -0,0 +1,32 @@
+package org.sft.tabletoprpg.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Счётчики использования предмета в инвентарях. Ведутся сервисом инвентаря в той же транзакции,
+ * что и изменение строк character_inventory: holders — сколько персонажей держат предмет,
+ * totalQuantity — сколько штук у них всего. Нет строки — предмет ни у кого не лежит.
+ */
+@ToString
+@Getter
+@Setter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "item_stats")
+public class ItemStats {
+
+    @Id
+    @Column(name = "item_id", nullable = false, updatable = false)
+    @EqualsAndHashCode.Include
+    private UUID itemId;
+
+    @Column(nullable = false)
+    private long holders;
+
+    @Column(name = "total_quantity", nullable = false)
+    private long totalQuantity;
+}
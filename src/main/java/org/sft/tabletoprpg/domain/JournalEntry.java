@@ -7,8 +7,14 @@ import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.sft.tabletoprpg.domain.converter.CompressedTextConverter;
 
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
 
 
@@ -30,6 +36,9 @@ import java.util.UUID;
 
 public class JournalEntry {
 
+    public static final int EXCERPT_LENGTH = 160;
+    public static final int TAG_LENGTH = 50;
+
     @Id
     @Column(nullable = false, updatable = false)
     @EqualsAndHashCode.Include
@@ -55,11 +64,32 @@ public class JournalEntry {
     @NotBlank(message = "Название не должно быть пустым")
     private String title;
 
+    // Текст записи не грузится вместе с сущностью (нужен bytecode enhancement, см. pom.xml):
+    // списки работают только с excerpt/contentLength
     @Lob
+    @Convert(converter = CompressedTextConverter.class)
+    @Basic(fetch = FetchType.LAZY)
+    @ToString.Exclude
     private String content;
 
+    @Column(name = "content_length")
+    private Integer contentLength;
+
+    @Column(length = EXCERPT_LENGTH)
+    private String excerpt;
+
+    // Строка тегов как её ввёл автор; для фильтров и фасетов — нормализованный tagSet
     private String tags;
 
+    @ElementCollection
+    @CollectionTable(name = "journal_entry_tags",
+        joinColumns = @JoinColumn(name = "entry_id"),
+        indexes = @Index(name = "idx_journal_entry_tags_tag", columnList = "tag, entry_id"))
+    @Column(name = "tag", nullable = false, length = TAG_LENGTH)
+    @ToString.Exclude
+    @Builder.Default
+    private Set<String> tagSet = new HashSet<>();
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
@@ -68,8 +98,43 @@ public class JournalEntry {
     @PrePersist
     public void prePersist(){
         if (this.id == null) {
-            this.id = UUID.randomUUID();
+            this.id = TimeOrderedUuid.next();
         }
     }
 
+    // Длина и отрывок пересчитываются вместе с текстом, чтобы не читать LOB ради списков
+    public void setContent(String content) {
+        this.content = content;
+        this.contentLength = content == null ? null : content.length();
+        this.excerpt = excerptOf(content);
+    }
+
+    public void setTags(String tags) {
+        this.tags = tags;
+        Set<String> parsed = parseTags(tags);
+        this.tagSet.retainAll(parsed);
+        this.tagSet.addAll(parsed);
+    }
+
+    /** "Лор, NPC ,лор" → {лор, npc}: без пустых, в нижнем регистре, не длиннее TAG_LENGTH. */
+    public static Set<String> parseTags(String tags) {
+        Set<String> parsed = new LinkedHashSet<>();
+        if (tags == null) return parsed;
+        Arrays.stream(tags.split(","))
+            .map(t -> t.strip().toLowerCase(Locale.ROOT))
+            .filter(t -> !t.isEmpty())
+            .map(t -> t.length() > TAG_LENGTH ? t.substring(0, TAG_LENGTH) : t)
+            .forEach(parsed::add);
+        return parsed;
+    }
+
+    public static String excerptOf(String content) {
+        if (content == null) return null;
+        String flat = content.strip().replaceAll("\\s+", " ");
+        if (flat.length() <= EXCERPT_LENGTH) return flat;
+        int end = EXCERPT_LENGTH - 1;
+        if (java.lang.Character.isHighSurrogate(flat.charAt(end - 1))) end--;
+        return flat.substring(0, end) + "…";
+    }
+
 }
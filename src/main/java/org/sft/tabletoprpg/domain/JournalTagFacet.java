@@ -0,0 +1,29 @@
+package org.sft.tabletoprpg.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.sft.tabletoprpg.domain.compositeKeys.JournalTagFacetId;
+
+/**
+ * Счётчик записей журнала кампании с тегом. Ведётся сервисом журнала при каждом изменении записи:
+ * totalCount — все записи (видит GM), playersCount — только PLAYERS (видят игроки).
+ */
+@ToString
+@Getter
+@Setter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "journal_tag_facets")
+public class JournalTagFacet {
+
+    @EmbeddedId
+    @EqualsAndHashCode.Include
+    private JournalTagFacetId id;
+
+    @Column(name = "total_count", nullable = false)
+    private int totalCount;
+
+    @Column(name = "players_count", nullable = false)
+    private int playersCount;
+}
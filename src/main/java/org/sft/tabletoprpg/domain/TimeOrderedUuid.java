@@ -0,0 +1,35 @@
+package org.sft.tabletoprpg.domain;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Первичные ключи сущностей: UUID версии 7 (RFC 9562) — 48 бит миллисекунд Unix-времени,
+ * 12 бит счётчика, 62 случайных бита. Новые ключи растут вместе со временем, поэтому вставки
+ * идут в правый край индекса первичного ключа, а не в случайные его страницы, как у {@link UUID#randomUUID()}.
+ * <p>
+ * В пределах процесса ключи строго возрастают (в порядке байтов, как их сравнивают PostgreSQL и H2):
+ * в одну миллисекунду растёт счётчик, при его переполнении — время «занимается» у следующей миллисекунды,
+ * откат системных часов время не уменьшает.
+ */
+public final class TimeOrderedUuid {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // миллисекунды << 12 | счётчик — ровно старшие 60 бит ключа без версии
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private TimeOrderedUuid() {}
+
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        long stamp = LAST.updateAndGet(last -> Math.max(last + 1, now));
+        long msb = (stamp >>> 12) << 16      // unix_ts_ms
+            | 0x7000L                        // версия 7
+            | (stamp & 0xFFFL);              // rand_a: счётчик в пределах миллисекунды
+        long lsb = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL
+            | 0x8000000000000000L;           // вариант RFC
+        return new UUID(msb, lsb);
+    }
+}
@@ -5,6 +5,8 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.stereotype.Component;
@@ -24,8 +26,11 @@ import java.util.UUID;
     @UniqueConstraint(columnNames = {"username"}),
     @UniqueConstraint(columnNames = {"email"})
     })
-@ToString(exclude = {"passwordHash"})
+@ToString(exclude = {"passwordHash", "loginKeys"})
 @Builder
+// пользователь с ролями читается почти на каждый запрос (JWT-фильтр, проверки прав) — кэш второго уровня
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User {
 
     @Id
@@ -50,10 +55,16 @@ public class User {
 
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-roles")
     @Enumerated(EnumType.STRING)
     @Column(name = "role", nullable = false)
     private Set<Role> roles = new HashSet<>();
 
+    // ключи входа сохраняются вместе с пользователем; удаляются каскадом в БД
+    @OneToMany(mappedBy = "user", cascade = CascadeType.PERSIST)
+    @Builder.Default
+    private Set<UserLoginKey> loginKeys = new HashSet<>();
+
     @CreationTimestamp
     @Column(nullable = false, insertable = true, updatable = false)
     private Instant createdAt;
@@ -66,7 +77,7 @@ public class User {
     @PrePersist
     public void prePersist() {
         if (this.id == null) {
-            this.id = UUID.randomUUID();
+            this.id = TimeOrderedUuid.next();
         }
     }
 
@@ -0,0 +1,45 @@
+package org.sft.tabletoprpg.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.util.Locale;
+
+import static jakarta.persistence.FetchType.LAZY;
+
+/**
+ * Нормализованный ключ входа (логин или почта) -> пользователь.
+ * Вход по логину и по почте — один поиск по первичному ключу этой таблицы.
+ */
+@Getter
+@Setter
+@ToString(exclude = "user")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "user_login_keys", indexes = {
+    @Index(name = "idx_user_login_keys_user", columnList = "user_id")
+})
+public class UserLoginKey {
+
+    @Id
+    @Column(name = "login_key", nullable = false, updatable = false)
+    @EqualsAndHashCode.Include
+    private String loginKey;
+
+    @ManyToOne(fetch = LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    public static UserLoginKey of(String rawLogin, User user) {
+        return new UserLoginKey(normalize(rawLogin), user);
+    }
+
+    /** " Alice@Mail.RU " и "alice@mail.ru" — один и тот же ключ. */
+    public static String normalize(String rawLogin) {
+        return rawLogin == null ? null : rawLogin.trim().toLowerCase(Locale.ROOT);
+    }
+}
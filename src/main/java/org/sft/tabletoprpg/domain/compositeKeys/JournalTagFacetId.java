@@ -0,0 +1,22 @@
+package org.sft.tabletoprpg.domain.compositeKeys;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class JournalTagFacetId implements Serializable {
+    @Column(name = "campaign_id", nullable = false)
+    private UUID campaignId;
+
+    @Column(name = "tag", nullable = false, length = 50)
+    private String tag;
+}
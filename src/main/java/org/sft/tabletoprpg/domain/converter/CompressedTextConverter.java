@@ -0,0 +1,26 @@
+package org.sft.tabletoprpg.domain.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Прозрачное сжатие больших текстовых полей. Экземпляр создаёт Spring
+ * (Hibernate берёт конвертеры из контекста), поэтому настройки кодека общие с фоновой миграцией.
+ */
+@Converter
+@RequiredArgsConstructor
+public class CompressedTextConverter implements AttributeConverter<String, String> {
+
+    private final TextCodec codec;
+
+    @Override
+    public String convertToDatabaseColumn(String attribute) {
+        return codec.encode(attribute);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String dbData) {
+        return codec.decode(dbData);
+    }
+}
@@ -0,0 +1,110 @@
+package org.sft.tabletoprpg.domain.converter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Формат хранения больших текстов (записи журнала, описания кампаний).
+ * Колонки остаются текстовыми, поэтому сжатое значение — base64 от Deflate с заголовком:
+ * <pre>
+ *   "\u0001D" + base64(deflate(utf8))   — сжато
+ *   "\u0001P" + текст                   — как есть, но сам текст начинается с \u0001
+ *   любой другой текст                  — как есть (в том числе все старые строки)
+ * </pre>
+ * Сжимается только текст длиннее порога и только если результат действительно короче.
+ */
+@Component
+public class TextCodec {
+
+    static final char MARKER = '\u0001';
+    static final char DEFLATE = 'D';
+    static final char PLAIN = 'P';
+
+    private final boolean enabled;
+    private final int threshold;
+
+    public TextCodec(@Value("${storage.compression.enabled:true}") boolean enabled,
+                     @Value("${storage.compression.threshold:1024}") int threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    public String encode(String text) {
+        if (text == null) return null;
+        if (enabled && text.length() >= threshold) {
+            String packed = MARKER + "" + DEFLATE + deflate(text);
+            if (packed.length() < text.length()) return packed;
+        }
+        return isTagged(text) ? MARKER + "" + PLAIN + text : text;
+    }
+
+    public String decode(String stored) {
+        if (stored == null || !isTagged(stored)) return stored;
+        if (stored.length() < 2) {
+            throw new IllegalStateException("Повреждённый заголовок сжатого текста");
+        }
+        return switch (stored.charAt(1)) {
+            case DEFLATE -> inflate(stored.substring(2));
+            case PLAIN -> stored.substring(2);
+            default -> throw new IllegalStateException("Неизвестный формат сжатого текста: " + (int) stored.charAt(1));
+        };
+    }
+
+    /** Значение уже в формате хранения (сжато или экранировано). */
+    public static boolean isTagged(String stored) {
+        return !stored.isEmpty() && stored.charAt(0) == MARKER;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int threshold() {
+        return threshold;
+    }
+
+    private static String deflate(String text) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(text.getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() / 2);
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buf, 0, deflater.deflate(buf));
+            }
+            return Base64.getEncoder().encodeToString(out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(String base64) {
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] packed = Base64.getDecoder().decode(base64);
+            inflater.setInput(packed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(packed.length * 4);
+            byte[] buf = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Сжатый текст обрезан");
+                }
+                out.write(buf, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException | IllegalArgumentException ex) {
+            throw new IllegalStateException("Не удалось распаковать текст", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+}
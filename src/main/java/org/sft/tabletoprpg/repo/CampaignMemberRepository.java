@@ -2,7 +2,10 @@ package org.sft.tabletoprpg.repo;
 
 import org.sft.tabletoprpg.domain.CampaignMember;
 import org.sft.tabletoprpg.domain.compositeKeys.CampaignMemberId;
+import org.sft.tabletoprpg.service.dto.campaign.CampaignMemberDto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,6 +14,17 @@ import java.util.UUID;
 public interface CampaignMemberRepository extends JpaRepository<CampaignMember, CampaignMemberId> {
 
     List<CampaignMember> findByCampaign_Id(UUID campaignId);
+
+    // список участников сразу в DTO одним запросом, без сущностей участников и пользователей
+    @Query("""
+        select new org.sft.tabletoprpg.service.dto.campaign.CampaignMemberDto(
+            u.id, u.username, u.email, m.roleInCampaign)
+        from CampaignMember m
+        join m.user u
+        where m.campaign.id = :campaignId
+        order by u.username
+        """)
+    List<CampaignMemberDto> findMemberDtos(@Param("campaignId") UUID campaignId);
     List<CampaignMember> findByUser_Id(UUID userId);
     Optional<CampaignMember> findByCampaign_IdAndUser_Id(UUID campaignId, UUID userId);
     boolean existsByCampaign_IdAndUser_Id(UUID campaignId, UUID userId);
@@ -1,9 +1,14 @@
 package org.sft.tabletoprpg.repo;
 
 import org.sft.tabletoprpg.domain.Campaign;
+import org.sft.tabletoprpg.repo.projection.CampaignAccessRow;
+import org.sft.tabletoprpg.service.dto.campaign.CampaignDto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface CampaignRepository extends JpaRepository<Campaign, UUID> {
@@ -11,6 +16,36 @@ public interface CampaignRepository extends JpaRepository<Campaign, UUID> {
     List<Campaign> findByGm_Id(UUID gmUserId);
     boolean existsByGm_Id(UUID gmId);
     boolean existsByIdAndGm_Id(UUID campaignId, UUID gmUserId);
-    List<Campaign> findByGm_IdOrderByCreatedAtDesc(UUID gmId);
+
+    /* ---------- списки сразу в DTO: сущности не создаются, описание разжимает конвертер ---------- */
+
+    @Query("""
+        select new org.sft.tabletoprpg.service.dto.campaign.CampaignDto(
+            c.id, c.name, c.description, c.gm.id, c.createdAt, c.updatedAt)
+        from Campaign c
+        where c.gm.id = :gmId
+        order by c.createdAt desc, c.id
+        """)
+    List<CampaignDto> findDtosByGm(@Param("gmId") UUID gmId);
+
+    // кампании участника одним запросом, новые сверху; GM — только внешний ключ, пользователь не грузится
+    @Query("""
+        select new org.sft.tabletoprpg.service.dto.campaign.CampaignDto(
+            c.id, c.name, c.description, c.gm.id, c.createdAt, c.updatedAt)
+        from CampaignMember m
+        join m.campaign c
+        where m.user.id = :userId
+        order by c.createdAt desc, c.id
+        """)
+    List<CampaignDto> findDtosByMember(@Param("userId") UUID userId);
+
+    // права пользователя в кампании одним запросом: GM + роль участника
+    @Query("""
+        select new org.sft.tabletoprpg.repo.projection.CampaignAccessRow(c.gm.id, m.roleInCampaign)
+        from Campaign c
+        left join CampaignMember m on m.campaign = c and m.user.id = :userId
+        where c.id = :campaignId
+        """)
+    Optional<CampaignAccessRow> findAccessRow(@Param("campaignId") UUID campaignId, @Param("userId") UUID userId);
 
 }
@@ -1,17 +1,110 @@
 package org.sft.tabletoprpg.repo;
 
+import org.hibernate.jpa.HibernateHints;
 import org.sft.tabletoprpg.domain.CharacterInventory;
 import org.sft.tabletoprpg.domain.compositeKeys.CharacterInventoryId;
+import org.sft.tabletoprpg.service.dto.inventory.CharacterInventoryEntryDto;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface CharacterInventoryRepository extends JpaRepository<CharacterInventory, CharacterInventoryId> {
 
-    boolean existsByItem_Id(UUID itemId);
     Optional<CharacterInventory> findByCharacter_IdAndItem_Id(UUID characterId, UUID itemId);
-    List<CharacterInventory> findByCharacter_Id(UUID characterId);
+
+    // инвентарь сразу в DTO: строки и предметы одним запросом, без сущностей
+    @Query("""
+        select new org.sft.tabletoprpg.service.dto.inventory.CharacterInventoryEntryDto(
+            ci.id.characterId, i.id, ci.quantity, i.name, i.description, i.weight, i.price)
+        from CharacterInventory ci
+        join ci.item i
+        where ci.id.characterId = :characterId
+        """)
+    List<CharacterInventoryEntryDto> findEntryDtos(@Param("characterId") UUID characterId);
+
     void deleteByCharacter_IdAndItem_Id(UUID characterId, UUID itemId);
+
+    // строки пакетной операции под блокировкой; порядок (character_id, item_id) одинаков у всех пачек — без взаимных блокировок
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+        select ci from CharacterInventory ci
+        where ci.id.characterId in :characterIds and ci.id.itemId in :itemIds
+        order by ci.id.characterId, ci.id.itemId
+        """)
+    List<CharacterInventory> lockRows(@Param("characterIds") Collection<UUID> characterIds,
+                                      @Param("itemIds") Collection<UUID> itemIds);
+
+    // текущее количество под блокировкой строки (для установки абсолютного значения и удаления)
+    @Query(value = """
+        SELECT quantity FROM character_inventory
+        WHERE character_id = :characterId AND item_id = :itemId
+        FOR UPDATE
+        """, nativeQuery = true)
+    Optional<Integer> lockQuantity(@Param("characterId") UUID characterId, @Param("itemId") UUID itemId);
+
+    /* ---------- атомарные изменения количества: одна строка, один оператор, без чтения ---------- */
+    // У каждого native-изменения указана затронутая таблица (query space): без неё Hibernate
+    // на всякий случай сбрасывает весь кэш второго уровня — предметы, пользователей, кампании
+
+    // 0 -> строки нет
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "character_inventory"))
+    @Query(value = """
+        UPDATE character_inventory SET quantity = quantity + :delta
+        WHERE character_id = :characterId AND item_id = :itemId
+        """, nativeQuery = true)
+    int addQuantity(@Param("characterId") UUID characterId, @Param("itemId") UUID itemId, @Param("delta") int delta);
+
+    // 0 -> строку параллельно вставил кто-то другой
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "character_inventory"))
+    @Query(value = """
+        INSERT INTO character_inventory (character_id, item_id, quantity)
+        VALUES (:characterId, :itemId, :quantity)
+        ON CONFLICT DO NOTHING
+        """, nativeQuery = true)
+    int insertIfAbsent(@Param("characterId") UUID characterId, @Param("itemId") UUID itemId, @Param("quantity") int quantity);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "character_inventory"))
+    @Query(value = """
+        UPDATE character_inventory SET quantity = :quantity
+        WHERE character_id = :characterId AND item_id = :itemId
+        """, nativeQuery = true)
+    int updateQuantity(@Param("characterId") UUID characterId, @Param("itemId") UUID itemId, @Param("quantity") int quantity);
+
+    // списание, после которого остаётся хотя бы 1; 0 -> не хватает, ровно столько или строки нет
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "character_inventory"))
+    @Query(value = """
+        UPDATE character_inventory SET quantity = quantity - :quantity
+        WHERE character_id = :characterId AND item_id = :itemId AND quantity > :quantity
+        """, nativeQuery = true)
+    int subtractKeepingRow(@Param("characterId") UUID characterId, @Param("itemId") UUID itemId, @Param("quantity") int quantity);
+
+    // списание "в ноль": строка удаляется, только если в ней ровно :quantity
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "character_inventory"))
+    @Query(value = """
+        DELETE FROM character_inventory
+        WHERE character_id = :characterId AND item_id = :itemId AND quantity = :quantity
+        """, nativeQuery = true)
+    int deleteIfQuantityIs(@Param("characterId") UUID characterId, @Param("itemId") UUID itemId, @Param("quantity") int quantity);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "character_inventory"))
+    @Query(value = """
+        DELETE FROM character_inventory WHERE character_id = :characterId AND item_id = :itemId
+        """, nativeQuery = true)
+    int deleteRow(@Param("characterId") UUID characterId, @Param("itemId") UUID itemId);
 }
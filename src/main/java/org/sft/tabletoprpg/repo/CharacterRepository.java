@@ -1,7 +1,19 @@
 package org.sft.tabletoprpg.repo;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.sft.tabletoprpg.repo.projection.CharacterAccessView;
+import org.sft.tabletoprpg.service.dto.character.CharacterDto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -9,7 +21,6 @@ import java.util.UUID;
 public interface CharacterRepository extends JpaRepository<org.sft.tabletoprpg.domain.Character, UUID> {
 
     List<org.sft.tabletoprpg.domain.Character> findByOwner_Id(UUID ownerId);
-    List<org.sft.tabletoprpg.domain.Character> findByCampaign_Id(UUID campaignId);
     boolean existsByOwner_Id(UUID ownerId);
     boolean existsByCampaign_IdAndNameIgnoreCase(UUID campaignId, String name);
     boolean existsByCampaign_IdAndOwner_Id(UUID campaignId, UUID ownerId);
@@ -17,4 +28,138 @@ public interface CharacterRepository extends JpaRepository<org.sft.tabletoprpg.d
     boolean existsByIdAndOwner_Id(UUID characterId, UUID ownerId);
     boolean existsByIdAndCampaign_Id(UUID characterId, UUID campaignId);
     Optional<org.sft.tabletoprpg.domain.Character> findByIdAndCampaign_Id(UUID characterId, UUID campaignId);
+
+    // владелец/кампания/GM персонажа одним запросом по PK (characters -> campaigns)
+    @Query("""
+        select new org.sft.tabletoprpg.repo.projection.CharacterAccessView(ch.id, ch.owner.id, c.id, c.gm.id)
+        from Character ch
+        join ch.campaign c
+        where ch.id = :characterId
+        """)
+    Optional<CharacterAccessView> findAccessView(@Param("characterId") UUID characterId);
+
+    // то же для пачки персонажей (пакетные операции с инвентарём)
+    @Query("""
+        select new org.sft.tabletoprpg.repo.projection.CharacterAccessView(ch.id, ch.owner.id, c.id, c.gm.id)
+        from Character ch
+        join ch.campaign c
+        where ch.id in :characterIds
+        """)
+    List<CharacterAccessView> findAccessViews(@Param("characterIds") Collection<UUID> characterIds);
+
+    /* ---------- чтение сразу в DTO (вместе с названием кампании), без сущностей ---------- */
+
+    @Query("""
+        select new org.sft.tabletoprpg.service.dto.character.CharacterDto(
+            ch.id, ch.name, ch.clazz, ch.race, ch.level, ch.hp, ch.maxHp,
+            ch.atributes.attr_str, ch.atributes.attr_agi, ch.atributes.attr_stam,
+            ch.atributes.attr_int, ch.atributes.attr_wis, ch.atributes.attr_cha,
+            ch.owner.id, c.id, c.name, ch.totalWeight, ch.totalPrice, ch.itemCount)
+        from Character ch
+        join ch.campaign c
+        where ch.id = :characterId
+        """)
+    Optional<CharacterDto> findDtoById(@Param("characterId") UUID characterId);
+
+    @Query("""
+        select new org.sft.tabletoprpg.service.dto.character.CharacterDto(
+            ch.id, ch.name, ch.clazz, ch.race, ch.level, ch.hp, ch.maxHp,
+            ch.atributes.attr_str, ch.atributes.attr_agi, ch.atributes.attr_stam,
+            ch.atributes.attr_int, ch.atributes.attr_wis, ch.atributes.attr_cha,
+            ch.owner.id, c.id, c.name, ch.totalWeight, ch.totalPrice, ch.itemCount)
+        from Character ch
+        join ch.campaign c
+        where c.id = :campaignId
+        """)
+    List<CharacterDto> findDtosByCampaign(@Param("campaignId") UUID campaignId);
+
+    @Query("""
+        select new org.sft.tabletoprpg.service.dto.character.CharacterDto(
+            ch.id, ch.name, ch.clazz, ch.race, ch.level, ch.hp, ch.maxHp,
+            ch.atributes.attr_str, ch.atributes.attr_agi, ch.atributes.attr_stam,
+            ch.atributes.attr_int, ch.atributes.attr_wis, ch.atributes.attr_cha,
+            ch.owner.id, c.id, c.name, ch.totalWeight, ch.totalPrice, ch.itemCount)
+        from Character ch
+        join ch.campaign c
+        where ch.owner.id = :ownerId
+        """)
+    List<CharacterDto> findDtosByOwner(@Param("ownerId") UUID ownerId);
+
+    /* ---------- HP: только колонка hp, без перезаписи всей строки ---------- */
+
+    // дельта с ограничением [0..max_hp] прямо в БД: параллельные удары не теряются.
+    // Здесь и ниже query space = characters: кэш второго уровня сбрасывается только для этой таблицы
+    @Modifying(clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "characters"))
+    @Query(value = "UPDATE characters SET hp = GREATEST(0, LEAST(max_hp, hp + :delta)) WHERE id = :characterId",
+        nativeQuery = true)
+    int applyHpDelta(@Param("characterId") UUID characterId, @Param("delta") int delta);
+
+    // 0 -> персонажа нет или hp > max_hp
+    @Modifying(clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "characters"))
+    @Query(value = "UPDATE characters SET hp = :hp WHERE id = :characterId AND :hp BETWEEN 0 AND max_hp",
+        nativeQuery = true)
+    int setHpWithinMax(@Param("characterId") UUID characterId, @Param("hp") int hp);
+
+    @Query(value = "SELECT hp FROM characters WHERE id = :characterId", nativeQuery = true)
+    Optional<Integer> findHp(@Param("characterId") UUID characterId);
+
+    // инвентарь к этому моменту удалён ItemUsageCounters.releaseCharacter; ON DELETE CASCADE в БД — страховка
+    @Modifying
+    @Query("delete from Character ch where ch.id = :characterId")
+    int deleteDirectlyById(@Param("characterId") UUID characterId);
+
+    // Строки персонажей — замок их инвентаря. Любая запись в инвентарь сначала берёт их здесь, в порядке id,
+    // и только потом строки character_inventory, агрегаты и счётчики предметов: пакеты, переводы
+    // и поштучные операции ждут друг друга на первом же шаге и не сцепляются по кругу
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c.id from Character c where c.id in :ids order by c.id")
+    List<UUID> lockForInventory(@Param("ids") Collection<UUID> ids);
+
+    /* ---------- агрегаты инвентаря: сдвиг дельтой в самой строке, параллельные операции не теряются ---------- */
+
+    // Вес и цена предмета читаются тем же оператором. Строку items операция к этому моменту держит
+    // (ItemRepository.lockForShare), так что правка веса/цены либо закоммичена до неё, либо ждёт её коммита
+    // и сдвигает агрегаты уже с учётом её количеств. Тот же текст пакетная операция отправляет одной JDBC-пачкой
+    String ADD_ITEM_TO_TOTALS = """
+        UPDATE characters c
+        SET total_weight = c.total_weight + CAST(:quantity AS BIGINT) *
+                COALESCE((SELECT i.weight FROM items i WHERE i.id = :itemId), 0),
+            total_price = c.total_price + CAST(:quantity AS BIGINT) *
+                COALESCE((SELECT i.price FROM items i WHERE i.id = :itemId), 0),
+            item_count = c.item_count + :quantity
+        WHERE c.id = :characterId
+        """;
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "characters"))
+    @Query(value = ADD_ITEM_TO_TOTALS, nativeQuery = true)
+    int addItemToTotals(@Param("characterId") UUID characterId, @Param("itemId") UUID itemId,
+                        @Param("quantity") long quantity);
+
+    // держатели предмета под блокировкой в порядке id — том же, что у lockForInventory
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+        select c.id from Character c
+        where c.id in (select ci.id.characterId from CharacterInventory ci where ci.id.itemId = :itemId)
+        order by c.id
+        """)
+    List<UUID> lockHoldersOfItem(@Param("itemId") UUID itemId);
+
+    // у предмета изменились вес/цена: всем, у кого он есть, — сдвиг на количество × разницу;
+    // строки держателей перед этим заблокированы lockHoldersOfItem — порядок UPDATE здесь не важен
+    // (CAST: иначе H2 выводит тип параметра из множителя INT и округляет дробный вес)
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "characters"))
+    @Query(value = """
+        UPDATE characters c
+        SET total_weight = c.total_weight + CAST(:weightDelta AS NUMERIC(14,2)) *
+                (SELECT ci.quantity FROM character_inventory ci WHERE ci.character_id = c.id AND ci.item_id = :itemId),
+            total_price = c.total_price + CAST(:priceDelta AS BIGINT) *
+                (SELECT ci.quantity FROM character_inventory ci WHERE ci.character_id = c.id AND ci.item_id = :itemId)
+        WHERE c.id IN (SELECT ci.character_id FROM character_inventory ci WHERE ci.item_id = :itemId)
+        """, nativeQuery = true)
+    int shiftInventoryTotalsForItem(@Param("itemId") UUID itemId, @Param("weightDelta") BigDecimal weightDelta,
+                                    @Param("priceDelta") long priceDelta);
 }
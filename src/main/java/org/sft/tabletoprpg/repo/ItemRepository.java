@@ -1,8 +1,14 @@
 package org.sft.tabletoprpg.repo;
 
 import org.sft.tabletoprpg.domain.Item;
+import org.sft.tabletoprpg.service.dto.item.ItemDto;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 import java.util.UUID;
@@ -12,4 +18,37 @@ public interface ItemRepository extends JpaRepository<Item, UUID> {
     Optional<Item> findByNameIgnoreCase(String name);
     boolean existsByNameIgnoreCase(String name);
     List<Item> findByNameContainingIgnoreCase(String name);
+
+    /* ---------- списки сразу в DTO, без сущностей (по id — через кэш второго уровня) ---------- */
+
+    @Query("""
+        select new org.sft.tabletoprpg.service.dto.item.ItemDto(i.id, i.name, i.description, i.weight, i.price)
+        from Item i
+        """)
+    List<ItemDto> findAllDtos();
+
+    // то же условие, что у findByNameContainingIgnoreCase
+    @Query("""
+        select new org.sft.tabletoprpg.service.dto.item.ItemDto(i.id, i.name, i.description, i.weight, i.price)
+        from Item i
+        where upper(i.name) like upper(concat('%', :name, '%'))
+        """)
+    List<ItemDto> findDtosByNameContaining(@Param("name") String name);
+
+    // правка и удаление предмета: параллельные правки одного предмета идут по очереди,
+    // и прежние вес/цена читаются из строки под блокировкой, а не из кэша второго уровня
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Item i where i.id = :id")
+    Optional<Item> lockForUpdate(@Param("id") UUID id);
+
+    // операции с инвентарём: предмет держится до коммита, и правка веса/цены (lockForUpdate) ждёт их,
+    // а они — её. Так ADD_ITEM_TO_TOTALS сдвигает агрегаты по тем весу и цене, с которыми операция закоммитится
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select i from Item i where i.id = :id")
+    Optional<Item> lockForShare(@Param("id") UUID id);
+
+    // то же для пакета: существующие из id одним запросом, в порядке id — пакеты с общими предметами не сцепляются
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select i.id from Item i where i.id in :ids order by i.id")
+    List<UUID> lockAllForShare(@Param("ids") Collection<UUID> ids);
 }
@@ -0,0 +1,66 @@
+package org.sft.tabletoprpg.repo;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.sft.tabletoprpg.domain.ItemStats;
+import org.sft.tabletoprpg.repo.projection.ItemUsageRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ItemStatsRepository extends JpaRepository<ItemStats, UUID> {
+
+    @Query("select s.holders from ItemStats s where s.itemId = :itemId")
+    Optional<Long> findHolders(@Param("itemId") UUID itemId);
+
+    // предметы, которые у кого-то есть: идёт по idx_item_stats_popularity с начала, без сортировки
+    @Query("""
+        select new org.sft.tabletoprpg.repo.projection.ItemUsageRow(s.itemId, i.name, s.holders, s.totalQuantity)
+        from ItemStats s join Item i on i.id = s.itemId
+        where s.holders > 0
+        order by s.holders desc, s.totalQuantity desc, s.itemId
+        """)
+    List<ItemUsageRow> findHeld(Pageable pageable);
+
+    @Query("select count(s) from ItemStats s where s.holders > 0")
+    long countHeld();
+
+    // хвост каталога: предметы без держателей (строки счётчиков нет или в ней 0), по имени
+    @Query("""
+        select new org.sft.tabletoprpg.repo.projection.ItemUsageRow(i.id, i.name, 0L, 0L)
+        from Item i
+        where not exists (select 1 from ItemStats s where s.itemId = i.id and s.holders > 0)
+        order by i.name, i.id
+        limit :limit offset :offset
+        """)
+    List<ItemUsageRow> findUnheld(@Param("offset") long offset, @Param("limit") int limit);
+
+    /* ---------- сдвиг счётчиков одним оператором (как у фасетов журнала) ---------- */
+
+    // 0 -> строки нет
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "item_stats"))
+    @Query(value = """
+        UPDATE item_stats
+        SET holders = holders + :holders, total_quantity = total_quantity + :quantity
+        WHERE item_id = :itemId
+        """, nativeQuery = true)
+    int addUsage(@Param("itemId") UUID itemId, @Param("holders") long holders, @Param("quantity") long quantity);
+
+    // 0 -> строку параллельно вставил кто-то другой
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "item_stats"))
+    @Query(value = """
+        INSERT INTO item_stats (item_id, holders, total_quantity)
+        VALUES (:itemId, :holders, :quantity)
+        ON CONFLICT DO NOTHING
+        """, nativeQuery = true)
+    int insertIfAbsent(@Param("itemId") UUID itemId, @Param("holders") long holders, @Param("quantity") long quantity);
+}
@@ -2,20 +2,173 @@ package org.sft.tabletoprpg.repo;
 
 import org.sft.tabletoprpg.domain.JournalEntry;
 import org.sft.tabletoprpg.domain.JournalVisibility;
+import org.sft.tabletoprpg.repo.projection.JournalFilterRow;
+import org.sft.tabletoprpg.repo.projection.JournalSearchRow;
+import org.sft.tabletoprpg.repo.projection.JournalTagRow;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntrySummaryDto;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface JournalEntryRepository extends JpaRepository<JournalEntry, UUID> {
 
-    List<JournalEntry> findByCampaign_IdOrderByCreatedAtDesc(UUID campaignId);
-    List<JournalEntry> findByCampaign_IdAndVisibilityOrderByCreatedAtDesc(UUID campaignId, JournalVisibility visibility);
-    List<JournalEntry> findByCampaign_IdAndTypeIgnoreCaseOrderByCreatedAtDesc(UUID campaignId, String type);
-    List<JournalEntry> findByCampaign_IdAndTypeIgnoreCaseAndVisibilityOrderByCreatedAtDesc(UUID campaignId, String type, JournalVisibility visibility);
     boolean existsByAuthor_Id(UUID authorId);
 
+    // изменение и удаление записи: старые теги и видимость читаются под блокировкой строки,
+    // иначе две параллельные правки посчитают дельты фасетов от одного и того же состояния
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from JournalEntry e where e.id = :id")
+    Optional<JournalEntry> lockById(@Param("id") UUID id);
+
+    // Чтение сразу в DTO: сущности записей не создаются. Карточка списка — без текста,
+    // полная запись — с текстом (его разжимает конвертер колонки)
+    String SUMMARY = """
+        select new org.sft.tabletoprpg.service.dto.journal.JournalEntrySummaryDto(
+            e.id, e.campaign.id, e.author.id, e.type, e.visibility, e.title, e.tags,
+            e.createdAt, e.contentLength, e.excerpt)
+        from JournalEntry e
+        """;
+    String FULL = """
+        select new org.sft.tabletoprpg.service.dto.journal.JournalEntryDto(
+            e.id, e.campaign.id, e.author.id, e.type, e.visibility, e.title, e.content, e.tags, e.createdAt)
+        from JournalEntry e
+        """;
+
+    @Query(FULL + "where e.id = :id")
+    Optional<JournalEntryDto> findDtoById(@Param("id") UUID id);
+
+    @Query(FULL + """
+        where e.campaign.id = :campaignId
+          and e.visibility in :visibilities
+        order by e.createdAt desc, e.id desc
+        """)
+    List<JournalEntryDto> findDtosByCampaign(@Param("campaignId") UUID campaignId,
+                                             @Param("visibilities") Collection<JournalVisibility> visibilities);
+
+    @Query(FULL + """
+        where e.campaign.id = :campaignId
+          and e.visibility in :visibilities
+          and lower(e.type) = lower(:type)
+        order by e.createdAt desc, e.id desc
+        """)
+    List<JournalEntryDto> findDtosByCampaignAndType(@Param("campaignId") UUID campaignId,
+                                                    @Param("visibilities") Collection<JournalVisibility> visibilities,
+                                                    @Param("type") String type);
+
+    // Keyset-страницы ленты кампании: (created_at, id) строго меньше курсора, новые сверху.
+    // Идёт по idx_journal_campaign_created_at, без OFFSET.
+    @Query(SUMMARY + """
+        where e.campaign.id = :campaignId
+          and e.visibility in :visibilities
+          and (e.createdAt < :createdAt or (e.createdAt = :createdAt and e.id < :id))
+        order by e.createdAt desc, e.id desc
+        """)
+    List<JournalEntrySummaryDto> findPage(@Param("campaignId") UUID campaignId,
+                                @Param("visibilities") Collection<JournalVisibility> visibilities,
+                                @Param("createdAt") Instant createdAt,
+                                @Param("id") UUID id,
+                                Limit limit);
+
+    @Query(SUMMARY + """
+        where e.campaign.id = :campaignId
+          and e.visibility in :visibilities
+          and lower(e.type) = lower(:type)
+          and (e.createdAt < :createdAt or (e.createdAt = :createdAt and e.id < :id))
+        order by e.createdAt desc, e.id desc
+        """)
+    List<JournalEntrySummaryDto> findPageByType(@Param("campaignId") UUID campaignId,
+                                      @Param("visibilities") Collection<JournalVisibility> visibilities,
+                                      @Param("type") String type,
+                                      @Param("createdAt") Instant createdAt,
+                                      @Param("id") UUID id,
+                                      Limit limit);
+
+    // Лента по тегам: кандидаты берутся по индексу (tag, entry_id) в journal_entry_tags;
+    // minMatches = число тегов — все (AND), 1 — хотя бы один (OR)
+    @Query(SUMMARY + """
+        where e.campaign.id = :campaignId
+          and e.visibility in :visibilities
+          and (e.createdAt < :createdAt or (e.createdAt = :createdAt and e.id < :id))
+          and e.id in (
+              select t.id from JournalEntry t join t.tagSet tag
+              where tag in :tags
+              group by t.id
+              having count(tag) >= :minMatches)
+        order by e.createdAt desc, e.id desc
+        """)
+    List<JournalEntrySummaryDto> findPageByTags(@Param("campaignId") UUID campaignId,
+                                      @Param("visibilities") Collection<JournalVisibility> visibilities,
+                                      @Param("tags") Collection<String> tags,
+                                      @Param("minMatches") long minMatches,
+                                      @Param("createdAt") Instant createdAt,
+                                      @Param("id") UUID id,
+                                      Limit limit);
+
+    // Битовые индексы фильтров: измерения и теги всех записей кампании, в порядке создания
+    @Query("""
+        select new org.sft.tabletoprpg.repo.projection.JournalFilterRow(
+            e.id, e.campaign.id, e.type, e.visibility, e.author.id, e.createdAt)
+        from JournalEntry e
+        where e.campaign.id = :campaignId
+        order by e.createdAt, e.id
+        """)
+    List<JournalFilterRow> findFilterRows(@Param("campaignId") UUID campaignId);
+
+    @Query("""
+        select new org.sft.tabletoprpg.repo.projection.JournalTagRow(e.id, tag)
+        from JournalEntry e join e.tagSet tag
+        where e.campaign.id = :campaignId
+        """)
+    List<JournalTagRow> findTagRows(@Param("campaignId") UUID campaignId);
+
+    @Query("""
+        select new org.sft.tabletoprpg.repo.projection.JournalFilterRow(
+            e.id, e.campaign.id, e.type, e.visibility, e.author.id, e.createdAt)
+        from JournalEntry e
+        where e.id = :id
+        """)
+    Optional<JournalFilterRow> findFilterRow(@Param("id") UUID id);
+
+    @Query("select tag from JournalEntry e join e.tagSet tag where e.id = :id")
+    List<String> findTags(@Param("id") UUID id);
+
+    // страница, отобранная битовыми индексами (или поиском), — одним запросом по id
+    @Query(SUMMARY + "where e.id in :ids order by e.createdAt desc, e.id desc")
+    List<JournalEntrySummaryDto> findAllByIdNewestFirst(@Param("ids") Collection<UUID> ids);
+
+    // Полнотекстовый индекс: записи кампаний пачками по id (личные записи не индексируются)
+    @Query("""
+        select new org.sft.tabletoprpg.repo.projection.JournalSearchRow(
+            e.id, e.campaign.id, e.visibility, e.title, e.content, e.tags)
+        from JournalEntry e
+        where e.campaign is not null and e.id > :after
+        order by e.id
+        """)
+    List<JournalSearchRow> findSearchRows(@Param("after") UUID after, Limit limit);
+
+    @Query("""
+        select new org.sft.tabletoprpg.repo.projection.JournalSearchRow(
+            e.id, e.campaign.id, e.visibility, e.title, e.content, e.tags)
+        from JournalEntry e
+        where e.id = :id and e.campaign is not null
+        """)
+    Optional<JournalSearchRow> findSearchRow(@Param("id") UUID id);
+
     // Personal journals (campaign is null)
-    List<JournalEntry> findByAuthor_IdAndCampaignIsNullOrderByCreatedAtDesc(UUID authorId);
+    @Query(SUMMARY + """
+        where e.author.id = :authorId and e.campaign is null
+        order by e.createdAt desc, e.id desc
+        """)
+    List<JournalEntrySummaryDto> findPersonalSummaries(@Param("authorId") UUID authorId);
 
 }
@@ -0,0 +1,61 @@
+package org.sft.tabletoprpg.repo;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.sft.tabletoprpg.domain.JournalTagFacet;
+import org.sft.tabletoprpg.domain.compositeKeys.JournalTagFacetId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface JournalTagFacetRepository extends JpaRepository<JournalTagFacet, JournalTagFacetId> {
+
+    @Query("""
+        select f from JournalTagFacet f
+        where f.id.campaignId = :campaignId and f.totalCount > 0
+        order by f.totalCount desc, f.id.tag
+        """)
+    List<JournalTagFacet> findAllCounts(@Param("campaignId") UUID campaignId);
+
+    @Query("""
+        select f from JournalTagFacet f
+        where f.id.campaignId = :campaignId and f.playersCount > 0
+        order by f.playersCount desc, f.id.tag
+        """)
+    List<JournalTagFacet> findPlayersCounts(@Param("campaignId") UUID campaignId);
+
+    /* ---------- сдвиг счётчиков одним оператором (как в инвентаре) ---------- */
+
+    // 0 -> строки нет
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "journal_tag_facets"))
+    @Query(value = """
+        UPDATE journal_tag_facets
+        SET total_count = total_count + :total, players_count = players_count + :players
+        WHERE campaign_id = :campaignId AND tag = :tag
+        """, nativeQuery = true)
+    int addCounts(@Param("campaignId") UUID campaignId, @Param("tag") String tag,
+                  @Param("total") int total, @Param("players") int players);
+
+    // 0 -> строку параллельно вставил кто-то другой
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "journal_tag_facets"))
+    @Query(value = """
+        INSERT INTO journal_tag_facets (campaign_id, tag, total_count, players_count)
+        VALUES (:campaignId, :tag, :total, :players)
+        ON CONFLICT DO NOTHING
+        """, nativeQuery = true)
+    int insertIfAbsent(@Param("campaignId") UUID campaignId, @Param("tag") String tag,
+                       @Param("total") int total, @Param("players") int players);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "journal_tag_facets"))
+    @Query(value = "DELETE FROM journal_tag_facets WHERE campaign_id = :campaignId AND total_count <= 0",
+        nativeQuery = true)
+    int deleteEmpty(@Param("campaignId") UUID campaignId);
+}
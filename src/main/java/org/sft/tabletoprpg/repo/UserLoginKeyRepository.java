@@ -0,0 +1,7 @@
+package org.sft.tabletoprpg.repo;
+
+import org.sft.tabletoprpg.domain.UserLoginKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UserLoginKeyRepository extends JpaRepository<UserLoginKey, String> {
+}
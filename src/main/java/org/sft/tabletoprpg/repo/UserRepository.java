@@ -2,6 +2,8 @@ package org.sft.tabletoprpg.repo;
 
 import org.sft.tabletoprpg.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -12,4 +14,13 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+
+    // вход: пользователь вместе с ролями одним запросом по нормализованному ключу
+    @Query("""
+        select distinct u from UserLoginKey k
+        join k.user u
+        left join fetch u.roles
+        where k.loginKey = :loginKey
+        """)
+    Optional<User> findByLoginKey(@Param("loginKey") String loginKey);
 }
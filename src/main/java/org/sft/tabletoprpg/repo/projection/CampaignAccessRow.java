@@ -0,0 +1,13 @@
+package org.sft.tabletoprpg.repo.projection;
+
+import org.sft.tabletoprpg.domain.CampaignRole;
+
+import java.util.UUID;
+
+/**
+ * GM кампании и роль конкретного пользователя в ней (null — не участник).
+ */
+public record CampaignAccessRow(
+    UUID gmId,
+    CampaignRole memberRole
+) {}
@@ -0,0 +1,21 @@
+package org.sft.tabletoprpg.repo.projection;
+
+import java.util.UUID;
+
+/**
+ * Всё, что нужно для проверки прав на операции с персонажем, без загрузки сущностей.
+ */
+public record CharacterAccessView(
+    UUID characterId,
+    UUID ownerId,
+    UUID campaignId,
+    UUID gmId
+) {
+    public boolean isOwner(UUID userId) {
+        return ownerId.equals(userId);
+    }
+
+    public boolean isGm(UUID userId) {
+        return gmId.equals(userId);
+    }
+}
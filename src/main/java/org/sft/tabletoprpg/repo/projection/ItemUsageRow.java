@@ -0,0 +1,13 @@
+package org.sft.tabletoprpg.repo.projection;
+
+import java.util.UUID;
+
+/**
+ * Предмет каталога со счётчиками использования (0, если строки item_stats нет).
+ */
+public record ItemUsageRow(
+    UUID itemId,
+    String name,
+    long holders,
+    long totalQuantity
+) {}
@@ -0,0 +1,18 @@
+package org.sft.tabletoprpg.repo.projection;
+
+import org.sft.tabletoprpg.domain.JournalVisibility;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Измерения записи журнала для битовых индексов фильтров (без текста и тегов).
+ */
+public record JournalFilterRow(
+    UUID id,
+    UUID campaignId,
+    String type,
+    JournalVisibility visibility,
+    UUID authorId,
+    Instant createdAt
+) {}
@@ -0,0 +1,17 @@
+package org.sft.tabletoprpg.repo.projection;
+
+import org.sft.tabletoprpg.domain.JournalVisibility;
+
+import java.util.UUID;
+
+/**
+ * Поля записи журнала кампании, которые попадают в полнотекстовый индекс.
+ */
+public record JournalSearchRow(
+    UUID id,
+    UUID campaignId,
+    JournalVisibility visibility,
+    String title,
+    String content,
+    String tags
+) {}
@@ -0,0 +1,11 @@
+package org.sft.tabletoprpg.repo.projection;
+
+import java.util.UUID;
+
+/**
+ * Один нормализованный тег записи журнала.
+ */
+public record JournalTagRow(
+    UUID entryId,
+    String tag
+) {}
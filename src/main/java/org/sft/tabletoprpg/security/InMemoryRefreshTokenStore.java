@@ -0,0 +1,105 @@
+package org.sft.tabletoprpg.security;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Хранилище по умолчанию: всё в памяти, после рестарта все refresh-токены недействительны.
+ */
+@Component
+@ConditionalOnProperty(prefix = "security.jwt", name = "refresh-store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    private record ExpiryKey(Instant expiresAt, String tokenId) {}
+
+    private final Map<String, RefreshTokenRecord> byId = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<String>> byFamily = new ConcurrentHashMap<>();
+    // цепочки пользователя: отзыв при удалении не обходит всё хранилище
+    private final Map<UUID, Set<UUID>> familiesByUser = new ConcurrentHashMap<>();
+
+    // индекс по сроку: очистка снимает записи с головы, не обходя всё хранилище
+    private final NavigableSet<ExpiryKey> byExpiry = new ConcurrentSkipListSet<>(
+        Comparator.comparing(ExpiryKey::expiresAt).thenComparing(ExpiryKey::tokenId));
+
+    @Override
+    public void save(RefreshTokenRecord record) {
+        byId.put(record.tokenId(), record);
+        byFamily.computeIfAbsent(record.familyId(), f -> ConcurrentHashMap.newKeySet()).add(record.tokenId());
+        familiesByUser.computeIfAbsent(record.userId(), u -> ConcurrentHashMap.newKeySet()).add(record.familyId());
+        byExpiry.add(new ExpiryKey(record.expiresAt(), record.tokenId()));
+    }
+
+    @Override
+    public Optional<RefreshTokenRecord> find(String tokenId) {
+        return Optional.ofNullable(byId.get(tokenId));
+    }
+
+    @Override
+    public boolean markUsed(String tokenId) {
+        boolean[] marked = {false};
+        byId.computeIfPresent(tokenId, (id, r) -> {
+            if (r.used()) return r;
+            marked[0] = true;
+            return r.markedUsed();
+        });
+        return marked[0];
+    }
+
+    @Override
+    public void revokeFamily(UUID familyId) {
+        Set<String> ids = byFamily.remove(familyId);
+        if (ids == null) return;
+        for (String id : ids) {
+            RefreshTokenRecord r = byId.remove(id);
+            if (r != null) {
+                byExpiry.remove(new ExpiryKey(r.expiresAt(), id));
+                forgetFamily(r.userId(), familyId);
+            }
+        }
+    }
+
+    @Override
+    public void revokeUser(UUID userId) {
+        Set<UUID> families = familiesByUser.remove(userId);
+        if (families != null) families.forEach(this::revokeFamily);
+    }
+
+    @Override
+    public int purgeExpired(Instant now) {
+        int purged = 0;
+        ExpiryKey head;
+        while ((head = byExpiry.pollFirst()) != null) {
+            if (head.expiresAt().isAfter(now)) {
+                byExpiry.add(head); // ещё живой — вернули и закончили
+                break;
+            }
+            RefreshTokenRecord r = byId.remove(head.tokenId());
+            if (r != null) {
+                var left = byFamily.computeIfPresent(r.familyId(), (f, ids) -> {
+                    ids.remove(r.tokenId());
+                    return ids.isEmpty() ? null : ids;
+                });
+                if (left == null) forgetFamily(r.userId(), r.familyId());
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    private void forgetFamily(UUID userId, UUID familyId) {
+        familiesByUser.computeIfPresent(userId, (u, families) -> {
+            families.remove(familyId);
+            return families.isEmpty() ? null : families;
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package org.sft.tabletoprpg.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Хранилище в таблице refresh_tokens: токены переживают рестарт и общие для нескольких инстансов.
+ * Обновление токена — один поиск по первичному ключу.
+ */
+@Component
+@ConditionalOnProperty(prefix = "security.jwt", name = "refresh-store", havingValue = "jdbc")
+@RequiredArgsConstructor
+public class JdbcRefreshTokenStore implements RefreshTokenStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final RowMapper<RefreshTokenRecord> ROW_MAPPER = (rs, i) -> new RefreshTokenRecord(
+        rs.getString("token_id"),
+        rs.getObject("family_id", UUID.class),
+        rs.getObject("user_id", UUID.class),
+        rs.getInt("security_version"),
+        rs.getTimestamp("expires_at").toInstant(),
+        rs.getBoolean("used")
+    );
+
+    @Override
+    public void save(RefreshTokenRecord r) {
+        jdbcTemplate.update("""
+                INSERT INTO refresh_tokens
+                    (token_id, family_id, user_id, security_version, expires_at, used)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """,
+            r.tokenId(), r.familyId(), r.userId(), r.securityVersion(), Timestamp.from(r.expiresAt()), r.used());
+    }
+
+    @Override
+    public Optional<RefreshTokenRecord> find(String tokenId) {
+        return jdbcTemplate.query("SELECT * FROM refresh_tokens WHERE token_id = ?", ROW_MAPPER, tokenId)
+            .stream().findFirst();
+    }
+
+    @Override
+    public boolean markUsed(String tokenId) {
+        return jdbcTemplate.update(
+            "UPDATE refresh_tokens SET used = TRUE WHERE token_id = ? AND used = FALSE", tokenId) == 1;
+    }
+
+    @Override
+    public void revokeFamily(UUID familyId) {
+        jdbcTemplate.update("DELETE FROM refresh_tokens WHERE family_id = ?", familyId);
+    }
+
+    @Override
+    public void revokeUser(UUID userId) {
+        jdbcTemplate.update("DELETE FROM refresh_tokens WHERE user_id = ?", userId);
+    }
+
+    @Override
+    public int purgeExpired(Instant now) {
+        return jdbcTemplate.update("DELETE FROM refresh_tokens WHERE expires_at <= ?", Timestamp.from(now));
+    }
+}
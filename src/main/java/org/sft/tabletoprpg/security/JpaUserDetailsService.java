@@ -1,23 +1,56 @@
 package org.sft.tabletoprpg.security;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.sft.tabletoprpg.domain.UserLoginKey;
 import org.sft.tabletoprpg.repo.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Collection;
+
 @Service
-@RequiredArgsConstructor
-public class JpaUserDetailsService implements UserDetailsService {
+public class JpaUserDetailsService implements UserDetailsService, UnknownLoginCache {
 
     private final UserRepository userRepository;
 
+    // ключи, по которым недавно никого не нашли: перебор несуществующих логинов не доходит до БД
+    private final Cache<String, Boolean> unknownLogins;
+
+    public JpaUserDetailsService(UserRepository userRepository,
+                                 @Value("${security.login.unknown-cache-size:100000}") long unknownCacheSize,
+                                 @Value("${security.login.unknown-cache-ttl:PT1M}") Duration unknownCacheTtl) {
+        this.userRepository = userRepository;
+        this.unknownLogins = Caffeine.newBuilder()
+            .maximumSize(unknownCacheSize)
+            .expireAfterWrite(unknownCacheTtl)
+            .build();
+    }
+
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
-        var user = userRepository.findByUsername(usernameOrEmail)
-            .or(() -> userRepository.findByEmail(usernameOrEmail))
-            .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден (security): " + usernameOrEmail));
+        String key = UserLoginKey.normalize(usernameOrEmail);
+        if (key == null || key.isEmpty() || unknownLogins.getIfPresent(key) != null) {
+            throw notFound(usernameOrEmail);
+        }
+        var user = userRepository.findByLoginKey(key).orElse(null);
+        if (user == null) {
+            unknownLogins.put(key, Boolean.TRUE);
+            throw notFound(usernameOrEmail);
+        }
         return UserPrincipal.from(user);
     }
+
+    @Override
+    public void forgetUnknown(Collection<String> loginKeys) {
+        unknownLogins.invalidateAll(loginKeys);
+    }
+
+    private static UsernameNotFoundException notFound(String usernameOrEmail) {
+        return new UsernameNotFoundException("Пользователь не найден (security): " + usernameOrEmail);
+    }
 }
@@ -1,6 +1,5 @@
 package org.sft.tabletoprpg.security;
 
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,6 +23,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserRepository userRepository;
+    private final JwtProperties jwtProperties;
+    private final SecurityVersionRegistry securityVersions;
 
     private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
     private static final List<String> WHITELIST = List.of(
@@ -31,7 +32,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         "/styles.css", "/app.js",
         "/assets/**", "/**/*.css", "/**/*.js",
         "/**/*.png", "/**/*.jpg", "/**/*.svg", "/**/*.woff", "/**/*.woff2",
-        "/auth/**", "/error", "/h2-console/**", "/actuator/**"
+        "/auth/**", "/error", "/h2-console/**", "/actuator/health", "/actuator/health/**"
     );
 
     @Override
@@ -55,13 +56,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (StringUtils.hasText(header) && header.startsWith("Bearer ")) {
             String token = header.substring(7);
             try {
-                Claims claims = jwtService.parseAndValidate(token);
-                String userIdStr = claims.get("userId", String.class);
-                if (userIdStr != null) {
-                    UUID userId = UUID.fromString(userIdStr);
-                    var user = userRepository.findById(userId).orElse(null);
-                    if (user != null) {
-                        var principal = UserPrincipal.from(user);
+                VerifiedToken verified = jwtService.parseAndValidate(token);
+                // jti есть только у refresh-токенов — в качестве access они не принимаются
+                if (verified.userId() != null && verified.tokenId() == null) {
+                    UUID userId = verified.userId();
+                    var principal = jwtProperties.claimsOnly()
+                        ? principalFromClaims(userId, verified)
+                        : principalFromDb(userId);
+                    if (principal != null) {
                         var auth = new UsernamePasswordAuthenticationToken(
                             principal, null, principal.getAuthorities());
                         SecurityContextHolder.getContext().setAuthentication(auth);
@@ -73,4 +75,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         chain.doFilter(req, res);
     }
+
+    private UserPrincipal principalFromDb(UUID userId) {
+        return userRepository.findById(userId)
+            .map(UserPrincipal::from)
+            .orElse(null);
+    }
+
+    private UserPrincipal principalFromClaims(UUID userId, VerifiedToken token) {
+        Integer version = token.securityVersion();
+        if (version == null || token.issuedAt() == null || !securityVersions.knowsTokensIssuedAt(token.issuedAt())) {
+            // токен старого формата или выпущен до рестарта — проверяем по БД
+            return principalFromDb(userId);
+        }
+        if (!securityVersions.isCurrent(userId, version)) {
+            return null; // пользователь удалён или его права изменились
+        }
+        return UserPrincipal.fromClaims(userId, token.subject(), token.roles());
+    }
 }
@@ -6,5 +6,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public record JwtProperties(
     String secret,     // секрет для HS256
     String accessTtl,  // ISO-8601 duration: "900s", "15m", "PT15M"
-    String refreshTtl  // например "7d", "P7D"
+    String refreshTtl, // например "7d", "P7D"
+    boolean claimsOnly, // true -> UserPrincipal собирается из клеймов токена, без запроса в БД
+    int verifiedCacheSize, // сколько уже проверенных токенов держать в памяти (0 -> без кэша)
+    String refreshStore    // где хранить выданные refresh-токены: "memory" (по умолчанию) | "jdbc"
 ) {}
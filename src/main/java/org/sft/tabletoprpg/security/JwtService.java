@@ -1,9 +1,10 @@
 package org.sft.tabletoprpg.security;
 
-import io.jsonwebtoken.Claims;
+import java.time.Duration;
 
 public interface JwtService {
     String generateAccessToken(UserPrincipal principal);
-    String generateRefreshToken(UserPrincipal principal); // опционально
-    Claims parseAndValidate(String token);
+    String generateRefreshToken(UserPrincipal principal, String tokenId); // tokenId -> jti, см. RefreshTokenStore
+    Duration refreshTtl();
+    VerifiedToken parseAndValidate(String token);
 }
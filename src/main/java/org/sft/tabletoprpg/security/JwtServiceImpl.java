@@ -1,25 +1,47 @@
 package org.sft.tabletoprpg.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 
 @Service
-@RequiredArgsConstructor
 public class JwtServiceImpl implements JwtService {
 
     private final JwtProperties props;
+    private final SecurityVersionRegistry securityVersions;
 
-    private SecretKey key() {
+    // ключ и парсер неизменяемы и потокобезопасны — собираем один раз
+    private final SecretKey key;
+    private final JwtParser parser;
+
+    // уже проверенные токены: ключ — SHA-256 токена, запись живёт до exp
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtServiceImpl(JwtProperties props, SecurityVersionRegistry securityVersions) {
+        this.props = props;
+        this.securityVersions = securityVersions;
         // секрет должен быть ≥ 32 байт для HS256
-        return Keys.hmacShaKeyFor(props.secret().getBytes(StandardCharsets.UTF_8));
+        this.key = Keys.hmacShaKeyFor(props.secret().getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(Math.max(props.verifiedCacheSize(), 0))
+            .expireAfter(Expiry.<String, VerifiedToken>creating((digest, token) -> {
+                Duration left = Duration.between(Instant.now(), token.expiresAt());
+                return left.isNegative() ? Duration.ZERO : left;
+            }))
+            .build();
     }
 
     @Override
@@ -28,30 +50,60 @@ public class JwtServiceImpl implements JwtService {
     }
 
     @Override
-    public String generateRefreshToken(UserPrincipal p) {
-        return buildToken(p, parseDuration(props.refreshTtl()));
+    public String generateRefreshToken(UserPrincipal p, String tokenId) {
+        return buildToken(p, refreshTtl(), tokenId);
+    }
+
+    @Override
+    public Duration refreshTtl() {
+        return parseDuration(props.refreshTtl());
     }
 
     private String buildToken(UserPrincipal p, Duration ttl) {
+        return buildToken(p, ttl, null);
+    }
+
+    private String buildToken(UserPrincipal p, Duration ttl, String tokenId) {
         Instant now = Instant.now();
         return Jwts.builder()
+            .setId(tokenId)                            // jti (только у refresh)
             .setSubject(p.getUsername())               // sub
             .claim("userId", p.getId().toString())     // кастомный клейм
             .claim("roles", p.getAuthorities().stream()
                 .map(a -> a.getAuthority()).toList())
+            .claim("sv", securityVersions.currentVersion(p.getId())) // версия безопасности пользователя
             .setIssuedAt(Date.from(now))               // iat
             .setExpiration(Date.from(now.plus(ttl)))   // exp
-            .signWith(key(), SignatureAlgorithm.HS256)
+            .signWith(key, SignatureAlgorithm.HS256)
             .compact();
     }
 
+    /**
+     * Повторная проверка того же токена (SPA шлёт его сотни раз за TTL) — это поиск по хэшу
+     * вместо base64 + JSON + HMAC. Запись общая для всех вызовов, поэтому неизменяемая.
+     */
     @Override
-    public Claims parseAndValidate(String token) {
-        return Jwts.parserBuilder()
-            .setSigningKey(key())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
+    public VerifiedToken parseAndValidate(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+        VerifiedToken verified = VerifiedToken.of(parser.parseClaimsJws(token).getBody());
+        if (verified.expiresAt() != null) {
+            verifiedTokens.put(digest, verified);
+        }
+        return verified;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                .digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
     }
 
     private Duration parseDuration(String s) {
@@ -0,0 +1,112 @@
+package org.sft.tabletoprpg.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.sft.tabletoprpg.service.exception.TooManyRequestsException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt на отдельном ограниченном пуле, а не на потоках Tomcat:
+ * всплеск логинов в начале сессии не забирает потоки у остальных /api вызовов.
+ * Если очередь заполнена — сразу 429, без ожидания.
+ */
+@Service
+public class PasswordHasher {
+
+    private final PasswordEncoder encoder;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder encoder, PasswordHashingProperties props, MeterRegistry meters) {
+        this.encoder = encoder;
+        this.strength = props.bcryptStrength();
+
+        var threadNo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            props.poolSize(), props.poolSize(),
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(props.queueCapacity()),
+            r -> {
+                Thread t = new Thread(r, "password-hasher-" + threadNo.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        Gauge.builder("auth.hashing.queue.depth", executor, e -> e.getQueue().size())
+            .description("Запросы, ожидающие хэширования пароля")
+            .register(meters);
+        Gauge.builder("auth.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Потоки, занятые хэшированием")
+            .register(meters);
+        this.encodeTimer = Timer.builder("auth.hashing.latency").tag("op", "encode").register(meters);
+        this.matchTimer = Timer.builder("auth.hashing.latency").tag("op", "matches").register(meters);
+        this.rejected = Counter.builder("auth.hashing.rejected")
+            .description("Отказы из-за переполненной очереди")
+            .register(meters);
+    }
+
+    public String encode(String rawPassword) {
+        return submit(() -> encodeTimer.record(() -> encoder.encode(rawPassword)));
+    }
+
+    public boolean matches(String rawPassword, String passwordHash) {
+        return submit(() -> matchTimer.record(() -> encoder.matches(rawPassword, passwordHash)));
+    }
+
+    /**
+     * Хэш посчитан с другой стоимостью, чем настроена сейчас ("$2a$10$..." -> 10).
+     */
+    public boolean needsRehash(String passwordHash) {
+        if (passwordHash == null || passwordHash.length() < 7 || passwordHash.charAt(0) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(passwordHash.substring(4, 6)) != strength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException("Сервер перегружен, повторите попытку позже");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Хэширование пароля прервано", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка хэширования пароля", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
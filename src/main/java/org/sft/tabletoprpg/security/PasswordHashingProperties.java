@@ -0,0 +1,10 @@
+package org.sft.tabletoprpg.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "security.password")
+public record PasswordHashingProperties(
+    int bcryptStrength, // стоимость BCrypt (log2 раундов), 4..31
+    int poolSize,       // сколько потоков считают хэши
+    int queueCapacity   // сколько запросов может ждать; сверх этого — сразу 429
+) {}
@@ -0,0 +1,21 @@
+package org.sft.tabletoprpg.security;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Серверная запись о выданном refresh-токене (ключ — jti).
+ * Использованные записи живут до истечения: по ним видно повторное предъявление.
+ */
+public record RefreshTokenRecord(
+    String tokenId,      // jti
+    UUID familyId,       // цепочка ротаций от одного логина
+    UUID userId,
+    int securityVersion,
+    Instant expiresAt,
+    boolean used
+) {
+    public RefreshTokenRecord markedUsed() {
+        return new RefreshTokenRecord(tokenId, familyId, userId, securityVersion, expiresAt, true);
+    }
+}
@@ -0,0 +1,111 @@
+package org.sft.tabletoprpg.security;
+
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.sft.tabletoprpg.repo.UserRepository;
+import org.sft.tabletoprpg.service.dto.auth.LoginResponse;
+import org.sft.tabletoprpg.service.exception.AuthException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Выдача и ротация refresh-токенов по серверному хранилищу.
+ * Каждый refresh одноразовый: повторное предъявление уже использованного токена
+ * считается утечкой, и вся цепочка (family) отзывается.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private final JwtService jwtService;
+    private final RefreshTokenStore store;
+    private final SecurityVersionRegistry securityVersions;
+    private final UserRepository userRepository;
+    private final Clock clock;
+
+    /** Новый логин — новая цепочка ротаций. */
+    public String issue(UserPrincipal principal) {
+        return issue(principal, UUID.randomUUID());
+    }
+
+    public LoginResponse rotate(String refreshToken) {
+        RefreshTokenRecord record = findRecord(refreshToken);
+        if (!store.markUsed(record.tokenId())) {
+            // токен уже обменивали: кто-то держит копию — отзываем всю цепочку
+            log.warn("Refresh token reuse detected, revoking family {} of user {}", record.familyId(), record.userId());
+            store.revokeFamily(record.familyId());
+            throw new AuthException("Invalid refresh token");
+        }
+        if (!securityVersions.isCurrent(record.userId(), record.securityVersion())) {
+            store.revokeFamily(record.familyId());
+            throw new AuthException("Invalid refresh token");
+        }
+
+        // роли и имя — текущие, а не из старого токена: смена ролей видна с ближайшей ротации
+        // (пользователь с ролями — из кэша второго уровня)
+        var user = userRepository.findById(record.userId()).orElseThrow(() -> {
+            store.revokeFamily(record.familyId());
+            return new AuthException("Invalid refresh token");
+        });
+        var principal = UserPrincipal.from(user);
+        return new LoginResponse(
+            jwtService.generateAccessToken(principal),
+            issue(principal, record.familyId())
+        );
+    }
+
+    /** Logout: отзывает цепочку, к которой относится токен. */
+    public void revoke(String refreshToken) {
+        try {
+            store.revokeFamily(findRecord(refreshToken).familyId());
+        } catch (AuthException ignored) {
+            // неизвестный или просроченный токен — отзывать нечего
+        }
+    }
+
+    public void revokeUser(UUID userId) {
+        store.revokeUser(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.refresh-purge-interval:PT10M}")
+    public void purgeExpired() {
+        int purged = store.purgeExpired(Instant.now(clock));
+        if (purged > 0) {
+            log.debug("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private String issue(UserPrincipal principal, UUID familyId) {
+        String tokenId = UUID.randomUUID().toString();
+        store.save(new RefreshTokenRecord(
+            tokenId,
+            familyId,
+            principal.getId(),
+            securityVersions.currentVersion(principal.getId()),
+            Instant.now(clock).plus(jwtService.refreshTtl()),
+            false
+        ));
+        return jwtService.generateRefreshToken(principal, tokenId);
+    }
+
+    private RefreshTokenRecord findRecord(String refreshToken) {
+        VerifiedToken token;
+        try {
+            token = jwtService.parseAndValidate(refreshToken);
+        } catch (JwtException | IllegalArgumentException ex) {
+            throw new AuthException("Invalid refresh token");
+        }
+        String tokenId = token.tokenId();
+        if (tokenId == null) {
+            throw new AuthException("Invalid refresh token");
+        }
+        return store.find(tokenId)
+            .orElseThrow(() -> new AuthException("Invalid refresh token"));
+    }
+}
@@ -0,0 +1,22 @@
+package org.sft.tabletoprpg.security;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface RefreshTokenStore {
+
+    void save(RefreshTokenRecord record);
+
+    Optional<RefreshTokenRecord> find(String tokenId);
+
+    /** Атомарно помечает токен использованным; false — если он уже был использован или не найден. */
+    boolean markUsed(String tokenId);
+
+    void revokeFamily(UUID familyId);
+
+    void revokeUser(UUID userId);
+
+    /** Удаляет все записи с истёкшим сроком, возвращает их количество. */
+    int purgeExpired(Instant now);
+}
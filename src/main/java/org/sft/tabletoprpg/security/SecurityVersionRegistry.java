@@ -0,0 +1,56 @@
+package org.sft.tabletoprpg.security;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Версии безопасности пользователей для режима аутентификации "только по клеймам".
+ * В токен кладётся текущая версия (клейм "sv"); удаление пользователя, смена ролей или пароля
+ * меняют версию, и все ранее выданные токены сразу перестают приниматься.
+ * Храним только пользователей, у которых что-то менялось с момента старта.
+ */
+@Component
+public class SecurityVersionRegistry {
+
+    private static final int REVOKED = -1;
+
+    private final Map<UUID, Integer> versions = new ConcurrentHashMap<>();
+    private final Instant startedAt;
+
+    public SecurityVersionRegistry(Clock clock) {
+        // iat в JWT хранится с точностью до секунды
+        this.startedAt = Instant.now(clock).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    public int currentVersion(UUID userId) {
+        return versions.getOrDefault(userId, 0);
+    }
+
+    public boolean isCurrent(UUID userId, int tokenVersion) {
+        int current = currentVersion(userId);
+        return current != REVOKED && current == tokenVersion;
+    }
+
+    /**
+     * Токены, выпущенные до старта приложения, проверять по карте нельзя — она живёт только в памяти.
+     */
+    public boolean knowsTokensIssuedAt(Instant issuedAt) {
+        return issuedAt != null && !issuedAt.isBefore(startedAt);
+    }
+
+    /** Смена ролей или пароля: все выданные токены пользователя становятся недействительными. */
+    public void bump(UUID userId) {
+        versions.merge(userId, 1, (old, one) -> old == REVOKED ? REVOKED : old + 1);
+    }
+
+    /** Пользователь удалён: токены не принимаются, пока приложение работает. */
+    public void revoke(UUID userId) {
+        versions.put(userId, REVOKED);
+    }
+}
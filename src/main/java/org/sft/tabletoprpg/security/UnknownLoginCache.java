@@ -0,0 +1,13 @@
+package org.sft.tabletoprpg.security;
+
+import java.util.Collection;
+
+/**
+ * Кэш промахов входа: ключи, по которым недавно никого не нашли. Сервис пользователей сбрасывает его
+ * при регистрации, не завися от того, как устроен поиск пользователя при входе.
+ */
+public interface UnknownLoginCache {
+
+    /** Зарегистрирован пользователь с этими ключами — забываем прежние промахи по ним. */
+    void forgetUnknown(Collection<String> loginKeys);
+}
@@ -29,4 +29,12 @@ public class UserPrincipal implements UserDetails {
             .toList();
         return new UserPrincipal(u.getId(), u.getUsername(), u.getPasswordHash(), authorities);
     }
+
+    /** Принципал из клеймов access-токена: без пароля, роли уже в виде "ROLE_*". */
+    public static UserPrincipal fromClaims(UUID id, String username, Collection<String> roles) {
+        var authorities = roles.stream()
+            .map(SimpleGrantedAuthority::new)
+            .toList();
+        return new UserPrincipal(id, username, null, authorities);
+    }
 }
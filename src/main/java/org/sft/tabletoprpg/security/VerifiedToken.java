@@ -0,0 +1,38 @@
+package org.sft.tabletoprpg.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Проверенный JWT: только нужные клеймы, неизменяемые — одна запись кэша отдаётся всем запросам с этим токеном.
+ */
+public record VerifiedToken(
+    String tokenId,          // jti — есть только у refresh-токенов
+    String subject,          // логин
+    UUID userId,
+    List<String> roles,      // "ROLE_*"
+    Integer securityVersion, // null у токенов старого формата
+    Instant issuedAt,
+    Instant expiresAt
+) {
+    public VerifiedToken {
+        roles = roles == null ? List.of() : List.copyOf(roles);
+    }
+
+    static VerifiedToken of(Claims claims) {
+        String userId = claims.get("userId", String.class);
+        List<?> roles = claims.get("roles", List.class);
+        return new VerifiedToken(
+            claims.getId(),
+            claims.getSubject(),
+            userId == null ? null : UUID.fromString(userId),
+            roles == null ? null : roles.stream().map(String::valueOf).toList(),
+            claims.get("sv", Integer.class),
+            claims.getIssuedAt() == null ? null : claims.getIssuedAt().toInstant(),
+            claims.getExpiration() == null ? null : claims.getExpiration().toInstant()
+        );
+    }
+}
@@ -1,6 +1,8 @@
 package org.sft.tabletoprpg.service;
 
 import org.sft.tabletoprpg.service.dto.inventory.CharacterInventoryEntryDto;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryBatchOperation;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryBatchResultDto;
 import org.sft.tabletoprpg.service.dto.inventory.InventoryChangeRequest;
 
 import java.util.List;
@@ -8,6 +10,8 @@ import java.util.UUID;
 
 public interface InventoryService {
 
+    int MAX_BATCH_OPERATIONS = 500;
+
     List<CharacterInventoryEntryDto> getInventoryByCharacter(UUID characterId, UUID requesterId);
 
     void changeQuantity(InventoryChangeRequest req, UUID requesterId);
@@ -20,4 +24,11 @@ public interface InventoryService {
 
     void removeItem(UUID characterId, UUID itemId, UUID requesterId);
 
+    // Передача между персонажами одной кампании одной транзакцией: отдаёт владелец источника или GM
+    void transferItem(UUID fromCharacterId, UUID toCharacterId, UUID itemId, int quantity, UUID requesterId);
+
+    // Пачка изменений (раздача добычи и т.п.) одной транзакцией. Права — как у changeQuantity;
+    // отклонённая операция не отменяет остальные, итог — по каждой операции
+    InventoryBatchResultDto applyBatch(List<InventoryBatchOperation> operations, UUID requesterId);
+
 }
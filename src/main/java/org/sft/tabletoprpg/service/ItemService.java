@@ -2,15 +2,29 @@ package org.sft.tabletoprpg.service;
 
 import org.sft.tabletoprpg.service.dto.item.ItemCreateRequest;
 import org.sft.tabletoprpg.service.dto.item.ItemDto;
+import org.sft.tabletoprpg.service.dto.item.ItemSearchPageDto;
 import org.sft.tabletoprpg.service.dto.item.ItemUpdateRequest;
+import org.sft.tabletoprpg.service.dto.item.ItemUsagePageDto;
 
 import java.util.List;
 import java.util.UUID;
 
 public interface ItemService {
+
+    int DEFAULT_SEARCH_LIMIT = 20;
+    int MAX_SEARCH_LIMIT = 100;
+    int DEFAULT_USAGE_PAGE_SIZE = 50;
+    int MAX_USAGE_PAGE_SIZE = 200;
+
     ItemDto createItem(ItemCreateRequest req, UUID requesterId);  // ADMIN
     void updateItem(UUID itemId, ItemUpdateRequest req, UUID requesterId); // ADMIN
     void deleteItem(UUID itemId, UUID requesterId); // ADMIN
     ItemDto getItem(UUID itemId);
     List<ItemDto> findByName(String q);
+
+    // Ранжированный поиск по названию и описанию, с опечатками; offset/limit — страница выдачи
+    ItemSearchPageDto search(String q, Integer offset, Integer limit);
+
+    // Каталог по популярности (держатели, затем общее количество) из счётчиков item_stats; ADMIN
+    ItemUsagePageDto usageStats(Integer page, Integer size, UUID requesterId);
 }
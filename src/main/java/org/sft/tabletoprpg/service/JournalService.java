@@ -1,14 +1,25 @@
 package org.sft.tabletoprpg.service;
 
+import org.sft.tabletoprpg.domain.JournalVisibility;
 import org.sft.tabletoprpg.service.dto.journal.JournalEntryCreateRequest;
 import org.sft.tabletoprpg.service.dto.journal.JournalEntryDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntrySummaryDto;
 import org.sft.tabletoprpg.service.dto.journal.JournalEntryUpdateRequest;
+import org.sft.tabletoprpg.service.dto.journal.JournalPageDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalSearchPageDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalTagFacetDto;
 
 import java.util.List;
 import java.util.UUID;
 
 public interface JournalService {
 
+    int DEFAULT_PAGE_SIZE = 50;
+    int MAX_PAGE_SIZE = 200;
+    int DEFAULT_SEARCH_LIMIT = 20;
+    int MAX_SEARCH_LIMIT = 100;
+    int MAX_SEARCH_OFFSET = 10_000;   // индекс собирает offset + limit лучших — глубже листать поиском незачем
+
     JournalEntryDto getJournalById(UUID entryId, UUID requesterId);
 
     List<JournalEntryDto> findJournalsByCampaign_Id(UUID campaignId);
@@ -16,6 +27,28 @@ public interface JournalService {
     // РЕКОМЕНДУЕМЫЕ сигнатуры (контроллер: /campaigns/{campaignId}/journal)
     List<JournalEntryDto> listJournals(UUID campaignId, UUID requesterId, String type, Boolean onlyPlayersVisible);
 
+    // Постранично (keyset): cursor — из nextCursor предыдущей страницы, null — с начала.
+    // Элементы без текста записи; полный текст — getJournalById
+    JournalPageDto<JournalEntrySummaryDto> listJournalPage(UUID campaignId, UUID requesterId, String type,
+                                                           Boolean onlyPlayersVisible, String cursor, Integer limit);
+
+    // Лента по тегам: matchAll — запись содержит все теги (AND), иначе хотя бы один (OR)
+    JournalPageDto<JournalEntrySummaryDto> listJournalByTags(UUID campaignId, UUID requesterId, List<String> tags,
+                                                             boolean matchAll, String cursor, Integer limit);
+
+    // Комбинированный фильтр (битовые индексы): внутри измерения — любое из значений, между измерениями — И.
+    // Пустой список — без фильтра по измерению; теги — все (matchAllTags) или хотя бы один.
+    // visibility == null — всё доступное; игроку доступны только PLAYERS-записи
+    JournalPageDto<JournalEntrySummaryDto> filterJournal(UUID campaignId, UUID requesterId, List<String> types,
+                                                         List<String> tags, boolean matchAllTags, List<UUID> authors,
+                                                         JournalVisibility visibility, String cursor, Integer limit);
+
+    // Теги кампании со счётчиками записей (игроку — только по видимым ему записям)
+    List<JournalTagFacetDto> listTagFacets(UUID campaignId, UUID requesterId);
+
+    // Полнотекстовый поиск (заголовок, текст, теги) с учётом видимости; offset/limit — страница выдачи
+    JournalSearchPageDto searchJournal(UUID campaignId, UUID requesterId, String q, Integer offset, Integer limit);
+
     JournalEntryDto createJournal(UUID campaignId, UUID gmId, JournalEntryCreateRequest req);
 
     JournalEntryDto updateJournal(UUID entryId, UUID gmId, JournalEntryUpdateRequest req);
@@ -23,6 +56,6 @@ public interface JournalService {
     void deleteJournal(UUID entryId, UUID gmId);
 
     // Personal journals
-    List<JournalEntryDto> listPersonal(UUID authorId);
+    List<JournalEntrySummaryDto> listPersonal(UUID authorId);
     JournalEntryDto createPersonal(UUID authorId, JournalEntryCreateRequest req);
 }
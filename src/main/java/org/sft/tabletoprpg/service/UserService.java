@@ -1,8 +1,10 @@
 package org.sft.tabletoprpg.service;
 
+import org.sft.tabletoprpg.domain.Role;
 import org.sft.tabletoprpg.service.dto.user.UserDto;
 import org.sft.tabletoprpg.service.dto.user.UserRegisterRequest;
 
+import java.util.Set;
 import java.util.UUID;
 
 
@@ -16,5 +18,9 @@ public interface UserService {
 
     void deleteUser(UUID id);
 
+    void updatePasswordHash(UUID id, String passwordHash);
+
+    UserDto updateRoles(UUID id, Set<Role> roles);
+
     java.util.List<UserDto> findAll();
 }
@@ -0,0 +1,16 @@
+package org.sft.tabletoprpg.service.access;
+
+/**
+ * Кем пользователь является в кампании.
+ */
+public enum CampaignAccess {
+    NONE, PLAYER, GM;
+
+    public boolean isGm() {
+        return this == GM;
+    }
+
+    public boolean isMember() {
+        return this != NONE;
+    }
+}
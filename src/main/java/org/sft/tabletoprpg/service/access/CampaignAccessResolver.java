@@ -0,0 +1,93 @@
+package org.sft.tabletoprpg.service.access;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.sft.tabletoprpg.repo.CampaignRepository;
+import org.sft.tabletoprpg.repo.projection.CampaignAccessRow;
+import org.sft.tabletoprpg.service.exception.NotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Общая для всех сервисов проверка "кто пользователь в кампании" (GM / игрок / никто).
+ * Решение кэшируется по (campaignId, userId); сервисы, меняющие состав кампании,
+ * обязаны вызвать {@link #evict} / {@link #evictCampaign}.
+ * <p>
+ * Операции над конкретным персонажем (инвентарь, HP, удаление) резолвер не используют: им нужен ещё владелец,
+ * и строка персонажа читается всё равно, а GM кампании приходит тем же запросом
+ * ({@code CharacterRepository.findAccessView}). Решение там не кэшируется, поэтому и сбрасывать нечего;
+ * правила те же: GM — campaigns.gm_id, а владелец персонажа — участник кампании, пока персонаж существует
+ * (removeMember удаляет его персонажей, кампанию с персонажами удалить нельзя).
+ */
+@Component
+public class CampaignAccessResolver {
+
+    private record Key(UUID campaignId, UUID userId) {}
+
+    private final CampaignRepository campaignRepository;
+    private final Cache<Key, CampaignAccess> decisions;
+
+    public CampaignAccessResolver(CampaignRepository campaignRepository,
+                                  @Value("${campaign.access-cache.size:50000}") long cacheSize,
+                                  @Value("${campaign.access-cache.ttl:PT10M}") Duration cacheTtl) {
+        this.campaignRepository = campaignRepository;
+        this.decisions = Caffeine.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(cacheTtl) // страховка на случай изменений в обход сервисов
+            .build();
+    }
+
+    /** @throws NotFoundException если кампании нет (отсутствие не кэшируется) */
+    public CampaignAccess resolve(UUID campaignId, UUID userId) {
+        var key = new Key(campaignId, userId);
+        CampaignAccess cached = decisions.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        CampaignAccessRow row = campaignRepository.findAccessRow(campaignId, userId)
+            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
+        // GM — только владелец кампании (campaigns.gm_id), роль в campaign_members для этого не важна
+        CampaignAccess access = row.gmId().equals(userId) ? CampaignAccess.GM
+            : row.memberRole() != null ? CampaignAccess.PLAYER
+            : CampaignAccess.NONE;
+        decisions.put(key, access);
+        return access;
+    }
+
+    public boolean isGm(UUID campaignId, UUID userId) {
+        return resolve(campaignId, userId).isGm();
+    }
+
+    public boolean isMember(UUID campaignId, UUID userId) {
+        return resolve(campaignId, userId).isMember();
+    }
+
+    /** Изменилось членство/роль пользователя. */
+    public void evict(UUID campaignId, UUID userId) {
+        var key = new Key(campaignId, userId);
+        evictNowAndAfterCommit(() -> decisions.invalidate(key));
+    }
+
+    /** Кампания удалена. */
+    public void evictCampaign(UUID campaignId) {
+        evictNowAndAfterCommit(() -> decisions.asMap().keySet().removeIf(k -> k.campaignId().equals(campaignId)));
+    }
+
+    // чтение в параллельной транзакции между сбросом и коммитом могло закэшировать старое решение
+    private static void evictNowAndAfterCommit(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.sft.tabletoprpg.service.dto.campaign;
 
+import org.sft.tabletoprpg.domain.CampaignRole;
+
 import java.util.UUID;
 
 public record CampaignMemberDto(
@@ -8,4 +10,9 @@ public record CampaignMemberDto(
     String email,
     String roleInCampaign
 ) {
+
+    // проекция JPQL: роль приходит перечислением
+    public CampaignMemberDto(UUID userId, String username, String email, CampaignRole roleInCampaign) {
+        this(userId, username, email, roleInCampaign.name());
+    }
 }
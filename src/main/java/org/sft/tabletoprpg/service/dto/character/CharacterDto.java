@@ -2,6 +2,7 @@ package org.sft.tabletoprpg.service.dto.character;
 
 import lombok.Builder;
 
+import java.math.BigDecimal;
 import java.util.UUID;
 
 @Builder
@@ -16,5 +17,20 @@ public record CharacterDto(
         AttributesDto attributes,
         UUID ownerId,
         UUID campaignId,
-        String campaignName
-) {}
+        String campaignName,
+        BigDecimal totalWeight,
+        long totalPrice,
+        long itemCount
+) {
+
+    // проекция JPQL (select new ...): характеристики приходят колонками, все NULL — характеристик нет
+    public CharacterDto(UUID id, String name, String clazz, String race, int level, int hp, int maxHp,
+                        Integer strength, Integer dexterity, Integer constitution,
+                        Integer intelligence, Integer wisdom, Integer charisma,
+                        UUID ownerId, UUID campaignId, String campaignName,
+                        BigDecimal totalWeight, long totalPrice, long itemCount) {
+        this(id, name, clazz, race, level, hp, maxHp,
+            strength == null ? null : new AttributesDto(strength, dexterity, constitution, intelligence, wisdom, charisma),
+            ownerId, campaignId, campaignName, totalWeight, totalPrice, itemCount);
+    }
+}
@@ -3,6 +3,7 @@ package org.sft.tabletoprpg.service.dto.inventory;
 import lombok.Builder;
 import org.sft.tabletoprpg.service.dto.item.ItemDto;
 
+import java.math.BigDecimal;
 import java.util.UUID;
 
 @Builder
@@ -12,4 +13,10 @@ public record CharacterInventoryEntryDto(
         int quantity,
         ItemDto item
 ) {
+
+    // проекция JPQL: строка инвентаря и предмет одним запросом
+    public CharacterInventoryEntryDto(UUID characterId, UUID itemId, int quantity,
+                                      String name, String description, BigDecimal weight, Integer price) {
+        this(characterId, itemId, quantity, new ItemDto(itemId, name, description, weight, price));
+    }
 }
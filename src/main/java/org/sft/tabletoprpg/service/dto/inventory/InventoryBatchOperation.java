@@ -0,0 +1,13 @@
+package org.sft.tabletoprpg.service.dto.inventory;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.UUID;
+
+// delta > 0 — выдать (GM), delta < 0 — списать (владелец)
+public record InventoryBatchOperation(
+        @NotNull UUID characterId,
+        @NotNull UUID itemId,
+        int delta
+) {
+}
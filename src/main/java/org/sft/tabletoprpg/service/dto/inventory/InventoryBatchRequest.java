@@ -0,0 +1,15 @@
+package org.sft.tabletoprpg.service.dto.inventory;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.sft.tabletoprpg.service.InventoryService;
+
+import java.util.List;
+
+public record InventoryBatchRequest(
+        @NotEmpty @Size(max = InventoryService.MAX_BATCH_OPERATIONS)
+        List<@Valid @NotNull InventoryBatchOperation> operations
+) {
+}
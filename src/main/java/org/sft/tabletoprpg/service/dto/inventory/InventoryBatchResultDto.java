@@ -0,0 +1,11 @@
+package org.sft.tabletoprpg.service.dto.inventory;
+
+import java.util.List;
+
+// results — в порядке операций запроса
+public record InventoryBatchResultDto(
+        int applied,
+        int rejected,
+        List<InventoryOperationResultDto> results
+) {
+}
@@ -0,0 +1,26 @@
+package org.sft.tabletoprpg.service.dto.inventory;
+
+import java.util.UUID;
+
+/**
+ * Итог одной операции пакета. quantity — остаток после операции (0 — строка удалена), message — причина отказа.
+ */
+public record InventoryOperationResultDto(
+        int index,
+        UUID characterId,
+        UUID itemId,
+        int delta,
+        Status status,
+        Integer quantity,
+        String message
+) {
+    public enum Status { APPLIED, BAD_REQUEST, FORBIDDEN, NOT_FOUND }
+
+    public static InventoryOperationResultDto applied(int index, InventoryBatchOperation op, int quantity) {
+        return new InventoryOperationResultDto(index, op.characterId(), op.itemId(), op.delta(), Status.APPLIED, quantity, null);
+    }
+
+    public static InventoryOperationResultDto rejected(int index, InventoryBatchOperation op, Status status, String message) {
+        return new InventoryOperationResultDto(index, op.characterId(), op.itemId(), op.delta(), status, null, message);
+    }
+}
@@ -0,0 +1,14 @@
+package org.sft.tabletoprpg.service.dto.inventory;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.UUID;
+
+public record InventoryTransferRequest(
+        @NotNull UUID fromCharacterId,
+        @NotNull UUID toCharacterId,
+        @NotNull UUID itemId,
+        @NotNull @Min(1) Integer quantity
+) {
+}
@@ -15,4 +15,10 @@ public record ItemDto(
         BigDecimal weight,
         Integer price,
         Instant createdAt
-) { }
+) {
+
+    // проекция JPQL: у предметов нет колонки created_at
+    public ItemDto(UUID id, String name, String description, BigDecimal weight, Integer price) {
+        this(id, name, description, weight, price, null);
+    }
+}
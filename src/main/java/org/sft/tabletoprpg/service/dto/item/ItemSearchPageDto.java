@@ -0,0 +1,11 @@
+package org.sft.tabletoprpg.service.dto.item;
+
+import java.util.List;
+
+// Страница ранжированной выдачи поиска: total — сколько всего нашлось
+public record ItemSearchPageDto(
+        List<ItemDto> items,
+        int total,
+        int offset,
+        int limit
+) { }
@@ -0,0 +1,11 @@
+package org.sft.tabletoprpg.service.dto.item;
+
+import java.util.UUID;
+
+// holders — сколько персонажей держат предмет, totalQuantity — сколько штук у них всего
+public record ItemUsageDto(
+        UUID itemId,
+        String name,
+        long holders,
+        long totalQuantity
+) { }
@@ -0,0 +1,11 @@
+package org.sft.tabletoprpg.service.dto.item;
+
+import java.util.List;
+
+// Страница каталога по популярности: total — сколько всего предметов в каталоге
+public record ItemUsagePageDto(
+        List<ItemUsageDto> items,
+        long total,
+        int page,
+        int size
+) { }
@@ -0,0 +1,24 @@
+package org.sft.tabletoprpg.service.dto.journal;
+
+import lombok.Builder;
+import org.sft.tabletoprpg.domain.JournalVisibility;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Элемент списка журнала: без текста, только длина и короткий отрывок.
+// Полный текст — GET /api/campaigns/{cid}/journal/{id}
+@Builder
+public record JournalEntrySummaryDto(
+        UUID id,
+        UUID campaignId,
+        UUID authorId,
+        String type,
+        JournalVisibility visibility,
+        String title,
+        String tags,
+        Instant createdAt,
+        Integer contentLength,
+        String excerpt
+) {
+}
@@ -0,0 +1,11 @@
+package org.sft.tabletoprpg.service.dto.journal;
+
+import java.util.List;
+
+/**
+ * Страница журнала (новые сверху). nextCursor == null — дальше записей нет.
+ */
+public record JournalPageDto<T>(
+    List<T> items,
+    String nextCursor
+) {}
@@ -0,0 +1,12 @@
+package org.sft.tabletoprpg.service.dto.journal;
+
+import java.util.List;
+
+// Страница полнотекстового поиска по журналу: по убыванию релевантности, total — всего совпадений
+public record JournalSearchPageDto(
+        List<JournalEntrySummaryDto> items,
+        int total,
+        int offset,
+        int limit
+) {
+}
@@ -0,0 +1,7 @@
+package org.sft.tabletoprpg.service.dto.journal;
+
+public record JournalTagFacetDto(
+        String tag,
+        int count
+) {
+}
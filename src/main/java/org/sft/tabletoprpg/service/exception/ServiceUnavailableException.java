@@ -0,0 +1,8 @@
+package org.sft.tabletoprpg.service.exception;
+
+/**
+ * Временно недоступно (503), например, поисковый индекс журнала ещё строится после старта
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) { super(message); }
+}
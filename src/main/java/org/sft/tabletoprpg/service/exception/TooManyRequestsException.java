@@ -0,0 +1,8 @@
+package org.sft.tabletoprpg.service.exception;
+
+/**
+ * Для перегрузки (429), например, очередь хэширования паролей заполнена
+ */
+public class TooManyRequestsException extends RuntimeException {
+    public TooManyRequestsException(String message) { super(message); }
+}
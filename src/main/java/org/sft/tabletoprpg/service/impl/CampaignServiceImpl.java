@@ -8,16 +8,17 @@ import org.sft.tabletoprpg.repo.CampaignRepository;
 import org.sft.tabletoprpg.repo.CharacterRepository;
 import org.sft.tabletoprpg.repo.UserRepository;
 import org.sft.tabletoprpg.service.CampaignService;
+import org.sft.tabletoprpg.service.access.CampaignAccessResolver;
 import org.sft.tabletoprpg.service.dto.campaign.*;
 import org.sft.tabletoprpg.service.exception.ConflictException;
 import org.sft.tabletoprpg.service.exception.ForbiddenException;
 import org.sft.tabletoprpg.service.exception.NotFoundException;
+import org.sft.tabletoprpg.service.search.JournalBitmapIndex;
+import org.sft.tabletoprpg.service.search.JournalSearchIndex;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +29,10 @@ public class CampaignServiceImpl implements CampaignService {
     private final UserRepository userRepository;
     private final CampaignMemberRepository campaignMemberRepository;
     private final CharacterRepository characterRepository;
+    private final CampaignAccessResolver access;
+    private final JournalSearchIndex journalSearchIndex;
+    private final JournalBitmapIndex journalBitmapIndex;
+    private final ItemUsageCounters usageCounters;
 
     /* ============================ CREATE / UPDATE / DELETE ============================ */
 
@@ -63,12 +68,11 @@ public class CampaignServiceImpl implements CampaignService {
     @Transactional
     @Override
     public CampaignDto updateCampaign(UUID campaignId, UUID requesterId, CampaignUpdateRequest req) {
-        Campaign campaign = campaignRepository.findById(campaignId)
-            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
-
-        if (!campaign.getGm().getId().equals(requesterId)) {
+        if (!access.isGm(campaignId, requesterId)) {
             throw new ForbiddenException("Только GM может редактировать кампанию");
         }
+        Campaign campaign = campaignRepository.findById(campaignId)
+            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
 
         if (req.name() != null) {
             String name = req.name().trim();
@@ -85,16 +89,18 @@ public class CampaignServiceImpl implements CampaignService {
     @Transactional
     @Override
     public void deleteCampaign(UUID campaignId, UUID requesterId) {
-        Campaign campaign = campaignRepository.findById(campaignId)
-            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
-
-        if (!campaign.getGm().getId().equals(requesterId)) {
+        if (!access.isGm(campaignId, requesterId)) {
             throw new ForbiddenException("Только GM может удалять кампанию");
         }
         if (characterRepository.existsByCampaign_Id(campaignId)) {
             throw new ConflictException("Нельзя удалить кампанию: в ней есть персонажи");
         }
+        Campaign campaign = campaignRepository.findById(campaignId)
+            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
         campaignRepository.delete(campaign);
+        access.evictCampaign(campaignId);
+        journalSearchIndex.removeCampaignAfterCommit(campaignId);
+        journalBitmapIndex.removeCampaignAfterCommit(campaignId);
     }
 
     /* ============================ MEMBERS (idempotent) ============================ */
@@ -102,12 +108,11 @@ public class CampaignServiceImpl implements CampaignService {
     @Transactional
     @Override
     public CampaignRoleResult upsertMember(UUID campaignId, UUID userId, CampaignRole role, UUID requesterId) {
-        Campaign campaign = campaignRepository.findById(campaignId)
-            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
-
-        if (!campaign.getGm().getId().equals(requesterId)) {
+        if (!access.isGm(campaignId, requesterId)) {
             throw new ForbiddenException("Только GM может добавлять/обновлять участников");
         }
+        // GM проверен выше: дальше GM кампании — это requesterId, сама кампания нужна только как ссылка
+        Campaign campaign = campaignRepository.getReferenceById(campaignId);
 
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
@@ -118,7 +123,7 @@ public class CampaignServiceImpl implements CampaignService {
         CampaignRole targetRole = (role == null ? CampaignRole.PLAYER : role);
 
         // Запрет на «второго GM»
-        if (targetRole == CampaignRole.GM && !userId.equals(campaign.getGm().getId())) {
+        if (targetRole == CampaignRole.GM && !userId.equals(requesterId)) {
             throw new ForbiddenException("Нельзя назначить второго GM. Передайте GM-ство отдельным сценарием.");
         }
 
@@ -130,6 +135,7 @@ public class CampaignServiceImpl implements CampaignService {
                 .roleInCampaign(targetRole)
                 .build();
             campaignMemberRepository.save(cm);
+            access.evict(campaignId, userId);
 
             return new CampaignRoleResult(toMemberDto(cm), true); // created = true
         } else {
@@ -137,6 +143,7 @@ public class CampaignServiceImpl implements CampaignService {
             if (existing.getRoleInCampaign() != targetRole) {
                 existing.setRoleInCampaign(targetRole);
                 campaignMemberRepository.save(existing);
+                access.evict(campaignId, userId);
             }
             return new CampaignRoleResult(toMemberDto(existing), false); // created = false
         }
@@ -148,10 +155,7 @@ public class CampaignServiceImpl implements CampaignService {
         if (role == null) {
             throw new IllegalArgumentException("roleInCampaign не должен быть пустым");
         }
-        Campaign campaign = campaignRepository.findById(campaignId)
-            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
-
-        if (!campaign.getGm().getId().equals(requesterId)) {
+        if (!access.isGm(campaignId, requesterId)) {
             throw new ForbiddenException("Только GM может менять роль участника");
         }
 
@@ -159,39 +163,32 @@ public class CampaignServiceImpl implements CampaignService {
         CampaignMember member = campaignMemberRepository.findById(id)
             .orElseThrow(() -> new NotFoundException("Пользователь не является участником кампании"));
 
-        if (role == CampaignRole.GM && !userId.equals(campaign.getGm().getId())) {
+        if (role == CampaignRole.GM && !userId.equals(requesterId)) {
             throw new ForbiddenException("Нельзя назначить второго GM. Передайте GM-ство отдельным сценарием.");
         }
 
         member.setRoleInCampaign(role);
         campaignMemberRepository.save(member);
+        access.evict(campaignId, userId);
         return toMemberDto(member);
     }
 
     @Override
     public List<CampaignMemberDto> listMembers(UUID campaignId, UUID requesterId) {
-        Campaign campaign = campaignRepository.findById(campaignId)
-            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
-
-        if (!campaign.getGm().getId().equals(requesterId)) {
+        if (!access.isGm(campaignId, requesterId)) {
             throw new ForbiddenException("Только GM может просматривать список участников");
         }
 
-        return campaignMemberRepository.findByCampaign_Id(campaignId).stream()
-            .map(this::toMemberDto)
-            .toList();
+        return campaignMemberRepository.findMemberDtos(campaignId);
     }
 
     @Transactional
     @Override
     public void removeMember(UUID campaignId, UUID userId, UUID requesterId) {
-        Campaign campaign = campaignRepository.findById(campaignId)
-            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
-
-        if (!campaign.getGm().getId().equals(requesterId)) {
+        if (!access.isGm(campaignId, requesterId)) {
             throw new ForbiddenException("Только GM может удалять участников");
         }
-        if (userId.equals(campaign.getGm().getId())) {
+        if (userId.equals(requesterId)) {
             throw new ForbiddenException("Нельзя удалить GM из собственной кампании");
         }
 
@@ -205,10 +202,12 @@ public class CampaignServiceImpl implements CampaignService {
             .filter(ch -> ch.getCampaign().getId().equals(campaignId))
             .toList();
         for (org.sft.tabletoprpg.domain.Character ch : chars) {
+            usageCounters.releaseCharacter(ch.getId());
             characterRepository.delete(ch);
         }
 
         campaignMemberRepository.delete(member);
+        access.evict(campaignId, userId);
     }
 
     /* ============================ READS ============================ */
@@ -220,12 +219,7 @@ public class CampaignServiceImpl implements CampaignService {
 
     @Override
     public List<CampaignDto> findCampaignsByGm_Id(UUID gmId) {
-        // если у репозитория есть метод с сортировкой — используем его, иначе отсортируем вручную
-        List<Campaign> list = campaignRepository.findByGm_Id(gmId);
-        return list.stream()
-            .sorted(Comparator.comparing(Campaign::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder())).reversed())
-            .map(this::toDto)
-            .toList();
+        return campaignRepository.findDtosByGm(gmId);
     }
 
     /** НОВОЕ: кампании, где пользователь УЧАСТНИК (PLAYER или GM). */
@@ -233,29 +227,13 @@ public class CampaignServiceImpl implements CampaignService {
     public List<CampaignDto> findCampaignsByMember(UUID userId) {
         if (userId == null) return List.of();
 
-        // Требуется метод в репозитории членства: List<CampaignMember> findByUser_Id(UUID userId);
-        List<CampaignMember> memberships = campaignMemberRepository.findByUser_Id(userId);
-
-        // Соберём уникальные кампании по id, сохраним порядок добавления,
-        // затем отсортируем по createdAt (desc) перед маппингом в DTO.
-        Map<UUID, Campaign> byId = memberships.stream()
-            .map(CampaignMember::getCampaign)
-            .filter(Objects::nonNull)
-            .collect(Collectors.toMap(
-                Campaign::getId,
-                Function.identity(),
-                (a, b) -> a,
-                LinkedHashMap::new
-            ));
-
-        return byId.values().stream()
-            .sorted(Comparator.comparing(Campaign::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder())).reversed())
-            .map(this::toDto)
-            .toList();
+        // членство уникально по (кампания, пользователь): дубликатов нет, порядок — в SQL
+        return campaignRepository.findDtosByMember(userId);
     }
 
     @Override
     public CampaignDto findCampaignById(UUID id) {
+        // по id — из кэша второго уровня, без запроса
         Campaign campaign = campaignRepository.findById(id)
             .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
         return toDto(campaign);
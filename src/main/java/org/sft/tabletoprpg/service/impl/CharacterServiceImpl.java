@@ -5,21 +5,28 @@ import org.sft.tabletoprpg.domain.Atributes;
 import org.sft.tabletoprpg.domain.Campaign;
 import org.sft.tabletoprpg.domain.Character;
 import org.sft.tabletoprpg.domain.User;
-import org.sft.tabletoprpg.repo.CampaignMemberRepository;
 import org.sft.tabletoprpg.repo.CampaignRepository;
 import org.sft.tabletoprpg.repo.CharacterRepository;
 import org.sft.tabletoprpg.repo.UserRepository;
+import org.sft.tabletoprpg.repo.projection.CharacterAccessView;
 import org.sft.tabletoprpg.service.CharacterService;
+import org.sft.tabletoprpg.service.access.CampaignAccessResolver;
 import org.sft.tabletoprpg.service.dto.character.*;
 import org.sft.tabletoprpg.service.exception.BadRequestException;
 import org.sft.tabletoprpg.service.exception.ConflictException;
 import org.sft.tabletoprpg.service.exception.ForbiddenException;
 import org.sft.tabletoprpg.service.exception.NotFoundException;
+import org.sft.tabletoprpg.service.exception.TooManyRequestsException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
@@ -29,7 +36,12 @@ public class CharacterServiceImpl implements CharacterService {
     private final CharacterRepository characterRepository;
     private final CampaignRepository campaignRepository;
     private final UserRepository userRepository;
-    private final CampaignMemberRepository campaignMemberRepository;
+    private final CampaignAccessResolver access;
+    private final HpDeltaCoalescer hpCoalescer;
+    private final ItemUsageCounters usageCounters;
+    private final TransactionTemplate tx;
+
+    private static final long HP_BATCH_TIMEOUT_SECONDS = 10;
 
 
     @Transactional
@@ -58,27 +70,18 @@ public class CharacterServiceImpl implements CharacterService {
         }
 
 
+        // ---- Права: персонаж создаётся для себя, владелец должен быть участником кампании
+        // (GM — тоже участник; NotFound, если кампании нет)
+        if (!access.isMember(campaignId, requesterId)) {
+            throw new ForbiddenException("Владелец персонажа должен быть участником кампании");
+        }
+
         Campaign campaign = campaignRepository.findById(campaignId)
             .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
 
-
         User owner = userRepository.findById(requesterId)
             .orElseThrow(() -> new NotFoundException("Пользователь (владелец) не найден"));
 
-        // ---- Права: GM кампании или сам владелец
-        boolean requesterIsGm    = requesterId.equals(campaign.getGm().getId());
-        boolean requesterIsOwner = requesterId.equals(owner.getId());
-        if (!requesterIsGm && !requesterIsOwner) {
-            throw new ForbiddenException("Нет прав на создание персонажа в этой кампании");
-        }
-
-
-        boolean ownerIsMember = campaignMemberRepository
-            .existsByCampaign_IdAndUser_Id(campaignId, owner.getId());
-        if (!ownerIsMember) {
-            throw new ForbiddenException("Владелец персонажа должен быть участником кампании");
-        }
-
         // Проверка: один пользователь = один персонаж в кампании
         boolean alreadyHasCharacter = characterRepository
             .existsByCampaign_IdAndOwner_Id(campaignId, owner.getId());
@@ -116,8 +119,7 @@ public class CharacterServiceImpl implements CharacterService {
             .orElseThrow(() -> new NotFoundException("Персонаж не найден"));
 
         UUID ownerId = character.getOwner().getId();
-        UUID gmId = character.getCampaign() != null ? character.getCampaign().getGm().getId() : null;
-        if (!requesterId.equals(ownerId) && (gmId == null || !requesterId.equals(gmId))) {
+        if (!requesterId.equals(ownerId) && !isCampaignGm(character, requesterId)) {
             throw new ForbiddenException("Нет прав на редактирование этого персонажа");
         }
 
@@ -173,79 +175,107 @@ public class CharacterServiceImpl implements CharacterService {
     @Transactional
     @Override
     public void deleteCharacter(UUID characterId, UUID requesterId) {
-        Character character = characterRepository.findById(characterId)
-            .orElseThrow(() -> new NotFoundException("Персонаж не найден"));
-
-        UUID ownerId = character.getOwner().getId();
-        UUID gmId = character.getCampaign().getGm().getId();
-
-        if (!requesterId.equals(ownerId) && !requesterId.equals(gmId)) {
+        var acl = loadAccess(characterId);
+        if (!acl.isOwner(requesterId) && !acl.isGm(requesterId)) {
             throw new ForbiddenException("Нет прав на удаление персонажа");
         }
 
-        characterRepository.delete(character);
+        usageCounters.releaseCharacter(characterId);
+        characterRepository.deleteDirectlyById(characterId);
     }
 
     @Override
     public CharacterDto getById(UUID characterId) {
-        Character character = characterRepository.findById(characterId)
+        return characterRepository.findDtoById(characterId)
             .orElseThrow(() -> new NotFoundException("Персонаж не найден"));
-        return toDto(character);
     }
 
     @Override
     public List<CharacterDto> findCharactersByCampaign_Id(UUID campaignId) {
-        return characterRepository.findByCampaign_Id(campaignId)
-            .stream()
-            .map(this::toDto)
-            .toList();
+        return characterRepository.findDtosByCampaign(campaignId);
     }
 
     @Override
     public List<CharacterDto> findCharactersByOwner_Id(UUID ownerId) {
-        return characterRepository.findByOwner_Id(ownerId)
-            .stream()
-            .map(this::toDto)
-            .toList();
+        return characterRepository.findDtosByOwner(ownerId);
     }
 
-    @Transactional
+    // Транзакции — внутри: при склейке дельт вызывающий ждёт пачку, и держи он при этом соединение,
+    // десяток одновременных ударов занял бы весь пул, а flusher'у, применяющему пачку, соединения бы не досталось.
+    // Поэтому каждое обращение к БД — своей короткой транзакцией: вне их EntityManager на всё время вызова
+    // (а с ним и соединение) не создаётся
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     @Override
     public CharacterDto patchHp(UUID characterId, Integer hpParam, HpPatchRequest body, UUID requesterId) {
-        Character character = characterRepository.findById(characterId)
+        // Приоритет: body.set -> body.delta -> hpParam
+        if (body != null && body.set() == null && body.delta() != null && hpCoalescer.isEnabled()) {
+            tx.executeWithoutResult(s -> checkHpAccess(characterId, requesterId));
+            awaitCoalescedHpDelta(characterId, body.delta());
+            return tx.execute(s -> characterRepository.findDtoById(characterId)
+                .orElseThrow(() -> new NotFoundException("Персонаж не найден")));
+        }
+        return tx.execute(s -> applyHpPatch(characterId, hpParam, body, requesterId));
+    }
+
+    private CharacterDto applyHpPatch(UUID characterId, Integer hpParam, HpPatchRequest body, UUID requesterId) {
+        checkHpAccess(characterId, requesterId);
+        if (body != null && body.set() == null && body.delta() != null) {
+            // Дельта (урон/лечение) не отклоняется, а ограничивается [0..maxHp] в самом UPDATE
+            characterRepository.applyHpDelta(characterId, body.delta());
+        } else {
+            Integer newHp = (body != null && body.set() != null) ? body.set() : hpParam;
+            if (newHp == null) {
+                throw new BadRequestException("Пропущен параметр HP: используйте ?hp= или JSON {\"set\": ...} / {\"delta\": ...}");
+            }
+            // Валидация диапазона — условием того же UPDATE
+            if (characterRepository.setHpWithinMax(characterId, newHp) == 0) {
+                throw new BadRequestException("HP должно быть в пределах [0..maxHp]");
+            }
+        }
+
+        return characterRepository.findDtoById(characterId)
             .orElseThrow(() -> new NotFoundException("Персонаж не найден"));
+    }
 
+    private void checkHpAccess(UUID characterId, UUID requesterId) {
         // Авторизация: владелец или GM
-        UUID ownerId = character.getOwner().getId();
-        UUID gmId = character.getCampaign().getGm().getId();
-        if (!requesterId.equals(ownerId) && !requesterId.equals(gmId)) {
+        var acl = loadAccess(characterId);
+        if (!acl.isOwner(requesterId) && !acl.isGm(requesterId)) {
             throw new ForbiddenException("Нет прав на изменение HP этого персонажа");
         }
+    }
 
-        // Определяем целевое значение newHp (приоритет: body.set -> body.delta -> hpParam)
-        Integer newHp = null;
-        if (body != null) {
-            if (body.set() != null) {
-                newHp = body.set();
-            } else if (body.delta() != null) {
-                newHp = character.getHp() + body.delta();
+    // Ждём пачку без транзакции. По таймауту дельту забираем из ещё не применённой пачки — тогда отказ честный
+    // (429, можно повторить); если пачка уже применяется, отказ был бы ложью — дожидаемся её результата
+    private void awaitCoalescedHpDelta(UUID characterId, int delta) {
+        var applied = hpCoalescer.submit(characterId, delta);
+        try {
+            try {
+                applied.get(HP_BATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException ex) {
+                if (hpCoalescer.withdraw(characterId, delta, applied)) {
+                    throw new TooManyRequestsException("Изменение HP не применено вовремя, повторите запрос");
+                }
+                applied.get();
             }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Не удалось применить изменение HP", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Изменение HP прервано", ex);
         }
-        if (newHp == null && hpParam != null) {
-            newHp = hpParam;
-        }
-        if (newHp == null) {
-            throw new BadRequestException("Пропущен параметр HP: используйте ?hp= или JSON {\"set\": ...} / {\"delta\": ...}");
-        }
+    }
 
-        // Валидация диапазона
-        if (newHp < 0 || newHp > character.getMaxHp()) {
-            throw new BadRequestException("HP должно быть в пределах [0..maxHp]");
-        }
+    private CharacterAccessView loadAccess(UUID characterId) {
+        return characterRepository.findAccessView(characterId)
+            .orElseThrow(() -> new NotFoundException("Персонаж не найден"));
+    }
 
-        character.setHp(newHp);
-        characterRepository.save(character);
-        return toDto(character);
+    // id кампании берётся из прокси без загрузки самой кампании
+    private boolean isCampaignGm(Character character, UUID requesterId) {
+        return character.getCampaign() != null
+            && access.isGm(character.getCampaign().getId(), requesterId);
     }
 
     // ------------------------ МАППЕРЫ ------------------------------ //
@@ -274,6 +304,9 @@ public class CharacterServiceImpl implements CharacterService {
             .ownerId(character.getOwner() != null ? character.getOwner().getId() : null)
             .campaignId(character.getCampaign() != null ? character.getCampaign().getId() : null)       
             .campaignName(character.getCampaign() != null ? character.getCampaign().getName() : null)
+            .totalWeight(character.getTotalWeight())
+            .totalPrice(character.getTotalPrice())
+            .itemCount(character.getItemCount())
             .build();
     }
 
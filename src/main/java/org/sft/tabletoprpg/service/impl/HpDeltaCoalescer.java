@@ -0,0 +1,120 @@
+package org.sft.tabletoprpg.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.sft.tabletoprpg.repo.CharacterRepository;
+import org.sft.tabletoprpg.service.exception.NotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Склейка всплеска HP-дельт одного персонажа в один UPDATE.
+ * Первая дельта открывает окно (character.hp-coalesce-window), все дельты, пришедшие за это время,
+ * суммируются и применяются одним оператором; каждый вызывающий получает итоговый HP.
+ * Ограничение [0..max_hp] применяется к сумме, а не к каждому удару по отдельности.
+ * По умолчанию окно нулевое — склейка выключена, дельты применяются сразу.
+ */
+@Slf4j
+@Component
+public class HpDeltaCoalescer {
+
+    private static final class Batch {
+        int delta;
+        final List<CompletableFuture<Integer>> waiters = new ArrayList<>();
+    }
+
+    private final Duration window;
+    private final CharacterRepository characterRepository;
+    private final TransactionTemplate tx;
+    private final Map<UUID, Batch> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public HpDeltaCoalescer(@Value("${character.hp-coalesce-window:PT0S}") Duration window,
+                            CharacterRepository characterRepository,
+                            TransactionTemplate tx) {
+        this.window = window;
+        this.characterRepository = characterRepository;
+        this.tx = tx;
+        this.flusher = isEnabled()
+            ? Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "hp-coalescer");
+                t.setDaemon(true);
+                return t;
+            })
+            : null;
+    }
+
+    public boolean isEnabled() {
+        return !window.isZero() && !window.isNegative();
+    }
+
+    /** Права проверяет вызывающий; future завершается новым HP после применения пачки. */
+    public CompletableFuture<Integer> submit(UUID characterId, int delta) {
+        var result = new CompletableFuture<Integer>();
+        pending.compute(characterId, (id, batch) -> {
+            if (batch == null) {
+                batch = new Batch();
+                flusher.schedule(() -> flush(id), window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            batch.delta += delta;
+            batch.waiters.add(result);
+            return batch;
+        });
+        return result;
+    }
+
+    /**
+     * Забрать дельту из пачки, пока та ждёт окна. false — пачка уже забрана на применение,
+     * и дельта будет применена (future завершится её результатом).
+     */
+    public boolean withdraw(UUID characterId, int delta, CompletableFuture<Integer> waiter) {
+        boolean[] withdrawn = {false};
+        pending.computeIfPresent(characterId, (id, batch) -> {
+            if (batch.waiters.remove(waiter)) {
+                batch.delta -= delta;
+                withdrawn[0] = true;
+            }
+            return batch.waiters.isEmpty() ? null : batch;
+        });
+        if (withdrawn[0]) {
+            waiter.cancel(false);
+        }
+        return withdrawn[0];
+    }
+
+    private void flush(UUID characterId) {
+        Batch batch = pending.remove(characterId);
+        if (batch == null) return;
+        try {
+            Integer hp = tx.execute(s -> {
+                if (characterRepository.applyHpDelta(characterId, batch.delta) == 0) {
+                    throw new NotFoundException("Персонаж не найден");
+                }
+                return characterRepository.findHp(characterId).orElseThrow();
+            });
+            batch.waiters.forEach(w -> w.complete(hp));
+        } catch (RuntimeException ex) {
+            log.debug("HP batch for {} failed: {}", characterId, ex.getMessage());
+            batch.waiters.forEach(w -> w.completeExceptionally(ex));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+    }
+}
@@ -1,25 +1,42 @@
 package org.sft.tabletoprpg.service.impl;
 
 import lombok.RequiredArgsConstructor;
-import org.sft.tabletoprpg.domain.Character;
 import org.sft.tabletoprpg.domain.CharacterInventory;
 import org.sft.tabletoprpg.domain.Item;
 import org.sft.tabletoprpg.domain.compositeKeys.CharacterInventoryId;
 import org.sft.tabletoprpg.repo.CharacterInventoryRepository;
 import org.sft.tabletoprpg.repo.CharacterRepository;
 import org.sft.tabletoprpg.repo.ItemRepository;
+import org.sft.tabletoprpg.repo.projection.CharacterAccessView;
 import org.sft.tabletoprpg.service.InventoryService;
 import org.sft.tabletoprpg.service.dto.inventory.CharacterInventoryEntryDto;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryBatchOperation;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryBatchResultDto;
 import org.sft.tabletoprpg.service.dto.inventory.InventoryChangeRequest;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryOperationResultDto;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryOperationResultDto.Status;
 import org.sft.tabletoprpg.service.exception.BadRequestException;
+import org.sft.tabletoprpg.service.exception.ConflictException;
 import org.sft.tabletoprpg.service.exception.ForbiddenException;
 import org.sft.tabletoprpg.service.exception.NotFoundException;
+import org.sft.tabletoprpg.service.impl.ItemUsageCounters.Deltas;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -29,24 +46,29 @@ public class InventoryServiceImpl implements InventoryService {
     private final CharacterInventoryRepository characterInventoryRepository;
     private final CharacterRepository characterRepository;
     private final ItemRepository itemRepository;
+    private final ItemUsageCounters usageCounters;
+    private final NamedParameterJdbcTemplate jdbc;
+
+    // UPDATE -> INSERT ON CONFLICT DO NOTHING -> UPDATE: персонаж заблокирован (lockForInventory),
+    // так что строки его инвентаря никто другой не создаёт и не удаляет — вторая попытка лишь страховка
+    private static final int UPSERT_ATTEMPTS = 2;
+
+    // строки пакета и агрегаты их персонажей — в порядке lockOrder: (персонаж, предмет);
+    // сами персонажи к этому моменту уже заблокированы lockForInventory
+    private static final Comparator<CharacterInventoryId> BY_LOCK_ORDER = Comparator
+        .<CharacterInventoryId, UUID>comparing(CharacterInventoryId::getCharacterId, InventoryServiceImpl::lockOrder)
+        .thenComparing(CharacterInventoryId::getItemId, InventoryServiceImpl::lockOrder);
 
 
     @Override
     public List<CharacterInventoryEntryDto> getInventoryByCharacter(UUID characterId, UUID requesterId) {
 
-        Character character = characterRepository.findById(characterId)
-            .orElseThrow(()-> new NotFoundException("Персонаж не найден"));
-
-        UUID ownerId = character.getOwner().getId();
-        UUID gmId = character.getCampaign().getGm().getId();
-        if (!requesterId.equals(ownerId) && !requesterId.equals(gmId)) {
+        var acl = loadAccess(characterId);
+        if (!acl.isOwner(requesterId) && !acl.isGm(requesterId)) {
             throw new ForbiddenException("Нет прав на просмотр инвентаря персонажа");
         }
 
-        return characterInventoryRepository.findByCharacter_Id(characterId)
-            .stream()
-            .map(this::toDto)
-            .toList();
+        return characterInventoryRepository.findEntryDtos(characterId);
     }
 
     @Transactional
@@ -57,53 +79,28 @@ public class InventoryServiceImpl implements InventoryService {
             throw new BadRequestException("Количество не должно быть нулевым");
         }
 
-        Character character = characterRepository.findById(req.characterId())
-            .orElseThrow(()-> new NotFoundException("Персонаж не найден"));
-
-        Item item = itemRepository.findById(req.itemId())
-            .orElseThrow(()-> new NotFoundException("Предмет не найден не найден"));
-
-        UUID ownerId = character.getOwner().getId();
-        UUID gmId = character.getCampaign().getGm().getId();
+        var acl = loadAccess(req.characterId());
 
         if (delta > 0){
-            if (!requesterId.equals(gmId)){
+            if (!acl.isGm(requesterId)){
                 throw new ForbiddenException("Только ГМ может выдавать предметы персонажу");
             }
-
-            Optional<CharacterInventory> existedCharacterInventory = characterInventoryRepository.findByCharacter_IdAndItem_Id(character.getId(), item.getId());
-
-            if (existedCharacterInventory.isEmpty()) {
-                var entry = new CharacterInventory();
-                entry.setCharacter(character);
-                entry.setItem(item);
-                entry.setQuantity(delta);
-                entry.setId(new CharacterInventoryId(character.getId(), item.getId()));
-                characterInventoryRepository.save(entry);
-            } else {
-                var entry = existedCharacterInventory.get();
-                entry.setQuantity(entry.getQuantity() + delta);
-                characterInventoryRepository.save(entry);
-            }
+            Item item = findItem(req.itemId());
+            lockCharacters(req.characterId());
+            var usage = new Deltas();
+            grant(req.characterId(), item, delta, usage);
+            usageCounters.apply(usage);
             return;
         }
 
-        if (!requesterId.equals(ownerId)) {
+        if (!acl.isOwner(requesterId)) {
             throw new ForbiddenException("Только владелец персонажа может расходовать/удалять предметы");
         }
-
-        var entry = characterInventoryRepository.findByCharacter_IdAndItem_Id(character.getId(), item.getId())
-            .orElseThrow(() -> new NotFoundException("Этого предмета нет в инвентаре"));
-
-        int newQty = entry.getQuantity() + delta; // delta отрицательная
-        if (newQty < 0) {
-            throw new BadRequestException("Нельзя списать больше, чем есть");
-        } else if (newQty == 0) {
-            characterInventoryRepository.delete(entry);
-        } else {
-            entry.setQuantity(newQty);
-            characterInventoryRepository.save(entry);
-        }
+        Item item = findItem(req.itemId());
+        lockCharacters(req.characterId());
+        var usage = new Deltas();
+        withdraw(req.characterId(), item, -delta, usage);
+        usageCounters.apply(usage);
     }
 
 
@@ -112,31 +109,15 @@ public class InventoryServiceImpl implements InventoryService {
     public void giveItem(UUID characterId, UUID itemId, int quantity, UUID requesterId) {
         if (quantity < 1) throw new BadRequestException("Количество должно быть ≥ 1");
 
-        var character = characterRepository.findById(characterId)
-            .orElseThrow(() -> new NotFoundException("Персонаж не найден"));
-        var item = itemRepository.findById(itemId)
-            .orElseThrow(() -> new NotFoundException("Предмет не найден"));
-
-        UUID gmId = character.getCampaign().getGm().getId();
-        if (!requesterId.equals(gmId)) {
+        var acl = loadAccess(characterId);
+        if (!acl.isGm(requesterId)) {
             throw new ForbiddenException("Только ГМ может выдавать предметы персонажу");
         }
-
-        var id = new CharacterInventoryId(characterId, itemId);
-        var entryOpt = characterInventoryRepository.findById(id);
-
-        if (entryOpt.isEmpty()) {
-            var entry = new CharacterInventory();
-            entry.setId(id);
-            entry.setCharacter(character);
-            entry.setItem(item);
-            entry.setQuantity(quantity);
-            characterInventoryRepository.save(entry);
-        } else {
-            var entry = entryOpt.get();
-            entry.setQuantity(entry.getQuantity() + quantity);
-            characterInventoryRepository.save(entry);
-        }
+        Item item = findItem(itemId);
+        lockCharacters(characterId);
+        var usage = new Deltas();
+        grant(characterId, item, quantity, usage);
+        usageCounters.apply(usage);
     }
 
     @Transactional
@@ -144,24 +125,15 @@ public class InventoryServiceImpl implements InventoryService {
     public void consumeItem(UUID characterId, UUID itemId, int quantity, UUID requesterId) {
         if (quantity < 1) throw new BadRequestException("Количество должно быть ≥ 1");
 
-        var character = characterRepository.findById(characterId)
-            .orElseThrow(() -> new NotFoundException("Персонаж не найден"));
-        var entry = characterInventoryRepository.findByCharacter_IdAndItem_Id(characterId, itemId)
-            .orElseThrow(() -> new NotFoundException("Этого предмета нет в инвентаре"));
-
-        UUID ownerId = character.getOwner().getId();
-        if (!requesterId.equals(ownerId)) {
+        var acl = loadAccess(characterId);
+        if (!acl.isOwner(requesterId)) {
             throw new ForbiddenException("Только владелец персонажа может расходовать предметы");
         }
-
-        int newQty = entry.getQuantity() - quantity;
-        if (newQty < 0) throw new BadRequestException("Нельзя списать больше, чем есть");
-        if (newQty == 0) {
-            characterInventoryRepository.delete(entry);
-        } else {
-            entry.setQuantity(newQty);
-            characterInventoryRepository.save(entry);
-        }
+        Item item = findItem(itemId);
+        lockCharacters(characterId);
+        var usage = new Deltas();
+        withdraw(characterId, item, quantity, usage);
+        usageCounters.apply(usage);
     }
 
     @Transactional
@@ -169,81 +141,305 @@ public class InventoryServiceImpl implements InventoryService {
     public void setQuantity(UUID characterId, UUID itemId, int quantity, UUID requesterId) {
         if (quantity < 0) throw new BadRequestException("Количество должно быть ≥ 0");
 
-        var character = characterRepository.findById(characterId)
-            .orElseThrow(() -> new NotFoundException("Персонаж не найден"));
-        var item = itemRepository.findById(itemId)
-            .orElseThrow(() -> new NotFoundException("Предмет не найден"));
-
         // Политика: устанавливать абсолютное количество может только GM
-        UUID gmId = character.getCampaign().getGm().getId();
-        if (!requesterId.equals(gmId)) {
+        var acl = loadAccess(characterId);
+        if (!acl.isGm(requesterId)) {
             throw new ForbiddenException("Только ГМ может устанавливать количество предмета");
         }
 
-        var id = new CharacterInventoryId(characterId, itemId);
-        var entryOpt = characterInventoryRepository.findById(id);
+        // абсолютное значение: прежнее количество читается под блокировкой строки — для дельты агрегатов
+        Item item = findItem(itemId);
+        lockCharacters(characterId);
+        for (int attempt = 0; attempt < UPSERT_ATTEMPTS; attempt++) {
+            Integer current = characterInventoryRepository.lockQuantity(characterId, itemId).orElse(null);
+            if (current != null) {
+                if (quantity == 0) {
+                    characterInventoryRepository.deleteRow(characterId, itemId);
+                } else {
+                    characterInventoryRepository.updateQuantity(characterId, itemId, quantity);
+                }
+                addTotals(characterId, item, quantity - current);
+                usageCounters.shift(itemId, quantity == 0 ? -1 : 0, quantity - current);
+                return;
+            }
+            if (quantity == 0) return;
+            if (characterInventoryRepository.insertIfAbsent(characterId, itemId, quantity) == 1) {
+                addTotals(characterId, item, quantity);
+                usageCounters.shift(itemId, 1, quantity);
+                return;
+            }
+        }
+        throw new ConflictException("Инвентарь изменяется параллельно, повторите попытку");
+    }
+
+    @Transactional
+    @Override
+    public void removeItem(UUID characterId, UUID itemId, UUID requesterId) {
+        var acl = loadAccess(characterId);
 
-        if (quantity == 0) {
-            entryOpt.ifPresent(characterInventoryRepository::delete);
-            return;
+        // Политика удаления «в ноль»: разрешим GM и владельцу
+        if (!acl.isGm(requesterId) && !acl.isOwner(requesterId)) {
+            throw new ForbiddenException("Нет прав на удаление предмета из инвентаря");
         }
 
-        if (entryOpt.isEmpty()) {
-            var entry = new CharacterInventory();
-            entry.setId(id);
-            entry.setCharacter(character);
-            entry.setItem(item);
-            entry.setQuantity(quantity);
-            characterInventoryRepository.save(entry);
+        Item item = findItem(itemId);
+        lockCharacters(characterId);
+        int current = characterInventoryRepository.lockQuantity(characterId, itemId)
+            .orElseThrow(() -> new NotFoundException("Этого предмета нет в инвентаре"));
+        characterInventoryRepository.deleteRow(characterId, itemId);
+        addTotals(characterId, item, -current);
+        usageCounters.shift(itemId, -1, -current);
+    }
+
+
+    @Transactional
+    @Override
+    public void transferItem(UUID fromCharacterId, UUID toCharacterId, UUID itemId, int quantity, UUID requesterId) {
+        if (quantity < 1) throw new BadRequestException("Количество должно быть ≥ 1");
+        if (fromCharacterId.equals(toCharacterId)) {
+            throw new BadRequestException("Нельзя передать предмет самому себе");
+        }
+
+        Map<UUID, CharacterAccessView> acl = characterRepository.findAccessViews(List.of(fromCharacterId, toCharacterId))
+            .stream()
+            .collect(Collectors.toMap(CharacterAccessView::characterId, Function.identity()));
+        CharacterAccessView from = acl.get(fromCharacterId);
+        CharacterAccessView to = acl.get(toCharacterId);
+        if (from == null || to == null) {
+            throw new NotFoundException("Персонаж не найден");
+        }
+        if (!from.isOwner(requesterId) && !from.isGm(requesterId)) {
+            throw new ForbiddenException("Передать предмет может только владелец персонажа или ГМ");
+        }
+        if (!from.campaignId().equals(to.campaignId())) {
+            throw new BadRequestException("Персонажи из разных кампаний");
+        }
+
+        // оба персонажа блокируются сразу, в порядке id (lockForInventory): встречные обмены A->B и B->A,
+        // пакеты и поштучные операции с ними не ждут друг друга по кругу.
+        // Нехватка у источника — исключение, и уже сделанное зачисление откатывается вместе с транзакцией.
+        // Счётчики предмета — после обеих строк: общее количество не меняется, держатели — может быть
+        Item item = findItem(itemId);
+        lockCharacters(fromCharacterId, toCharacterId);
+        var usage = new Deltas();
+        if (lockOrder(fromCharacterId, toCharacterId) < 0) {
+            withdraw(fromCharacterId, item, quantity, usage);
+            grant(toCharacterId, item, quantity, usage);
         } else {
-            var entry = entryOpt.get();
-            entry.setQuantity(quantity);
-            characterInventoryRepository.save(entry);
+            grant(toCharacterId, item, quantity, usage);
+            withdraw(fromCharacterId, item, quantity, usage);
         }
+        usageCounters.apply(usage);
     }
 
     @Transactional
     @Override
-    public void removeItem(UUID characterId, UUID itemId, UUID requesterId) {
-        var character = characterRepository.findById(characterId)
-            .orElseThrow(() -> new NotFoundException("Персонаж не найден"));
+    public InventoryBatchResultDto applyBatch(List<InventoryBatchOperation> operations, UUID requesterId) {
+        if (operations == null || operations.isEmpty()) {
+            throw new BadRequestException("Пустой пакет операций");
+        }
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new BadRequestException("Не больше " + MAX_BATCH_OPERATIONS + " операций за раз");
+        }
 
-        UUID gmId = character.getCampaign().getGm().getId();
-        UUID ownerId = character.getOwner().getId();
+        // права и существование предметов — по одному запросу на весь пакет
+        Set<UUID> characterIds = new HashSet<>();
+        Set<UUID> itemIds = new HashSet<>();
+        for (InventoryBatchOperation op : operations) {
+            characterIds.add(op.characterId());
+            itemIds.add(op.itemId());
+        }
+        Map<UUID, CharacterAccessView> acl = characterRepository.findAccessViews(characterIds).stream()
+            .collect(Collectors.toMap(CharacterAccessView::characterId, Function.identity()));
+        Set<UUID> existingItems = new HashSet<>(itemRepository.lockAllForShare(itemIds));
+
+        // предметы, затем все персонажи пакета (в порядке id), затем их строки: тот же порядок, что у поштучных операций
+        Map<CharacterInventoryId, CharacterInventory> rows = new HashMap<>();
+        if (!acl.isEmpty() && !existingItems.isEmpty()) {
+            characterRepository.lockForInventory(acl.keySet());
+            for (CharacterInventory row : characterInventoryRepository.lockRows(acl.keySet(), existingItems)) {
+                rows.put(row.getId(), row);
+            }
+        }
 
-        // Политика удаления «в ноль»: разрешим GM и владельцу
-        if (!requesterId.equals(gmId) && !requesterId.equals(ownerId)) {
-            throw new ForbiddenException("Нет прав на удаление предмета из инвентаря");
+        // операции применяются по порядку к количествам в памяти; в БД уходит только итог по каждой строке
+        Map<CharacterInventoryId, Integer> quantities = new LinkedHashMap<>();
+        rows.forEach((id, row) -> quantities.put(id, row.getQuantity()));
+
+        List<InventoryOperationResultDto> results = new ArrayList<>(operations.size());
+        Set<CharacterInventoryId> touched = new LinkedHashSet<>();
+        int applied = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            InventoryBatchOperation op = operations.get(i);
+            var rejection = check(op, acl.get(op.characterId()), requesterId, existingItems);
+            if (rejection != null) {
+                results.add(InventoryOperationResultDto.rejected(i, op, rejection.status(), rejection.message()));
+                continue;
+            }
+            CharacterInventoryId id = new CharacterInventoryId(op.characterId(), op.itemId());
+            int current = quantities.getOrDefault(id, 0);
+            if (op.delta() < 0 && current == 0) {
+                results.add(InventoryOperationResultDto.rejected(i, op, Status.NOT_FOUND, "Этого предмета нет в инвентаре"));
+                continue;
+            }
+            if (current + (long) op.delta() < 0) {
+                results.add(InventoryOperationResultDto.rejected(i, op, Status.BAD_REQUEST, "Нельзя списать больше, чем есть"));
+                continue;
+            }
+            if (current + (long) op.delta() > Integer.MAX_VALUE) {
+                results.add(InventoryOperationResultDto.rejected(i, op, Status.BAD_REQUEST, "Слишком большое количество"));
+                continue;
+            }
+            int next = current + op.delta();
+            quantities.put(id, next);
+            touched.add(id);
+            results.add(InventoryOperationResultDto.applied(i, op, next));
+            applied++;
         }
 
-        var id = new CharacterInventoryId(characterId, itemId);
-        var entry = characterInventoryRepository.findById(id)
-            .orElseThrow(() -> new NotFoundException("Этого предмета нет в инвентаре"));
+        // UPDATE/DELETE уходят JDBC-пачками (hibernate.jdbc.batch_size, order_updates), новые строки — пачкой
+        // INSERT ... ON CONFLICT DO NOTHING, агрегаты — пачкой ADD_ITEM_TO_TOTALS в порядке id персонажа
+        List<MapSqlParameterSource> totals = new ArrayList<>();
+        var usage = new Deltas();
+        List<CharacterInventoryId> created = new ArrayList<>();
+        for (CharacterInventoryId id : touched.stream().sorted(BY_LOCK_ORDER).toList()) {
+            int quantity = quantities.get(id);
+            CharacterInventory row = rows.get(id);
+            long delta = quantity - (row == null ? 0 : row.getQuantity());
+            if (delta != 0) totals.add(rowParams(id, delta));
+
+            // держатель у новой строки учитывается после вставки: её могла опередить параллельная выдача
+            usage.add(id.getItemId(), row == null ? 0 : (quantity == 0 ? -1 : 0), delta);
+
+            if (row == null) {
+                if (quantity > 0) created.add(id);
+            } else if (quantity == 0) {
+                characterInventoryRepository.delete(row);
+            } else {
+                row.setQuantity(quantity);
+            }
+        }
+        insertCreatedRows(created, quantities, usage);
+        if (!totals.isEmpty()) {
+            jdbc.batchUpdate(CharacterRepository.ADD_ITEM_TO_TOTALS, totals.toArray(MapSqlParameterSource[]::new));
+        }
+        usageCounters.apply(usage);
+        return new InventoryBatchResultDto(applied, operations.size() - applied, results);
+    }
+
+    // строк при блокировке не было: INSERT ... ON CONFLICT DO NOTHING одной пачкой; строку, которую
+    // тем временем вставила параллельная выдача, дополняем тем же путём, что и grant
+    private void insertCreatedRows(List<CharacterInventoryId> created, Map<CharacterInventoryId, Integer> quantities,
+                                   Deltas usage) {
+        if (created.isEmpty()) return;
+        int[] inserted = jdbc.batchUpdate("""
+            INSERT INTO character_inventory (character_id, item_id, quantity)
+            VALUES (:characterId, :itemId, :quantity)
+            ON CONFLICT DO NOTHING""",
+            created.stream().map(id -> rowParams(id, quantities.get(id))).toArray(MapSqlParameterSource[]::new));
+        for (int i = 0; i < inserted.length; i++) {
+            CharacterInventoryId id = created.get(i);
+            int holders = inserted[i] == 1 ? 1 : upsert(id.getCharacterId(), id.getItemId(), quantities.get(id));
+            usage.add(id.getItemId(), holders, 0);
+        }
+    }
+
+    private static MapSqlParameterSource rowParams(CharacterInventoryId id, long quantity) {
+        return new MapSqlParameterSource()
+            .addValue("characterId", id.getCharacterId())
+            .addValue("itemId", id.getItemId())
+            .addValue("quantity", quantity);
+    }
+
+    // порядок uuid как в БД (побайтно без знака) — тот же, что у ORDER BY в lockRows пакетных операций
+    static int lockOrder(UUID a, UUID b) {
+        int c = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return c != 0 ? c : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    private record Rejection(Status status, String message) {}
 
-        characterInventoryRepository.delete(entry);
+    // те же правила, что у changeQuantity: выдаёт GM, расходует владелец
+    private static Rejection check(InventoryBatchOperation op, CharacterAccessView acl, UUID requesterId,
+                                   Set<UUID> existingItems) {
+        if (op.delta() == 0) {
+            return new Rejection(Status.BAD_REQUEST, "Количество не должно быть нулевым");
+        }
+        if (acl == null) {
+            return new Rejection(Status.NOT_FOUND, "Персонаж не найден");
+        }
+        if (op.delta() > 0 && !acl.isGm(requesterId)) {
+            return new Rejection(Status.FORBIDDEN, "Только ГМ может выдавать предметы персонажу");
+        }
+        if (op.delta() < 0 && !acl.isOwner(requesterId)) {
+            return new Rejection(Status.FORBIDDEN, "Только владелец персонажа может расходовать/удалять предметы");
+        }
+        if (!existingItems.contains(op.itemId())) {
+            return new Rejection(Status.NOT_FOUND, "Предмет не найден");
+        }
+        return null;
     }
 
 
+    /* ---------- атомарные операции над строкой инвентаря ---------- */
 
-    //--------------------МАППЕРЫ----------------//
-    private CharacterInventoryEntryDto toDto(CharacterInventory characterItem){
-        Item item = characterItem.getItem();
-        return CharacterInventoryEntryDto.builder()
-            .characterId(characterItem.getCharacter().getId())
-            .itemId(item.getId())
-            .quantity(characterItem.getQuantity())
-            .item(toItemDto(item))
-            .build();
+    private void grant(UUID characterId, Item item, int quantity, Deltas usage) {
+        int holders = upsert(characterId, item.getId(), quantity);
+        addTotals(characterId, item, quantity);
+        usage.add(item.getId(), holders, quantity);
     }
 
-    private org.sft.tabletoprpg.service.dto.item.ItemDto toItemDto(Item item) {
-        return org.sft.tabletoprpg.service.dto.item.ItemDto.builder()
-            .id(item.getId())
-            .name(item.getName())
-            .description(item.getDescription())
-            .weight(item.getWeight())
-            .price(item.getPrice())
-            .createdAt(null) // Item entity doesn't have createdAt field
-            .build();
+    // UPDATE строки; если её нет — INSERT ... ON CONFLICT DO NOTHING; если параллельно вставили — снова UPDATE.
+    // 1 -> строка создана, 0 -> дополнена существующая
+    private int upsert(UUID characterId, UUID itemId, int quantity) {
+        for (int attempt = 0; attempt < UPSERT_ATTEMPTS; attempt++) {
+            if (characterInventoryRepository.addQuantity(characterId, itemId, quantity) == 1) return 0;
+            if (characterInventoryRepository.insertIfAbsent(characterId, itemId, quantity) == 1) return 1;
+        }
+        throw new ConflictException("Инвентарь изменяется параллельно, повторите попытку");
+    }
+
+    // списание без чтения: уменьшить с остатком ≥ 1, иначе удалить строку, если в ней ровно столько
+    private void withdraw(UUID characterId, Item item, int quantity, Deltas usage) {
+        UUID itemId = item.getId();
+        if (characterInventoryRepository.subtractKeepingRow(characterId, itemId, quantity) == 1) {
+            addTotals(characterId, item, -quantity);
+            usage.add(itemId, 0, -quantity);
+            return;
+        }
+        if (characterInventoryRepository.deleteIfQuantityIs(characterId, itemId, quantity) == 1) {
+            addTotals(characterId, item, -quantity);
+            usage.add(itemId, -1, -quantity);
+            return;
+        }
+
+        if (characterInventoryRepository.existsById(new CharacterInventoryId(characterId, itemId))) {
+            throw new BadRequestException("Нельзя списать больше, чем есть");
+        }
+        throw new NotFoundException("Этого предмета нет в инвентаре");
+    }
+
+    // проверка, что предмет есть, и разделяемая блокировка его строки до коммита — первой, раньше персонажей:
+    // правка веса/цены не вклинится между ADD_ITEM_TO_TOTALS и коммитом операции
+    private Item findItem(UUID itemId) {
+        return itemRepository.lockForShare(itemId)
+            .orElseThrow(() -> new NotFoundException("Предмет не найден"));
+    }
+
+    private void lockCharacters(UUID... characterIds) {
+        characterRepository.lockForInventory(List.of(characterIds));
+    }
+
+    private void addTotals(UUID characterId, Item item, long quantityDelta) {
+        if (quantityDelta == 0) return;
+        characterRepository.addItemToTotals(characterId, item.getId(), quantityDelta);
+    }
+
+    // права проверяются по проекции: персонаж, кампания и GM не загружаются как сущности.
+    // Мимо CampaignAccessResolver намеренно: владельца всё равно читать из строки персонажа, GM приходит
+    // тем же запросом и всегда актуален — кэша, который сбрасывают evict/evictCampaign, здесь нет
+    private CharacterAccessView loadAccess(UUID characterId) {
+        return characterRepository.findAccessView(characterId)
+            .orElseThrow(() -> new NotFoundException("Персонаж не найден"));
     }
 }
@@ -0,0 +1,102 @@
+package org.sft.tabletoprpg.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сверка агрегатов инвентаря (characters.total_weight / total_price / item_count) с пересчётом
+ * по character_inventory × items одним запросом на всю таблицу. Расхождения пишутся в лог и в метрику
+ * inventory.totals.drift; при character.totals-verify.repair=true строки исправляются.
+ * <p>
+ * Исправление идёт под блокировкой строки персонажа: операция с инвентарём, ещё не сдвинувшая агрегаты,
+ * дождётся её и применит свою дельту уже к пересчитанному значению, в котором её изменения нет.
+ */
+@Slf4j
+@Component
+public class InventoryTotalsVerifier {
+
+    public record Report(int checked, List<UUID> drifted, int repaired) {}
+
+    private static final String EXPECTED = """
+        SELECT ci.character_id,
+               SUM(ci.quantity * COALESCE(i.weight, 0)) AS weight,
+               SUM(CAST(ci.quantity AS BIGINT) * COALESCE(i.price, 0)) AS price,
+               SUM(ci.quantity) AS cnt
+        FROM character_inventory ci JOIN items i ON i.id = ci.item_id
+        """;
+
+    private static final String DRIFT = """
+        (c.total_weight <> COALESCE(s.weight, 0)
+         OR c.total_price <> COALESCE(s.price, 0)
+         OR c.item_count <> COALESCE(s.cnt, 0))
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final boolean repair;
+    private final Counter driftCounter;
+
+    public InventoryTotalsVerifier(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate tx,
+                                   @Value("${character.totals-verify.repair:true}") boolean repair,
+                                   MeterRegistry meters) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = tx;
+        this.repair = repair;
+        this.driftCounter = Counter.builder("inventory.totals.drift")
+            .description("Персонажи с разошедшимися агрегатами инвентаря, найденные сверкой")
+            .register(meters);
+    }
+
+    @Scheduled(initialDelayString = "${character.totals-verify.interval:PT1H}",
+               fixedDelayString = "${character.totals-verify.interval:PT1H}")
+    public void scheduledVerify() {
+        verify();
+    }
+
+    public Report verify() {
+        int checked = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM characters", Integer.class);
+        List<UUID> drifted = jdbcTemplate.queryForList("""
+            SELECT c.id FROM characters c
+            LEFT JOIN (%s GROUP BY ci.character_id) s ON s.character_id = c.id
+            WHERE %s
+            """.formatted(EXPECTED, DRIFT), UUID.class);
+        return new Report(checked, drifted, reportAndRepair(drifted, checked));
+    }
+
+    private int reportAndRepair(List<UUID> drifted, int checked) {
+        if (drifted.isEmpty()) return 0;
+        driftCounter.increment(drifted.size());
+        log.warn("Inventory totals drift: {} of {} characters, e.g. {}",
+            drifted.size(), checked, drifted.subList(0, Math.min(10, drifted.size())));
+        if (!repair) return 0;
+        int repaired = 0;
+        for (UUID characterId : drifted) {
+            repaired += tx.execute(s -> repairOne(characterId));
+        }
+        log.info("Inventory totals repaired for {} characters", repaired);
+        return repaired;
+    }
+
+    private int repairOne(UUID characterId) {
+        if (jdbcTemplate.queryForList("SELECT id FROM characters WHERE id = ? FOR UPDATE", characterId).isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("""
+            UPDATE characters c SET
+                total_weight = COALESCE((SELECT s.weight FROM (%1$s WHERE ci.character_id = ? GROUP BY ci.character_id) s), 0),
+                total_price  = COALESCE((SELECT s.price  FROM (%1$s WHERE ci.character_id = ? GROUP BY ci.character_id) s), 0),
+                item_count   = COALESCE((SELECT s.cnt    FROM (%1$s WHERE ci.character_id = ? GROUP BY ci.character_id) s), 0)
+            WHERE c.id = ?
+            """.formatted(EXPECTED), characterId, characterId, characterId, characterId);
+    }
+}
@@ -4,20 +4,29 @@ import lombok.RequiredArgsConstructor;
 import org.sft.tabletoprpg.domain.Item;
 import org.sft.tabletoprpg.domain.Role;
 import org.sft.tabletoprpg.domain.User;
-import org.sft.tabletoprpg.repo.CharacterInventoryRepository;
+import org.sft.tabletoprpg.repo.CharacterRepository;
 import org.sft.tabletoprpg.repo.ItemRepository;
+import org.sft.tabletoprpg.repo.ItemStatsRepository;
 import org.sft.tabletoprpg.repo.UserRepository;
+import org.sft.tabletoprpg.repo.projection.ItemUsageRow;
 import org.sft.tabletoprpg.service.ItemService;
 import org.sft.tabletoprpg.service.dto.item.ItemCreateRequest;
 import org.sft.tabletoprpg.service.dto.item.ItemDto;
+import org.sft.tabletoprpg.service.dto.item.ItemSearchPageDto;
 import org.sft.tabletoprpg.service.dto.item.ItemUpdateRequest;
+import org.sft.tabletoprpg.service.dto.item.ItemUsageDto;
+import org.sft.tabletoprpg.service.dto.item.ItemUsagePageDto;
 import org.sft.tabletoprpg.service.exception.BadRequestException;
 import org.sft.tabletoprpg.service.exception.ConflictException;
 import org.sft.tabletoprpg.service.exception.ForbiddenException;
 import org.sft.tabletoprpg.service.exception.NotFoundException;
+import org.sft.tabletoprpg.service.search.ItemSearchIndex;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -27,8 +36,10 @@ import java.util.UUID;
 public class ItemServiceImpl implements ItemService {
 
     private final ItemRepository itemRepository;
-    private final CharacterInventoryRepository characterInventoryRepository;
+    private final CharacterRepository characterRepository;
+    private final ItemStatsRepository itemStatsRepository;
     private final UserRepository userRepository;
+    private final ItemSearchIndex searchIndex;
 
     @Transactional
     @Override
@@ -64,6 +75,7 @@ public class ItemServiceImpl implements ItemService {
         item.setPrice(req.price());
 
         itemRepository.save(item);
+        searchIndex.refreshAfterCommit(item.getId());
         return toDto(item);
     }
 
@@ -78,8 +90,11 @@ public class ItemServiceImpl implements ItemService {
             throw new ForbiddenException("Только администратор может добавлять предметы");
         }
 
-        Item item = itemRepository.findById(itemId)
+        // прежние вес/цена — из строки под блокировкой: параллельная правка не посчитает дельту от того же значения
+        Item item = itemRepository.lockForUpdate(itemId)
             .orElseThrow(() -> new NotFoundException("Предмет не найден"));
+        BigDecimal oldWeight = item.getWeight() == null ? BigDecimal.ZERO : item.getWeight();
+        long oldPrice = item.getPrice() == null ? 0 : item.getPrice();
 
         if (req.name() != null) {
             String name = req.name().trim();
@@ -101,16 +116,24 @@ public class ItemServiceImpl implements ItemService {
             item.setPrice(req.price());
         }
 
-        itemRepository.save(item);
+        BigDecimal weightDelta = (item.getWeight() == null ? BigDecimal.ZERO : item.getWeight()).subtract(oldWeight);
+        long priceDelta = (item.getPrice() == null ? 0 : item.getPrice()) - oldPrice;
+        if (weightDelta.signum() != 0 || priceDelta != 0) {
+            // операции с этим предметом держат его строку до коммита, и блокировка выше дождалась их всех;
+            // новые ждут уже эту правку. Держатели — в порядке id, как в переводах и пакетах
+            itemRepository.saveAndFlush(item);
+            characterRepository.lockHoldersOfItem(itemId);
+            characterRepository.shiftInventoryTotalsForItem(itemId, weightDelta, priceDelta);
+        } else {
+            itemRepository.save(item);
+        }
+        searchIndex.refreshAfterCommit(itemId);
     }
 
     @Transactional
     @Override
     public void deleteItem(UUID itemId, UUID requesterId) {
 
-        Item item = itemRepository.findById(itemId)
-            .orElseThrow(()-> new NotFoundException("Предмет не найден"));
-
         User requester = userRepository.findById(requesterId)
             .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
 
@@ -120,15 +143,22 @@ public class ItemServiceImpl implements ItemService {
             throw new ForbiddenException("Недостаточно прав для удаления предмета");
         }
 
-        if (characterInventoryRepository.existsByItem_Id(itemId)) {
+        // вставка строки инвентаря проверяет внешний ключ и в PostgreSQL держит предмет (FOR KEY SHARE) до коммита:
+        // эксклюзивная блокировка дожидается таких выдач, и счётчик держателей после неё точный.
+        // Выдачу, начатую позже, остановит тот же внешний ключ (ON DELETE RESTRICT -> 409)
+        Item item = itemRepository.lockForUpdate(itemId)
+            .orElseThrow(()-> new NotFoundException("Предмет не найден"));
+        if (itemStatsRepository.findHolders(itemId).orElse(0L) > 0) {
             throw new ConflictException("Нельзя удалить предмет: он используется в инвентарях персонажей");
         }
 
         itemRepository.delete(item);
+        searchIndex.refreshAfterCommit(itemId);
     }
 
     @Override
     public ItemDto getItem(UUID itemId) {
+        // по id — из кэша второго уровня, без запроса
         Item item = itemRepository.findById(itemId)
             .orElseThrow(()-> new NotFoundException("Предмет не найден"));
         return toDto(item);
@@ -136,12 +166,57 @@ public class ItemServiceImpl implements ItemService {
 
     @Override
     public List<ItemDto> findByName(String name) {
+        if (searchIndex.isReady()) {
+            return searchIndex.search(name, false);
+        }
         if (name == null || name.isBlank()) {
-            return itemRepository.findAll().stream().map(this::toDto).toList();
+            return itemRepository.findAllDtos();
+        }
+        return itemRepository.findDtosByNameContaining(name.trim());
+    }
+
+    @Override
+    public ItemSearchPageDto search(String q, Integer offset, Integer limit) {
+        int from = offset == null ? 0 : offset;
+        if (from < 0) throw new BadRequestException("offset должен быть ≥ 0");
+        int size = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+        if (size < 1) throw new BadRequestException("limit должен быть ≥ 1");
+        size = Math.min(size, MAX_SEARCH_LIMIT);
+
+        // до построения индекса — прежний путь через БД, без опечаток
+        List<ItemDto> ranked = searchIndex.isReady() ? searchIndex.search(q, true) : findByName(q);
+        List<ItemDto> page = from >= ranked.size()
+            ? List.of()
+            : ranked.subList(from, Math.min(ranked.size(), from + size));
+        return new ItemSearchPageDto(page, ranked.size(), from, size);
+    }
+
+
+    @Override
+    public ItemUsagePageDto usageStats(Integer page, Integer size, UUID requesterId) {
+        User requester = userRepository.findById(requesterId)
+            .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
+        if (!requester.getRoles().contains(Role.ADMIN)) {
+            throw new ForbiddenException("Статистика каталога доступна только администратору");
+        }
+
+        int pageNo = page == null ? 0 : page;
+        if (pageNo < 0) throw new BadRequestException("page должен быть ≥ 0");
+        int pageSize = size == null ? DEFAULT_USAGE_PAGE_SIZE : size;
+        if (pageSize < 1) throw new BadRequestException("size должен быть ≥ 1");
+        pageSize = Math.min(pageSize, MAX_USAGE_PAGE_SIZE);
+
+        // сначала предметы с держателями в порядке индекса; если страница не заполнилась — хвост без держателей
+        List<ItemUsageRow> rows = new ArrayList<>(itemStatsRepository.findHeld(PageRequest.of(pageNo, pageSize)));
+        if (rows.size() < pageSize) {
+            long held = rows.isEmpty() ? itemStatsRepository.countHeld() : (long) pageNo * pageSize + rows.size();
+            long tailOffset = Math.max(0, (long) pageNo * pageSize - held);
+            rows.addAll(itemStatsRepository.findUnheld(tailOffset, pageSize - rows.size()));
         }
-        return itemRepository.findByNameContainingIgnoreCase(name.trim()).stream()
-            .map(this::toDto)
+        List<ItemUsageDto> items = rows.stream()
+            .map(r -> new ItemUsageDto(r.itemId(), r.name(), r.holders(), r.totalQuantity()))
             .toList();
+        return new ItemUsagePageDto(items, itemRepository.count(), pageNo, pageSize);
     }
 
 
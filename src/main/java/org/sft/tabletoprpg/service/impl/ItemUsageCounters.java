@@ -0,0 +1,107 @@
+package org.sft.tabletoprpg.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.sft.tabletoprpg.repo.ItemStatsRepository;
+import org.sft.tabletoprpg.service.exception.ConflictException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Инкрементальное ведение item_stats в транзакции изменения инвентаря.
+ * Счётчики сдвигаются последними в операции: строка item_stats — общая для всех персонажей,
+ * и держать её блокировку, пока ждёшь строки инвентаря другого персонажа, нельзя.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemUsageCounters {
+
+    // UPDATE -> INSERT ON CONFLICT DO NOTHING -> UPDATE: на второй попытке строка уже точно есть
+    private static final int UPSERT_ATTEMPTS = 2;
+
+    private final ItemStatsRepository statsRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Накопитель дельт для операций над несколькими строками инвентаря. */
+    public static final class Deltas {
+        // TreeMap: строки счётчиков блокируются в одном порядке во всех транзакциях
+        private final Map<UUID, long[]> byItem = new TreeMap<>();
+
+        public void add(UUID itemId, int holders, long quantity) {
+            long[] d = byItem.computeIfAbsent(itemId, id -> new long[2]);
+            d[0] += holders;
+            d[1] += quantity;
+        }
+    }
+
+    // несколько предметов (пакет операций) — UPDATE-ы одной JDBC-пачкой, недостающие строки — второй
+    public void apply(Deltas deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.byItem.size());
+        deltas.byItem.forEach((itemId, d) -> {
+            if (d[0] != 0 || d[1] != 0) args.add(new Object[]{d[0], d[1], itemId});
+        });
+        if (args.size() <= 1) {
+            args.forEach(a -> shift((UUID) a[2], (long) a[0], (long) a[1]));
+            return;
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(
+            "UPDATE item_stats SET holders = holders + ?, total_quantity = total_quantity + ? WHERE item_id = ?", args);
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) missing.add(args.get(i));
+        }
+        if (missing.isEmpty()) return;
+
+        List<Object[]> inserts = missing.stream()
+            .filter(a -> (long) a[0] >= 0 && (long) a[1] >= 0)
+            .map(a -> new Object[]{a[2], a[0], a[1]})
+            .toList();
+        int[] inserted = jdbcTemplate.batchUpdate(
+            "INSERT INTO item_stats (item_id, holders, total_quantity) VALUES (?, ?, ?) ON CONFLICT DO NOTHING", inserts);
+        for (int i = 0; i < inserted.length; i++) {
+            // вставил кто-то параллельно — обычный путь по одной строке
+            if (inserted[i] == 0) shift((UUID) inserts.get(i)[0], (long) inserts.get(i)[1], (long) inserts.get(i)[2]);
+        }
+        missing.stream()
+            .filter(a -> (long) a[0] < 0 || (long) a[1] < 0)
+            .forEach(a -> log.warn("Item stats {} missing on decrement", a[2]));
+    }
+
+    public void shift(UUID itemId, long holders, long quantity) {
+        if (holders == 0 && quantity == 0) return;
+        for (int attempt = 0; attempt < UPSERT_ATTEMPTS; attempt++) {
+            if (statsRepository.addUsage(itemId, holders, quantity) == 1) return;
+            if (holders < 0 || quantity < 0) {
+                // счётчика нет, а уменьшать нечего — данные разошлись, но отрицательный счётчик хуже
+                log.warn("Item stats {} missing on decrement", itemId);
+                return;
+            }
+            if (statsRepository.insertIfAbsent(itemId, holders, quantity) == 1) return;
+        }
+        throw new ConflictException("Инвентарь изменяется параллельно, повторите попытку");
+    }
+
+    // до удаления персонажа: строки его инвентаря блокируются и удаляются здесь, а не каскадом в БД,
+    // и счётчики уменьшаются ровно на удалённое. Первой блокируется строка персонажа — как в операциях
+    // с инвентарём (CharacterRepository.lockForInventory), поэтому новых строк у него уже не появится
+    public void releaseCharacter(UUID characterId) {
+        jdbcTemplate.queryForList("SELECT id FROM characters WHERE id = ? FOR UPDATE", characterId);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "SELECT item_id, quantity FROM character_inventory WHERE character_id = ? ORDER BY item_id FOR UPDATE",
+            characterId);
+        jdbcTemplate.update("DELETE FROM character_inventory WHERE character_id = ?", characterId);
+        var deltas = new Deltas();
+        for (Map<String, Object> row : rows) {
+            deltas.add((UUID) row.get("item_id"), -1, -((Number) row.get("quantity")).longValue());
+        }
+        apply(deltas);
+    }
+}
@@ -0,0 +1,38 @@
+package org.sft.tabletoprpg.service.impl;
+
+import org.sft.tabletoprpg.service.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Позиция в ленте журнала: (created_at, id) последней отданной записи.
+ * Клиенту уходит непрозрачной base64url-строкой.
+ */
+record JournalCursor(Instant createdAt, UUID id) {
+
+    // "до начала ленты": больше любого реального (created_at, id)
+    static final JournalCursor START = new JournalCursor(
+        Instant.parse("9999-12-31T23:59:59Z"), new UUID(-1L, -1L));
+
+    String encode() {
+        String raw = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static JournalCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            return new JournalCursor(
+                Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                UUID.fromString(parts[2]));
+        } catch (RuntimeException ex) {
+            throw new BadRequestException("Некорректный курсор страницы");
+        }
+    }
+}
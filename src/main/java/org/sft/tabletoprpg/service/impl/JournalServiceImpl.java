@@ -5,22 +5,38 @@ import org.sft.tabletoprpg.domain.Campaign;
 import org.sft.tabletoprpg.domain.JournalEntry;
 import org.sft.tabletoprpg.domain.JournalVisibility;
 import org.sft.tabletoprpg.domain.User;
-import org.sft.tabletoprpg.repo.CampaignMemberRepository;
 import org.sft.tabletoprpg.repo.CampaignRepository;
 import org.sft.tabletoprpg.repo.JournalEntryRepository;
+import org.sft.tabletoprpg.repo.JournalTagFacetRepository;
 import org.sft.tabletoprpg.repo.UserRepository;
 import org.sft.tabletoprpg.service.JournalService;
+import org.sft.tabletoprpg.service.access.CampaignAccess;
+import org.sft.tabletoprpg.service.access.CampaignAccessResolver;
 import org.sft.tabletoprpg.service.dto.journal.JournalEntryCreateRequest;
 import org.sft.tabletoprpg.service.dto.journal.JournalEntryDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntrySummaryDto;
 import org.sft.tabletoprpg.service.dto.journal.JournalEntryUpdateRequest;
+import org.sft.tabletoprpg.service.dto.journal.JournalPageDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalSearchPageDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalTagFacetDto;
 import org.sft.tabletoprpg.service.exception.BadRequestException;
 import org.sft.tabletoprpg.service.exception.ForbiddenException;
 import org.sft.tabletoprpg.service.exception.NotFoundException;
+import org.sft.tabletoprpg.service.exception.ServiceUnavailableException;
+import org.sft.tabletoprpg.service.search.JournalBitmapIndex;
+import org.sft.tabletoprpg.service.search.JournalSearchIndex;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -30,85 +46,216 @@ public class JournalServiceImpl implements JournalService {
     private final JournalEntryRepository journalEntryRepository;
     private final CampaignRepository campaignRepository;
     private final UserRepository userRepository;
-    private final CampaignMemberRepository campaignMemberRepository;
+    private final CampaignAccessResolver access;
+    private final JournalSearchIndex searchIndex;
+    private final JournalTagFacetRepository facetRepository;
+    private final JournalTagFacets tagFacets;
+    private final JournalBitmapIndex bitmapIndex;
 
     @Override
     public JournalEntryDto getJournalById(UUID entryId, UUID requesterId) {
-        JournalEntry entry = journalEntryRepository.findById(entryId)
+        JournalEntryDto entry = journalEntryRepository.findDtoById(entryId)
             .orElseThrow(() -> new NotFoundException("Запись не найдена"));
 
-        if (entry.getCampaign() == null) {
-            if (!entry.getAuthor().getId().equals(requesterId)) {
+        if (entry.campaignId() == null) {
+            if (!entry.authorId().equals(requesterId)) {
                 throw new ForbiddenException("Нет доступа к записи журнала");
             }
-            return toDto(entry);
+            return entry;
         }
 
-        UUID campaignId = entry.getCampaign().getId();
-        boolean isGm = entry.getCampaign().getGm().getId().equals(requesterId);
-        boolean isMember = isGm || campaignMemberRepository.existsByCampaign_IdAndUser_Id(campaignId, requesterId);
-        if (!isMember) {
+        CampaignAccess role = access.resolve(entry.campaignId(), requesterId);
+        if (!role.isMember()) {
             throw new ForbiddenException("Доступ только для участников кампании");
         }
 
-        if (!isGm && entry.getVisibility() != JournalVisibility.PLAYERS) {
+        if (!role.isGm() && entry.visibility() != JournalVisibility.PLAYERS) {
             throw new ForbiddenException("Нет доступа к записи (GM_ONLY)");
         }
-        return toDto(entry);
+        return entry;
     }
 
     @Override
     public List<JournalEntryDto> findJournalsByCampaign_Id(UUID campaignId) {
-        return journalEntryRepository.findByCampaign_IdOrderByCreatedAtDesc(campaignId)
-            .stream().map(this::toDto).toList();
+        return journalEntryRepository.findDtosByCampaign(campaignId, EnumSet.allOf(JournalVisibility.class));
     }
 
     @Override
     public List<JournalEntryDto> listJournals(UUID campaignId, UUID requesterId, String type, Boolean onlyPlayersVisible) {
 
-        Campaign campaign = campaignRepository.findById(campaignId)
-            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
-
-        boolean isGm = campaign.getGm().getId().equals(requesterId);
-        boolean isMember = isGm || campaignMemberRepository.existsByCampaign_IdAndUser_Id(campaignId, requesterId);
-        if (!isMember) {
+        CampaignAccess role = access.resolve(campaignId, requesterId);
+        boolean isGm = role.isGm();
+        if (!role.isMember()) {
             throw new ForbiddenException("Доступ только для участников кампании");
         }
 
         String typeNorm = (type == null) ? null : type.trim();
         boolean onlyPlayers = (onlyPlayersVisible != null && onlyPlayersVisible);
 
-        List<JournalEntry> entries;
+        Set<JournalVisibility> visibilities = (isGm && !onlyPlayers)
+            ? EnumSet.allOf(JournalVisibility.class)
+            : EnumSet.of(JournalVisibility.PLAYERS);
+
         if (typeNorm == null || typeNorm.isBlank()) {
-            if (isGm && !onlyPlayers) {
-                entries = journalEntryRepository.findByCampaign_IdOrderByCreatedAtDesc(campaignId);
-            } else {
-                entries = journalEntryRepository.findByCampaign_IdAndVisibilityOrderByCreatedAtDesc(
-                    campaignId, JournalVisibility.PLAYERS);
-            }
-        } else {
-            if (isGm && !onlyPlayers) {
-                entries = journalEntryRepository.findByCampaign_IdAndTypeIgnoreCaseOrderByCreatedAtDesc(
-                    campaignId, typeNorm);
-            } else {
-                entries = journalEntryRepository.findByCampaign_IdAndTypeIgnoreCaseAndVisibilityOrderByCreatedAtDesc(
-                    campaignId, typeNorm, JournalVisibility.PLAYERS);
-            }
+            return journalEntryRepository.findDtosByCampaign(campaignId, visibilities);
         }
+        return journalEntryRepository.findDtosByCampaignAndType(campaignId, visibilities, typeNorm);
+    }
 
-        return entries.stream().map(this::toDto).toList();
+    @Override
+    public JournalPageDto<JournalEntrySummaryDto> listJournalPage(UUID campaignId, UUID requesterId, String type,
+                                                                  Boolean onlyPlayersVisible, String cursor, Integer limit) {
+        CampaignAccess role = access.resolve(campaignId, requesterId);
+        if (!role.isMember()) {
+            throw new ForbiddenException("Доступ только для участников кампании");
+        }
+        int pageSize = pageSize(limit);
+        JournalCursor after = JournalCursor.decode(cursor);
+
+        boolean onlyPlayers = (onlyPlayersVisible != null && onlyPlayersVisible);
+        Set<JournalVisibility> visibilities = (role.isGm() && !onlyPlayers)
+            ? EnumSet.allOf(JournalVisibility.class)
+            : EnumSet.of(JournalVisibility.PLAYERS);
+
+        // на одну запись больше: так видно, есть ли следующая страница
+        String typeNorm = (type == null) ? null : type.trim();
+        List<JournalEntrySummaryDto> rows = (typeNorm == null || typeNorm.isBlank())
+            ? journalEntryRepository.findPage(campaignId, visibilities,
+                after.createdAt(), after.id(), Limit.of(pageSize + 1))
+            : journalEntryRepository.findPageByType(campaignId, visibilities, typeNorm,
+                after.createdAt(), after.id(), Limit.of(pageSize + 1));
+
+        return toPage(rows, pageSize);
+    }
+
+    @Override
+    public JournalPageDto<JournalEntrySummaryDto> listJournalByTags(UUID campaignId, UUID requesterId, List<String> tags,
+                                                                    boolean matchAll, String cursor, Integer limit) {
+        CampaignAccess role = access.resolve(campaignId, requesterId);
+        if (!role.isMember()) {
+            throw new ForbiddenException("Доступ только для участников кампании");
+        }
+        Set<String> wanted = JournalEntry.parseTags(tags == null ? null : String.join(",", tags));
+        if (wanted.isEmpty()) {
+            throw new BadRequestException("Укажите хотя бы один тег");
+        }
+        int pageSize = pageSize(limit);
+        JournalCursor after = JournalCursor.decode(cursor);
+        Set<JournalVisibility> visibilities = role.isGm()
+            ? EnumSet.allOf(JournalVisibility.class)
+            : EnumSet.of(JournalVisibility.PLAYERS);
+
+        List<JournalEntrySummaryDto> rows = journalEntryRepository.findPageByTags(campaignId, visibilities, wanted,
+            matchAll ? wanted.size() : 1, after.createdAt(), after.id(), Limit.of(pageSize + 1));
+        return toPage(rows, pageSize);
+    }
+
+    @Override
+    public JournalPageDto<JournalEntrySummaryDto> filterJournal(UUID campaignId, UUID requesterId, List<String> types,
+                                                                List<String> tags, boolean matchAllTags, List<UUID> authors,
+                                                                JournalVisibility visibility, String cursor, Integer limit) {
+        CampaignAccess role = access.resolve(campaignId, requesterId);
+        if (!role.isMember()) {
+            throw new ForbiddenException("Доступ только для участников кампании");
+        }
+        int pageSize = pageSize(limit);
+        JournalCursor after = JournalCursor.decode(cursor);
+
+        Set<JournalVisibility> visibilities = role.isGm()
+            ? EnumSet.allOf(JournalVisibility.class)
+            : EnumSet.of(JournalVisibility.PLAYERS);
+        if (visibility != null) {
+            visibilities.retainAll(EnumSet.of(visibility));
+        }
+        Set<String> typeKeys = types == null ? Set.of() : types.stream()
+            .filter(t -> t != null && !t.isBlank())
+            .map(JournalBitmapIndex::typeKey)
+            .collect(Collectors.toSet());
+        Set<String> wantedTags = JournalEntry.parseTags(tags == null ? null : String.join(",", tags));
+        Set<UUID> authorIds = authors == null ? Set.of() : Set.copyOf(authors);
+
+        var filter = new JournalBitmapIndex.Filter(typeKeys, visibilities, wantedTags, matchAllTags, authorIds);
+        var hits = bitmapIndex.page(campaignId, filter, after.createdAt(), after.id(), pageSize + 1);
+        if (hits.ids().isEmpty()) {
+            return new JournalPageDto<>(List.of(), null);
+        }
+        return toPage(journalEntryRepository.findAllByIdNewestFirst(hits.ids()), pageSize);
+    }
+
+    @Override
+    public List<JournalTagFacetDto> listTagFacets(UUID campaignId, UUID requesterId) {
+        CampaignAccess role = access.resolve(campaignId, requesterId);
+        if (!role.isMember()) {
+            throw new ForbiddenException("Доступ только для участников кампании");
+        }
+        // игрокам — счётчики только по PLAYERS-записям: GM_ONLY-теги не должны просвечивать
+        if (role.isGm()) {
+            return facetRepository.findAllCounts(campaignId).stream()
+                .map(f -> new JournalTagFacetDto(f.getId().getTag(), f.getTotalCount()))
+                .toList();
+        }
+        return facetRepository.findPlayersCounts(campaignId).stream()
+            .map(f -> new JournalTagFacetDto(f.getId().getTag(), f.getPlayersCount()))
+            .toList();
+    }
+
+    // rows — на одну запись больше страницы: так видно, есть ли следующая
+    private JournalPageDto<JournalEntrySummaryDto> toPage(List<JournalEntrySummaryDto> rows, int pageSize) {
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            JournalEntrySummaryDto last = rows.get(pageSize - 1);
+            nextCursor = new JournalCursor(last.createdAt(), last.id()).encode();
+        }
+        return new JournalPageDto<>(rows, nextCursor);
+    }
+
+    @Override
+    public JournalSearchPageDto searchJournal(UUID campaignId, UUID requesterId, String q, Integer offset, Integer limit) {
+        CampaignAccess role = access.resolve(campaignId, requesterId);
+        if (!role.isMember()) {
+            throw new ForbiddenException("Доступ только для участников кампании");
+        }
+        if (q == null || q.isBlank()) {
+            throw new BadRequestException("Пустой поисковый запрос");
+        }
+        int from = offset == null ? 0 : offset;
+        if (from < 0) throw new BadRequestException("offset должен быть ≥ 0");
+        if (from > MAX_SEARCH_OFFSET) throw new BadRequestException("offset должен быть ≤ " + MAX_SEARCH_OFFSET);
+        int size = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+        if (size < 1) throw new BadRequestException("limit должен быть ≥ 1");
+        size = Math.min(size, MAX_SEARCH_LIMIT);
+        if (!searchIndex.isReady()) {
+            throw new ServiceUnavailableException("Поиск по журналу ещё индексируется, повторите позже");
+        }
+
+        // видимость — фильтр внутри индекса; GM видит всё
+        var hits = searchIndex.search(campaignId, role.isGm(), q.trim(), from, size);
+
+        // краткие карточки одним запросом, в порядке релевантности
+        Map<UUID, JournalEntrySummaryDto> byId = journalEntryRepository.findAllByIdNewestFirst(hits.ids()).stream()
+            .collect(Collectors.toMap(JournalEntrySummaryDto::id, Function.identity()));
+        List<JournalEntrySummaryDto> items = hits.ids().stream()
+            .map(byId::get)
+            .filter(Objects::nonNull)
+            .toList();
+        return new JournalSearchPageDto(items, hits.total(), from, size);
+    }
+
+    private static int pageSize(Integer limit) {
+        if (limit == null) return DEFAULT_PAGE_SIZE;
+        if (limit < 1) throw new BadRequestException("limit должен быть ≥ 1");
+        return Math.min(limit, MAX_PAGE_SIZE);
     }
 
     @Transactional
     @Override
     public JournalEntryDto createJournal(UUID campaignId, UUID requesterId, JournalEntryCreateRequest req) {
-        Campaign campaign = campaignRepository.findById(campaignId)
-            .orElseThrow(() -> new NotFoundException("Кампания не найдена"));
-
         // Только GM может создавать записи журнала
-        if (!campaign.getGm().getId().equals(requesterId)) {
+        if (!access.isGm(campaignId, requesterId)) {
             throw new ForbiddenException("Только GM может создавать записи журнала");
         }
+        Campaign campaign = campaignRepository.getReferenceById(campaignId);
 
         User author = userRepository.findById(requesterId)
             .orElseThrow(() -> new NotFoundException("Автор не найден"));
@@ -125,13 +272,16 @@ public class JournalServiceImpl implements JournalService {
         entry.setAuthor(author);
 
         journalEntryRepository.save(entry);
+        tagFacets.move(campaignId, Set.of(), null, entry.getTagSet(), entry.getVisibility());
+        searchIndex.refreshAfterCommit(entry.getId());
+        bitmapIndex.refreshAfterCommit(campaignId, entry.getId());
         return toDto(entry);
     }
 
     @Transactional
     @Override
     public JournalEntryDto updateJournal(UUID entryId, UUID requesterId, JournalEntryUpdateRequest req) {
-        JournalEntry entry = journalEntryRepository.findById(entryId)
+        JournalEntry entry = journalEntryRepository.lockById(entryId)
             .orElseThrow(() -> new NotFoundException("Запись не найдена"));
 
         if (entry.getCampaign() == null) {
@@ -139,12 +289,14 @@ public class JournalServiceImpl implements JournalService {
                 throw new ForbiddenException("Нет прав на изменение записи");
             }
         } else {
-            UUID gmOfCampaign = entry.getCampaign().getGm().getId();
-            if (!gmOfCampaign.equals(requesterId)) {
+            if (!access.isGm(entry.getCampaign().getId(), requesterId)) {
                 throw new ForbiddenException("Только GM может редактировать записи журнала");
             }
         }
 
+        Set<String> oldTags = Set.copyOf(entry.getTagSet());
+        JournalVisibility oldVisibility = entry.getVisibility();
+
         if (req.type() != null) {
             String type = req.type().trim();
             entry.setType(type.isEmpty() ? null : type);
@@ -168,13 +320,18 @@ public class JournalServiceImpl implements JournalService {
         }
 
         journalEntryRepository.save(entry);
+        if (entry.getCampaign() != null) {
+            tagFacets.move(entry.getCampaign().getId(), oldTags, oldVisibility, entry.getTagSet(), entry.getVisibility());
+            searchIndex.refreshAfterCommit(entryId);
+            bitmapIndex.refreshAfterCommit(entry.getCampaign().getId(), entryId);
+        }
         return toDto(entry);
     }
 
     @Transactional
     @Override
     public void deleteJournal(UUID entryId, UUID requesterId) {
-        JournalEntry entry = journalEntryRepository.findById(entryId)
+        JournalEntry entry = journalEntryRepository.lockById(entryId)
             .orElseThrow(() -> new NotFoundException("Запись не найдена"));
 
         if (entry.getCampaign() == null) {
@@ -182,12 +339,16 @@ public class JournalServiceImpl implements JournalService {
                 throw new ForbiddenException("Нет прав на удаление записи");
             }
         } else {
-            UUID gmOfCampaign = entry.getCampaign().getGm().getId();
-            if (!gmOfCampaign.equals(requesterId)) {
+            if (!access.isGm(entry.getCampaign().getId(), requesterId)) {
                 throw new ForbiddenException("Только GM может удалять записи журнала");
             }
         }
 
+        if (entry.getCampaign() != null) {
+            tagFacets.move(entry.getCampaign().getId(), entry.getTagSet(), entry.getVisibility(), Set.of(), null);
+            searchIndex.refreshAfterCommit(entryId);
+            bitmapIndex.refreshAfterCommit(entry.getCampaign().getId(), entryId);
+        }
         journalEntryRepository.delete(entry);
     }
 
@@ -222,9 +383,8 @@ public class JournalServiceImpl implements JournalService {
 
     // ---------------------- PERSONAL JOURNALS ---------------------- //
     @Override
-    public List<JournalEntryDto> listPersonal(UUID authorId) {
-        List<JournalEntry> all = journalEntryRepository.findByAuthor_IdAndCampaignIsNullOrderByCreatedAtDesc(authorId);
-        return all.stream().map(this::toDto).toList();
+    public List<JournalEntrySummaryDto> listPersonal(UUID authorId) {
+        return journalEntryRepository.findPersonalSummaries(authorId);
     }
 
     @Transactional
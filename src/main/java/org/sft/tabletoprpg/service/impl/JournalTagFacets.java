@@ -0,0 +1,76 @@
+package org.sft.tabletoprpg.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.sft.tabletoprpg.domain.JournalVisibility;
+import org.sft.tabletoprpg.repo.JournalTagFacetRepository;
+import org.sft.tabletoprpg.service.exception.ConflictException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Инкрементальное ведение journal_tag_facets в транзакции изменения записи:
+ * пересчитывается только разница между старым и новым (теги, видимость).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JournalTagFacets {
+
+    // UPDATE -> INSERT ON CONFLICT DO NOTHING -> UPDATE: на второй попытке строка уже точно есть
+    private static final int UPSERT_ATTEMPTS = 2;
+
+    private final JournalTagFacetRepository facetRepository;
+
+    /**
+     * Запись перешла из состояния (oldTags, oldVisibility) в (newTags, newVisibility).
+     * Для новой записи old — пустой набор, для удалённой — new.
+     */
+    public void move(UUID campaignId,
+                     Set<String> oldTags, JournalVisibility oldVisibility,
+                     Set<String> newTags, JournalVisibility newVisibility) {
+        if (campaignId == null) return; // личные записи фасетов не имеют
+
+        // TreeMap: строки счётчиков блокируются в одном порядке во всех транзакциях
+        Map<String, int[]> deltas = new TreeMap<>();
+        for (String tag : oldTags) {
+            int[] d = deltas.computeIfAbsent(tag, t -> new int[2]);
+            d[0]--;
+            if (oldVisibility == JournalVisibility.PLAYERS) d[1]--;
+        }
+        for (String tag : newTags) {
+            int[] d = deltas.computeIfAbsent(tag, t -> new int[2]);
+            d[0]++;
+            if (newVisibility == JournalVisibility.PLAYERS) d[1]++;
+        }
+
+        boolean decremented = false;
+        for (var e : deltas.entrySet()) {
+            int total = e.getValue()[0];
+            int players = e.getValue()[1];
+            if (total == 0 && players == 0) continue;
+            shift(campaignId, e.getKey(), total, players);
+            decremented |= total < 0;
+        }
+        if (decremented) {
+            facetRepository.deleteEmpty(campaignId);
+        }
+    }
+
+    private void shift(UUID campaignId, String tag, int total, int players) {
+        for (int attempt = 0; attempt < UPSERT_ATTEMPTS; attempt++) {
+            if (facetRepository.addCounts(campaignId, tag, total, players) == 1) return;
+            if (total < 0) {
+                // счётчика нет, а уменьшать нечего — данные разошлись, но отрицательный счётчик хуже
+                log.warn("Tag facet {}/{} missing on decrement", campaignId, tag);
+                return;
+            }
+            if (facetRepository.insertIfAbsent(campaignId, tag, total, players) == 1) return;
+        }
+        throw new ConflictException("Теги журнала изменяются параллельно, повторите попытку");
+    }
+}
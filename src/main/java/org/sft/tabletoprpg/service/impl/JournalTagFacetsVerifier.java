@@ -0,0 +1,112 @@
+package org.sft.tabletoprpg.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сверка счётчиков тегов (journal_tag_facets) с пересчётом по journal_entry_tags × journal_entries
+ * одним запросом на всю таблицу. Кампании с расхождениями пишутся в лог и в метрику journal.facets.drift;
+ * при journal.facets-verify.repair=true их счётчики пересобираются.
+ * <p>
+ * Пересборка сначала блокирует строки счётчиков кампании в порядке тегов — том же, что у {@link JournalTagFacets}:
+ * правка записи, уже сдвинувшая счётчики, успеет закоммититься и попадёт в пересчёт, а ещё не сдвинувшая
+ * применит свою дельту к пересчитанному значению, в котором её изменений нет.
+ */
+@Slf4j
+@Component
+public class JournalTagFacetsVerifier {
+
+    public record Report(int checked, List<UUID> drifted, int repaired) {}
+
+    private static final String EXPECTED = """
+        SELECT e.campaign_id, t.tag,
+               COUNT(*) AS total,
+               SUM(CASE WHEN e.visibility = 'PLAYERS' THEN 1 ELSE 0 END) AS players
+        FROM journal_entry_tags t JOIN journal_entries e ON e.id = t.entry_id
+        WHERE e.campaign_id IS NOT NULL
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final boolean repair;
+    private final Counter driftCounter;
+
+    public JournalTagFacetsVerifier(JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate tx,
+                                    @Value("${journal.facets-verify.repair:true}") boolean repair,
+                                    MeterRegistry meters) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = tx;
+        this.repair = repair;
+        this.driftCounter = Counter.builder("journal.facets.drift")
+            .description("Кампании с разошедшимися счётчиками тегов журнала, найденные сверкой")
+            .register(meters);
+    }
+
+    @Scheduled(initialDelayString = "${journal.facets-verify.interval:PT1H}",
+               fixedDelayString = "${journal.facets-verify.interval:PT1H}")
+    public void scheduledVerify() {
+        verify();
+    }
+
+    public Report verify() {
+        int checked = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM campaigns", Integer.class);
+        // лишние и неверные счётчики, затем недостающие; FULL JOIN в H2 нет
+        List<UUID> drifted = jdbcTemplate.queryForList("""
+            SELECT f.campaign_id FROM journal_tag_facets f
+            LEFT JOIN (%1$s GROUP BY e.campaign_id, t.tag) s ON s.campaign_id = f.campaign_id AND s.tag = f.tag
+            WHERE f.total_count <> COALESCE(s.total, 0)
+               OR f.players_count <> COALESCE(s.players, 0)
+            UNION
+            SELECT s.campaign_id FROM (%1$s GROUP BY e.campaign_id, t.tag) s
+            LEFT JOIN journal_tag_facets f ON f.campaign_id = s.campaign_id AND f.tag = s.tag
+            WHERE f.campaign_id IS NULL
+            """.formatted(EXPECTED), UUID.class);
+
+        int repaired = 0;
+        if (!drifted.isEmpty()) {
+            driftCounter.increment(drifted.size());
+            log.warn("Journal tag facets drift: {} of {} campaigns, e.g. {}",
+                drifted.size(), checked, drifted.subList(0, Math.min(10, drifted.size())));
+            if (repair) {
+                for (UUID campaignId : drifted) {
+                    repaired += tx.execute(s -> repairOne(campaignId));
+                }
+                log.info("Journal tag facets rebuilt for {} campaigns", repaired);
+            }
+        }
+        return new Report(checked, drifted, repaired);
+    }
+
+    private int repairOne(UUID campaignId) {
+        if (jdbcTemplate.queryForList("SELECT id FROM campaigns WHERE id = ?", campaignId).isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.queryForList(
+            "SELECT tag FROM journal_tag_facets WHERE campaign_id = ? ORDER BY tag FOR UPDATE", campaignId);
+        jdbcTemplate.update("""
+            UPDATE journal_tag_facets f SET
+                total_count   = COALESCE((SELECT s.total   FROM (%1$s AND e.campaign_id = ? GROUP BY e.campaign_id, t.tag) s
+                                          WHERE s.tag = f.tag), 0),
+                players_count = COALESCE((SELECT s.players FROM (%1$s AND e.campaign_id = ? GROUP BY e.campaign_id, t.tag) s
+                                          WHERE s.tag = f.tag), 0)
+            WHERE f.campaign_id = ?
+            """.formatted(EXPECTED), campaignId, campaignId, campaignId);
+        jdbcTemplate.update("""
+            INSERT INTO journal_tag_facets (campaign_id, tag, total_count, players_count)
+            SELECT s.campaign_id, s.tag, s.total, s.players FROM (%s AND e.campaign_id = ? GROUP BY e.campaign_id, t.tag) s
+            ON CONFLICT DO NOTHING
+            """.formatted(EXPECTED), campaignId);
+        jdbcTemplate.update("DELETE FROM journal_tag_facets WHERE campaign_id = ? AND total_count <= 0", campaignId);
+        return 1;
+    }
+}
@@ -5,21 +5,30 @@ package org.sft.tabletoprpg.service.impl;
 import lombok.RequiredArgsConstructor;
 import org.sft.tabletoprpg.domain.Role;
 import org.sft.tabletoprpg.domain.User;
+import org.sft.tabletoprpg.domain.UserLoginKey;
 import org.sft.tabletoprpg.repo.CampaignRepository;
 import org.sft.tabletoprpg.repo.CharacterRepository;
 import org.sft.tabletoprpg.repo.JournalEntryRepository;
+import org.sft.tabletoprpg.repo.UserLoginKeyRepository;
 import org.sft.tabletoprpg.repo.UserRepository;
+import org.sft.tabletoprpg.security.UnknownLoginCache;
+import org.sft.tabletoprpg.security.PasswordHasher;
+import org.sft.tabletoprpg.security.RefreshTokenService;
+import org.sft.tabletoprpg.security.SecurityVersionRegistry;
 import org.sft.tabletoprpg.service.UserService;
 import org.sft.tabletoprpg.service.dto.user.UserDto;
 import org.sft.tabletoprpg.service.dto.user.UserRegisterRequest;
+import org.sft.tabletoprpg.service.exception.BadRequestException;
 import org.sft.tabletoprpg.service.exception.ConflictException;
 import org.sft.tabletoprpg.service.exception.NotFoundException;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -32,7 +41,11 @@ public class UserServiceImpl implements UserService {
     private final CampaignRepository campaignRepository;
     private final CharacterRepository characterRepository;
     private final JournalEntryRepository journalEntryRepository;
-    private final PasswordEncoder encoder;
+    private final PasswordHasher passwordHasher;
+    private final SecurityVersionRegistry securityVersions;
+    private final RefreshTokenService refreshTokenService;
+    private final UserLoginKeyRepository userLoginKeyRepository;
+    private final UnknownLoginCache unknownLogins;
 
 
     @Transactional
@@ -53,31 +66,42 @@ public class UserServiceImpl implements UserService {
             throw new ConflictException("Пароль не должен быть пустым");
         }
 
-        if (userRepository.existsByUsername(username)){
+        // проверяем по ключам входа: "Alice" и "alice" — один логин,
+        // а логин не может совпадать с чужой почтой
+        final String usernameKey = UserLoginKey.normalize(username);
+        final String emailKey    = UserLoginKey.normalize(email);
+
+        if (userLoginKeyRepository.existsById(usernameKey)){
             throw new ConflictException("Такой логин уже занят");
         }
 
-        if (userRepository.existsByEmail(email)){
+        if (userLoginKeyRepository.existsById(emailKey)){
             throw new ConflictException("Такая почта уже занята");
         }
 
         User user = new User();
         user.setUsername(username);
         user.setEmail(email);
-        user.setPasswordHash(encoder.encode(rawPwd));
+        user.setPasswordHash(passwordHasher.encode(rawPwd));
         user.setRoles(Set.of(Role.PLAYER));
+        user.getLoginKeys().add(UserLoginKey.of(username, user));
+        if (!emailKey.equals(usernameKey)) {
+            user.getLoginKeys().add(UserLoginKey.of(email, user));
+        }
 
         try {
-            userRepository.save(user);
+            userRepository.saveAndFlush(user);
         } catch (DataIntegrityViolationException ex) {
             // на случай гонки условий — дубли по уникальным индексам
             throw new ConflictException("Пользователь с таким логином/почтой уже существует");
         }
+        forgetUnknownAfterCommit(List.of(usernameKey, emailKey));
 
         return toDto(user);
     }
 
 
+    @Transactional
     @Override
     public void deleteUser(UUID id) {
 
@@ -101,6 +125,37 @@ public class UserServiceImpl implements UserService {
             // на случай, если в БД ещё есть неожиданные ссылки (RESTRICT)
             throw new ConflictException("Удаление невозможно из-за связанных данных");
         }
+        // токены удалённого пользователя больше не принимаются (режим claims-only)
+        securityVersions.revoke(id);
+        refreshTokenService.revokeUser(id);
+    }
+
+
+    @Transactional
+    @Override
+    public void updatePasswordHash(UUID id, String passwordHash) {
+        User user = userRepository.findById(id)
+            .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
+        user.setPasswordHash(passwordHash);
+        userRepository.save(user);
+        // смена пароля (и перехэширование при входе) отзывает ранее выданные токены
+        bumpSecurityVersionAfterCommit(id);
+    }
+
+
+    @Transactional
+    @Override
+    public UserDto updateRoles(UUID id, Set<Role> roles) {
+        if (roles == null || roles.isEmpty()) {
+            throw new BadRequestException("У пользователя должна быть хотя бы одна роль");
+        }
+        User user = userRepository.findById(id)
+            .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
+        user.getRoles().clear();
+        user.getRoles().addAll(roles);
+        userRepository.save(user);
+        bumpSecurityVersionAfterCommit(id);
+        return toDto(user);
     }
 
 
@@ -128,6 +183,34 @@ public class UserServiceImpl implements UserService {
 
 
 
+    private void bumpSecurityVersionAfterCommit(UUID id) {
+        // после коммита: токен, выданный между сменой версии и коммитом, нёс бы ещё прежние роли
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            securityVersions.bump(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                securityVersions.bump(id);
+            }
+        });
+    }
+
+    private void forgetUnknownAfterCommit(List<String> loginKeys) {
+        // сразу и после коммита: промах, закэшированный между ними, не переживёт регистрацию
+        unknownLogins.forgetUnknown(loginKeys);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    unknownLogins.forgetUnknown(loginKeys);
+                }
+            });
+        }
+    }
+
+
     // ----------------------МАППЕРЫ----------------------//
     private UserDto toDto(User user){
         return UserDto.builder()
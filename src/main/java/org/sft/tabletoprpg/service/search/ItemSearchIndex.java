@@ -0,0 +1,315 @@
+package org.sft.tabletoprpg.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sft.tabletoprpg.domain.Item;
+import org.sft.tabletoprpg.repo.ItemRepository;
+import org.sft.tabletoprpg.service.dto.item.ItemDto;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Триграммный индекс каталога предметов в памяти (название + описание).
+ * Строится после старта приложения, дальше обновляется сервисом предметов после коммита.
+ * Перечитывание из БД и применение к индексу идут под одним замком обновлений: документ из более раннего
+ * чтения не может лечь поверх более позднего, а поиск при этом ждёт только само применение.
+ * <p>
+ * Триграммы считаются по словам с краевыми пробелами, как в pg_trgm ("  меч " → "  м", " ме", "меч", "еч ").
+ * Ранжирование: точное совпадение названия → начало названия → подстрока названия → подстрока описания
+ * → нечёткие совпадения (доля общих триграмм, описание весит вдвое меньше названия).
+ */
+@Slf4j
+@Component
+public class ItemSearchIndex {
+
+    // ниже этой доли общих триграмм нечёткое совпадение не показывается
+    private static final double FUZZY_MIN_SIMILARITY = 0.3;
+    private static final int NAME = 0;
+    private static final int DESCRIPTION = 1;
+    // tier(): 4 — название совпало, 3 — начинается с запроса, 2 — содержит, 1 — содержит описание
+    private static final int NAME_SUBSTRING = 2;
+
+    private record Doc(ItemDto item, String name, String description) {}
+
+    private record Hit(Doc doc, int tier, double similarity) {}
+
+    private static final Comparator<Hit> RANKING = Comparator
+        .comparingInt(Hit::tier).reversed()
+        .thenComparing(Comparator.comparingDouble(Hit::similarity).reversed())
+        .thenComparing(h -> h.doc().name());
+
+    private final ItemRepository itemRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // чтение из БД + применение: перестроение и обновления по одному
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    // слот документа; удалённые и заменённые слоты — null до следующего уплотнения
+    private final List<Doc> slots = new ArrayList<>();
+    private final Map<UUID, Integer> slotById = new HashMap<>();
+    // триграмма → (слот << 1 | поле)
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private int deadSlots;
+    private volatile boolean ready;
+
+    public ItemSearchIndex(ItemRepository itemRepository) {
+        this.itemRepository = itemRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        refreshLock.lock();
+        try {
+            List<Item> items = itemRepository.findAll();
+            lock.writeLock().lock();
+            try {
+                clear();
+                items.forEach(item -> add(toDto(item)));
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Item search index built: {} items, {} trigrams", items.size(), postings.size());
+        } catch (Exception ex) {
+            log.warn("Item search index not built, falling back to SQL: {}", ex.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /** Пока индекс не построен, сервис ищет через БД. */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Перечитать предмет после коммита текущей транзакции (или сразу, если транзакции нет). */
+    public void refreshAfterCommit(UUID itemId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(itemId);
+                }
+            });
+        } else {
+            refresh(itemId);
+        }
+    }
+
+    // перечитываем из БД, а не берём данные из транзакции. Чтение и применение — под refreshLock: каждое
+    // следующее чтение не старше предыдущего (оно после коммита своей правки), так что последним ложится
+    // самое свежее состояние, и индекс сходится к последней правке
+    void refresh(UUID itemId) {
+        refreshLock.lock();
+        try {
+            ItemDto fresh = itemRepository.findById(itemId).map(ItemSearchIndex::toDto).orElse(null);
+            lock.writeLock().lock();
+            try {
+                remove(itemId);
+                if (fresh != null) add(fresh);
+                if (deadSlots > 1024 && deadSlots > slots.size() / 4) compact();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /** Весь каталог по алфавиту. */
+    public List<ItemDto> all() {
+        lock.readLock().lock();
+        try {
+            return slots.stream()
+                .filter(d -> d != null)
+                .sorted(Comparator.comparing(Doc::name))
+                .map(Doc::item)
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ранжированный поиск.
+     * @param fuzzy false — только подстрока названия (прежняя семантика «название содержит»),
+     *              true — ещё описание и похожие по триграммам
+     * @return все совпадения по убыванию релевантности; страницу режет вызывающий
+     */
+    public List<ItemDto> search(String query, boolean fuzzy) {
+        String q = normalize(query);
+        if (q.isEmpty()) return all();
+
+        lock.readLock().lock();
+        try {
+            List<Hit> hits = hasInnerTrigrams(q) ? searchByTrigrams(q, fuzzy) : scan(q, fuzzy);
+            hits.sort(RANKING);
+            return hits.stream().map(h -> h.doc().item()).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------------- поиск ---------------------- //
+
+    private List<Hit> searchByTrigrams(String q, boolean fuzzy) {
+        Set<Long> wordGrams = trigrams(q);       // с краевыми пробелами: для похожести
+        Set<Long> innerGrams = innerTrigrams(q); // без пробелов: обязаны быть все, если q — подстрока
+
+        // в каждом счётчике: старшие 16 бит — совпавшие «внутренние» триграммы, младшие — все
+        int[] nameCounts = new int[slots.size()];
+        int[] descCounts = new int[slots.size()];
+        IntList touched = new IntList();
+        for (long gram : wordGrams) {
+            IntList posting = postings.get(gram);
+            if (posting == null) continue;
+            int inc = innerGrams.contains(gram) ? (1 << 16) | 1 : 1;
+            for (int i = 0; i < posting.size; i++) {
+                int ref = posting.values[i];
+                int slot = ref >>> 1;
+                int[] counts = (ref & 1) == NAME ? nameCounts : descCounts;
+                if (nameCounts[slot] == 0 && descCounts[slot] == 0) touched.add(slot);
+                counts[slot] += inc;
+            }
+        }
+
+        int inner = innerGrams.size();
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < touched.size; i++) {
+            int slot = touched.values[i];
+            Doc doc = slots.get(slot);
+            if (doc == null) continue;
+            int tier = tier(doc, q, (nameCounts[slot] >>> 16) == inner, (descCounts[slot] >>> 16) == inner);
+            double similarity = Math.max(nameCounts[slot] & 0xFFFF, (descCounts[slot] & 0xFFFF) / 2.0) / wordGrams.size();
+            if (fuzzy ? tier > 0 || similarity >= FUZZY_MIN_SIMILARITY : tier >= NAME_SUBSTRING) {
+                hits.add(new Hit(doc, tier, similarity));
+            }
+        }
+        return hits;
+    }
+
+    // запрос короче триграммы: по памяти линейно, это всё равно быстрее LIKE '%x%'
+    private List<Hit> scan(String q, boolean fuzzy) {
+        List<Hit> hits = new ArrayList<>();
+        for (Doc doc : slots) {
+            if (doc == null) continue;
+            int tier = tier(doc, q, true, true);
+            if (tier >= (fuzzy ? 1 : NAME_SUBSTRING)) hits.add(new Hit(doc, tier, 0));
+        }
+        return hits;
+    }
+
+    private static int tier(Doc doc, String q, boolean nameMayContain, boolean descMayContain) {
+        if (doc.name().equals(q)) return 4;
+        if (doc.name().startsWith(q)) return 3;
+        if (nameMayContain && doc.name().contains(q)) return 2;
+        if (descMayContain && doc.description().contains(q)) return 1;
+        return 0;
+    }
+
+    // ---------------------- изменение индекса (под write-lock) ---------------------- //
+
+    private void add(ItemDto item) {
+        Doc doc = new Doc(item, normalize(item.name()), normalize(item.description()));
+        int slot = slots.size();
+        slots.add(doc);
+        slotById.put(item.id(), slot);
+        for (long gram : trigrams(doc.name())) post(gram, slot << 1 | NAME);
+        for (long gram : trigrams(doc.description())) post(gram, slot << 1 | DESCRIPTION);
+    }
+
+    private void remove(UUID itemId) {
+        Integer slot = slotById.remove(itemId);
+        if (slot != null) {
+            slots.set(slot, null);
+            deadSlots++;
+        }
+    }
+
+    private void post(long gram, int ref) {
+        postings.computeIfAbsent(gram, g -> new IntList()).add(ref);
+    }
+
+    private void compact() {
+        List<Doc> live = slots.stream().filter(d -> d != null).toList();
+        clear();
+        live.forEach(d -> add(d.item()));
+    }
+
+    private void clear() {
+        slots.clear();
+        slotById.clear();
+        postings.clear();
+        deadSlots = 0;
+    }
+
+    // ---------------------- триграммы ---------------------- //
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е').strip().replaceAll("\\s+", " ");
+    }
+
+    private static String[] words(String text) {
+        return Arrays.stream(text.split("[^\\p{L}\\p{N}]+")).filter(w -> !w.isEmpty()).toArray(String[]::new);
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (String word : words(text)) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) grams.add(code(padded, i));
+        }
+        return grams;
+    }
+
+    private static Set<Long> innerTrigrams(String text) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (String word : words(text)) {
+            for (int i = 0; i + 3 <= word.length(); i++) grams.add(code(word, i));
+        }
+        return grams;
+    }
+
+    private static boolean hasInnerTrigrams(String q) {
+        return Arrays.stream(words(q)).anyMatch(w -> w.length() >= 3);
+    }
+
+    private static long code(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static ItemDto toDto(Item item) {
+        return ItemDto.builder()
+            .id(item.getId())
+            .name(item.getName())
+            .description(item.getDescription())
+            .weight(item.getWeight())
+            .price(item.getPrice())
+            .build();
+    }
+
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.sft.tabletoprpg.service.search;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.sft.tabletoprpg.domain.JournalVisibility;
+import org.sft.tabletoprpg.repo.JournalEntryRepository;
+import org.sft.tabletoprpg.repo.projection.JournalFilterRow;
+import org.sft.tabletoprpg.repo.projection.JournalTagRow;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Битовые индексы (Roaring) по измерениям журнала кампании: тип, видимость, тег, автор.
+ * Любая комбинация фильтров — пересечение/объединение битмапов, затем одна выборка строк по id.
+ * <p>
+ * Индекс кампании строится при первом обращении и дальше обновляется сервисом журнала после коммита.
+ * Номер записи в битмапах (ordinal) выдаётся в порядке создания, поэтому обход битмапа
+ * от старших номеров к младшим — это лента «новые сверху».
+ */
+@Component
+public class JournalBitmapIndex {
+
+    /** Пустое множество в измерении — фильтра по нему нет. */
+    public record Filter(Set<String> types,
+                         Set<JournalVisibility> visibilities,
+                         Set<String> tags,
+                         boolean matchAllTags,
+                         Set<UUID> authors) {}
+
+    public record Page(List<UUID> ids, int total) {}
+
+    private final JournalEntryRepository journalEntryRepository;
+    private final Map<UUID, CampaignBitmaps> campaigns = new ConcurrentHashMap<>();
+
+    public JournalBitmapIndex(JournalEntryRepository journalEntryRepository) {
+        this.journalEntryRepository = journalEntryRepository;
+    }
+
+    /**
+     * До limit записей, подходящих под фильтр и строго «старше» курсора (createdAt, id), новые сверху.
+     */
+    public Page page(UUID campaignId, Filter filter, Instant beforeCreatedAt, UUID beforeId, int limit) {
+        CampaignBitmaps bitmaps = campaigns.computeIfAbsent(campaignId, this::load);
+        return bitmaps.page(filter, beforeCreatedAt, beforeId, limit);
+    }
+
+    /** Перечитать запись после коммита; если индекс кампании ещё не строился — ничего не делать. */
+    public void refreshAfterCommit(UUID campaignId, UUID entryId) {
+        afterCommit(() -> campaigns.computeIfPresent(campaignId, (id, bitmaps) -> {
+            // под блокировкой ключа: параллельная первичная загрузка кампании дождётся этого обновления
+            var row = journalEntryRepository.findFilterRow(entryId);
+            if (row.isEmpty()) {
+                bitmaps.remove(entryId);
+                return bitmaps;
+            }
+            // запись «из прошлого» (параллельные коммиты) сломала бы порядок номеров — перестроим при следующем запросе
+            return bitmaps.put(row.get(), journalEntryRepository.findTags(entryId)) ? bitmaps : null;
+        }));
+    }
+
+    public void removeCampaignAfterCommit(UUID campaignId) {
+        afterCommit(() -> campaigns.remove(campaignId));
+    }
+
+    private CampaignBitmaps load(UUID campaignId) {
+        CampaignBitmaps bitmaps = new CampaignBitmaps();
+        Map<UUID, List<String>> tags = new HashMap<>();
+        for (JournalTagRow t : journalEntryRepository.findTagRows(campaignId)) {
+            tags.computeIfAbsent(t.entryId(), k -> new ArrayList<>()).add(t.tag());
+        }
+        for (JournalFilterRow row : journalEntryRepository.findFilterRows(campaignId)) {
+            bitmaps.put(row, tags.getOrDefault(row.id(), List.of()));
+        }
+        return bitmaps;
+    }
+
+    // тип записи сравнивается без учёта регистра, как в findByType...IgnoreCase
+    public static String typeKey(String type) {
+        return type == null ? "" : type.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class CampaignBitmaps {
+
+        private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<UUID, Integer> ordinalById = new HashMap<>();
+        private final List<UUID> ids = new ArrayList<>();
+        private final List<Instant> createdAt = new ArrayList<>();
+
+        private final RoaringBitmap live = new RoaringBitmap();
+        private final Map<String, RoaringBitmap> byType = new HashMap<>();
+        private final Map<JournalVisibility, RoaringBitmap> byVisibility = new EnumMap<>(JournalVisibility.class);
+        private final Map<String, RoaringBitmap> byTag = new HashMap<>();
+        private final Map<UUID, RoaringBitmap> byAuthor = new HashMap<>();
+
+        /** false — новая запись не продолжает ленту (created_at, id) и номер ей выдать нельзя. */
+        boolean put(JournalFilterRow row, Collection<String> tags) {
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinalById.get(row.id());
+                if (ordinal == null) {
+                    int last = ids.size() - 1;
+                    if (last >= 0 && !isBefore(last, row.createdAt(), row.id())) return false;
+                    ordinal = ids.size();
+                    ordinalById.put(row.id(), ordinal);
+                    ids.add(row.id());
+                    createdAt.add(row.createdAt());
+                } else {
+                    clear(ordinal);
+                }
+                int o = ordinal;
+                live.add(o);
+                byType.computeIfAbsent(typeKey(row.type()), k -> new RoaringBitmap()).add(o);
+                if (row.visibility() != null) {
+                    byVisibility.computeIfAbsent(row.visibility(), k -> new RoaringBitmap()).add(o);
+                }
+                byAuthor.computeIfAbsent(row.authorId(), k -> new RoaringBitmap()).add(o);
+                for (String tag : tags) {
+                    byTag.computeIfAbsent(tag, k -> new RoaringBitmap()).add(o);
+                }
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(UUID entryId) {
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinalById.remove(entryId);
+                if (ordinal != null) clear(ordinal);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // номер не переиспользуется: строка либо вернётся под ним же, либо удалена навсегда
+        private void clear(int ordinal) {
+            live.remove(ordinal);
+            removeFrom(byType, ordinal);
+            removeFrom(byVisibility, ordinal);
+            removeFrom(byTag, ordinal);
+            removeFrom(byAuthor, ordinal);
+        }
+
+        private static void removeFrom(Map<?, RoaringBitmap> index, int ordinal) {
+            index.values().removeIf(b -> {
+                b.remove(ordinal);
+                return b.isEmpty();
+            });
+        }
+
+        Page page(Filter filter, Instant beforeCreatedAt, UUID beforeId, int limit) {
+            lock.readLock().lock();
+            try {
+                // пересечение всех измерений; FastAggregation начинает с самых маленьких битмапов
+                List<RoaringBitmap> parts = new ArrayList<>();
+                parts.add(live);
+                if (!filter.visibilities().containsAll(byVisibility.keySet())) {
+                    parts.add(union(byVisibility, filter.visibilities()));
+                }
+                if (!filter.types().isEmpty()) parts.add(union(byType, filter.types()));
+                if (!filter.authors().isEmpty()) parts.add(union(byAuthor, filter.authors()));
+                if (!filter.tags().isEmpty()) {
+                    if (filter.matchAllTags()) {
+                        for (String tag : filter.tags()) {
+                            parts.add(byTag.getOrDefault(tag, EMPTY));
+                        }
+                    } else {
+                        parts.add(union(byTag, filter.tags()));
+                    }
+                }
+                RoaringBitmap match = parts.size() == 1
+                    ? live.clone()
+                    : FastAggregation.and(parts.toArray(RoaringBitmap[]::new));
+
+                List<UUID> page = new ArrayList<>(limit);
+                IntIterator it = match.getReverseIntIterator();
+                while (it.hasNext() && page.size() < limit) {
+                    int o = it.next();
+                    if (isBefore(o, beforeCreatedAt, beforeId)) page.add(ids.get(o));
+                }
+                return new Page(page, match.getCardinality());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private boolean isBefore(int ordinal, Instant beforeCreatedAt, UUID beforeId) {
+            int c = createdAt.get(ordinal).compareTo(beforeCreatedAt);
+            return c < 0 || (c == 0 && compareIds(ids.get(ordinal), beforeId) < 0);
+        }
+
+        // uuid в БД сравниваются побайтно без знака, UUID.compareTo — со знаком
+        private static int compareIds(UUID a, UUID b) {
+            int c = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+            return c != 0 ? c : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+        }
+
+        private static <K> RoaringBitmap union(Map<K, RoaringBitmap> index, Set<K> keys) {
+            List<RoaringBitmap> found = new ArrayList<>(keys.size());
+            for (K key : keys) {
+                RoaringBitmap b = index.get(key);
+                if (b != null) found.add(b);
+            }
+            return found.size() == 1 ? found.get(0) : FastAggregation.or(found.iterator());
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.sft.tabletoprpg.service.search;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.sft.tabletoprpg.domain.JournalVisibility;
+import org.sft.tabletoprpg.repo.JournalEntryRepository;
+import org.sft.tabletoprpg.repo.projection.JournalSearchRow;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Полнотекстовый индекс журналов кампаний (Lucene в памяти): заголовок, текст и теги.
+ * Кампания и видимость — поля индекса, запрос ограничивается ими как фильтрами,
+ * так что GM_ONLY-записи не попадают даже в подсчёт совпадений для игрока.
+ * Строится после старта, дальше обновляется сервисом журнала после коммита; до конца первого построения
+ * {@link #isReady()} = false. Чтение из БД и запись в индекс идут под одним замком обновлений — и у обновления
+ * записи, и у каждой страницы перестроения: документ из более раннего чтения не ложится поверх более позднего.
+ */
+@Slf4j
+@Component
+public class JournalSearchIndex {
+
+    static final String ID = "id";
+    static final String CAMPAIGN = "campaign";
+    static final String VISIBILITY = "visibility";
+    static final String TITLE = "title";
+    static final String CONTENT = "content";
+    static final String TAGS = "tags";
+
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(TITLE, 3f, TAGS, 2f, CONTENT, 1f);
+    private static final int REBUILD_BATCH = 500;
+
+    public record Hits(List<UUID> ids, int total) {}
+
+    private final JournalEntryRepository journalEntryRepository;
+    private final Analyzer analyzer = new MixedLanguageAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searchers;
+    // чтение из БД + запись в индекс: обновления записей, удаление кампании и страницы перестроения по одному
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile boolean ready;
+
+    public JournalSearchIndex(JournalEntryRepository journalEntryRepository) throws IOException {
+        this.journalEntryRepository = journalEntryRepository;
+        this.writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+        this.searchers = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        searchers.close();
+        writer.close();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            int indexed = 0;
+            UUID after = new UUID(0L, 0L);
+            while (true) {
+                // страница читается и пишется под замком: правка записи с этой страницы, закоммиченная
+                // между чтением и записью, переиндексируется уже после неё; записи дальних страниц прочтутся свежими
+                List<JournalSearchRow> rows;
+                refreshLock.lock();
+                try {
+                    rows = journalEntryRepository.findSearchRows(after, Limit.of(REBUILD_BATCH));
+                    for (JournalSearchRow row : rows) {
+                        writer.updateDocument(new Term(ID, row.id().toString()), toDocument(row));
+                    }
+                } finally {
+                    refreshLock.unlock();
+                }
+                indexed += rows.size();
+                if (rows.size() < REBUILD_BATCH) break;
+                after = rows.get(rows.size() - 1).id();
+            }
+            searchers.maybeRefreshBlocking();
+            ready = true;
+            log.info("Journal search index built: {} entries", indexed);
+        } catch (Exception ex) {
+            log.warn("Journal search index not built: {}", ex.getMessage());
+        }
+    }
+
+    /** Пока первое построение не закончено, поиск находил бы не всё — сервис отвечает 503. */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Переиндексировать запись после коммита текущей транзакции (или сразу, если транзакции нет). */
+    public void refreshAfterCommit(UUID entryId) {
+        afterCommit(() -> refresh(entryId));
+    }
+
+    /** Кампания удалена: записи ушли из БД каскадом, мимо сервиса журнала. */
+    public void removeCampaignAfterCommit(UUID campaignId) {
+        afterCommit(() -> underRefreshLock(() -> write(() -> writer.deleteDocuments(new Term(CAMPAIGN, campaignId.toString())))));
+    }
+
+    // перечитываем из БД. Чтение и запись — под refreshLock: каждое следующее чтение не старше предыдущего
+    // (оно после коммита своей правки), так что последним ложится самое свежее состояние записи
+    void refresh(UUID entryId) {
+        Term id = new Term(ID, entryId.toString());
+        underRefreshLock(() -> {
+            var row = journalEntryRepository.findSearchRow(entryId);
+            write(() -> {
+                if (row.isPresent()) {
+                    writer.updateDocument(id, toDocument(row.get()));
+                } else {
+                    writer.deleteDocuments(id);
+                }
+            });
+        });
+    }
+
+    /**
+     * Поиск в пределах кампании. Синтаксис запроса — простой: слова через пробел (все обязательны),
+     * "фраза", префикс*, -исключение, | — «или».
+     * @param includeGmOnly false — только записи с видимостью PLAYERS
+     */
+    public Hits search(UUID campaignId, boolean includeGmOnly, String queryText, int offset, int limit) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_WEIGHTS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+            .add(parser.parse(queryText), BooleanClause.Occur.MUST)
+            .add(new TermQuery(new Term(CAMPAIGN, campaignId.toString())), BooleanClause.Occur.FILTER);
+        if (!includeGmOnly) {
+            query.add(new TermQuery(new Term(VISIBILITY, JournalVisibility.PLAYERS.name())), BooleanClause.Occur.FILTER);
+        }
+        Query q = query.build();
+
+        try {
+            IndexSearcher searcher = searchers.acquire();
+            try {
+                TopDocs top = searcher.search(q, offset + limit);
+                StoredFields stored = searcher.storedFields();
+                List<UUID> ids = new ArrayList<>(limit);
+                ScoreDoc[] docs = top.scoreDocs;
+                for (int i = offset; i < docs.length; i++) {
+                    ids.add(UUID.fromString(stored.document(docs[i].doc).get(ID)));
+                }
+                return new Hits(ids, searcher.count(q));
+            } finally {
+                searchers.release(searcher);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static Document toDocument(JournalSearchRow row) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, row.id().toString(), Field.Store.YES));
+        doc.add(new StringField(CAMPAIGN, row.campaignId().toString(), Field.Store.NO));
+        // без видимости — как GM_ONLY: лучше скрыть от игроков, чем показать
+        JournalVisibility visibility = row.visibility() == null ? JournalVisibility.GM_ONLY : row.visibility();
+        doc.add(new StringField(VISIBILITY, visibility.name(), Field.Store.NO));
+        if (row.title() != null) doc.add(new TextField(TITLE, row.title(), Field.Store.NO));
+        if (row.content() != null) doc.add(new TextField(CONTENT, row.content(), Field.Store.NO));
+        if (row.tags() != null) doc.add(new TextField(TAGS, row.tags(), Field.Store.NO));
+        return doc;
+    }
+
+    private interface IndexWrite {
+        void run() throws IOException;
+    }
+
+    private void write(IndexWrite change) {
+        try {
+            change.run();
+            // блокирующе: после коммита правки поиск должен сразу её видеть
+            searchers.maybeRefreshBlocking();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void underRefreshLock(Runnable action) {
+        refreshLock.lock();
+        try {
+            action.run();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.sft.tabletoprpg.service.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.KeywordAttribute;
+import org.tartarus.snowball.SnowballStemmer;
+import org.tartarus.snowball.ext.EnglishStemmer;
+import org.tartarus.snowball.ext.RussianStemmer;
+
+import java.io.IOException;
+
+/**
+ * Анализатор для текстов вперемешку на русском и английском:
+ * стеммер Snowball выбирается по алфавиту каждого слова (кириллица — русский, латиница — английский),
+ * остальные токены (числа, смешанные) остаются как есть. «ё» приводится к «е».
+ */
+public class MixedLanguageAnalyzer extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        StandardTokenizer tokenizer = new StandardTokenizer();
+        TokenStream stream = new LowerCaseFilter(tokenizer);
+        stream = new ScriptStemFilter(stream);
+        return new TokenStreamComponents(tokenizer, stream);
+    }
+
+    private static final class ScriptStemFilter extends TokenFilter {
+
+        private final CharTermAttribute term = addAttribute(CharTermAttribute.class);
+        private final KeywordAttribute keyword = addAttribute(KeywordAttribute.class);
+        private final SnowballStemmer russian = new RussianStemmer();
+        private final SnowballStemmer english = new EnglishStemmer();
+
+        ScriptStemFilter(TokenStream input) {
+            super(input);
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if (!input.incrementToken()) return false;
+            if (keyword.isKeyword()) return true;
+
+            char[] buf = term.buffer();
+            int len = term.length();
+            boolean cyrillic = false;
+            boolean latin = false;
+            for (int i = 0; i < len; i++) {
+                char c = buf[i];
+                if (c == 'ё') buf[i] = c = 'е';
+                if (c >= 'а' && c <= 'я') cyrillic = true;
+                else if (c >= 'a' && c <= 'z') latin = true;
+            }
+            SnowballStemmer stemmer = cyrillic == latin ? null : cyrillic ? russian : english;
+            if (stemmer != null) {
+                stemmer.setCurrent(buf, len);
+                stemmer.stem();
+                term.copyBuffer(stemmer.getCurrentBuffer(), 0, stemmer.getCurrentBufferLength());
+            }
+            return true;
+        }
+    }
+}
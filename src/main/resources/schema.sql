@@ -14,6 +14,14 @@ CREATE TABLE user_roles (
                             PRIMARY KEY (user_id, role)
 );
 
+-- вход по логину или почте: нормализованный (trim + lower) ключ -> пользователь
+CREATE TABLE user_login_keys (
+                            login_key VARCHAR(255) PRIMARY KEY,
+                            user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_user_login_keys_user ON user_login_keys (user_id);
+
 -- ================== CAMPAIGNS ==================
 CREATE TABLE campaigns (
                            id UUID PRIMARY KEY,
@@ -51,6 +59,10 @@ CREATE TABLE characters (
                         strength INT, agility INT, stamina INT, intelligence INT, wisdom INT, charisma INT,
                         owner_id UUID NOT NULL REFERENCES users(id) ON DELETE RESTRICT,
                         campaign_id UUID NOT NULL REFERENCES campaigns(id) ON DELETE RESTRICT,
+                        -- агрегаты инвентаря (вес, стоимость, число предметов); ведутся сервисами дельтами
+                        total_weight NUMERIC(14,2) NOT NULL DEFAULT 0,
+                        total_price BIGINT NOT NULL DEFAULT 0,
+                        item_count BIGINT NOT NULL DEFAULT 0,
                         created_at TIMESTAMP WITH TIME ZONE DEFAULT now()
 );
 
@@ -78,6 +90,15 @@ CREATE TABLE character_inventory (
 CREATE INDEX IF NOT EXISTS idx_charinv_item ON character_inventory (item_id);
 CREATE INDEX IF NOT EXISTS idx_charinv_character ON character_inventory (character_id);
 
+-- счётчики использования предмета (держатели, общее количество); ведутся сервисом инвентаря
+CREATE TABLE item_stats (
+                        item_id        UUID PRIMARY KEY REFERENCES items(id) ON DELETE CASCADE,
+                        holders        BIGINT NOT NULL DEFAULT 0,
+                        total_quantity BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_item_stats_popularity ON item_stats (holders DESC, total_quantity DESC, item_id);
+
 -- ================== JOURNAL ENTRIES ==================
 CREATE TABLE journal_entries (
                          id UUID PRIMARY KEY,
@@ -87,6 +108,8 @@ CREATE TABLE journal_entries (
                          visibility VARCHAR(20) NOT NULL,
                          title VARCHAR(150),
                          content TEXT NOT NULL,
+                         content_length INT,
+                         excerpt VARCHAR(160),
                          tags VARCHAR(255),
                          created_at TIMESTAMP WITH TIME ZONE DEFAULT now()
 );
@@ -94,4 +117,37 @@ CREATE TABLE journal_entries (
 CREATE INDEX idx_journal_campaign_id ON journal_entries (campaign_id);
 CREATE INDEX idx_journal_author_id ON journal_entries (author_id);
 CREATE INDEX idx_journal_campaign_type ON journal_entries (campaign_id, type);
-CREATE INDEX idx_journal_campaign_created_at ON journal_entries (campaign_id, created_at)
+CREATE INDEX idx_journal_campaign_created_at ON journal_entries (campaign_id, created_at);
+
+-- нормализованные теги записи (из строки journal_entries.tags)
+CREATE TABLE journal_entry_tags (
+                         entry_id UUID NOT NULL REFERENCES journal_entries(id) ON DELETE CASCADE,
+                         tag VARCHAR(50) NOT NULL,
+                         PRIMARY KEY (entry_id, tag)
+);
+
+CREATE INDEX idx_journal_entry_tags_tag ON journal_entry_tags (tag, entry_id);
+
+-- счётчики тегов кампании; ведутся сервисом журнала инкрементально
+CREATE TABLE journal_tag_facets (
+                         campaign_id UUID NOT NULL REFERENCES campaigns(id) ON DELETE CASCADE,
+                         tag VARCHAR(50) NOT NULL,
+                         total_count INT NOT NULL DEFAULT 0,
+                         players_count INT NOT NULL DEFAULT 0,
+                         PRIMARY KEY (campaign_id, tag)
+);
+
+-- ================== REFRESH TOKENS ==================
+-- используется при security.jwt.refresh-store=jdbc
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+                        token_id         VARCHAR(64) PRIMARY KEY,
+                        family_id        UUID NOT NULL,
+                        user_id          UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+                        security_version INT NOT NULL,
+                        expires_at       TIMESTAMP WITH TIME ZONE NOT NULL,
+                        used             BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_family ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_user ON refresh_tokens (user_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_expires_at ON refresh_tokens (expires_at);
@@ -244,7 +244,17 @@
     return data;
   }
 
-  async function tryRefresh() {
+  // refresh-токен одноразовый: параллельные 401 должны дождаться одного обновления,
+  // иначе повторное предъявление того же токена отзовёт всю сессию
+  let refreshInFlight = null;
+  function tryRefresh() {
+    if (!refreshInFlight) {
+      refreshInFlight = doRefresh().finally(() => { refreshInFlight = null; });
+    }
+    return refreshInFlight;
+  }
+
+  async function doRefresh() {
     try {
       const payload = auth.refreshToken ? { refreshToken: auth.refreshToken } : undefined;
       const res = await fetch('/auth/refresh', {
@@ -370,6 +380,24 @@
     if (outlet) outlet.innerHTML = html;
   }
 
+  // Журнал кампании отдаётся страницами: { items, nextCursor }
+  function fetchJournalPage(campaignId, cursor) {
+    const params = new URLSearchParams({ include: 'all' });
+    if (cursor) params.set('cursor', cursor);
+    return api(`/api/campaigns/${encodeURIComponent(campaignId)}/journal?${params}`);
+  }
+
+  async function fetchAllJournal(campaignId) {
+    const all = [];
+    let cursor = null;
+    do {
+      const page = await fetchJournalPage(campaignId, cursor);
+      all.push(...(page.items || []));
+      cursor = page.nextCursor;
+    } while (cursor);
+    return all;
+  }
+
   function renderList(items, emptyText, mapper) {
     if (!Array.isArray(items) || items.length === 0) {
       return `<p class="muted">${emptyText}</p>`;
@@ -1063,22 +1091,66 @@
           <button type="button" class="btn primary" id="cd-jr-create" style="margin-top:8px;">Create entry</button>
         </div>
         ` : ''}
+        <div class="panel">
+          <h3>Search journal</h3>
+          <div class="toolbar">
+            <input id="cd-js-q" placeholder="Words, &quot;phrase&quot;, prefix*" />
+            <button type="button" class="btn" id="cd-js-go">Search</button>
+          </div>
+          <div id="cd-js-results"></div>
+        </div>
       `;
       setRouteContent(html);
 
+      // Full-text journal search (players only get PLAYERS entries from the server)
+      const foundEntries = [];
+      async function searchJournal(offset) {
+        const q = (qs('#cd-js-q').value || '').trim();
+        if (!q) { qs('#cd-js-results').innerHTML = ''; return; }
+        try {
+          const page = await api(`/api/campaigns/${encodeURIComponent(campaignId)}/journal/search?q=${encodeURIComponent(q)}&offset=${offset}&limit=20`);
+          if (!offset) foundEntries.length = 0;
+          foundEntries.push(...(page.items || []));
+          const more = foundEntries.length < page.total;
+          qs('#cd-js-results').innerHTML = `<p class="muted">Found: ${page.total}</p>`
+            + renderList(foundEntries, 'Nothing found.', (e) => (
+              `<li class="list-item">
+                <div class="list-title">${escapeHtml(e.title || '(no title)')} <span class="list-sub">${e.type ? '[' + escapeHtml(e.type) + '] • ' : ''}${escapeHtml(e.visibility||'')}</span></div>
+                <div class="list-sub">${escapeHtml(e.excerpt||'')}</div>
+              </li>`
+            ))
+            + (more ? '<button type="button" class="btn" id="cd-js-more">More results</button>' : '');
+          if (more) {
+            qs('#cd-js-more').addEventListener('click', () => searchJournal(foundEntries.length));
+          }
+        } catch (e) {
+          qs('#cd-js-results').innerHTML = `<p class="err">${escapeHtml(e.message || 'Search failed')}</p>`;
+        }
+      }
+      qs('#cd-js-go').addEventListener('click', (ev) => { ev.preventDefault(); searchJournal(0); });
+      qs('#cd-js-q').addEventListener('keydown', (ev) => { if (ev.key === 'Enter') { ev.preventDefault(); searchJournal(0); } });
+
       if (isCampaignGm) {
         // Load journal entries
-        async function loadJournal() {
+        // первая страница сразу, остальные — по кнопке "Load more"
+        const loaded = [];
+        async function loadJournal(cursor) {
           try {
-            const entries = await api(`/api/campaigns/${encodeURIComponent(campaignId)}/journal?include=all`);
+            const page = await fetchJournalPage(campaignId, cursor);
+            if (!cursor) loaded.length = 0;
+            loaded.push(...(page.items || []));
             const render = (items) => renderList(items, 'No journal entries yet.', (e) => (
               `<li class="list-item">
                 <div class="list-title">${escapeHtml(e.title || '(no title)')} <span class="list-sub">${e.type ? '[' + escapeHtml(e.type) + '] • ' : ''}${escapeHtml(e.visibility||'')}</span></div>
                 <div class="list-sub">${escapeHtml(e.tags||'')}</div>
-                <div class="list-sub">${escapeHtml(e.content||'')}</div>
+                <div class="list-sub">${escapeHtml(e.excerpt||'')}</div>
               </li>`
             ));
-            qs('#cd-journal-list').innerHTML = render(entries);
+            qs('#cd-journal-list').innerHTML = render(loaded)
+              + (page.nextCursor ? '<button type="button" class="btn" id="cd-journal-more">Load more</button>' : '');
+            if (page.nextCursor) {
+              qs('#cd-journal-more').addEventListener('click', () => loadJournal(page.nextCursor));
+            }
           } catch (e) {
             qs('#cd-journal-list').innerHTML = `<p class="err">${escapeHtml(e.message || 'Failed to load')}</p>`;
           }
@@ -1239,8 +1311,9 @@
       if (!q) { return runAll(); }
       qs('#item-results').innerHTML = '<p class="muted">Searching…</p>';
       try {
-        const data = await api(`/api/items?query=${encodeURIComponent(q)}`);
-        const list = renderList(data, 'No items found.', (it) => (
+        // ranked, typo-tolerant search over names and descriptions
+        const page = await api(`/api/items/search?q=${encodeURIComponent(q)}&limit=100`);
+        const list = renderList(page.items, 'No items found.', (it) => (
           `<li class="list-item" data-id="${it.id}">
             <div class="row-between">
               <div>
@@ -1519,7 +1592,7 @@
       // Load entries for each campaign (GM can see include=all)
       const entriesPerCampaign = await Promise.all((myCampaigns || []).map(async (c) => {
         try {
-          const entries = await api(`/api/campaigns/${encodeURIComponent(c.id)}/journal?include=all`);
+          const entries = await fetchAllJournal(c.id);
           return { campaign: c, entries };
         } catch { return { campaign: c, entries: [] }; }
       }));
@@ -1535,7 +1608,7 @@
                 <div>
                   <div class="list-title">${escapeHtml(e.title || '(no title)')} <span class="list-sub">${e.type ? '[' + escapeHtml(e.type) + '] • ' : ''}${escapeHtml(e.visibility||'')}</span></div>
                   <div class="list-sub">${escapeHtml(e.tags||'')}</div>
-                  <div class="list-sub">${escapeHtml(e.content||'')}</div>
+                  <div class="list-sub">${escapeHtml(e.excerpt||'')}</div>
                   <div class="list-sub">Created: ${formatDateTime(e.createdAt)}</div>
                 </div>
                 <div class="actions">
@@ -1557,7 +1630,7 @@
                 <div>
                   <div class="list-title">${escapeHtml(e.title || '(no title)')} <span class="list-sub">[${escapeHtml(e.type||'')}]</span></div>
                   <div class="list-sub">${escapeHtml(e.tags||'')}</div>
-                  <div class="list-sub">${escapeHtml(e.content||'')}</div>
+                  <div class="list-sub">${escapeHtml(e.excerpt||'')}</div>
                   <div class="list-sub">Created: ${formatDateTime(e.createdAt)}</div>
                 </div>
                 <div class="actions">
@@ -1644,19 +1717,19 @@
         const kind = li.getAttribute('data-kind'); // 'personal' | 'campaign'
         const campaignId = li.getAttribute('data-campaign-id');
 
-        // Extract current fields from UI for initial values
-        const title = li.querySelector('.list-title')?.childNodes[0]?.textContent?.trim() || '';
-        const meta = li.querySelector('.list-title .list-sub')?.textContent || '';
-        const tags = li.querySelectorAll('.list-sub')[0]?.textContent || '';
-        const content = li.querySelectorAll('.list-sub')[1]?.textContent || '';
-        const typeMatch = /\[(.*?)\]/.exec(meta);
-        const type = typeMatch ? typeMatch[1] : '';
-        const visMatch = /•\s*(GM_ONLY|PLAYERS)/.exec(meta);
-        const visibility = visMatch ? visMatch[1] : 'GM_ONLY';
-
         const act = btn.getAttribute('data-jr-act');
         if (act === 'edit') {
-          openJournalEditor({ title, type, visibility, tags, content }, async (payload) => {
+          // Lists carry only an excerpt: load the full entry for the editor
+          let entry;
+          try {
+            entry = (kind === 'campaign' && campaignId)
+              ? await api(`/api/campaigns/${encodeURIComponent(campaignId)}/journal/${encodeURIComponent(entryId)}`)
+              : await api(`/api/journals/${encodeURIComponent(entryId)}`);
+          } catch (e) {
+            await showErrorModal('Load Failed', e.message || 'Failed to load journal entry');
+            return;
+          }
+          openJournalEditor(entry, async (payload) => {
             if (kind === 'campaign' && campaignId) {
               await api(`/api/campaigns/${encodeURIComponent(campaignId)}/journal/${encodeURIComponent(entryId)}`, {
                 method: 'PATCH', body: JSON.stringify(payload)
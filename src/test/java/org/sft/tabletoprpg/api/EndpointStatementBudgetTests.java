@@ -0,0 +1,328 @@
+package org.sft.tabletoprpg.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.Role;
+import org.sft.tabletoprpg.repo.UserRepository;
+import org.sft.tabletoprpg.service.UserService;
+import org.sft.tabletoprpg.service.dto.user.UserRegisterRequest;
+import org.sft.tabletoprpg.support.SqlCountingConfig;
+import org.sft.tabletoprpg.support.SqlStatementCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.request;
+
+/**
+ * Бюджет SQL-операторов на каждый эндпоинт из {@code org.sft.tabletoprpg.api}.
+ * Бюджеты — в statement-budgets.properties (ключ — Контроллер#метод); сценарий ниже проходит
+ * все эндпоинты по разу (как живой клиент: токены, кэши прогреваются по ходу), считает операторы
+ * и строки на соединении и падает, если эндпоинт превысил бюджет, не имеет бюджета или не вызван.
+ * Отчёт — target/statement-budgets.md.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(SqlCountingConfig.class)
+class EndpointStatementBudgetTests {
+
+    private static final String API_PACKAGE = "org.sft.tabletoprpg.api";
+    private static final Path REPORT = Path.of("target", "statement-budgets.md");
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper json;
+    @Autowired @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping;
+    @Autowired UserService userService;
+    @Autowired UserRepository userRepository;
+
+    private record Measured(String endpoint, long statements, long rows) {}
+
+    // по эндпоинту — худший из вызовов
+    private final Map<String, Measured> measured = new TreeMap<>();
+
+    @Test
+    void everyEndpointStaysWithinItsStatementBudget() throws Exception {
+        Map<String, Integer> budgets = loadBudgets();
+        try {
+            runScenario();
+        } finally {
+            writeReport(budgets);
+        }
+
+        List<String> problems = new ArrayList<>();
+        for (String handler : apiHandlers()) {
+            Integer budget = budgets.get(handler);
+            Measured m = measured.get(handler);
+            if (budget == null) {
+                problems.add(handler + ": no budget in statement-budgets.properties"
+                    + (m == null ? "" : " (measured " + m.statements() + ")"));
+            } else if (m == null) {
+                problems.add(handler + ": not exercised by the scenario");
+            } else if (m.statements() > budget) {
+                problems.add(handler + ": " + m.statements() + " statements, budget " + budget);
+            }
+        }
+        for (String handler : budgets.keySet()) {
+            if (!apiHandlers().contains(handler)) problems.add(handler + ": budget for a missing endpoint");
+        }
+        assertTrue(problems.isEmpty(), "statement budgets (see " + REPORT + "):\n  " + String.join("\n  ", problems));
+    }
+
+    /* ============================ СЦЕНАРИЙ ============================ */
+
+    private void runScenario() throws Exception {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+
+        // --- auth
+        String gmName = "bgm_" + run;
+        UUID gmId = id(call(HttpMethod.POST, "/auth/register", null,
+            Map.of("username", gmName, "email", gmName + "@example.com", "rawPassword", "secret")));
+        JsonNode gmLogin = login(gmName);
+        JsonNode refreshed = call(HttpMethod.POST, "/auth/refresh", null, Map.of("refreshToken", gmLogin.get("refreshToken").asText()));
+        call(HttpMethod.POST, "/auth/logout", null, Map.of("refreshToken", refreshed.get("refreshToken").asText()));
+        String gm = login(gmName).get("accessToken").asText();
+
+        UUID adminId = newUser("bad_" + run);
+        var admin = userRepository.findById(adminId).orElseThrow();
+        admin.getRoles().add(Role.ADMIN);
+        userRepository.save(admin);
+        String adminToken = login("bad_" + run).get("accessToken").asText();
+
+        List<UUID> playerIds = new ArrayList<>();
+        List<String> players = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            playerIds.add(newUser("bpl" + i + "_" + run));
+            players.add(login("bpl" + i + "_" + run).get("accessToken").asText());
+        }
+
+        // --- users
+        UUID spare = id(call(HttpMethod.POST, "/api/users/crt", gm,
+            Map.of("username", "bsp_" + run, "email", "bsp_" + run + "@example.com", "rawPassword", "secret")));
+        call(HttpMethod.GET, "/api/users/{id}", gm, null, spare);
+        call(HttpMethod.GET, "/api/users/by-username?username={name}", gm, null, "bsp_" + run);
+        call(HttpMethod.GET, "/api/users?excludeSelf=true", gm, null);
+        call(HttpMethod.DELETE, "/api/users/dlt/{id}", gm, null, spare);
+
+        // --- campaigns
+        UUID legacyCampaign = id(call(HttpMethod.POST, "/api/campaigns/crt", gm, Map.of("name", "Черновик " + run)));
+        UUID spareCampaign = id(call(HttpMethod.POST, "/api/campaigns", gm, Map.of("name", "Запасная " + run)));
+        UUID campaign = id(call(HttpMethod.POST, "/api/campaigns", gm, Map.of("name", "Поход " + run, "description", "Бюджеты")));
+        call(HttpMethod.PATCH, "/api/campaigns/{id}", gm, Map.of("description", "Бюджеты SQL"), campaign);
+        for (UUID playerId : playerIds) {
+            call(HttpMethod.PUT, "/api/campaigns/{c}/members/{u}", gm, Map.of("userId", playerId, "roleInCampaign", "PLAYER"), campaign, playerId);
+        }
+        call(HttpMethod.PATCH, "/api/campaigns/{c}/members/{u}", gm, Map.of("userId", playerIds.get(4), "roleInCampaign", "PLAYER"), campaign, playerIds.get(4));
+        call(HttpMethod.GET, "/api/campaigns/{c}/members", gm, null, campaign);
+        call(HttpMethod.GET, "/api/campaigns/campaign-by-id/{id}", gm, null, campaign);
+        call(HttpMethod.GET, "/api/campaigns/{id}", gm, null, campaign);
+        call(HttpMethod.GET, "/api/campaigns/list-by-me", gm, null);
+        call(HttpMethod.GET, "/api/campaigns", gm, null);
+        call(HttpMethod.GET, "/api/campaigns/participating", players.get(0), null);
+        call(HttpMethod.GET, "/api/campaigns/list-by-gm?gmId={id}", gm, null, gmId);
+        call(HttpMethod.GET, "/api/campaigns/by-gm/{id}", gm, null, gmId);
+        call(HttpMethod.DELETE, "/api/campaigns/dlt/{id}", gm, null, legacyCampaign);
+        call(HttpMethod.DELETE, "/api/campaigns/{id}", gm, null, spareCampaign);
+
+        // --- characters
+        List<UUID> heroes = new ArrayList<>();
+        heroes.add(id(call(HttpMethod.POST, "/api/characters/crt/{c}", players.get(0), hero("Лучник " + run), campaign)));
+        for (int i = 1; i < 4; i++) {
+            heroes.add(id(call(HttpMethod.POST, "/api/characters/api/campaigns/{c}/characters", players.get(i), hero("Герой " + i + " " + run), campaign)));
+        }
+        UUID hero = heroes.get(0);
+        call(HttpMethod.GET, "/api/characters/{id}", players.get(0), null, hero);
+        call(HttpMethod.GET, "/api/characters/by-campaign-id/{c}", gm, null, campaign);
+        call(HttpMethod.GET, "/api/characters/api/campaigns/{c}/characters", gm, null, campaign);
+        call(HttpMethod.GET, "/api/characters/by-owner-id/{u}", players.get(0), null, playerIds.get(0));
+        call(HttpMethod.PATCH, "/api/characters/{id}", players.get(0), Map.of("level", 2), hero);
+        call(HttpMethod.PATCH, "/api/characters/set-hp/{id}?hp=5", players.get(0), null, hero);
+        call(HttpMethod.PATCH, "/api/characters/{id}/hp", gm, Map.of("delta", -1), hero);
+
+        // --- items
+        List<UUID> items = new ArrayList<>();
+        items.add(id(call(HttpMethod.POST, "/api/items/crt", adminToken, item("Лук " + run))));
+        for (int i = 1; i < 4; i++) {
+            items.add(id(call(HttpMethod.POST, "/api/items", adminToken, item("Стрела " + i + " " + run))));
+        }
+        UUID bow = items.get(0);
+        UUID arrow = items.get(1);
+        call(HttpMethod.PATCH, "/api/items/updt/{id}", adminToken, Map.of("price", 15), bow);
+        call(HttpMethod.PATCH, "/api/items/{id}", adminToken, Map.of("weight", 1.5), bow);
+        call(HttpMethod.GET, "/api/items/item-by-id/{id}", adminToken, null, bow);
+        call(HttpMethod.GET, "/api/items/{id}", adminToken, null, bow);
+        call(HttpMethod.GET, "/api/items/search?q={q}", adminToken, null, "стрела");
+        call(HttpMethod.GET, "/api/items", adminToken, null);
+        call(HttpMethod.GET, "/api/items?query={q}", adminToken, null, "Лук");
+        call(HttpMethod.GET, "/api/items/items-by-name-contains?query={q}", adminToken, null, "Лук");
+        call(HttpMethod.DELETE, "/api/items/dlt/{id}", adminToken, null, items.get(2));
+        call(HttpMethod.DELETE, "/api/items/{id}", adminToken, null, items.get(3));
+
+        // --- inventory
+        call(HttpMethod.POST, "/api/characters/{id}/inventory", gm, Map.of("itemId", bow, "quantity", 1), hero);
+        call(HttpMethod.POST, "/api/inventory/change", gm, Map.of("characterId", hero, "itemId", arrow, "delta", 20));
+        call(HttpMethod.PATCH, "/api/characters/{id}/inventory/{item}", gm, Map.of("quantity", 30), hero, arrow);
+        call(HttpMethod.POST, "/api/inventory/transfer", players.get(0),
+            Map.of("fromCharacterId", hero, "toCharacterId", heroes.get(1), "itemId", arrow, "quantity", 5));
+        call(HttpMethod.POST, "/api/inventory/batch", gm, Map.of("operations", heroes.stream()
+            .flatMap(h -> items.subList(0, 2).stream().map(i -> Map.of("characterId", h, "itemId", i, "delta", 2)))
+            .toList()));
+        call(HttpMethod.GET, "/api/inventory/{id}", players.get(0), null, hero);
+        call(HttpMethod.GET, "/api/characters/{id}/inventory", gm, null, hero);
+        call(HttpMethod.DELETE, "/api/characters/{id}/inventory/{item}", gm, null, hero, bow);
+        call(HttpMethod.GET, "/api/items/usage", adminToken, null);
+
+        // --- journal
+        UUID legacyEntry = id(call(HttpMethod.POST, "/api/journals/create/{c}", gm, entry("Черновик", "GM_ONLY"), campaign));
+        List<UUID> entries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            entries.add(id(call(HttpMethod.POST, "/api/campaigns/{c}/journal", gm, entry("Глава " + i, "PLAYERS"), campaign)));
+        }
+        UUID personal = id(call(HttpMethod.POST, "/api/journals", players.get(0), entry("Мои заметки", "GM_ONLY")));
+        UUID entryId = entries.get(0);
+        call(HttpMethod.PATCH, "/api/journals/update/{id}", gm, Map.of("title", "Глава 0, правка"), entryId);
+        call(HttpMethod.PATCH, "/api/campaigns/{c}/journal/{id}", gm, Map.of("tags", "осада,город"), campaign, entryId);
+        call(HttpMethod.GET, "/api/journals/list-journals/{c}", players.get(0), null, campaign);
+        call(HttpMethod.GET, "/api/campaigns/{c}/journal", players.get(0), null, campaign);
+        call(HttpMethod.GET, "/api/campaigns/{c}/journal/by-tags?tags=осада", players.get(0), null, campaign);
+        call(HttpMethod.GET, "/api/campaigns/{c}/journal/filter?tag=осада", players.get(0), null, campaign);
+        call(HttpMethod.GET, "/api/campaigns/{c}/journal/tags", players.get(0), null, campaign);
+        call(HttpMethod.GET, "/api/campaigns/{c}/journal/search?q={q}", players.get(0), null, campaign, "глава");
+        call(HttpMethod.GET, "/api/campaigns/{c}/journal/{id}", players.get(0), null, campaign, entryId);
+        call(HttpMethod.GET, "/api/journals/{id}", players.get(0), null, personal);
+        call(HttpMethod.GET, "/api/journals/me", players.get(0), null);
+        call(HttpMethod.DELETE, "/api/journals/delete/{id}", gm, null, legacyEntry);
+        call(HttpMethod.DELETE, "/api/campaigns/{c}/journal/{id}", gm, null, campaign, entries.get(2));
+
+        // --- удаления, зависящие от остального
+        call(HttpMethod.DELETE, "/api/characters/{id}", players.get(2), null, heroes.get(2));
+        call(HttpMethod.DELETE, "/api/characters/dlt/{id}", players.get(3), null, heroes.get(3));
+        call(HttpMethod.DELETE, "/api/campaigns/{c}/members/{u}", gm, null, campaign, playerIds.get(4));
+    }
+
+    private Map<String, Object> hero(String name) {
+        return Map.of("name", name, "clazz", "Следопыт", "race", "Эльф", "level", 1, "hp", 10, "maxHp", 10,
+            "attributes", Map.of("strength", 10, "dexterity", 14, "constitution", 10, "intelligence", 10, "wisdom", 12, "charisma", 8));
+    }
+
+    private Map<String, Object> item(String name) {
+        return Map.of("name", name, "description", "Для бюджетов", "weight", 0.5, "price", 3);
+    }
+
+    private Map<String, Object> entry(String title, String visibility) {
+        return Map.of("type", "note", "visibility", visibility, "title", title, "content", title + ": текст записи", "tags", "осада");
+    }
+
+    private UUID newUser(String username) {
+        return userService.createUser(new UserRegisterRequest(username, username + "@example.com", "secret")).id();
+    }
+
+    private JsonNode login(String username) throws Exception {
+        return call(HttpMethod.POST, "/auth/login", null, Map.of("usernameOrEmail", username, "password", "secret"));
+    }
+
+    private static UUID id(JsonNode body) {
+        return UUID.fromString(body.get("id").asText());
+    }
+
+    /* ============================ ЗАМЕР ============================ */
+
+    private JsonNode call(HttpMethod method, String uri, String token, Object body, Object... vars) throws Exception {
+        MockHttpServletRequestBuilder req = request(method, uri, vars);
+        if (token != null) req.header("Authorization", "Bearer " + token);
+        if (body != null) req.contentType(MediaType.APPLICATION_JSON).content(json.writeValueAsBytes(body));
+
+        SqlStatementCounter.start();
+        MvcResult result;
+        SqlStatementCounter.Usage usage;
+        try {
+            result = mvc.perform(req).andReturn();
+        } finally {
+            usage = SqlStatementCounter.stop();
+        }
+
+        int status = result.getResponse().getStatus();
+        assertTrue(status >= 200 && status < 300,
+            method + " " + uri + " -> " + status + " " + result.getResponse().getContentAsString());
+        HandlerMethod handler = (HandlerMethod) result.getHandler();
+        String key = key(handler);
+        measured.merge(key, new Measured(method + " " + uri, usage.statements(), usage.rows()),
+            (a, b) -> b.statements() > a.statements() ? b : a);
+
+        String content = result.getRequest().isAsyncStarted() ? "" : result.getResponse().getContentAsString();
+        return content.isBlank() ? null : json.readTree(content);
+    }
+
+    private static String key(HandlerMethod handler) {
+        return handler.getBeanType().getSimpleName() + "#" + handler.getMethod().getName();
+    }
+
+    private TreeSet<String> apiHandlers() {
+        TreeSet<String> keys = new TreeSet<>();
+        handlerMapping.getHandlerMethods().values().stream()
+            .filter(h -> h.getBeanType().getPackageName().equals(API_PACKAGE))
+            .forEach(h -> keys.add(key(h)));
+        return keys;
+    }
+
+    private static Map<String, Integer> loadBudgets() throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = new ClassPathResource("statement-budgets.properties").getInputStream()) {
+            props.load(in);
+        }
+        Map<String, Integer> budgets = new TreeMap<>();
+        props.forEach((k, v) -> budgets.put((String) k, Integer.parseInt(((String) v).trim())));
+        return budgets;
+    }
+
+    private void writeReport(Map<String, Integer> budgets) throws IOException {
+        StringBuilder md = new StringBuilder("# SQL statements per endpoint\n\n")
+            .append("| Endpoint | Request | Statements | Budget | Rows fetched |\n")
+            .append("|---|---|---:|---:|---:|\n");
+        long statements = 0;
+        long rows = 0;
+        for (String handler : apiHandlers()) {
+            Measured m = measured.get(handler);
+            Integer budget = budgets.get(handler);
+            md.append("| ").append(handler)
+                .append(" | ").append(m == null ? "—" : "`" + m.endpoint() + "`")
+                .append(" | ").append(m == null ? "—" : m.statements())
+                .append(" | ").append(budget == null ? "—" : budget)
+                .append(m != null && budget != null && m.statements() > budget ? " **over**" : "")
+                .append(" | ").append(m == null ? "—" : m.rows())
+                .append(" |\n");
+            if (m != null) {
+                statements += m.statements();
+                rows += m.rows();
+            }
+        }
+        md.append("| **total** | | ").append(statements).append(" | | ").append(rows).append(" |\n");
+        Files.createDirectories(REPORT.getParent());
+        Files.writeString(REPORT, md);
+    }
+}
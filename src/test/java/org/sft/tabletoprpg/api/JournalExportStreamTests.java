@@ -0,0 +1,84 @@
+package org.sft.tabletoprpg.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.JournalVisibility;
+import org.sft.tabletoprpg.service.CampaignService;
+import org.sft.tabletoprpg.service.JournalService;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryCreateRequest;
+import org.sft.tabletoprpg.service.exception.ForbiddenException;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Старый потоковый список журнала: полный ответ — корректный JSON-массив, а сбой между страницами
+ * не оставляет после статуса 200 короткий, но корректный массив.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class JournalExportStreamTests {
+
+    @Autowired TestFixtures fixtures;
+    @Autowired JournalController journalController;
+    @Autowired CampaignService campaignService;
+    @Autowired JournalService journalService;
+    @Autowired ObjectMapper objectMapper;
+
+    private UUID gmId;
+    private UUID playerId;
+    private UUID campaignId;
+
+    @BeforeEach
+    void setUpCampaign() {
+        String run = TestFixtures.run();
+        gmId = fixtures.user("xgm_" + run);
+        playerId = fixtures.user("xpl_" + run);
+        campaignId = fixtures.campaign(gmId, "Архив " + run);
+        fixtures.join(campaignId, playerId, gmId);
+        // на одну запись больше страницы: ответ читается двумя страницами
+        for (int i = 0; i <= JournalService.MAX_PAGE_SIZE; i++) {
+            journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+                "session", JournalVisibility.PLAYERS, "Сессия " + i, "Содержание " + i, null));
+        }
+    }
+
+    @Test
+    void completeStreamIsOneJsonArray() throws Exception {
+        var out = new ByteArrayOutputStream();
+        journalController.listJournalLegacy(campaignId, playerId, null, null).getBody().writeTo(out);
+        assertEquals(JournalService.MAX_PAGE_SIZE + 1, objectMapper.readTree(out.toByteArray()).size());
+    }
+
+    @Test
+    void failureBetweenPagesLeavesTheArrayUnterminated() throws Exception {
+        var body = journalController.listJournalLegacy(campaignId, playerId, null, null).getBody();
+        // после первой страницы игрока исключают: вторая страница отвечает 403, а 200 уже ушёл клиенту
+        var out = new ByteArrayOutputStream() {
+            boolean removed;
+
+            @Override
+            public void flush() {
+                if (!removed && size() > 0) {
+                    removed = true;
+                    campaignService.removeMember(campaignId, playerId, gmId);
+                }
+            }
+        };
+        assertThrows(ForbiddenException.class, () -> body.writeTo(out));
+
+        String written = out.toString(StandardCharsets.UTF_8);
+        assertTrue(written.startsWith("["), written);
+        assertFalse(written.endsWith("]"));
+        assertThrows(JsonProcessingException.class, () -> objectMapper.readTree(written));
+    }
+}
@@ -0,0 +1,86 @@
+package org.sft.tabletoprpg.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.JournalVisibility;
+import org.sft.tabletoprpg.domain.converter.TextCodec;
+import org.sft.tabletoprpg.service.JournalService;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryCreateRequest;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сжатие больших текстов при хранении: прозрачно для сервисов, старые строки догоняет миграция.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ContentCompressionTests {
+
+    @Autowired TestFixtures fixtures;
+    @Autowired JournalService journalService;
+    @Autowired ContentCompressionMigration migration;
+    @Autowired TextCodec codec;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private UUID gmId;
+    private UUID campaignId;
+
+    @BeforeEach
+    void setUpCampaign() {
+        String run = TestFixtures.run();
+        gmId = fixtures.user("zgm_" + run);
+        campaignId = fixtures.campaign(gmId, "Архив " + run);
+    }
+
+    @Test
+    void largeContentIsStoredCompressedAndReadBackIntact() {
+        String notes = sessionNotes(200);
+        UUID id = journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "session", JournalVisibility.PLAYERS, "Длинная сессия", notes, null)).id();
+
+        String stored = rawContent(id);
+        assertTrue(TextCodec.isTagged(stored));
+        assertTrue(stored.length() < notes.length() / 2);
+        assertEquals(notes, journalService.getJournalById(id, gmId).content());
+    }
+
+    @Test
+    void shortAndMarkerPrefixedTextsRoundTrip() {
+        assertEquals("коротко", codec.encode("коротко"));
+        String tricky = "\u0001D не base64";
+        assertEquals(tricky, codec.decode(codec.encode(tricky)));
+    }
+
+    @Test
+    void migrationCompressesLegacyRows() {
+        UUID id = journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "session", JournalVisibility.PLAYERS, "Старая запись", "пока коротко", null)).id();
+        String notes = sessionNotes(100);
+        // строка, записанная до появления конвертера
+        jdbcTemplate.update("UPDATE journal_entries SET content = ? WHERE id = ?", notes, id);
+
+        migration.migrate();
+
+        assertTrue(TextCodec.isTagged(rawContent(id)));
+        assertEquals(notes, journalService.getJournalById(id, gmId).content());
+    }
+
+    private String rawContent(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT content FROM journal_entries WHERE id = ?", String.class, id);
+    }
+
+    private static String sessionNotes(int paragraphs) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            sb.append("Раунд ").append(i).append(": партия спускается в склеп, гоблины атакуют из темноты.\n");
+        }
+        return sb.toString().strip();
+    }
+}
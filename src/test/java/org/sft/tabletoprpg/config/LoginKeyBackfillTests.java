@@ -0,0 +1,66 @@
+package org.sft.tabletoprpg.config;
+
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.security.JpaUserDetailsService;
+import org.sft.tabletoprpg.security.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Дозаполнение ключей входа для старых пользователей: конфликт после нормализации не останавливает запуск,
+ * а пропускает пользователя и называет его — никто не теряет вход молча.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LoginKeyBackfillTests {
+
+    @Autowired SchemaAdjuster schemaAdjuster;
+    @Autowired JpaUserDetailsService userDetailsService;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    void collidingLegacyUsersAreSkippedAndReportedUntilRenamed() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        UUID solo = legacyUser("Solo_" + run, "solo_" + run + "@example.com");
+        // различаются только регистром — до нормализации это были два разных логина
+        UUID upper = legacyUser("Twin_" + run, "twin1_" + run + "@example.com");
+        UUID lower = legacyUser("twin_" + run, "twin2_" + run + "@example.com");
+        try {
+            List<UUID> skipped = schemaAdjuster.backfillLoginKeys();
+            assertEquals(2, keysOf(solo).size());
+            // один из близнецов получил оба ключа, у второго нет ни одного — он и возвращён как пропущенный
+            UUID keyless = keysOf(upper).isEmpty() ? upper : lower;
+            assertEquals(2, keysOf(keyless == upper ? lower : upper).size());
+            assertTrue(keysOf(keyless).isEmpty());
+            assertTrue(skipped.contains(keyless), skipped.toString());
+            assertFalse(skipped.contains(solo));
+
+            // повторный запуск снова находит конфликт: пользователь без ключей не забыт
+            assertTrue(schemaAdjuster.backfillLoginKeys().contains(keyless));
+
+            jdbcTemplate.update("UPDATE users SET username = ? WHERE id = ?", "twin_renamed_" + run, keyless);
+            assertFalse(schemaAdjuster.backfillLoginKeys().contains(keyless));
+            assertEquals(2, keysOf(keyless).size());
+            assertEquals(keyless, ((UserPrincipal) userDetailsService.loadUserByUsername("TWIN_RENAMED_" + run)).getId());
+        } finally {
+            jdbcTemplate.update("DELETE FROM users WHERE id IN (?, ?, ?)", solo, upper, lower);
+        }
+    }
+
+    private UUID legacyUser(String username, String email) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password_hash) VALUES (?, ?, ?, 'x')", id, username, email);
+        return id;
+    }
+
+    private List<String> keysOf(UUID userId) {
+        return jdbcTemplate.queryForList("SELECT login_key FROM user_login_keys WHERE user_id = ?", String.class, userId);
+    }
+}
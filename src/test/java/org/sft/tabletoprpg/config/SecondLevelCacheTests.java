@@ -0,0 +1,140 @@
+package org.sft.tabletoprpg.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.Role;
+import org.sft.tabletoprpg.repo.UserRepository;
+import org.sft.tabletoprpg.service.CampaignService;
+import org.sft.tabletoprpg.service.CharacterService;
+import org.sft.tabletoprpg.service.InventoryService;
+import org.sft.tabletoprpg.service.ItemService;
+import org.sft.tabletoprpg.service.UserService;
+import org.sft.tabletoprpg.service.dto.campaign.CampaignUpdateRequest;
+import org.sft.tabletoprpg.service.dto.item.ItemCreateRequest;
+import org.sft.tabletoprpg.service.dto.item.ItemUpdateRequest;
+import org.sft.tabletoprpg.service.exception.NotFoundException;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Кэш второго уровня: предметы, пользователи с ролями и кампании по id читаются без запросов,
+ * правки через сервисы видны сразу, native-изменения инвентаря не сбрасывают чужие регионы.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SecondLevelCacheTests {
+
+    private static final int READS = 20;
+
+    @Autowired TestFixtures fixtures;
+    @Autowired UserService userService;
+    @Autowired UserRepository userRepository;
+    @Autowired CampaignService campaignService;
+    @Autowired CharacterService characterService;
+    @Autowired InventoryService inventoryService;
+    @Autowired ItemService itemService;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired MeterRegistry meters;
+
+    private Statistics stats;
+    private String run;
+    private UUID adminId;
+
+    @BeforeEach
+    void setUp() {
+        stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        run = TestFixtures.run();
+        adminId = fixtures.admin("cad_" + run);
+    }
+
+    @Test
+    void repeatedReadsByIdTakeNoStatements() {
+        UUID itemId = itemService.createItem(new ItemCreateRequest("Фляга " + run, "кожаная", new BigDecimal("0.50"), 3), adminId).id();
+        UUID campaignId = fixtures.campaign(adminId, "Застава " + run, "У брода");
+        itemService.getItem(itemId);
+        campaignService.findCampaignById(campaignId);
+        userService.findUserById(adminId);
+
+        stats.clear();
+        for (int i = 0; i < READS; i++) {
+            itemService.getItem(itemId);
+            campaignService.findCampaignById(campaignId);
+            assertTrue(userService.findUserById(adminId).roles().contains(Role.ADMIN));
+        }
+        assertEquals(0, stats.getPrepareStatementCount());
+        assertEquals(READS, stats.getDomainDataRegionStatistics("items").getHitCount());
+        assertEquals(READS, stats.getDomainDataRegionStatistics("campaigns").getHitCount());
+        assertEquals(READS, stats.getDomainDataRegionStatistics("users").getHitCount());
+        assertEquals(READS, stats.getDomainDataRegionStatistics("user-roles").getHitCount());
+
+        // те же попадания видны в метриках по регионам
+        assertTrue(meters.get("cache.gets").tag("cache", "items").tag("result", "hit").functionCounter().count() >= READS);
+    }
+
+    @Test
+    void updatesThroughServicesAreVisibleImmediately() {
+        UUID itemId = itemService.createItem(new ItemCreateRequest("Кирка " + run, null, new BigDecimal("3.00"), 12), adminId).id();
+        assertEquals(12, itemService.getItem(itemId).price());
+        itemService.updateItem(itemId, new ItemUpdateRequest("Кирка рудокопа " + run, null, new BigDecimal("3.50"), 15), adminId);
+        var item = itemService.getItem(itemId);
+        assertEquals("Кирка рудокопа " + run, item.name());
+        assertEquals(15, item.price());
+        assertEquals(0, new BigDecimal("3.50").compareTo(item.weight()));
+        itemService.deleteItem(itemId, adminId);
+        assertThrows(NotFoundException.class, () -> itemService.getItem(itemId));
+
+        UUID gmId = fixtures.user("cgm_" + run);
+        UUID campaignId = fixtures.campaign(gmId, "Башня " + run);
+        assertNull(campaignService.findCampaignById(campaignId).description());
+        campaignService.updateCampaign(campaignId, gmId, new CampaignUpdateRequest("Чёрная башня " + run, "Шпиль в тумане"));
+        assertEquals("Шпиль в тумане", campaignService.findCampaignById(campaignId).description());
+        campaignService.deleteCampaign(campaignId, gmId);
+        assertThrows(NotFoundException.class, () -> campaignService.findCampaignById(campaignId));
+
+        // роли — отдельный регион коллекции: смена ролей через сервис видна сразу, в обе стороны
+        assertFalse(userService.findUserById(gmId).roles().contains(Role.ADMIN));
+        userService.updateRoles(gmId, Set.of(Role.PLAYER, Role.ADMIN));
+        assertTrue(userService.findUserById(gmId).roles().contains(Role.ADMIN));
+        assertTrue(userRepository.findById(gmId).orElseThrow().getRoles().contains(Role.ADMIN));
+        userService.updateRoles(gmId, Set.of(Role.GAME_MASTER));
+        assertEquals(Set.of(Role.GAME_MASTER), userService.findUserById(gmId).roles());
+        userService.updatePasswordHash(gmId, "$2a$04$changed");
+        assertEquals("$2a$04$changed", userRepository.findById(gmId).orElseThrow().getPasswordHash());
+        userService.deleteUser(gmId);
+        assertThrows(NotFoundException.class, () -> userService.findUserById(gmId));
+    }
+
+    @Test
+    void nativeInventoryChangesKeepOtherRegionsCached() {
+        var party = fixtures.party("c", 1);
+        UUID gmId = party.gmId();
+        UUID playerId = party.playerIds().get(0);
+        UUID campaignId = party.campaignId();
+        UUID hero = party.characterIds().get(0);
+        UUID itemId = itemService.createItem(new ItemCreateRequest("Стрелы " + run, null, new BigDecimal("0.10"), 1), adminId).id();
+        userService.findUserById(playerId);
+        campaignService.findCampaignById(campaignId);
+
+        // UPDATE/INSERT character_inventory, characters, item_stats — native-запросы с указанными таблицами
+        inventoryService.giveItem(hero, itemId, 20, gmId);
+        inventoryService.consumeItem(hero, itemId, 5, playerId);
+        characterService.patchHp(hero, 7, null, playerId);
+
+        stats.clear();
+        userService.findUserById(playerId);
+        campaignService.findCampaignById(campaignId);
+        assertEquals(0, stats.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,222 @@
+package org.sft.tabletoprpg.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sft.tabletoprpg.service.JournalService;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryCreateRequest;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ключи UUIDv7: формат, строгий рост и уникальность под конкуренцией, выдача всем сущностям.
+ * Массовая вставка записей журнала против UUID.randomUUID() — только с -Dbenchmarks=true (миллион строк,
+ * -Duuid.bench.rows — другое число). В БД при этом замеряется лишь время вставки; расщепления, заполнение
+ * и «горячие» листья первичного ключа считает {@link LeafModel} — модель B-дерева PostgreSQL на той же
+ * последовательности ключей, а не измерение H2 или PostgreSQL.
+ * Отдельная БД: копии таблицы журнала на каждую стратегию.
+ */
+@SpringBootTest(properties =
+    "spring.datasource.url=jdbc:h2:mem:rpg_uuid_${random.uuid};MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class TimeOrderedUuidTests {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeOrderedUuidTests.class);
+
+    private static final int ROWS = Integer.getInteger("uuid.bench.rows", 1_000_000);
+    private static final int BATCH = 5_000;
+
+    // порядок байтов — так uuid сравнивают PostgreSQL и H2 (UUID.compareTo сравнивает со знаком)
+    private static final Comparator<UUID> BYTE_ORDER = Comparator
+        .<UUID, Long>comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+        .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    @Autowired TestFixtures fixtures;
+    @Autowired JournalService journalService;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    void keysAreVersion7StrictlyIncreasingAndUniqueAcrossThreads() throws Exception {
+        long before = System.currentTimeMillis();
+        UUID first = TimeOrderedUuid.next();
+        assertEquals(7, first.version());
+        assertEquals(2, first.variant());
+        assertTrue(first.getMostSignificantBits() >>> 16 >= before);
+        assertTrue(first.getMostSignificantBits() >>> 16 <= System.currentTimeMillis() + 1);
+
+        Set<UUID> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    UUID previous = TimeOrderedUuid.next();
+                    seen.add(previous);
+                    for (int i = 0; i < 50_000; i++) {
+                        UUID id = TimeOrderedUuid.next();
+                        assertTrue(BYTE_ORDER.compare(previous, id) < 0, previous + " !< " + id);
+                        assertTrue(seen.add(id), "duplicate " + id);
+                        previous = id;
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(8 * 50_001, seen.size());
+    }
+
+    @Test
+    void entitiesGetTimeOrderedKeys() {
+        String run = TestFixtures.run();
+        UUID gmId = fixtures.user("ugm_" + run);
+        UUID campaignId = fixtures.campaign(gmId, "Хроника " + run);
+        UUID first = journalService.createJournal(campaignId, gmId,
+            new JournalEntryCreateRequest("session", JournalVisibility.PLAYERS, "Сессия 1", "Начало", null)).id();
+        UUID second = journalService.createJournal(campaignId, gmId,
+            new JournalEntryCreateRequest("session", JournalVisibility.PLAYERS, "Сессия 2", "Продолжение", null)).id();
+
+        for (UUID id : List.of(gmId, campaignId, first, second)) assertEquals(7, id.version(), id.toString());
+        assertTrue(BYTE_ORDER.compare(gmId, campaignId) < 0);
+        assertTrue(BYTE_ORDER.compare(first, second) < 0);
+        // БД упорядочивает так же: порядок по id совпадает с порядком создания
+        assertEquals(List.of(first, second), jdbcTemplate.queryForList(
+            "SELECT id FROM journal_entries WHERE campaign_id = ? ORDER BY id", UUID.class, campaignId));
+    }
+
+    // mvn test -Dbenchmarks=true -Dlogging.level.org.sft.tabletoprpg.domain=DEBUG
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void bulkJournalInsertKeepsToTheRightEdgeOfTheIndex() {
+        String run = TestFixtures.run();
+        UUID authorId = fixtures.user("ubk_" + run);
+        UUID campaignId = fixtures.campaign(authorId, "Архив " + run);
+
+        // прогрев JIT и пула на небольшой таблице, затем по ROWS строк на стратегию в свою копию journal_entries;
+        // время — вставки в H2, листья — из LeafModel
+        bulkInsert("uuid_bench_warmup", ROWS / 20, UUID::randomUUID, authorId, campaignId);
+        BulkRun random = bulkInsert("uuid_bench_v4", ROWS, UUID::randomUUID, authorId, campaignId);
+        BulkRun ordered = bulkInsert("uuid_bench_v7", ROWS, TimeOrderedUuid::next, authorId, campaignId);
+        for (BulkRun r : List.of(random, ordered)) {
+            log.debug("{}: {} journal rows in {} s ({} rows/s); modelled pk leaves: splits {}, leaves {}, avg fill {}%, "
+                    + "leaves touched by the last {} inserts {}",
+                r.table, ROWS, String.format("%.1f", r.seconds), String.format("%.0f", ROWS / r.seconds),
+                r.leaves.splits, r.leaves.count(), String.format("%.0f", r.leaves.fill() * 100),
+                LeafModel.WINDOW, r.leaves.touchedInWindow());
+        }
+
+        assertTrue(ordered.leaves.splits < random.leaves.splits);
+        assertTrue(ordered.leaves.fill() > 0.95);
+        assertTrue(random.leaves.fill() < 0.8);
+        // случайные ключи держат «горячими» почти все листья индекса, упорядоченные — только правый край
+        assertTrue(ordered.leaves.touchedInWindow() * 10 < random.leaves.touchedInWindow());
+    }
+
+    private record BulkRun(String table, double seconds, LeafModel leaves) {}
+
+    // таблица удаляется сразу после замера: БД живёт до конца прогона, а следующей стратегии нужна свободная память
+
+    private BulkRun bulkInsert(String table, int rows, Supplier<UUID> keys, UUID authorId, UUID campaignId) {
+        jdbcTemplate.execute("CREATE TABLE " + table + " AS SELECT * FROM journal_entries WITH NO DATA");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET NOT NULL");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (id)");
+        jdbcTemplate.execute("CREATE INDEX idx_" + table + "_created_at ON " + table + " (campaign_id, created_at)");
+        String sql = "INSERT INTO " + table
+            + " (id, campaign_id, author_id, type, visibility, title, content, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        LeafModel leaves = new LeafModel();
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        long nanos = 0;    // только вставки: модель листьев в замер не входит
+        for (int from = 0; from < rows; from += BATCH) {
+            List<Object[]> batch = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(rows, from + BATCH); i++) {
+                UUID id = keys.get();
+                leaves.insert(id);
+                batch.add(new Object[]{id, campaignId, authorId, "session", JournalVisibility.PLAYERS.name(),
+                    "Запись " + i, "Текст " + i, Timestamp.from(base.plusMillis(i))});
+            }
+            long started = System.nanoTime();
+            jdbcTemplate.batchUpdate(sql, batch);
+            nanos += System.nanoTime() - started;
+        }
+        assertEquals(rows, jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Integer.class));
+        jdbcTemplate.execute("DROP TABLE " + table);
+        return new BulkRun(table, nanos / 1e9, leaves);
+    }
+
+    /**
+     * Листья B-дерева первичного ключа uuid по образцу PostgreSQL: страница 8 КБ вмещает ~290 ключей.
+     * Переполненный лист делится пополам; вставка правее всех ключей открывает новый лист, оставляя старый полным.
+     * H2 расщепления страниц наружу не отдаёт, поэтому считаем их на той же последовательности ключей.
+     */
+    static final class LeafModel {
+        static final int KEYS_PER_LEAF = 290;
+        static final int WINDOW = ROWS / 100;   // окно — сотая часть вставок: на миллионе строк 10 000
+
+        private final TreeMap<UUID, List<UUID>> leaves = new TreeMap<>(BYTE_ORDER);
+        private final Deque<UUID> recent = new ArrayDeque<>();   // нижняя граница листа для последних WINDOW вставок
+        private int keys;
+        int splits;
+
+        LeafModel() {
+            leaves.put(new UUID(0, 0), new ArrayList<>());
+        }
+
+        void insert(UUID key) {
+            Map.Entry<UUID, List<UUID>> leaf = leaves.floorEntry(key);
+            List<UUID> list = leaf.getValue();
+            int at = -Collections.binarySearch(list, key, BYTE_ORDER) - 1;
+            list.add(at, key);
+            keys++;
+            UUID lowBound = leaf.getKey();
+            if (list.size() > KEYS_PER_LEAF) {
+                splits++;
+                boolean rightmost = at == list.size() - 1 && leaves.higherKey(leaf.getKey()) == null;
+                int cut = rightmost ? list.size() - 1 : list.size() / 2;
+                List<UUID> right = new ArrayList<>(list.subList(cut, list.size()));
+                list.subList(cut, list.size()).clear();
+                leaves.put(right.get(0), right);
+                if (at >= cut) lowBound = right.get(0);
+            }
+            if (recent.size() == WINDOW) recent.removeFirst();
+            recent.addLast(lowBound);
+        }
+
+        int count() {
+            return leaves.size();
+        }
+
+        double fill() {
+            return (double) keys / ((long) leaves.size() * KEYS_PER_LEAF);
+        }
+
+        int touchedInWindow() {
+            return new HashSet<>(recent).size();
+        }
+    }
+}
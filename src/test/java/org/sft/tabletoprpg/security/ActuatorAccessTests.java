@@ -0,0 +1,52 @@
+package org.sft.tabletoprpg.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Actuator: health открыт всем, метрики — только администратору.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ActuatorAccessTests {
+
+    @Autowired TestFixtures fixtures;
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper json;
+
+    @Test
+    void metricsNeedAnAdminTokenHealthIsPublic() throws Exception {
+        String run = TestFixtures.run();
+        fixtures.admin("mad_" + run);
+        fixtures.user("mpl_" + run);
+
+        mvc.perform(get("/actuator/health")).andExpect(status().isOk());
+        mvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/actuator/metrics/cache.gets")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/actuator/metrics").header("Authorization", "Bearer " + login("mpl_" + run)))
+            .andExpect(status().isForbidden());
+        mvc.perform(get("/actuator/metrics").header("Authorization", "Bearer " + login("mad_" + run)))
+            .andExpect(status().isOk());
+    }
+
+    private String login(String name) throws Exception {
+        byte[] body = json.writeValueAsBytes(Map.of("usernameOrEmail", name, "password", TestFixtures.PASSWORD));
+        String response = mvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON).content(body))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return json.readTree(response).get("accessToken").asText();
+    }
+}
@@ -0,0 +1,109 @@
+package org.sft.tabletoprpg.security;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.Role;
+import org.sft.tabletoprpg.repo.UserRepository;
+import org.sft.tabletoprpg.service.UserService;
+import org.sft.tabletoprpg.support.SqlCountingConfig;
+import org.sft.tabletoprpg.support.SqlStatementCounter;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Режим "только по клеймам": фильтр не читает пользователя из БД, а смена ролей, пароля
+ * и удаление пользователя сразу отзывают ранее выданные access-токены.
+ * Кэш второго уровня перед каждым запросом сбрасывается — чтение пользователя стало бы запросом в БД.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(SqlCountingConfig.class)
+class ClaimsOnlyAuthenticationTests {
+
+    @Autowired TestFixtures fixtures;
+    @Autowired JwtService jwtService;
+    @Autowired JwtProperties jwtProperties;
+    @Autowired SecurityVersionRegistry securityVersions;
+    @Autowired UserRepository userRepository;
+    @Autowired UserService userService;
+    @Autowired PasswordHasher passwordHasher;
+    @Autowired EntityManagerFactory emf;
+    @Autowired TransactionTemplate tx;
+
+    JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        var claimsOnly = new JwtProperties(jwtProperties.secret(), jwtProperties.accessTtl(), jwtProperties.refreshTtl(),
+            true, jwtProperties.verifiedCacheSize(), jwtProperties.refreshStore());
+        filter = new JwtAuthenticationFilter(jwtService, userRepository, claimsOnly, securityVersions);
+    }
+
+    @Test
+    void roleAndPasswordChangesRejectEarlierTokens() throws Exception {
+        UUID userId = fixtures.user("co_" + TestFixtures.run());
+        String first = accessToken(userId);
+        assertNotNull(authenticate(first));
+
+        userService.updateRoles(userId, Set.of(Role.PLAYER, Role.GAME_MASTER));
+        assertNull(authenticate(first));
+        String second = accessToken(userId);
+        Authentication auth = authenticate(second);
+        assertNotNull(auth);
+        assertTrue(auth.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList().contains("ROLE_GAME_MASTER"));
+
+        userService.updatePasswordHash(userId, passwordHasher.encode("changed"));
+        assertNull(authenticate(second));
+        assertNotNull(authenticate(accessToken(userId)));
+    }
+
+    @Test
+    void deletedUserTokensAreRejected() throws Exception {
+        UUID userId = fixtures.user("cd_" + TestFixtures.run());
+        String token = accessToken(userId);
+        assertNotNull(authenticate(token));
+
+        userService.deleteUser(userId);
+        assertNull(authenticate(token));
+    }
+
+    /** Аутентификация, которую фильтр установил для запроса с токеном; ни одного оператора к БД. */
+    private Authentication authenticate(String token) throws Exception {
+        emf.getCache().evictAll();
+        var request = new MockHttpServletRequest("GET", "/api/campaigns");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        var seen = new AtomicReference<Authentication>();
+        SqlStatementCounter.start();
+        SqlStatementCounter.Usage usage;
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> seen.set(SecurityContextHolder.getContext().getAuthentication()));
+        } finally {
+            usage = SqlStatementCounter.stop();
+            SecurityContextHolder.clearContext();
+        }
+        assertEquals(0, usage.statements(), "claims-only filter must not query users");
+        return seen.get();
+    }
+
+    private String accessToken(UUID userId) {
+        return jwtService.generateAccessToken(tx.execute(s -> UserPrincipal.from(userRepository.findById(userId).orElseThrow())));
+    }
+}
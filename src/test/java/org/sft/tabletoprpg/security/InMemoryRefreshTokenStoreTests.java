@@ -0,0 +1,59 @@
+package org.sft.tabletoprpg.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Отзыв refresh-токенов пользователя идёт по индексу его цепочек и не задевает чужие.
+ */
+class InMemoryRefreshTokenStoreTests {
+
+    private final InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore();
+    private final Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Test
+    void revokeUserDropsEveryFamilyOfThatUserOnly() {
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        UUID aliceLaptop = UUID.randomUUID();
+        UUID alicePhone = UUID.randomUUID();
+        save("a1", aliceLaptop, alice, now.plusSeconds(60));
+        save("a2", aliceLaptop, alice, now.plusSeconds(120));
+        save("a3", alicePhone, alice, now.plusSeconds(60));
+        save("b1", UUID.randomUUID(), bob, now.plusSeconds(60));
+
+        store.revokeUser(alice);
+
+        assertTrue(store.find("a1").isEmpty());
+        assertTrue(store.find("a2").isEmpty());
+        assertTrue(store.find("a3").isEmpty());
+        assertTrue(store.find("b1").isPresent());
+        // снятые записи ушли и из индекса сроков
+        assertEquals(1, store.purgeExpired(now.plusSeconds(3600)));
+    }
+
+    @Test
+    void purgedAndRevokedFamiliesDoNotResurfaceForTheUser() {
+        UUID alice = UUID.randomUUID();
+        UUID expired = UUID.randomUUID();
+        save("old", expired, alice, now);
+        assertEquals(1, store.purgeExpired(now));
+
+        UUID fresh = UUID.randomUUID();
+        save("new", fresh, alice, now.plusSeconds(60));
+        store.revokeFamily(fresh);
+        save("next", UUID.randomUUID(), alice, now.plusSeconds(60));
+
+        store.revokeUser(alice);
+        assertTrue(store.find("next").isEmpty());
+        assertEquals(0, store.purgeExpired(now.plusSeconds(3600)));
+    }
+
+    private void save(String tokenId, UUID familyId, UUID userId, Instant expiresAt) {
+        store.save(new RefreshTokenRecord(tokenId, familyId, userId, 0, expiresAt, false));
+    }
+}
@@ -0,0 +1,37 @@
+package org.sft.tabletoprpg.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Кэш проверенных токенов отдаёт всем вызовам одну запись — изменить её вызывающий не может.
+ */
+class JwtServiceImplTests {
+
+    private final JwtServiceImpl jwtService = new JwtServiceImpl(
+        new JwtProperties("test-secret-that-is-at-least-32-bytes-long", "900s", "7d", false, 100, "memory"),
+        new SecurityVersionRegistry(Clock.systemUTC()));
+
+    @Test
+    void cachedTokenIsSharedAndImmutable() {
+        UUID userId = UUID.randomUUID();
+        String token = jwtService.generateAccessToken(UserPrincipal.fromClaims(userId, "hero", List.of("ROLE_PLAYER")));
+
+        VerifiedToken first = jwtService.parseAndValidate(token);
+        assertEquals(userId, first.userId());
+        assertEquals("hero", first.subject());
+        assertEquals(List.of("ROLE_PLAYER"), first.roles());
+        assertEquals(0, first.securityVersion());
+        assertNull(first.tokenId());
+
+        assertThrows(UnsupportedOperationException.class, () -> first.roles().add("ROLE_ADMIN"));
+        VerifiedToken second = jwtService.parseAndValidate(token);
+        assertSame(first, second);
+        assertEquals(List.of("ROLE_PLAYER"), second.roles());
+    }
+}
@@ -0,0 +1,118 @@
+package org.sft.tabletoprpg.security;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.service.UserService;
+import org.sft.tabletoprpg.service.dto.user.UserDto;
+import org.sft.tabletoprpg.service.dto.user.UserRegisterRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузка смешанными логинами: логин/почта в разном регистре и с пробелами
+ * плюс поток несуществующих логинов (перебор учёток).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LoginLookupLoadTests {
+
+    private static final int USERS = 20;
+    private static final int THREADS = 8;
+    private static final int LOOKUPS_PER_THREAD = 500;
+
+    @Autowired JpaUserDetailsService userDetailsService;
+    @Autowired UserService userService;
+    @Autowired EntityManagerFactory emf;
+
+    private final List<UserDto> users = new ArrayList<>();
+
+    @BeforeEach
+    void registerUsers() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i < USERS; i++) {
+            users.add(userService.createUser(
+                new UserRegisterRequest("Player" + i + "_" + run, "player" + i + "." + run + "@example.com", "secret-" + i)));
+        }
+    }
+
+    @Test
+    void mixedUsernameAndEmailLogins() throws Exception {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        AtomicInteger unknown = new AtomicInteger();
+
+        long statementsBefore = stats.getPrepareStatementCount();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    var rnd = ThreadLocalRandom.current();
+                    for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+                        UserDto u = users.get(rnd.nextInt(USERS));
+                        switch (rnd.nextInt(4)) {
+                            case 0 -> assertEquals(u.id(), lookup(u.username()));
+                            case 1 -> assertEquals(u.id(), lookup("  " + u.username().toUpperCase(Locale.ROOT)));
+                            case 2 -> assertEquals(u.id(), lookup(u.email().toUpperCase(Locale.ROOT) + " "));
+                            default -> {
+                                assertThrows(UsernameNotFoundException.class,
+                                    () -> userDetailsService.loadUserByUsername("ghost" + rnd.nextInt(50) + "@example.com"));
+                                unknown.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        long statements = stats.getPrepareStatementCount() - statementsBefore;
+        int known = THREADS * LOOKUPS_PER_THREAD - unknown.get();
+
+        // не больше одного запроса на известный логин; 50 разных неизвестных — в БД не больше пары раз каждый
+        assertTrue(statements <= known + 50L * THREADS, "statements: " + statements);
+    }
+
+    @Test
+    void unknownLoginIsServedFromNegativeCache() {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("nobody@example.com"));
+
+        long before = stats.getPrepareStatementCount();
+        for (int i = 0; i < 1000; i++) {
+            assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername(" NoBody@Example.com"));
+        }
+        assertEquals(before, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void registrationClearsCachedMiss() {
+        String name = "late_" + UUID.randomUUID().toString().substring(0, 8);
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername(name));
+
+        UserDto created = userService.createUser(new UserRegisterRequest(name, name + "@example.com", "secret"));
+        assertEquals(created.id(), lookup(name.toUpperCase(Locale.ROOT)));
+    }
+
+    private UUID lookup(String login) {
+        return ((UserPrincipal) userDetailsService.loadUserByUsername(login)).getId();
+    }
+}
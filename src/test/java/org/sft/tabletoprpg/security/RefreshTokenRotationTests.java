@@ -0,0 +1,55 @@
+package org.sft.tabletoprpg.security;
+
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.Role;
+import org.sft.tabletoprpg.repo.UserRepository;
+import org.sft.tabletoprpg.service.UserService;
+import org.sft.tabletoprpg.service.dto.user.UserRegisterRequest;
+import org.sft.tabletoprpg.service.exception.AuthException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ротация refresh-токена берёт роли пользователя из БД, а не из предыдущего токена.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class RefreshTokenRotationTests {
+
+    @Autowired RefreshTokenService refreshTokenService;
+    @Autowired JwtService jwtService;
+    @Autowired UserService userService;
+    @Autowired UserRepository userRepository;
+    @Autowired TransactionTemplate tx;
+
+    @Test
+    void rotationPicksUpRoleChangesWithoutNewLogin() {
+        String name = "rot_" + UUID.randomUUID().toString().substring(0, 8);
+        UUID userId = userService.createUser(new UserRegisterRequest(name, name + "@example.com", "secret")).id();
+        String refresh = refreshTokenService.issue(principal(userId));
+
+        tx.executeWithoutResult(s -> userRepository.findById(userId).orElseThrow().getRoles().add(Role.ADMIN));
+        var rotated = refreshTokenService.rotate(refresh);
+        assertTrue(roles(rotated.accessToken()).contains("ROLE_ADMIN"));
+
+        tx.executeWithoutResult(s -> userRepository.findById(userId).orElseThrow().getRoles().remove(Role.ADMIN));
+        assertFalse(roles(refreshTokenService.rotate(rotated.refreshToken()).accessToken()).contains("ROLE_ADMIN"));
+        // старый токен уже обменян
+        assertThrows(AuthException.class, () -> refreshTokenService.rotate(refresh));
+    }
+
+    private UserPrincipal principal(UUID userId) {
+        return tx.execute(s -> UserPrincipal.from(userRepository.findById(userId).orElseThrow()));
+    }
+
+    private List<String> roles(String accessToken) {
+        return jwtService.parseAndValidate(accessToken).roles();
+    }
+}
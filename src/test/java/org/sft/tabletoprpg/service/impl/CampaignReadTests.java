@@ -0,0 +1,72 @@
+package org.sft.tabletoprpg.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.service.CampaignService;
+import org.sft.tabletoprpg.service.dto.campaign.CampaignDto;
+import org.sft.tabletoprpg.service.dto.campaign.CampaignMemberDto;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Списки кампаний и участников: один запрос на страницу независимо от числа строк, порядок — из SQL.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CampaignReadTests {
+
+    private static final int CAMPAIGNS = 12;
+    private static final int MEMBERS = 15;
+
+    @Autowired TestFixtures fixtures;
+    @Autowired CampaignService campaignService;
+    @Autowired EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void membershipListsTakeOneStatementRegardlessOfSize() {
+        String run = TestFixtures.run();
+        UUID playerId = fixtures.user("rpl_" + run);
+        UUID gmId = fixtures.user("rgm_" + run);
+
+        for (int i = 0; i < CAMPAIGNS; i++) {
+            UUID otherGm = fixtures.user("rgm" + i + "_" + run);
+            fixtures.join(fixtures.campaign(otherGm, "Хроника " + i + " " + run), playerId, otherGm);
+        }
+        UUID bigCampaign = fixtures.campaign(gmId, "Осада " + run);
+        for (int i = 0; i < MEMBERS; i++) {
+            fixtures.join(bigCampaign, fixtures.user("rm" + (MEMBERS - i) + "_" + run), gmId);
+        }
+        campaignService.listMembers(bigCampaign, gmId); // права GM — в кэше, как у живого пользователя
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        List<CampaignDto> mine = campaignService.findCampaignsByMember(playerId);
+        long campaignStatements = stats.getPrepareStatementCount();
+
+        stats.clear();
+        List<CampaignMemberDto> members = campaignService.listMembers(bigCampaign, gmId);
+        long memberStatements = stats.getPrepareStatementCount();
+
+        assertEquals(CAMPAIGNS, mine.size());
+        assertEquals(1, campaignStatements);
+        assertEquals(MEMBERS + 1, members.size()); // + GM
+        assertEquals(1, memberStatements);
+
+        List<CampaignDto> newestFirst = new ArrayList<>(mine);
+        newestFirst.sort(Comparator.comparing(CampaignDto::createdAt).reversed());
+        assertEquals(newestFirst.stream().map(CampaignDto::createdAt).toList(), mine.stream().map(CampaignDto::createdAt).toList());
+        List<String> names = members.stream().map(CampaignMemberDto::username).toList();
+        assertEquals(names.stream().sorted().toList(), names);
+    }
+}
@@ -0,0 +1,252 @@
+package org.sft.tabletoprpg.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.sft.tabletoprpg.domain.CharacterInventory;
+import org.sft.tabletoprpg.domain.Item;
+import org.sft.tabletoprpg.domain.compositeKeys.CharacterInventoryId;
+import org.sft.tabletoprpg.repo.CharacterInventoryRepository;
+import org.sft.tabletoprpg.repo.CharacterRepository;
+import org.sft.tabletoprpg.repo.ItemRepository;
+import org.sft.tabletoprpg.service.CharacterService;
+import org.sft.tabletoprpg.service.InventoryService;
+import org.sft.tabletoprpg.service.dto.character.HpPatchRequest;
+import org.sft.tabletoprpg.service.exception.BadRequestException;
+import org.sft.tabletoprpg.service.exception.ForbiddenException;
+import org.sft.tabletoprpg.service.exception.NotFoundException;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Параллельные изменения одних и тех же строк: ничего не теряется и не уходит в минус.
+ * Пропускная способность встречных обменов — только с -Dbenchmarks=true.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ConcurrentMutationsTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrentMutationsTests.class);
+
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 100;
+    private static final int TRADERS = 4;
+    private static final int TRADER_STOCK = 10;
+
+    @Autowired TestFixtures fixtures;
+    @Autowired CharacterService characterService;
+    @Autowired InventoryService inventoryService;
+    @Autowired ItemRepository itemRepository;
+    @Autowired CharacterInventoryRepository characterInventoryRepository;
+    @Autowired CharacterRepository characterRepository;
+    @Autowired TransactionTemplate tx;
+
+    private UUID gmId;
+    private UUID playerId;
+    private UUID characterId;
+
+    @BeforeEach
+    void setUpCampaign() {
+        var party = fixtures.party("c", 1);
+        gmId = party.gmId();
+        playerId = party.playerIds().get(0);
+        characterId = party.characterIds().get(0);
+    }
+
+    @Test
+    void concurrentGrantsAreNotLost() throws Exception {
+        UUID itemId = newItem();
+
+        runConcurrently(() -> inventoryService.giveItem(characterId, itemId, 1, gmId));
+
+        assertEquals(THREADS * OPS_PER_THREAD, quantityOf(itemId));
+    }
+
+    @Test
+    void concurrentConsumesNeverOverdraw() throws Exception {
+        UUID itemId = newItem();
+        int stock = THREADS * OPS_PER_THREAD / 2;
+        inventoryService.giveItem(characterId, itemId, stock, gmId);
+
+        var consumed = new AtomicInteger();
+        var refused = new AtomicInteger();
+        runConcurrently(() -> {
+            try {
+                inventoryService.consumeItem(characterId, itemId, 1, playerId);
+                consumed.incrementAndGet();
+            } catch (NotFoundException | BadRequestException e) {
+                refused.incrementAndGet();
+            }
+        });
+
+        assertEquals(stock, consumed.get());
+        assertEquals(THREADS * OPS_PER_THREAD - stock, refused.get());
+        assertFalse(characterInventoryRepository.existsById(new CharacterInventoryId(characterId, itemId)));
+    }
+
+    @Test
+    void concurrentCrossTradesConserveQuantities() throws Exception {
+        crossTrade();
+    }
+
+    // mvn test -Dbenchmarks=true -Dlogging.level.org.sft.tabletoprpg.service.impl=DEBUG
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkCrossTrades() throws Exception {
+        crossTrade(); // прогрев
+        TradeRun run = crossTrade();
+        log.debug("transfers/sec between {} characters: {} (done {}, refused for lack of stock {})",
+            TRADERS, String.format("%.0f", THREADS * OPS_PER_THREAD / run.seconds()), run.transferred(), run.refused());
+    }
+
+    private record TradeRun(int transferred, int refused, double seconds) {}
+
+    // встречные обмены в случайных парах; малый запас — строки то пустеют и удаляются, то создаются снова.
+    // Время — только обменов; сохранность количеств проверяется при каждом прогоне
+    private TradeRun crossTrade() throws Exception {
+        List<UUID> traders = newParty(TRADERS);
+        UUID itemId = newItem();
+        for (UUID trader : traders) inventoryService.giveItem(trader, itemId, TRADER_STOCK, gmId);
+
+        var transferred = new AtomicInteger();
+        var refused = new AtomicInteger();
+        long started = System.nanoTime();
+        runConcurrently(() -> {
+            var random = ThreadLocalRandom.current();
+            int from = random.nextInt(TRADERS);
+            int to = (from + 1 + random.nextInt(TRADERS - 1)) % TRADERS;
+            try {
+                inventoryService.transferItem(traders.get(from), traders.get(to), itemId, 1 + random.nextInt(3), gmId);
+                transferred.incrementAndGet();
+            } catch (NotFoundException | BadRequestException e) {
+                refused.incrementAndGet();
+            }
+        });
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        int total = 0;
+        for (UUID trader : traders) {
+            int quantity = characterInventoryRepository.findById(new CharacterInventoryId(trader, itemId))
+                .map(CharacterInventory::getQuantity).orElse(0);
+            assertTrue(quantity >= 0);
+            total += quantity;
+        }
+        assertEquals(TRADERS * TRADER_STOCK, total);
+        assertEquals(THREADS * OPS_PER_THREAD, transferred.get() + refused.get());
+        assertTrue(transferred.get() > 0);
+        return new TradeRun(transferred.get(), refused.get(), seconds);
+    }
+
+    @Test
+    void transferIsAllOrNothing() {
+        List<UUID> pair = newParty(2);
+        UUID itemId = newItem();
+        inventoryService.giveItem(pair.get(0), itemId, 2, gmId);
+
+        assertThrows(BadRequestException.class, () -> inventoryService.transferItem(pair.get(0), pair.get(1), itemId, 3, gmId));
+        assertFalse(characterInventoryRepository.existsById(new CharacterInventoryId(pair.get(1), itemId)));
+        assertThrows(NotFoundException.class, () -> inventoryService.transferItem(pair.get(1), pair.get(0), itemId, 1, gmId));
+        assertEquals(2, characterInventoryRepository.findById(new CharacterInventoryId(pair.get(0), itemId)).orElseThrow().getQuantity());
+
+        // чужой кампании персонаж не передаёт; игрок не отдаёт чужое
+        assertThrows(BadRequestException.class, () -> inventoryService.transferItem(pair.get(0), characterId, itemId, 1, gmId));
+        assertThrows(ForbiddenException.class, () -> inventoryService.transferItem(pair.get(0), pair.get(1), itemId, 1, playerId));
+
+        inventoryService.transferItem(pair.get(0), pair.get(1), itemId, 2, gmId);
+        assertFalse(characterInventoryRepository.existsById(new CharacterInventoryId(pair.get(0), itemId)));
+        assertEquals(2, characterInventoryRepository.findById(new CharacterInventoryId(pair.get(1), itemId)).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void concurrentHpDeltasAreNotLost() throws Exception {
+        UUID target = newCharacter(999, 999);
+
+        runConcurrently(() -> characterService.patchHp(target, null, new HpPatchRequest(null, -1), gmId));
+        assertEquals(999 - THREADS * OPS_PER_THREAD, characterService.getById(target).hp());
+
+        // склейка: окно 5 мс, все удары одного всплеска — одним UPDATE
+        var coalescer = new HpDeltaCoalescer(Duration.ofMillis(5), characterRepository, tx);
+        runConcurrently(() -> {
+            try {
+                coalescer.submit(target, 1).get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        coalescer.shutdown();
+        assertEquals(999, characterService.getById(target).hp());
+    }
+
+    @Test
+    void hpDeltaIsClampedToBounds() {
+        UUID target = newCharacter(5, 10);
+        assertEquals(10, characterService.patchHp(target, null, new HpPatchRequest(null, 100), playerId).hp());
+        assertEquals(0, characterService.patchHp(target, null, new HpPatchRequest(null, -100), gmId).hp());
+        assertThrows(BadRequestException.class,
+            () -> characterService.patchHp(target, null, new HpPatchRequest(11, null), gmId));
+    }
+
+    /* ---------- helpers ---------- */
+
+    // кампания того же GM с n персонажами разных игроков
+    private List<UUID> newParty(int n) {
+        return fixtures.party(gmId, "t", n).characterIds();
+    }
+
+    // у игрока в кампании уже есть персонаж — новый создаётся в отдельной кампании того же GM
+    private UUID newCharacter(int hp, int maxHp) {
+        String run = TestFixtures.run();
+        UUID campaignId = fixtures.campaign(gmId, "Бой " + run);
+        fixtures.join(campaignId, playerId, gmId);
+        return fixtures.character(campaignId, playerId, "Цель " + run, hp, maxHp);
+    }
+
+
+    private UUID newItem() {
+        Item item = new Item();
+        item.setName("Зелье " + UUID.randomUUID());
+        item.setWeight(BigDecimal.ONE);
+        item.setPrice(1);
+        return itemRepository.save(item).getId();
+    }
+
+    private int quantityOf(UUID itemId) {
+        return characterInventoryRepository.findById(new CharacterInventoryId(characterId, itemId))
+            .orElseThrow().getQuantity();
+    }
+
+    private static void runConcurrently(Runnable op) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit((Callable<Void>) () -> {
+                    for (int i = 0; i < OPS_PER_THREAD; i++) op.run();
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
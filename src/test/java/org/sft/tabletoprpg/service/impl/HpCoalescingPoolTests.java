@@ -0,0 +1,95 @@
+package org.sft.tabletoprpg.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.repo.CharacterRepository;
+import org.sft.tabletoprpg.service.CharacterService;
+import org.sft.tabletoprpg.service.dto.character.HpPatchRequest;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Склейка HP-дельт через patchHp при пуле соединений меньше числа одновременных запросов:
+ * ждущие пачку не держат соединения, flusher их получает, ни одна дельта не теряется и не применяется дважды.
+ */
+@SpringBootTest(properties = {
+    "character.hp-coalesce-window=PT0.02S",
+    "spring.datasource.hikari.maximum-pool-size=3",
+    "spring.datasource.hikari.connection-timeout=5000"
+})
+@ActiveProfiles("test")
+class HpCoalescingPoolTests {
+
+    private static final int CALLERS = 24;   // в 8 раз больше соединений в пуле
+    private static final int HITS_PER_CALLER = 10;
+
+    @Autowired TestFixtures fixtures;
+    @Autowired CharacterService characterService;
+    @Autowired CharacterRepository characterRepository;
+    @Autowired TransactionTemplate tx;
+
+    @Test
+    void concurrentPatchHpCallsOutnumberingThePoolAllComplete() throws Exception {
+        String run = TestFixtures.run();
+        UUID gmId = fixtures.user("hgm_" + run);
+        UUID playerId = fixtures.user("hpl_" + run);
+        UUID campaignId = fixtures.campaign(gmId, "Осада " + run);
+        fixtures.join(campaignId, playerId, gmId);
+        UUID target = fixtures.character(campaignId, playerId, "Страж " + run, 999, 999);
+
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < CALLERS; c++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < HITS_PER_CALLER; i++) {
+                        characterService.patchHp(target, null, new HpPatchRequest(null, -1), gmId);
+                    }
+                    return null;
+                }));
+            }
+            // прежде ждущие занимали все 3 соединения, и через 10 с вызовы падали, а дельты применялись позже
+            for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(999 - CALLERS * HITS_PER_CALLER, characterService.getById(target).hp());
+
+        // абсолютное значение — своей короткой транзакцией
+        assertEquals(500, characterService.patchHp(target, null, new HpPatchRequest(500, null), playerId).hp());
+    }
+
+    @Test
+    void withdrawnDeltaIsNeverApplied() throws Exception {
+        String run = TestFixtures.run();
+        UUID gmId = fixtures.user("wgm_" + run);
+        UUID target = fixtures.character(fixtures.campaign(gmId, "Засада " + run), gmId, "Дозорный " + run, 50, 50);
+
+        var coalescer = new HpDeltaCoalescer(Duration.ofMillis(200), characterRepository, tx);
+        try {
+            var withdrawn = coalescer.submit(target, -30);
+            var kept = coalescer.submit(target, -5);
+            assertTrue(coalescer.withdraw(target, -30, withdrawn));
+            assertTrue(withdrawn.isCancelled());
+            assertEquals(45, kept.get(5, TimeUnit.SECONDS));
+            // пачка уже применена — забирать нечего
+            assertFalse(coalescer.withdraw(target, -5, kept));
+        } finally {
+            coalescer.shutdown();
+        }
+        assertEquals(45, characterService.getById(target).hp());
+    }
+}
@@ -0,0 +1,251 @@
+package org.sft.tabletoprpg.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.CharacterInventory;
+import org.sft.tabletoprpg.domain.Item;
+import org.sft.tabletoprpg.domain.compositeKeys.CharacterInventoryId;
+import org.sft.tabletoprpg.repo.CharacterInventoryRepository;
+import org.sft.tabletoprpg.repo.ItemRepository;
+import org.sft.tabletoprpg.service.CampaignService;
+import org.sft.tabletoprpg.service.InventoryService;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryBatchOperation;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryOperationResultDto;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryOperationResultDto.Status;
+import org.sft.tabletoprpg.service.exception.ForbiddenException;
+import org.sft.tabletoprpg.service.exception.NotFoundException;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Пакетные изменения инвентаря: итог по каждой операции, права, JDBC-пачки против поштучных вызовов,
+ * вставка новых строк наперегонки с поштучной выдачей, порядок блокировок пакетов и переводов,
+ * права по строке персонажа после исключения игрока из кампании.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class InventoryBatchTests {
+
+    private static final int PARTY_SIZE = 5;
+    private static final int LOOT_PER_CHARACTER = 10;
+
+    @Autowired TestFixtures fixtures;
+    @Autowired CampaignService campaignService;
+    @Autowired InventoryService inventoryService;
+    @Autowired ItemRepository itemRepository;
+    @Autowired CharacterInventoryRepository characterInventoryRepository;
+    @Autowired EntityManagerFactory entityManagerFactory;
+
+    private UUID gmId;
+    private UUID campaignId;
+    private final List<UUID> playerIds = new ArrayList<>();
+    private final List<UUID> characterIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUpParty() {
+        var party = fixtures.party("l", PARTY_SIZE);
+        gmId = party.gmId();
+        campaignId = party.campaignId();
+        playerIds.addAll(party.playerIds());
+        characterIds.addAll(party.characterIds());
+    }
+
+    @Test
+    void reportsEveryOperationAndAppliesOnlyAllowedOnes() {
+        UUID sword = newItem();
+        UUID potion = newItem();
+        UUID hero = characterIds.get(0);
+        UUID other = characterIds.get(1);
+        inventoryService.giveItem(hero, potion, 2, gmId);
+
+        var gmBatch = inventoryService.applyBatch(List.of(
+            new InventoryBatchOperation(hero, sword, 1),
+            new InventoryBatchOperation(hero, sword, 2),           // та же строка в одном пакете
+            new InventoryBatchOperation(other, UUID.randomUUID(), 1),
+            new InventoryBatchOperation(UUID.randomUUID(), sword, 1),
+            new InventoryBatchOperation(hero, potion, -1),         // расходует только владелец
+            new InventoryBatchOperation(hero, potion, 0)
+        ), gmId);
+        assertEquals(List.of(Status.APPLIED, Status.APPLIED, Status.NOT_FOUND, Status.NOT_FOUND, Status.FORBIDDEN, Status.BAD_REQUEST),
+            gmBatch.results().stream().map(InventoryOperationResultDto::status).toList());
+        assertEquals(3, gmBatch.results().get(1).quantity());
+        assertEquals(2, gmBatch.applied());
+        assertEquals(4, gmBatch.rejected());
+
+        var playerBatch = inventoryService.applyBatch(List.of(
+            new InventoryBatchOperation(hero, potion, -2),         // строка удаляется
+            new InventoryBatchOperation(hero, sword, -5),
+            new InventoryBatchOperation(hero, potion, -1),
+            new InventoryBatchOperation(hero, sword, -3)
+        ), playerIds.get(0));
+        assertEquals(List.of(Status.APPLIED, Status.BAD_REQUEST, Status.NOT_FOUND, Status.APPLIED),
+            playerBatch.results().stream().map(InventoryOperationResultDto::status).toList());
+        assertFalse(characterInventoryRepository.existsById(new CharacterInventoryId(hero, potion)));
+        assertFalse(characterInventoryRepository.existsById(new CharacterInventoryId(hero, sword)));
+    }
+
+    @Test
+    void lootForThePartyGoesInJdbcBatches() {
+        List<UUID> loot = new ArrayList<>();
+        for (int i = 0; i < LOOT_PER_CHARACTER; i++) loot.add(newItem());
+        List<InventoryBatchOperation> ops = new ArrayList<>();
+        for (UUID characterId : characterIds) {
+            for (UUID itemId : loot) ops.add(new InventoryBatchOperation(characterId, itemId, 1));
+        }
+
+        // прогрев обоих путей
+        inventoryService.applyBatch(ops, gmId);
+        for (InventoryBatchOperation op : ops) inventoryService.giveItem(op.characterId(), op.itemId(), 1, gmId);
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        int rounds = 10;
+        stats.clear();
+        for (int r = 0; r < rounds; r++) inventoryService.applyBatch(ops, gmId);
+        long batchStatements = stats.getPrepareStatementCount() / rounds;
+
+        stats.clear();
+        for (int r = 0; r < rounds; r++) {
+            for (InventoryBatchOperation op : ops) inventoryService.giveItem(op.characterId(), op.itemId(), 1, gmId);
+        }
+        long singleStatements = stats.getPrepareStatementCount() / rounds;
+
+        int expected = 2 + 2 * rounds;
+        for (UUID characterId : characterIds) {
+            for (UUID itemId : loot) {
+                assertEquals(expected, characterInventoryRepository.findById(new CharacterInventoryId(characterId, itemId))
+                    .orElseThrow().getQuantity());
+            }
+        }
+        // права, предметы, блокировка персонажей, строки инвентаря, одна JDBC-пачка и по UPDATE агрегатов на персонажа;
+        // счётчики предметов — ещё одна пачка через JdbcTemplate, в статистику Hibernate не попадает
+        assertTrue(batchStatements <= 4 + PARTY_SIZE, "statements per batch: " + batchStatements);
+        assertTrue(batchStatements * 10 < singleStatements, "batch " + batchStatements + " vs single calls " + singleStatements);
+    }
+
+    @Test
+    void batchGrantsOfNewRowsRaceWithSingleGrants() throws Exception {
+        List<UUID> loot = List.of(newItem(), newItem(), newItem());
+        List<InventoryBatchOperation> ops = new ArrayList<>();
+        for (UUID characterId : characterIds) {
+            for (UUID itemId : loot) ops.add(new InventoryBatchOperation(characterId, itemId, 1));
+        }
+        int rounds = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // строк нет ни у кого: пакет и поштучная выдача вставляют одни и те же строки
+            Future<?> batches = pool.submit(() -> {
+                for (int r = 0; r < rounds; r++) inventoryService.applyBatch(ops, gmId);
+            });
+            Future<?> singles = pool.submit(() -> {
+                for (int r = 0; r < rounds; r++) {
+                    for (InventoryBatchOperation op : ops) inventoryService.giveItem(op.characterId(), op.itemId(), 1, gmId);
+                }
+            });
+            batches.get();
+            singles.get();
+        } finally {
+            pool.shutdown();
+        }
+        for (UUID characterId : characterIds) {
+            for (UUID itemId : loot) {
+                assertEquals(2 * rounds, characterInventoryRepository.findById(new CharacterInventoryId(characterId, itemId))
+                    .orElseThrow().getQuantity());
+            }
+        }
+    }
+
+    @Test
+    void batchesAndTransfersOfTheSameCharactersDoNotDeadlock() throws Exception {
+        UUID a = characterIds.get(0);
+        UUID b = characterIds.get(1);
+        if (InventoryServiceImpl.lockOrder(a, b) > 0) {
+            UUID t = a;
+            a = b;
+            b = t;
+        }
+        UUID x = newItem();
+        UUID y = newItem();
+        int stock = 1_000;
+        inventoryService.giveItem(a, y, stock, gmId);
+        inventoryService.giveItem(b, x, stock, gmId);
+
+        // у A строки (A,x) то нет, то есть. Пакет блокирует (A,y) и (B,x) и идёт к агрегатам A;
+        // обмен B->A вставляет (A,x), сдвигает агрегаты A и идёт к (B,x) — при разном порядке блокировок это цикл
+        List<InventoryBatchOperation> ops = List.of(new InventoryBatchOperation(a, y, 1), new InventoryBatchOperation(b, x, 1));
+        UUID first = a;
+        UUID second = b;
+        int threads = 3;
+        int rounds = 100;
+        ExecutorService pool = Executors.newFixedThreadPool(2 * threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int r = 0; r < rounds; r++) inventoryService.applyBatch(ops, gmId);
+                }));
+                futures.add(pool.submit(() -> {
+                    for (int r = 0; r < rounds; r++) {
+                        inventoryService.transferItem(second, first, x, 1, gmId);
+                        inventoryService.transferItem(first, second, x, 1, gmId);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(stock + threads * rounds, quantity(b, x) + quantity(a, x));
+        assertEquals(stock + threads * rounds, quantity(a, y));
+    }
+
+    @Test
+    void accessIsReadFromTheCharacterRowNotFromTheResolverCache() {
+        UUID sword = newItem();
+        UUID hero = characterIds.get(0);
+        UUID player = playerIds.get(0);
+        inventoryService.giveItem(hero, sword, 2, gmId);
+        inventoryService.consumeItem(hero, sword, 1, player);
+        assertEquals(1, inventoryService.getInventoryByCharacter(hero, player).size());
+
+        // исключённый игрок теряет персонажа вместе с членством: проверка по строке персонажа сразу это видит
+        campaignService.removeMember(campaignId, player, gmId);
+        assertThrows(NotFoundException.class, () -> inventoryService.consumeItem(hero, sword, 1, player));
+        assertThrows(NotFoundException.class, () -> inventoryService.getInventoryByCharacter(hero, gmId));
+        assertEquals(Status.NOT_FOUND, inventoryService.applyBatch(
+            List.of(new InventoryBatchOperation(hero, sword, 1)), gmId).results().get(0).status());
+
+        // чужой GM не получает доступа ни к одному персонажу кампании
+        String run = TestFixtures.run();
+        UUID otherGm = fixtures.user("ogm_" + run);
+        fixtures.campaign(otherGm, "Чужая " + run);
+        assertThrows(ForbiddenException.class, () -> inventoryService.giveItem(characterIds.get(1), sword, 1, otherGm));
+    }
+
+    private int quantity(UUID characterId, UUID itemId) {
+        return characterInventoryRepository.findById(new CharacterInventoryId(characterId, itemId))
+            .map(CharacterInventory::getQuantity).orElse(0);
+    }
+
+    private UUID newItem() {
+        Item item = new Item();
+        item.setName("Трофей " + UUID.randomUUID());
+        item.setWeight(BigDecimal.ONE);
+        item.setPrice(1);
+        return itemRepository.save(item).getId();
+    }
+}
@@ -0,0 +1,208 @@
+package org.sft.tabletoprpg.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.Item;
+import org.sft.tabletoprpg.repo.ItemRepository;
+import org.sft.tabletoprpg.service.CharacterService;
+import org.sft.tabletoprpg.service.InventoryService;
+import org.sft.tabletoprpg.service.ItemService;
+import org.sft.tabletoprpg.service.dto.character.CharacterDto;
+import org.sft.tabletoprpg.service.dto.inventory.CharacterInventoryEntryDto;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryBatchOperation;
+import org.sft.tabletoprpg.service.dto.item.ItemUpdateRequest;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Агрегаты инвентаря персонажа (вес, стоимость, число предметов): ведутся всеми операциями,
+ * не расходятся под параллельной нагрузкой, сверка находит и исправляет расхождения.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class InventoryTotalsTests {
+
+    @Autowired TestFixtures fixtures;
+    @Autowired CharacterService characterService;
+    @Autowired InventoryService inventoryService;
+    @Autowired ItemService itemService;
+    @Autowired ItemRepository itemRepository;
+    @Autowired InventoryTotalsVerifier verifier;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private UUID gmId;
+    private UUID adminId;
+    private final List<UUID> playerIds = new ArrayList<>();
+    private final List<UUID> characterIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUpParty() {
+        var party = fixtures.party("w", 3);
+        gmId = party.gmId();
+        adminId = fixtures.admin("wad_" + party.run());
+        playerIds.addAll(party.playerIds());
+        characterIds.addAll(party.characterIds());
+    }
+
+    @Test
+    void everyMutationKeepsTotalsEqualToTheInventory() {
+        UUID hero = characterIds.get(0);
+        UUID other = characterIds.get(1);
+        UUID sword = newItem("3.50", 120);
+        UUID rope = newItem("1.25", 7);
+
+        inventoryService.giveItem(hero, sword, 2, gmId);
+        inventoryService.giveItem(hero, rope, 5, gmId);
+        inventoryService.consumeItem(hero, rope, 1, playerIds.get(0));
+        inventoryService.setQuantity(hero, rope, 10, gmId);
+        inventoryService.transferItem(hero, other, sword, 1, gmId);
+        inventoryService.applyBatch(List.of(
+            new InventoryBatchOperation(other, rope, 4),
+            new InventoryBatchOperation(other, sword, 1)), gmId);
+        inventoryService.applyBatch(List.of(
+            new InventoryBatchOperation(other, rope, -1),
+            new InventoryBatchOperation(other, sword, -2)), playerIds.get(1));
+        assertTotalsMatchInventory(hero);
+        assertTotalsMatchInventory(other);
+
+        CharacterDto totals = characterService.getById(hero);
+        assertEquals(0, new BigDecimal("16.00").compareTo(totals.totalWeight()));   // 3.50 + 10 × 1.25
+        assertEquals(120 + 10 * 7, totals.totalPrice());
+        assertEquals(11, totals.itemCount());
+
+        // правка веса/цены предмета сдвигает агрегаты всех, у кого он есть
+        itemService.updateItem(rope, new ItemUpdateRequest(null, null, new BigDecimal("2.00"), 5), adminId);
+        assertTotalsMatchInventory(hero);
+        assertTotalsMatchInventory(other);
+
+        inventoryService.removeItem(hero, rope, gmId);
+        inventoryService.setQuantity(hero, sword, 0, gmId);
+        CharacterDto empty = characterService.getById(hero);
+        assertEquals(0, empty.totalWeight().signum());
+        assertEquals(0, empty.totalPrice());
+        assertEquals(0, empty.itemCount());
+        assertTrue(verifier.verify().drifted().isEmpty());
+    }
+
+    @Test
+    void concurrentGrantsAndPriceChangesDoNotDrift() throws Exception {
+        List<UUID> items = List.of(newItem("1.00", 10), newItem("2.50", 3), newItem("0.10", 1));
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 5; t++) {
+                futures.add(pool.submit(() -> {
+                    var random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 60; i++) {
+                        UUID character = characterIds.get(random.nextInt(characterIds.size()));
+                        UUID item = items.get(random.nextInt(items.size()));
+                        inventoryService.giveItem(character, item, 1 + random.nextInt(3), gmId);
+                    }
+                }));
+            }
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 30; i++) {
+                    UUID item = items.get(i % items.size());
+                    itemService.updateItem(item, new ItemUpdateRequest(null, null,
+                        BigDecimal.valueOf(i % 7, 1), i % 11), adminId);
+                }
+            }));
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        for (UUID character : characterIds) assertTotalsMatchInventory(character);
+    }
+
+    @Test
+    void verifierReportsAndRepairsDrift() {
+        UUID hero = characterIds.get(0);
+        inventoryService.giveItem(hero, newItem("4.00", 9), 3, gmId);
+        jdbcTemplate.update("UPDATE characters SET total_weight = 999, item_count = 1 WHERE id = ?", hero);
+
+        var report = verifier.verify();
+        assertTrue(report.drifted().contains(hero));
+        assertTrue(report.repaired() >= 1);
+        assertTotalsMatchInventory(hero);
+        assertFalse(verifier.verify().drifted().contains(hero));
+    }
+
+    @Test
+    void itemEditsWaitForBatchesAndTransfersOfTheItem() throws Exception {
+        UUID hero = characterIds.get(0);
+        UUID other = characterIds.get(1);
+        UUID lantern = newItem("2.00", 15);
+        UUID rope = newItem("0.50", 2);
+        int stack = 5;
+        inventoryService.giveItem(hero, lantern, stack, gmId);
+        // строки то появляются, то исчезают: правка блокирует держателей, а новый держатель ещё не закоммичен,
+        // и дождаться его она может только на строке предмета
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 60; i++) {
+                    inventoryService.applyBatch(List.of(new InventoryBatchOperation(other, rope, 1)), gmId);
+                    inventoryService.applyBatch(List.of(new InventoryBatchOperation(other, rope, -1)), playerIds.get(1));
+                }
+            }));
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 60; i++) {
+                    inventoryService.transferItem(hero, other, lantern, stack, gmId);
+                    inventoryService.transferItem(other, hero, lantern, stack, gmId);
+                }
+            }));
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 120; i++) {
+                    itemService.updateItem(i % 2 == 0 ? lantern : rope, new ItemUpdateRequest(null, null,
+                        BigDecimal.valueOf(1 + i % 5, 1), 1 + i % 13), adminId);
+                }
+            }));
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        // без исправлений после коммита: расхождений нет уже при первой сверке
+        assertTrue(verifier.verify().drifted().isEmpty());
+        assertTotalsMatchInventory(hero);
+        assertTotalsMatchInventory(other);
+    }
+
+    private void assertTotalsMatchInventory(UUID characterId) {
+        List<CharacterInventoryEntryDto> inventory = inventoryService.getInventoryByCharacter(characterId, gmId);
+        BigDecimal weight = BigDecimal.ZERO;
+        long price = 0;
+        long count = 0;
+        for (var entry : inventory) {
+            weight = weight.add(entry.item().weight().multiply(BigDecimal.valueOf(entry.quantity())));
+            price += (long) entry.item().price() * entry.quantity();
+            count += entry.quantity();
+        }
+        CharacterDto totals = characterService.getById(characterId);
+        assertEquals(0, weight.compareTo(totals.totalWeight()), "weight of " + characterId);
+        assertEquals(price, totals.totalPrice(), "price of " + characterId);
+        assertEquals(count, totals.itemCount(), "count of " + characterId);
+    }
+
+    private UUID newItem(String weight, int price) {
+        Item item = new Item();
+        item.setName("Поклажа " + UUID.randomUUID());
+        item.setWeight(new BigDecimal(weight));
+        item.setPrice(price);
+        return itemRepository.save(item).getId();
+    }
+}
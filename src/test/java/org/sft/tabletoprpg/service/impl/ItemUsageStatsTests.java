@@ -0,0 +1,157 @@
+package org.sft.tabletoprpg.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.Item;
+import org.sft.tabletoprpg.repo.ItemRepository;
+import org.sft.tabletoprpg.repo.ItemStatsRepository;
+import org.sft.tabletoprpg.service.CampaignService;
+import org.sft.tabletoprpg.service.CharacterService;
+import org.sft.tabletoprpg.service.InventoryService;
+import org.sft.tabletoprpg.service.ItemService;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryBatchOperation;
+import org.sft.tabletoprpg.service.dto.item.ItemUsageDto;
+import org.sft.tabletoprpg.service.exception.ConflictException;
+import org.sft.tabletoprpg.service.exception.ForbiddenException;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Счётчики использования предметов (item_stats): совпадают с character_inventory после любых операций,
+ * служат проверкой при удалении предмета и статистикой каталога.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ItemUsageStatsTests {
+
+    @Autowired TestFixtures fixtures;
+    @Autowired CampaignService campaignService;
+    @Autowired CharacterService characterService;
+    @Autowired InventoryService inventoryService;
+    @Autowired ItemService itemService;
+    @Autowired ItemRepository itemRepository;
+    @Autowired ItemStatsRepository itemStatsRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private UUID gmId;
+    private UUID adminId;
+    private UUID campaignId;
+    private final List<UUID> playerIds = new ArrayList<>();
+    private final List<UUID> characterIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUpParty() {
+        var party = fixtures.party("u", 3);
+        gmId = party.gmId();
+        adminId = fixtures.admin("uad_" + party.run());
+        campaignId = party.campaignId();
+        playerIds.addAll(party.playerIds());
+        characterIds.addAll(party.characterIds());
+    }
+
+    @Test
+    void countersFollowEveryMutationAndGuardDeletion() {
+        UUID a = characterIds.get(0);
+        UUID b = characterIds.get(1);
+        UUID c = characterIds.get(2);
+        UUID potion = newItem();
+        UUID arrow = newItem();
+
+        inventoryService.giveItem(a, potion, 3, gmId);
+        inventoryService.giveItem(a, potion, 2, gmId);
+        inventoryService.consumeItem(a, potion, 1, playerIds.get(0));
+        inventoryService.transferItem(a, b, potion, 4, gmId);          // a отдаёт всё: держатель сменился
+        inventoryService.setQuantity(c, potion, 6, gmId);
+        inventoryService.applyBatch(List.of(
+            new InventoryBatchOperation(a, arrow, 20),
+            new InventoryBatchOperation(b, arrow, 10),
+            new InventoryBatchOperation(c, arrow, 5)), gmId);
+        inventoryService.applyBatch(List.of(
+            new InventoryBatchOperation(c, arrow, -5),
+            new InventoryBatchOperation(c, potion, -1)), playerIds.get(2));
+        assertCountersMatchInventory(potion);
+        assertCountersMatchInventory(arrow);
+        assertEquals(2, holders(potion));
+        assertEquals(2, holders(arrow));
+
+        inventoryService.removeItem(b, arrow, gmId);
+        characterService.deleteCharacter(c, playerIds.get(2));            // инвентарь удаляется вместе с ним
+        campaignService.removeMember(campaignId, playerIds.get(1), gmId); // вместе с персонажем b
+        assertCountersMatchInventory(potion);
+        assertCountersMatchInventory(arrow);
+        assertEquals(0, holders(potion));
+        assertEquals(1, holders(arrow));
+
+        assertThrows(ConflictException.class, () -> itemService.deleteItem(arrow, adminId));
+        inventoryService.setQuantity(a, arrow, 0, gmId);
+        itemService.deleteItem(arrow, adminId);
+        itemService.deleteItem(potion, adminId);
+        assertFalse(itemRepository.existsById(arrow));
+        assertTrue(itemStatsRepository.findById(arrow).isEmpty());
+    }
+
+    @Test
+    void usageStatsListPopularItemsFirst() {
+        UUID common = newItem();
+        UUID rare = newItem();
+        UUID unused = newItem();
+        for (UUID character : characterIds) inventoryService.giveItem(character, common, 1, gmId);
+        inventoryService.giveItem(characterIds.get(0), rare, 50, gmId);
+
+        assertThrows(ForbiddenException.class, () -> itemService.usageStats(null, null, gmId));
+
+        var page = itemService.usageStats(0, ItemService.MAX_USAGE_PAGE_SIZE, adminId);
+        assertEquals(itemRepository.count(), page.total());
+        List<UUID> order = page.items().stream().map(ItemUsageDto::itemId).toList();
+        if (page.total() <= page.size()) {
+            assertTrue(order.indexOf(common) < order.indexOf(rare), "more holders first");
+            assertTrue(order.indexOf(rare) < order.indexOf(unused), "unused items last");
+        }
+        for (int i = 1; i < page.items().size(); i++) {
+            assertTrue(page.items().get(i - 1).holders() >= page.items().get(i).holders());
+        }
+
+        // постранично с неровным размером: каждый предмет ровно один раз, держатели — до предметов без них
+        int size = 7;
+        List<ItemUsageDto> all = new ArrayList<>();
+        for (int p = 0; p * size < page.total(); p++) all.addAll(itemService.usageStats(p, size, adminId).items());
+        assertEquals(itemRepository.count(), all.size());
+        assertEquals(all.size(), all.stream().map(ItemUsageDto::itemId).distinct().count());
+        int firstUnheld = (int) all.stream().takeWhile(u -> u.holders() > 0).count();
+        assertTrue(all.subList(firstUnheld, all.size()).stream().allMatch(u -> u.holders() == 0 && u.totalQuantity() == 0));
+        for (int k = firstUnheld + 1; k < all.size(); k++) {
+            assertTrue(all.get(k - 1).name().compareTo(all.get(k).name()) <= 0, "unused items by name");
+        }
+        assertTrue(all.subList(firstUnheld, all.size()).stream().anyMatch(u -> u.itemId().equals(unused)));
+    }
+
+    private long holders(UUID itemId) {
+        return itemStatsRepository.findHolders(itemId).orElse(0L);
+    }
+
+    private void assertCountersMatchInventory(UUID itemId) {
+        var actual = jdbcTemplate.queryForMap(
+            "SELECT COUNT(*) AS holders, COALESCE(SUM(quantity), 0) AS total FROM character_inventory WHERE item_id = ?", itemId);
+        var stats = itemStatsRepository.findById(itemId);
+        assertEquals(((Number) actual.get("holders")).longValue(), stats.map(s -> s.getHolders()).orElse(0L), "holders of " + itemId);
+        assertEquals(((Number) actual.get("total")).longValue(), stats.map(s -> s.getTotalQuantity()).orElse(0L), "quantity of " + itemId);
+    }
+
+    private UUID newItem() {
+        Item item = new Item();
+        item.setName("Товар " + UUID.randomUUID());
+        item.setWeight(BigDecimal.ONE);
+        item.setPrice(1);
+        return itemRepository.save(item).getId();
+    }
+}
@@ -0,0 +1,237 @@
+package org.sft.tabletoprpg.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.JournalVisibility;
+import org.sft.tabletoprpg.service.JournalService;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryCreateRequest;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntrySummaryDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryUpdateRequest;
+import org.sft.tabletoprpg.service.dto.journal.JournalTagFacetDto;
+import org.sft.tabletoprpg.service.exception.BadRequestException;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Чтение журнала кампании: страницы, видимость для игроков, списки без текста записей,
+ * полнотекстовый поиск, теги и их счётчики.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class JournalQueryTests {
+
+    @Autowired TestFixtures fixtures;
+    @Autowired JournalService journalService;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired JournalTagFacetsVerifier facetsVerifier;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private UUID gmId;
+    private UUID playerId;
+    private UUID campaignId;
+    private final List<UUID> created = new ArrayList<>();
+
+    @BeforeEach
+    void setUpCampaign() {
+        String run = TestFixtures.run();
+        gmId = fixtures.user("jgm_" + run);
+        playerId = fixtures.user("jpl_" + run);
+        campaignId = fixtures.campaign(gmId, "Хроники " + run);
+        fixtures.join(campaignId, playerId, gmId);
+
+        for (int i = 0; i < 7; i++) {
+            var visibility = i % 2 == 0 ? JournalVisibility.PLAYERS : JournalVisibility.GM_ONLY;
+            created.add(journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+                "session", visibility, "Сессия " + i, "Содержание сессии " + i, null)).id());
+        }
+    }
+
+    @Test
+    void keysetPagesCoverEveryEntryOnceNewestFirst() {
+        List<JournalEntrySummaryDto> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var page = journalService.listJournalPage(campaignId, gmId, null, false, cursor, 3);
+            assertTrue(page.items().size() <= 3);
+            seen.addAll(page.items());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(created.size(), seen.size());
+        assertEquals(Set.copyOf(created), seen.stream().map(JournalEntrySummaryDto::id).collect(Collectors.toSet()));
+        for (int i = 1; i < seen.size(); i++) {
+            assertFalse(seen.get(i).createdAt().isAfter(seen.get(i - 1).createdAt()));
+        }
+    }
+
+    @Test
+    void playersOnlySeePlayersEntries() {
+        var page = journalService.listJournalPage(campaignId, playerId, null, false, null, 100);
+        assertEquals(4, page.items().size());
+        assertTrue(page.items().stream().allMatch(e -> e.visibility() == JournalVisibility.PLAYERS));
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void garbageCursorIsRejected() {
+        assertThrows(BadRequestException.class,
+            () -> journalService.listJournalPage(campaignId, gmId, null, false, "not-a-cursor", 10));
+    }
+
+    @Test
+    void listsCarrySummaryAndNeverLoadContent() {
+        var page = journalService.listJournalPage(campaignId, gmId, null, false, null, 1);
+        var first = page.items().get(0);
+        String content = journalService.getJournalById(first.id(), gmId).content();
+        assertEquals(content.length(), first.contentLength());
+        assertEquals(content, first.excerpt());
+
+        // списки читаются проекцией: сущностей записей нет, значит, и ленивого content тоже
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        var rows = journalService.listJournalPage(campaignId, gmId, null, false, null, 10).items();
+        assertFalse(rows.isEmpty());
+        assertEquals(0, stats.getEntityLoadCount());
+        assertEquals(1, stats.getPrepareStatementCount()); // права GM уже в кэше
+    }
+
+    @Test
+    void fullTextSearchStemsMixedLanguageAndHidesGmOnlyInsideIndex() {
+        UUID secret = journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "lore", JournalVisibility.GM_ONLY, "Тайна склепа", "Некромант прячет dragons в подземельях", "spoiler")).id();
+        UUID open = journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "lore", JournalVisibility.PLAYERS, "Слухи", "Говорят, в подземелье видели дракона (dragon)", null)).id();
+
+        // русская и английская морфология: подземелье/подземельях, dragon/dragons
+        var gm = journalService.searchJournal(campaignId, gmId, "подземелье dragon", 0, 10);
+        assertEquals(Set.of(secret, open), gm.items().stream().map(JournalEntrySummaryDto::id).collect(Collectors.toSet()));
+        assertEquals(2, gm.total());
+
+        var player = journalService.searchJournal(campaignId, playerId, "подземелье dragon", 0, 10);
+        assertEquals(List.of(open), player.items().stream().map(JournalEntrySummaryDto::id).toList());
+        assertEquals(1, player.total());
+
+        // инкрементальные правки
+        journalService.updateJournal(open, gmId, new JournalEntryUpdateRequest(null, null, null, "Пусто", null));
+        assertEquals(0, journalService.searchJournal(campaignId, playerId, "дракон", 0, 10).total());
+        journalService.deleteJournal(secret, gmId);
+        assertEquals(0, journalService.searchJournal(campaignId, gmId, "некромант", 0, 10).total());
+    }
+
+    @Test
+    void searchRanksTitleMatchesFirstAndPages() {
+        var first = journalService.searchJournal(campaignId, gmId, "сессия", 0, 4);
+        assertEquals(created.size(), first.total());
+        assertEquals(4, first.items().size());
+        var rest = journalService.searchJournal(campaignId, gmId, "сессия", 4, 4);
+        assertEquals(created.size() - 4, rest.items().size());
+        // offset + limit не должен переполнять int в индексе
+        assertThrows(BadRequestException.class,
+            () -> journalService.searchJournal(campaignId, gmId, "сессия", Integer.MAX_VALUE, 10));
+        assertEquals(0, journalService.searchJournal(campaignId, gmId, "сессия", JournalService.MAX_SEARCH_OFFSET, 10).items().size());
+
+        UUID titled = journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "npc", JournalVisibility.PLAYERS, "Трактирщик Борис", "Персонаж из сессии", null)).id();
+        journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "npc", JournalVisibility.PLAYERS, "Кузнец", "Брат трактирщика", null));
+        assertEquals(titled, journalService.searchJournal(campaignId, playerId, "трактирщик", 0, 10).items().get(0).id());
+    }
+
+    @Test
+    void tagFiltersAndFacetCountsFollowEntryChanges() {
+        UUID both = journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "lore", JournalVisibility.PLAYERS, "Башня", "Маг живёт в башне", "Лор, NPC")).id();
+        UUID npcOnly = journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "lore", JournalVisibility.PLAYERS, "Кузнец", "Кует мечи", " npc ,npc")).id();
+        UUID secret = journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "lore", JournalVisibility.GM_ONLY, "Предатель", "Кузнец — шпион", "npc, spoiler")).id();
+
+        assertEquals(List.of(both), tagged(gmId, List.of("лор", "NPC"), true));
+        assertEquals(Set.of(both, npcOnly, secret), Set.copyOf(tagged(gmId, List.of("лор,npc"), false)));
+        assertEquals(Set.of(both, npcOnly), Set.copyOf(tagged(playerId, List.of("npc"), false)));
+
+        assertEquals(List.of(new JournalTagFacetDto("npc", 3), new JournalTagFacetDto("spoiler", 1), new JournalTagFacetDto("лор", 1)),
+            journalService.listTagFacets(campaignId, gmId));
+        assertEquals(List.of(new JournalTagFacetDto("npc", 2), new JournalTagFacetDto("лор", 1)),
+            journalService.listTagFacets(campaignId, playerId));
+
+        // раскрыли тайну игрокам и сняли спойлер, потом удалили запись с «лор»
+        journalService.updateJournal(secret, gmId, new JournalEntryUpdateRequest(null, JournalVisibility.PLAYERS, null, null, "npc"));
+        journalService.deleteJournal(both, gmId);
+        assertEquals(List.of(new JournalTagFacetDto("npc", 2)), journalService.listTagFacets(campaignId, gmId));
+        assertEquals(List.of(new JournalTagFacetDto("npc", 2)), journalService.listTagFacets(campaignId, playerId));
+        assertEquals(Set.of(npcOnly, secret), Set.copyOf(tagged(playerId, List.of("npc", "лор"), false)));
+    }
+
+    @Test
+    void concurrentEditsOfOneEntryKeepFacetsExact() throws Exception {
+        UUID entry = journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "lore", JournalVisibility.PLAYERS, "Руины", "Старый храм", "руины")).id();
+        List<String> tagSets = List.of("руины", "руины, храм", "храм", "культ, храм", "культ");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        var visibility = (thread + i) % 3 == 0 ? JournalVisibility.GM_ONLY : JournalVisibility.PLAYERS;
+                        journalService.updateJournal(entry, gmId, new JournalEntryUpdateRequest(
+                            null, visibility, null, null, tagSets.get((thread * 7 + i) % tagSets.size())));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        // прежде правки без блокировки считали дельты от одного состояния, и счётчики уходили
+        assertFalse(facetsVerifier.verify().drifted().contains(campaignId));
+    }
+
+    @Test
+    void facetsVerifierReportsAndRebuildsDrift() {
+        UUID entry = journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "lore", JournalVisibility.PLAYERS, "Гильдия", "Воры", "гильдия, воры")).id();
+        jdbcTemplate.update("UPDATE journal_tag_facets SET total_count = 7 WHERE campaign_id = ? AND tag = 'воры'", campaignId);
+        jdbcTemplate.update("DELETE FROM journal_tag_facets WHERE campaign_id = ? AND tag = 'гильдия'", campaignId);
+        jdbcTemplate.update("INSERT INTO journal_tag_facets (campaign_id, tag, total_count, players_count) VALUES (?, 'призрак', 2, 2)",
+            campaignId);
+
+        var report = facetsVerifier.verify();
+        assertTrue(report.drifted().contains(campaignId));
+        assertTrue(report.repaired() >= 1);
+        assertEquals(List.of(new JournalTagFacetDto("воры", 1), new JournalTagFacetDto("гильдия", 1)),
+            journalService.listTagFacets(campaignId, playerId));
+        assertFalse(facetsVerifier.verify().drifted().contains(campaignId));
+
+        journalService.deleteJournal(entry, gmId);
+        assertEquals(List.of(), journalService.listTagFacets(campaignId, gmId));
+    }
+
+    private List<UUID> tagged(UUID requesterId, List<String> tags, boolean matchAll) {
+        return journalService.listJournalByTags(campaignId, requesterId, tags, matchAll, null, 50)
+            .items().stream().map(JournalEntrySummaryDto::id).toList();
+    }
+}
@@ -0,0 +1,295 @@
+package org.sft.tabletoprpg.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.sft.tabletoprpg.domain.CharacterInventory;
+import org.sft.tabletoprpg.domain.Item;
+import org.sft.tabletoprpg.domain.JournalEntry;
+import org.sft.tabletoprpg.domain.JournalVisibility;
+import org.sft.tabletoprpg.repo.CharacterInventoryRepository;
+import org.sft.tabletoprpg.repo.CharacterRepository;
+import org.sft.tabletoprpg.repo.ItemRepository;
+import org.sft.tabletoprpg.repo.JournalEntryRepository;
+import org.sft.tabletoprpg.service.CampaignService;
+import org.sft.tabletoprpg.service.CharacterService;
+import org.sft.tabletoprpg.service.InventoryService;
+import org.sft.tabletoprpg.service.ItemService;
+import org.sft.tabletoprpg.service.JournalService;
+import org.sft.tabletoprpg.service.dto.character.AttributesDto;
+import org.sft.tabletoprpg.service.dto.character.CharacterDto;
+import org.sft.tabletoprpg.service.dto.inventory.CharacterInventoryEntryDto;
+import org.sft.tabletoprpg.service.dto.inventory.InventoryBatchOperation;
+import org.sft.tabletoprpg.service.dto.item.ItemDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryCreateRequest;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntrySummaryDto;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Чтение сразу в DTO: сервисы не создают сущностей на путях чтения. Замер задержки и аллокаций
+ * против прежнего пути «сущность + ручной маппер» в той же read-only транзакции — только с -Dbenchmarks=true.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProjectionReadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectionReadTests.class);
+
+    private static final int PLAYERS = 8;
+    private static final int ITEMS = 30;
+    private static final int ENTRIES = 60;
+    private static final int PAGE = 20;
+    private static final int WARMUP = 100;
+    private static final int ROUNDS = 300;
+
+    @Autowired TestFixtures fixtures;
+    @Autowired CampaignService campaignService;
+    @Autowired CharacterService characterService;
+    @Autowired InventoryService inventoryService;
+    @Autowired ItemService itemService;
+    @Autowired JournalService journalService;
+    @Autowired CharacterRepository characterRepository;
+    @Autowired CharacterInventoryRepository characterInventoryRepository;
+    @Autowired ItemRepository itemRepository;
+    @Autowired JournalEntryRepository journalEntryRepository;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired PlatformTransactionManager transactionManager;
+    @PersistenceContext EntityManager em;
+
+    @Test
+    void readPathsNeverHydrateEntities() {
+        Party party = seedParty();
+        String run = party.run();
+        UUID gmId = party.gmId();
+        UUID campaignId = party.campaignId();
+        List<UUID> playerIds = party.playerIds();
+        List<UUID> entryIds = party.entryIds();
+        UUID personal = party.personal();
+
+        // результат проекции совпадает с прежним маппингом сущностей
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        UUID hero = party.characterIds().get(0);
+        assertEquals(readOnly.execute(s -> characterViaEntity(hero)), characterService.getById(hero));
+        assertEquals(readOnly.execute(s -> inventoryViaEntities(hero)),
+            characterInventoryRepository.findEntryDtos(hero).stream().sorted(byItem()).toList());
+        assertEquals("Караван идёт на юг", campaignService.findCampaignById(campaignId).description());
+        assertNull(journalService.listPersonal(gmId).get(0).campaignId());
+
+        // сервисные пути чтения: ни одной загруженной сущности
+        // (предмет и кампания по id берутся из кэша второго уровня — см. SecondLevelCacheTests)
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        journalService.listJournalPage(campaignId, gmId, null, false, null, PAGE); // права — в кэше
+        stats.clear();
+        campaignService.findCampaignsByGm_Id(gmId);
+        campaignService.findCampaignsByMember(playerIds.get(0));
+        campaignService.listMembers(campaignId, gmId);
+        characterService.getById(hero);
+        characterService.findCharactersByCampaign_Id(campaignId);
+        characterService.findCharactersByOwner_Id(playerIds.get(0));
+        itemService.findByName("Тюк " + run);
+        inventoryService.getInventoryByCharacter(hero, gmId);
+        journalService.getJournalById(entryIds.get(0), gmId);
+        journalService.getJournalById(personal, gmId);
+        journalService.listJournals(campaignId, gmId, "session", false);
+        journalService.listJournalPage(campaignId, playerIds.get(0), null, false, null, PAGE);
+        journalService.listJournalByTags(campaignId, gmId, List.of("road"), true, null, PAGE);
+        journalService.listPersonal(gmId);
+        journalService.searchJournal(campaignId, gmId, "костра", 0, PAGE);
+        assertEquals(0, stats.getEntityLoadCount(), "entities hydrated on read paths");
+
+        // инвентарь проекцией: предмет приходит в строке запроса — кэш предметов не трогается вовсе,
+        // а прежний путь собирает сущность на каждую строку (из кэша или запросом)
+        stats.clear();
+        assertEquals(ITEMS, inventoryService.getInventoryByCharacter(hero, gmId).size());
+        assertEquals(0, stats.getEntityLoadCount());
+        assertEquals(0, itemLookups(stats));
+        readOnly.execute(s -> inventoryViaEntities(hero));
+        assertTrue(itemLookups(stats) + stats.getEntityLoadCount() >= ITEMS);
+    }
+
+    private static long itemLookups(Statistics stats) {
+        var items = stats.getDomainDataRegionStatistics("items");
+        return items.getHitCount() + items.getMissCount();
+    }
+
+    // mvn test -Dbenchmarks=true -Dlogging.level.org.sft.tabletoprpg.service.impl=DEBUG
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkProjectionsAgainstEntityMapping() {
+        Party party = seedParty();
+        UUID campaignId = party.campaignId();
+        List<UUID> characterIds = party.characterIds();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        // замер: прежний путь (сущности + маппер) против проекции, id по кругу — мимо кэша результатов H2
+        var entries = readOnly.execute(s -> journalEntryRepository.findPage(campaignId, EnumSet.allOf(JournalVisibility.class),
+            JournalCursor.START.createdAt(), JournalCursor.START.id(), Limit.of(ENTRIES)));
+        List<JournalCursor> cursors = entries.subList(0, PLAYERS).stream()
+            .map(e -> new JournalCursor(e.createdAt(), e.id())).toList();
+
+        Cost characterEntity = measure(readOnly, r -> characterViaEntity(characterIds.get(r % PLAYERS)));
+        Cost characterProjection = measure(readOnly, r -> characterRepository.findDtoById(characterIds.get(r % PLAYERS)).orElseThrow());
+        Cost inventoryEntity = measure(readOnly, r -> inventoryViaEntities(characterIds.get(r % PLAYERS)));
+        Cost inventoryProjection = measure(readOnly, r -> characterInventoryRepository.findEntryDtos(characterIds.get(r % PLAYERS)));
+        Cost journalEntity = measure(readOnly, r -> journalPageViaEntities(campaignId, cursors.get(r % PLAYERS)));
+        Cost journalProjection = measure(readOnly, r -> journalPage(JournalEntryRepository.SUMMARY, JournalEntrySummaryDto.class,
+            campaignId, cursors.get(r % PLAYERS)));
+
+        log.debug("character by id: entity+mapper {} ms {} B, projection {} ms {} B",
+            String.format("%.3f", characterEntity.ms), characterEntity.bytes,
+            String.format("%.3f", characterProjection.ms), characterProjection.bytes);
+        log.debug("inventory ({} rows): entity+mapper {} ms {} B, projection {} ms {} B", ITEMS,
+            String.format("%.3f", inventoryEntity.ms), inventoryEntity.bytes,
+            String.format("%.3f", inventoryProjection.ms), inventoryProjection.bytes);
+        log.debug("journal page ({} summaries): entity+mapper {} ms {} B, projection {} ms {} B", PAGE,
+            String.format("%.3f", journalEntity.ms), journalEntity.bytes,
+            String.format("%.3f", journalProjection.ms), journalProjection.bytes);
+
+        // инвентарь прежним путём берёт предметы из кэша второго уровня (без N+1 в БД), поэтому
+        // по байтам не сравниваем; записи журнала не кэшируются — там проекция дешевле всегда
+        assertTrue(journalProjection.bytes < journalEntity.bytes);
+    }
+
+    private record Party(String run, UUID gmId, UUID campaignId, List<UUID> playerIds, List<UUID> characterIds,
+                         List<UUID> entryIds, UUID personal) {}
+
+    // кампания: PLAYERS персонажей по ITEMS предметов, ENTRIES записей журнала и личная заметка GM
+    private Party seedParty() {
+        String run = TestFixtures.run();
+        UUID gmId = fixtures.user("pgm_" + run);
+        UUID campaignId = fixtures.campaign(gmId, "Тракт " + run, "Караван идёт на юг");
+
+        List<UUID> itemIds = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) itemIds.add(newItem("Тюк " + run + " " + i));
+        List<UUID> playerIds = new ArrayList<>();
+        List<UUID> characterIds = new ArrayList<>();
+        List<InventoryBatchOperation> grants = new ArrayList<>();
+        for (int p = 0; p < PLAYERS; p++) {
+            UUID playerId = fixtures.user("ppl" + p + "_" + run);
+            fixtures.join(campaignId, playerId, gmId);
+            UUID characterId = fixtures.character(campaignId, playerId, "Возница " + p + " " + run);
+            for (UUID itemId : itemIds) grants.add(new InventoryBatchOperation(characterId, itemId, 1 + p));
+            playerIds.add(playerId);
+            characterIds.add(characterId);
+        }
+        inventoryService.applyBatch(grants, gmId);
+        List<UUID> entryIds = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            entryIds.add(journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest("session",
+                i % 3 == 0 ? JournalVisibility.GM_ONLY : JournalVisibility.PLAYERS,
+                "Стоянка " + i, "Ночь у костра, дозор " + i, "road")).id());
+        }
+        UUID personal = journalService.createPersonal(gmId, new JournalEntryCreateRequest(
+            null, JournalVisibility.GM_ONLY, "Заметка", "Не забыть про мост", null)).id();
+
+        return new Party(run, gmId, campaignId, playerIds, characterIds, entryIds, personal);
+    }
+
+    /* ---------- прежний путь: сущности и ручной маппинг, как было в сервисах ---------- */
+
+    private CharacterDto characterViaEntity(UUID characterId) {
+        var ch = em.find(org.sft.tabletoprpg.domain.Character.class, characterId);
+        var a = ch.getAtributes();
+        return new CharacterDto(ch.getId(), ch.getName(), ch.getClazz(), ch.getRace(), ch.getLevel(), ch.getHp(), ch.getMaxHp(),
+            new AttributesDto(a.getAttr_str(), a.getAttr_agi(), a.getAttr_stam(), a.getAttr_int(), a.getAttr_wis(), a.getAttr_cha()),
+            ch.getOwner().getId(), ch.getCampaign().getId(), ch.getCampaign().getName(),
+            ch.getTotalWeight(), ch.getTotalPrice(), ch.getItemCount());
+    }
+
+    private List<CharacterInventoryEntryDto> inventoryViaEntities(UUID characterId) {
+        return em.createQuery("select ci from CharacterInventory ci where ci.character.id = :id", CharacterInventory.class)
+            .setParameter("id", characterId)
+            .getResultStream()
+            .map(ci -> {
+                Item item = ci.getItem();
+                return new CharacterInventoryEntryDto(ci.getCharacter().getId(), item.getId(), ci.getQuantity(),
+                    new ItemDto(item.getId(), item.getName(), item.getDescription(), item.getWeight(), item.getPrice(), null));
+            })
+            .sorted(byItem())
+            .toList();
+    }
+
+    private List<JournalEntrySummaryDto> journalPageViaEntities(UUID campaignId, JournalCursor after) {
+        return journalPage("select e from JournalEntry e\n", JournalEntry.class, campaignId, after).stream()
+            .map(e -> new JournalEntrySummaryDto(e.getId(), e.getCampaign() != null ? e.getCampaign().getId() : null,
+                e.getAuthor().getId(), e.getType(), e.getVisibility(), e.getTitle(), e.getTags(), e.getCreatedAt(),
+                e.getContentLength(), e.getExcerpt()))
+            .toList();
+    }
+
+    // страница ленты тем же запросом, что и JournalEntryRepository.findPage, — различается только select
+    private <T> List<T> journalPage(String select, Class<T> type, UUID campaignId, JournalCursor after) {
+        return em.createQuery(select + """
+                where e.campaign.id = :campaignId
+                  and e.visibility in :visibilities
+                  and (e.createdAt < :createdAt or (e.createdAt = :createdAt and e.id < :id))
+                order by e.createdAt desc, e.id desc
+                """, type)
+            .setParameter("campaignId", campaignId)
+            .setParameter("visibilities", EnumSet.allOf(JournalVisibility.class))
+            .setParameter("createdAt", after.createdAt())
+            .setParameter("id", after.id())
+            .setMaxResults(PAGE)
+            .getResultList();
+    }
+
+    /* ---------- замер ---------- */
+
+    private record Cost(double ms, long bytes) {}
+
+    // время и байты, выделенные текущим потоком, на одно чтение (каждое — в своей read-only транзакции)
+    private static Cost measure(TransactionTemplate readOnly, IntFunction<Object> read) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int r = 0; r < WARMUP; r++) {
+            int round = r;
+            readOnly.execute(s -> read.apply(round));
+        }
+        long bytes = threads.getThreadAllocatedBytes(thread);
+        long started = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            int round = r;
+            readOnly.execute(s -> read.apply(round));
+        }
+        double ms = (System.nanoTime() - started) / 1e6 / ROUNDS;
+        return new Cost(ms, (threads.getThreadAllocatedBytes(thread) - bytes) / ROUNDS);
+    }
+
+    private static Comparator<CharacterInventoryEntryDto> byItem() {
+        return Comparator.comparing(e -> e.itemId().toString());
+    }
+
+    private UUID newItem(String name) {
+        Item item = new Item();
+        item.setName(name);
+        item.setDescription("Поклажа каравана");
+        item.setWeight(new BigDecimal("1.50"));
+        item.setPrice(4);
+        return itemRepository.save(item).getId();
+    }
+}
@@ -0,0 +1,195 @@
+package org.sft.tabletoprpg.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.sft.tabletoprpg.domain.Item;
+import org.sft.tabletoprpg.repo.ItemRepository;
+import org.sft.tabletoprpg.service.ItemService;
+import org.sft.tabletoprpg.service.dto.item.ItemCreateRequest;
+import org.sft.tabletoprpg.service.dto.item.ItemDto;
+import org.sft.tabletoprpg.service.dto.item.ItemUpdateRequest;
+import org.sft.tabletoprpg.support.PausingRepository;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Поиск по каталогу предметов из памяти: ранжирование, опечатки, обновление после коммита (в том числе
+ * медленное чтение наперегонки с правкой) и совпадение с прежним LIKE '%x%' на заполненном каталоге.
+ * Замер на 100k предметов — только с -Dbenchmarks=true.
+ * Отдельная БД: каталог общий для всех тестов.
+ */
+@SpringBootTest(properties =
+    "spring.datasource.url=jdbc:h2:mem:rpg_items_${random.uuid};MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class ItemSearchIndexTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ItemSearchIndexTests.class);
+
+    private static final int CATALOG_SIZE = 5_000;
+    private static final int BENCHMARK_CATALOG_SIZE = 100_000;
+    private static final String[] MATERIALS = {"железный", "стальной", "серебряный", "эльфийский", "гномий", "проклятый"};
+    private static final String[] KINDS = {"меч", "кинжал", "топор", "щит", "шлем", "лук", "посох", "амулет"};
+
+    @Autowired TestFixtures fixtures;
+    @Autowired ItemService itemService;
+    @Autowired ItemSearchIndex index;
+    @Autowired ItemRepository itemRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private UUID adminId;
+
+    @BeforeEach
+    void setUpAdmin() {
+        adminId = fixtures.admin("adm_" + TestFixtures.run());
+    }
+
+    @Test
+    void rankedSubstringAndFuzzyMatchesFollowCatalogChanges() {
+        String run = UUID.randomUUID().toString().substring(0, 6);
+        ItemDto exact = create("Кладенец" + run, "меч-самосек");
+        ItemDto prefix = create("Кладенец" + run + " малый", null);
+        ItemDto inDescription = create("Клинок " + run, "по легенде — брат меча кладенец" + run);
+
+        var page = itemService.search("кладенец" + run, 0, 10);
+        assertEquals(List.of(exact.id(), prefix.id(), inDescription.id()), ids(page.items()).subList(0, 3));
+
+        // опечатка: переставлены буквы
+        var typo = itemService.search("кладнеец" + run, 0, 10);
+        assertTrue(ids(typo.items()).contains(exact.id()), "fuzzy: " + typo);
+
+        // прежний поиск — только по названию
+        assertEquals(Set.of(exact.id(), prefix.id()), Set.copyOf(ids(itemService.findByName("ЛАДЕНЕЦ" + run))));
+
+        itemService.updateItem(prefix.id(), new ItemUpdateRequest("Топорик " + run, null, null, null), adminId);
+        itemService.deleteItem(exact.id(), adminId);
+        List<UUID> afterDelete = ids(itemService.search("кладенец" + run, 0, 10).items());
+        assertEquals(inDescription.id(), afterDelete.get(0));
+        assertFalse(afterDelete.contains(exact.id()));
+        assertEquals(prefix.id(), ids(itemService.search("топорик " + run, 0, 10).items()).get(0));
+    }
+
+    @Test
+    void indexMatchesSqlOnASeededCatalog() {
+        String run = UUID.randomUUID().toString().substring(0, 6);
+        seedCatalog(CATALOG_SIZE, run);
+        for (String q : queries(run)) {
+            assertEquals(
+                itemRepository.findByNameContainingIgnoreCase(q).stream().map(Item::getId).collect(Collectors.toSet()),
+                Set.copyOf(ids(index.search(q, false))), q);
+        }
+    }
+
+    @Test
+    void aSlowRefreshDoesNotOverwriteALaterEdit() throws Exception {
+        assertEquals("Факел 2", staleReadRace("findById", (slow, id) -> slow.refresh(id)));
+    }
+
+    @Test
+    void aSlowRebuildDoesNotOverwriteALaterEdit() throws Exception {
+        assertEquals("Факел 2", staleReadRace("findAll", (slow, id) -> slow.rebuild()));
+    }
+
+    // своя копия индекса, чей первый вызов method замирает после чтения из БД. Пока он стоит, предмет
+    // правится и обновляется вторым вызовом; потом первый дописывает прочитанное. Возвращает название в индексе
+    private String staleReadRace(String method, BiConsumer<ItemSearchIndex, UUID> firstCall) throws Exception {
+        String run = UUID.randomUUID().toString().substring(0, 6);
+        UUID torch = create("Факел 1 " + run, null).id();
+        var pausing = new PausingRepository<>(ItemRepository.class, itemRepository, method, result -> true);
+        ItemSearchIndex slow = new ItemSearchIndex(pausing.proxy());
+        if (!method.equals("findAll")) slow.rebuild();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> stale = pool.submit(() -> firstCall.accept(slow, torch));
+            pausing.awaitRead();
+            itemService.updateItem(torch, new ItemUpdateRequest("Факел 2 " + run, null, null, null), adminId);
+            Future<?> fresh = pool.submit(() -> slow.refresh(torch));
+            // без общего замка второе обновление успевает целиком; с ним — ждёт первого
+            try {
+                fresh.get(500, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException waitingForTheFirst) {
+            }
+            pausing.release();
+            stale.get();
+            fresh.get();
+        } finally {
+            pool.shutdown();
+        }
+        List<ItemDto> indexed = slow.search(run, false);
+        assertEquals(1, indexed.size(), "versions in index: " + indexed);
+        return indexed.get(0).name().replace(" " + run, "");
+    }
+
+    // mvn test -Dbenchmarks=true -Dlogging.level.org.sft.tabletoprpg.service.search=DEBUG
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkIndexAgainstSqlLikeAt100kItems() {
+        String run = UUID.randomUUID().toString().substring(0, 6);
+        seedCatalog(BENCHMARK_CATALOG_SIZE, run);
+        List<String> queries = queries(run);
+        for (String q : queries) {
+            assertEquals(
+                itemRepository.findByNameContainingIgnoreCase(q).stream().map(Item::getId).collect(Collectors.toSet()),
+                Set.copyOf(ids(index.search(q, false))), q);
+        }
+
+        int rounds = 20;
+        long started = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (String q : queries) itemRepository.findByNameContainingIgnoreCase(q);
+        }
+        double sqlMs = (System.nanoTime() - started) / 1e6 / (rounds * queries.size());
+
+        started = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (String q : queries) itemService.search(q, 0, 20);
+        }
+        double indexMs = (System.nanoTime() - started) / 1e6 / (rounds * queries.size());
+
+        log.debug("item search over {} items: SQL LIKE {} ms/query, trigram index (ranked, fuzzy) {} ms/query",
+            BENCHMARK_CATALOG_SIZE, String.format("%.2f", sqlMs), String.format("%.2f", indexMs));
+    }
+
+    private void seedCatalog(int size, String run) {
+        List<Object[]> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = MATERIALS[i % MATERIALS.length] + " " + KINDS[(i / 7) % KINDS.length] + " " + run + " №" + i;
+            rows.add(new Object[]{UUID.randomUUID(), name, "Описание предмета " + name + ", найден в подземелье " + (i % 97), i % 50, 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO items (id, name, description, weight, price) VALUES (?, ?, ?, ?, ?)", rows);
+        index.rebuild();
+    }
+
+    private static List<String> queries(String run) {
+        return List.of("меч", "эльфийский топор", run + " №4242", "щит " + run + " №9", "ий", "посох " + run + " №123");
+    }
+
+    private ItemDto create(String name, String description) {
+        return itemService.createItem(new ItemCreateRequest(name, description, BigDecimal.ONE, 1), adminId);
+    }
+
+    private static List<UUID> ids(List<ItemDto> items) {
+        return items.stream().map(ItemDto::id).toList();
+    }
+}
@@ -0,0 +1,216 @@
+package org.sft.tabletoprpg.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.sft.tabletoprpg.domain.JournalVisibility;
+import org.sft.tabletoprpg.service.JournalService;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryCreateRequest;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntrySummaryDto;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryUpdateRequest;
+import org.sft.tabletoprpg.service.dto.journal.JournalPageDto;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Комбинированные фильтры журнала на битовых индексах: совпадение с SQL, видимость, обновление после коммита.
+ * Замер против связки WHERE + подзапрос по тегам на 50k записей — только с -Dbenchmarks=true.
+ * Отдельная БД: журнал на тысячи строк.
+ */
+@SpringBootTest(properties =
+    "spring.datasource.url=jdbc:h2:mem:rpg_journal_${random.uuid};MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class JournalBitmapIndexTests {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalBitmapIndexTests.class);
+
+    private static final int JOURNAL_SIZE = 5_000;
+    private static final int BENCHMARK_JOURNAL_SIZE = 50_000;
+    private static final UUID MAX_ID = new UUID(-1L, -1L);
+    private static final String[] TYPES = {"session", "npc", "location", "quest", "lore"};
+    private static final String[] TAGS = {"дракон", "город", "гильдия", "сокровище", "предательство", "лес", "маг", "порт"};
+
+    @Autowired TestFixtures fixtures;
+    @Autowired JournalService journalService;
+    @Autowired JournalBitmapIndex index;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private UUID gmId;
+    private UUID playerId;
+    private UUID campaignId;
+
+    @BeforeEach
+    void setUpCampaign() {
+        String run = TestFixtures.run();
+        gmId = fixtures.user("bgm_" + run);
+        playerId = fixtures.user("bpl_" + run);
+        campaignId = fixtures.campaign(gmId, "Летопись " + run);
+        fixtures.join(campaignId, playerId, gmId);
+    }
+
+    @Test
+    void combinedFiltersFollowEntryChangesAndVisibility() {
+        UUID dragonNpc = create("NPC", JournalVisibility.PLAYERS, "дракон, маг");
+        UUID secretNpc = create("npc", JournalVisibility.GM_ONLY, "дракон");
+        UUID dragonLair = create("location", JournalVisibility.PLAYERS, "дракон, лес");
+        create("session", JournalVisibility.PLAYERS, "город");
+
+        // первый запрос строит индекс кампании, дальше он обновляется после коммитов
+        assertEquals(List.of(secretNpc, dragonNpc), ids(filter(gmId, List.of("npc"), List.of("дракон"), true, null, null)));
+        assertEquals(List.of(dragonNpc), ids(filter(playerId, List.of("npc"), List.of("дракон"), true, null, null)));
+        assertEquals(List.of(), ids(filter(playerId, null, null, true, null, JournalVisibility.GM_ONLY)));
+        assertEquals(List.of(dragonLair, dragonNpc),
+            ids(filter(gmId, List.of("npc", "location"), List.of("лес", "маг"), false, null, JournalVisibility.PLAYERS)));
+
+        UUID late = create("npc", JournalVisibility.PLAYERS, "дракон");
+        journalService.updateJournal(secretNpc, gmId, new JournalEntryUpdateRequest(null, JournalVisibility.PLAYERS, null, null, "маг"));
+        journalService.deleteJournal(dragonNpc, gmId);
+        assertEquals(List.of(late), ids(filter(playerId, List.of("NPC"), List.of("дракон"), true, null, null)));
+        assertEquals(List.of(late, secretNpc), ids(filter(playerId, List.of("npc"), null, true, List.of(gmId), null)));
+
+        // постранично: курсор тот же, что у обычной ленты
+        var first = journalService.filterJournal(campaignId, gmId, null, List.of("дракон"), true, null, null, null, 1);
+        assertEquals(List.of(late), ids(first));
+        var second = journalService.filterJournal(campaignId, gmId, null, List.of("дракон"), true, null, null, first.nextCursor(), 1);
+        assertEquals(List.of(dragonLair), ids(second));
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void bitmapsMatchSqlOnASeededJournal() {
+        seedJournal(JOURNAL_SIZE);
+        Instant fromStart = Instant.parse("9999-12-31T23:59:59Z");
+        for (var f : filters()) {
+            assertEquals(sqlPage(f, fromStart), index.page(campaignId, f, fromStart, MAX_ID, 51).ids(), f.toString());
+        }
+    }
+
+    // mvn test -Dbenchmarks=true -Dlogging.level.org.sft.tabletoprpg.service.search=DEBUG
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkBitmapsAgainstSqlAt50kEntries() {
+        Instant base = seedJournal(BENCHMARK_JOURNAL_SIZE);
+        var filters = filters();
+        Instant fromStart = Instant.parse("9999-12-31T23:59:59Z");
+        for (var f : filters) {
+            assertEquals(sqlPage(f, fromStart), index.page(campaignId, f, fromStart, MAX_ID, 51).ids(), f.toString());
+        }
+
+        // курсор в каждом раунде свой: H2 не отдаёт повторный одинаковый запрос из кэша результатов
+        int rounds = 20;
+        long started = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (var f : filters) sqlPage(f, base.plusSeconds(BENCHMARK_JOURNAL_SIZE - r));
+        }
+        double sqlMs = (System.nanoTime() - started) / 1e6 / (rounds * filters.size());
+
+        started = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (var f : filters) index.page(campaignId, f, base.plusSeconds(BENCHMARK_JOURNAL_SIZE - r), MAX_ID, 51);
+        }
+        double indexMs = (System.nanoTime() - started) / 1e6 / (rounds * filters.size());
+
+        started = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            journalService.filterJournal(campaignId, gmId, List.of("npc"), List.of("дракон"), true, null, null, null, 50);
+        }
+        double pageMs = (System.nanoTime() - started) / 1e6 / rounds;
+
+        log.debug("journal filter over {} entries: SQL {} ms/query, bitmaps {} ms/query, bitmaps + page fetch {} ms",
+            BENCHMARK_JOURNAL_SIZE, String.format("%.2f", sqlMs), String.format("%.3f", indexMs), String.format("%.2f", pageMs));
+    }
+
+    // записи кампании пачкой мимо сервиса; возвращает время первой записи, остальные идут через секунду
+    private Instant seedJournal(int size) {
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        List<Object[]> entries = new ArrayList<>(size);
+        List<Object[]> tags = new ArrayList<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            UUID id = UUID.randomUUID();
+            String visibility = (i % 3 == 0 ? JournalVisibility.GM_ONLY : JournalVisibility.PLAYERS).name();
+            UUID author = i % 4 == 0 ? playerId : gmId;
+            entries.add(new Object[]{id, campaignId, author, TYPES[i % TYPES.length], visibility,
+                "Запись " + i, "Текст " + i, Timestamp.from(base.plusSeconds(i))});
+            tags.add(new Object[]{id, TAGS[i % TAGS.length]});
+            tags.add(new Object[]{id, TAGS[(i / 3) % TAGS.length]});
+            // редкие теги: их сочетания с другими фильтрами SQL ищет, проходя почти всю ленту
+            if (i % 97 == 0) tags.add(new Object[]{id, "артефакт"});
+            if (i % 89 == 0) tags.add(new Object[]{id, "пророчество"});
+        }
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO journal_entries (id, campaign_id, author_id, type, visibility, title, content, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)""", entries);
+        jdbcTemplate.batchUpdate("INSERT INTO journal_entry_tags (entry_id, tag) VALUES (?, ?) ON CONFLICT DO NOTHING", tags);
+        return base;
+    }
+
+    private List<JournalBitmapIndex.Filter> filters() {
+        return List.of(
+            new JournalBitmapIndex.Filter(Set.of("npc"), EnumSet.of(JournalVisibility.PLAYERS), Set.of("дракон"), true, Set.of()),
+            new JournalBitmapIndex.Filter(Set.of("session", "quest"), EnumSet.allOf(JournalVisibility.class),
+                Set.of("маг", "порт"), true, Set.of(gmId)),
+            new JournalBitmapIndex.Filter(Set.of(), EnumSet.of(JournalVisibility.PLAYERS), Set.of("лес", "город"), false, Set.of(playerId)),
+            new JournalBitmapIndex.Filter(Set.of("lore"), EnumSet.of(JournalVisibility.GM_ONLY), Set.of(), true, Set.of()),
+            new JournalBitmapIndex.Filter(Set.of("quest"), EnumSet.of(JournalVisibility.PLAYERS), Set.of("артефакт"), true, Set.of(playerId)),
+            new JournalBitmapIndex.Filter(Set.of(), EnumSet.allOf(JournalVisibility.class),
+                Set.of("артефакт", "пророчество"), true, Set.of()));
+    }
+
+    // тот же фильтр одним SQL-запросом: измерения в WHERE, теги — подзапросом с подсчётом совпадений
+    private List<UUID> sqlPage(JournalBitmapIndex.Filter f, Instant before) {
+        StringBuilder sql = new StringBuilder("SELECT e.id FROM journal_entries e WHERE e.campaign_id = ? AND e.created_at < ?");
+        List<Object> args = new ArrayList<>(List.of(campaignId, Timestamp.from(before)));
+        sql.append(" AND e.visibility IN (").append(marks(f.visibilities().size())).append(')');
+        f.visibilities().forEach(v -> args.add(v.name()));
+        if (!f.types().isEmpty()) {
+            sql.append(" AND lower(e.type) IN (").append(marks(f.types().size())).append(')');
+            args.addAll(f.types());
+        }
+        if (!f.authors().isEmpty()) {
+            sql.append(" AND e.author_id IN (").append(marks(f.authors().size())).append(')');
+            args.addAll(f.authors());
+        }
+        if (!f.tags().isEmpty()) {
+            sql.append(" AND (SELECT count(*) FROM journal_entry_tags t WHERE t.entry_id = e.id AND t.tag IN (")
+                .append(marks(f.tags().size())).append(")) >= ?");
+            args.addAll(f.tags());
+            args.add(f.matchAllTags() ? f.tags().size() : 1);
+        }
+        sql.append(" ORDER BY e.created_at DESC, e.id DESC LIMIT 51");
+        return jdbcTemplate.queryForList(sql.toString(), UUID.class, args.toArray());
+    }
+
+    private static String marks(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    private JournalPageDto<JournalEntrySummaryDto> filter(UUID requester, List<String> types, List<String> tags,
+                                                          boolean matchAll, List<UUID> authors, JournalVisibility visibility) {
+        return journalService.filterJournal(campaignId, requester, types, tags, matchAll, authors, visibility, null, null);
+    }
+
+    private UUID create(String type, JournalVisibility visibility, String tags) {
+        return journalService.createJournal(campaignId, gmId,
+            new JournalEntryCreateRequest(type, visibility, "Запись", "Текст записи", tags)).id();
+    }
+
+    private static List<UUID> ids(JournalPageDto<JournalEntrySummaryDto> page) {
+        return page.items().stream().map(JournalEntrySummaryDto::id).toList();
+    }
+}
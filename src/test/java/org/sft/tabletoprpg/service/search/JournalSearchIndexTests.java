@@ -0,0 +1,125 @@
+package org.sft.tabletoprpg.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sft.tabletoprpg.domain.JournalVisibility;
+import org.sft.tabletoprpg.repo.JournalEntryRepository;
+import org.sft.tabletoprpg.repo.projection.JournalSearchRow;
+import org.sft.tabletoprpg.service.JournalService;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryCreateRequest;
+import org.sft.tabletoprpg.service.dto.journal.JournalEntryUpdateRequest;
+import org.sft.tabletoprpg.support.PausingRepository;
+import org.sft.tabletoprpg.support.TestFixtures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Полнотекстовый индекс журнала: готовность только после первого построения и медленное чтение
+ * (обновления или страницы перестроения) наперегонки с правкой записи.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class JournalSearchIndexTests {
+
+    @Autowired TestFixtures fixtures;
+    @Autowired JournalService journalService;
+    @Autowired JournalEntryRepository journalEntryRepository;
+
+    private UUID gmId;
+    private UUID campaignId;
+    private String run;
+
+    @BeforeEach
+    void setUpCampaign() {
+        run = TestFixtures.run();
+        gmId = fixtures.user("sgm_" + run);
+        campaignId = fixtures.campaign(gmId, "Свитки " + run);
+    }
+
+    @Test
+    void notReadyUntilTheFirstRebuildFinishes() throws Exception {
+        create("alpha" + run);
+        var pausing = new PausingRepository<>(JournalEntryRepository.class, journalEntryRepository,
+            "findSearchRows", rows -> true);
+        JournalSearchIndex index = new JournalSearchIndex(pausing.proxy());
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> rebuild = pool.submit(index::rebuild);
+            pausing.awaitRead();
+            assertFalse(index.isReady());
+            pausing.release();
+            rebuild.get();
+            assertTrue(index.isReady());
+            assertEquals(1, index.search(campaignId, true, "alpha" + run, 0, 10).total());
+        } finally {
+            pool.shutdown();
+            index.close();
+        }
+    }
+
+    @Test
+    void aSlowRefreshDoesNotOverwriteALaterEdit() throws Exception {
+        staleReadRace("findSearchRow", row -> ((Optional<?>) row).isPresent(), (slow, id) -> slow.refresh(id));
+    }
+
+    @Test
+    void aSlowRebuildPageDoesNotOverwriteALaterEdit() throws Exception {
+        // встаёт та страница перестроения, на которой запись; остальные проходят
+        UUID[] entry = new UUID[1];
+        staleReadRace("findSearchRows",
+            rows -> ((List<?>) rows).stream().anyMatch(r -> ((JournalSearchRow) r).id().equals(entry[0])),
+            (slow, id) -> {
+                entry[0] = id;
+                slow.rebuild();
+            });
+    }
+
+    // своя копия индекса, чей вызов method замирает после чтения записи из БД. Пока он стоит, запись
+    // правится и обновляется вторым вызовом; потом первый дописывает прочитанное. В индексе — только правка
+    private void staleReadRace(String method, Predicate<Object> pauseOn,
+                               BiConsumer<JournalSearchIndex, UUID> firstCall) throws Exception {
+        UUID scroll = create("alpha" + run);
+        var pausing = new PausingRepository<>(JournalEntryRepository.class, journalEntryRepository, method, pauseOn);
+        JournalSearchIndex slow = new JournalSearchIndex(pausing.proxy());
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> stale = pool.submit(() -> firstCall.accept(slow, scroll));
+            pausing.awaitRead();
+            journalService.updateJournal(scroll, gmId, new JournalEntryUpdateRequest(null, null, "omega" + run, null, null));
+            Future<?> fresh = pool.submit(() -> slow.refresh(scroll));
+            // без общего замка второе обновление успевает целиком; с ним — ждёт первого
+            try {
+                fresh.get(500, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException waitingForTheFirst) {
+            }
+            pausing.release();
+            stale.get();
+            fresh.get();
+
+            assertEquals(1, slow.search(campaignId, true, "omega" + run, 0, 10).total());
+            assertEquals(0, slow.search(campaignId, true, "alpha" + run, 0, 10).total());
+        } finally {
+            pool.shutdown();
+            slow.close();
+        }
+    }
+
+    private UUID create(String title) {
+        return journalService.createJournal(campaignId, gmId, new JournalEntryCreateRequest(
+            "scroll", JournalVisibility.PLAYERS, title, "Текст свитка", null)).id();
+    }
+}
@@ -0,0 +1,49 @@
+package org.sft.tabletoprpg.support;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Репозиторий для гонки «медленное чтение против правки»: первый вызов метода, чей результат подходит
+ * под условие, уже прочитав БД, сообщает {@link #awaitRead()} и стоит до {@link #release()}.
+ * Остальные вызовы проходят к настоящему репозиторию как есть.
+ */
+public final class PausingRepository<T> {
+
+    private final CountDownLatch read = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final AtomicBoolean paused = new AtomicBoolean();
+    private final T proxy;
+
+    public PausingRepository(Class<T> type, T target, String method, Predicate<Object> result) {
+        this.proxy = type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, m, args) -> {
+            Object value;
+            try {
+                value = m.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+            if (m.getName().equals(method) && result.test(value) && paused.compareAndSet(false, true)) {
+                read.countDown();
+                released.await();
+            }
+            return value;
+        }));
+    }
+
+    public T proxy() {
+        return proxy;
+    }
+
+    /** Дождаться, пока вызов прочитает БД и встанет. */
+    public void awaitRead() throws InterruptedException {
+        read.await();
+    }
+
+    public void release() {
+        released.countDown();
+    }
+}
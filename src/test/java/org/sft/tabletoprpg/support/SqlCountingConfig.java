@@ -0,0 +1,46 @@
+package org.sft.tabletoprpg.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Подключает {@link SqlStatementCounter} ко всем соединениям пула: {@code @Import(SqlCountingConfig.class)}.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class SqlCountingConfig {
+
+    @Bean
+    static BeanPostProcessor sqlCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ds && !(bean instanceof CountingDataSource)
+                    ? new CountingDataSource(ds)
+                    : bean;
+            }
+        };
+    }
+
+    static final class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return SqlStatementCounter.wrap(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return SqlStatementCounter.wrap(super.getConnection(username, password));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.sft.tabletoprpg.support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Счётчик JDBC-операторов и прочитанных строк на уровне соединения: видит всё, что уходит в БД —
+ * Hibernate, нативные запросы, JdbcTemplate. Считается только поток, открывший {@link #start()};
+ * работа в фоновых потоках (после коммита, стриминг ответа) в замер не попадает.
+ * Пачка (executeBatch) — один оператор: один обмен с БД.
+ */
+public final class SqlStatementCounter {
+
+    /** Итог замера. */
+    public record Usage(long statements, long rows) {}
+
+    private static final class Counts {
+        long statements;
+        long rows;
+    }
+
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    private SqlStatementCounter() {}
+
+    /** Начать замер в текущем потоке; незакрытый предыдущий сбрасывается. */
+    public static void start() {
+        CURRENT.set(new Counts());
+    }
+
+    /** Закончить замер и вернуть накопленное. */
+    public static Usage stop() {
+        Counts counts = CURRENT.get();
+        CURRENT.remove();
+        return counts == null ? new Usage(0, 0) : new Usage(counts.statements, counts.rows);
+    }
+
+    /** Соединение, операторы и результаты которого ведут счёт. */
+    public static Connection wrap(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof CallableStatement cs) return wrapStatement(CallableStatement.class, cs);
+            if (result instanceof PreparedStatement ps) return wrapStatement(PreparedStatement.class, ps);
+            if (result instanceof Statement st) return wrapStatement(Statement.class, st);
+            return result;
+        });
+    }
+
+    private static <S extends Statement> S wrapStatement(Class<S> type, S statement) {
+        return proxy(type, statement, (target, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                Counts counts = CURRENT.get();
+                if (counts != null) counts.statements++;
+            }
+            Object result = invoke(target, method, args);
+            return result instanceof ResultSet rs ? wrapResultSet(rs) : result;
+        });
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet) {
+        return proxy(ResultSet.class, resultSet, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                Counts counts = CURRENT.get();
+                if (counts != null) counts.rows++;
+            }
+            return result;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        InvocationHandler ih = (p, method, args) -> handler.handle(target, method, args);
+        return type.cast(Proxy.newProxyInstance(SqlStatementCounter.class.getClassLoader(), new Class<?>[]{type}, ih));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.sft.tabletoprpg.support;
+
+import lombok.RequiredArgsConstructor;
+import org.sft.tabletoprpg.domain.CampaignRole;
+import org.sft.tabletoprpg.domain.Role;
+import org.sft.tabletoprpg.service.CampaignService;
+import org.sft.tabletoprpg.service.CharacterService;
+import org.sft.tabletoprpg.service.UserService;
+import org.sft.tabletoprpg.service.dto.campaign.CampaignCreateRequest;
+import org.sft.tabletoprpg.service.dto.character.AttributesDto;
+import org.sft.tabletoprpg.service.dto.character.CharacterCreateRequest;
+import org.sft.tabletoprpg.service.dto.user.UserRegisterRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Общие данные тестов через сервисы: пользователи, кампании, игроки и их персонажи.
+ * Тесты делят одну БД, поэтому имена берут префикс прогона {@link #run()} — данные разных тестов не пересекаются.
+ */
+@Component
+@RequiredArgsConstructor
+public class TestFixtures {
+
+    public static final String PASSWORD = "secret";
+
+    private final UserService userService;
+    private final CampaignService campaignService;
+    private final CharacterService characterService;
+
+    /** GM, его кампания и игроки по одному персонажу у каждого (в порядке playerIds). */
+    public record Party(String run, UUID gmId, UUID campaignId, List<UUID> playerIds, List<UUID> characterIds) {}
+
+    /** Префикс прогона: 8 символов случайного UUID. */
+    public static String run() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /** Пользователь с ролью PLAYER: почта — {@code username@example.com}, пароль — {@link #PASSWORD}. */
+    public UUID user(String username) {
+        return userService.createUser(new UserRegisterRequest(username, username + "@example.com", PASSWORD)).id();
+    }
+
+    public UUID admin(String username) {
+        UUID id = user(username);
+        userService.updateRoles(id, Set.of(Role.PLAYER, Role.ADMIN));
+        return id;
+    }
+
+    public UUID campaign(UUID gmId, String name) {
+        return campaign(gmId, name, null);
+    }
+
+    public UUID campaign(UUID gmId, String name, String description) {
+        return campaignService.createCampaign(gmId, new CampaignCreateRequest(name, description)).id();
+    }
+
+    public void join(UUID campaignId, UUID playerId, UUID gmId) {
+        campaignService.upsertMember(campaignId, playerId, CampaignRole.PLAYER, gmId);
+    }
+
+    public UUID character(UUID campaignId, UUID ownerId, String name) {
+        return character(campaignId, ownerId, name, 10, 10);
+    }
+
+    // характеристики различаются: перепутанные колонки видны при сравнении с маппингом сущностей
+    public UUID character(UUID campaignId, UUID ownerId, String name, int hp, int maxHp) {
+        return characterService.createCharacter(campaignId, new CharacterCreateRequest(
+            name, "Воин", "Человек", 1, hp, maxHp, new AttributesDto(10, 11, 12, 13, 14, 15)), ownerId).id();
+    }
+
+    /**
+     * Новый GM {@code <prefix>gm_<run>} с кампанией и {@code size} игроками {@code <prefix>pl<i>_<run>}.
+     */
+    public Party party(String prefix, int size) {
+        String run = run();
+        return party(user(prefix + "gm_" + run), prefix, run, size);
+    }
+
+    /** Ещё одна кампания того же GM со своими игроками. */
+    public Party party(UUID gmId, String prefix, int size) {
+        return party(gmId, prefix, run(), size);
+    }
+
+    private Party party(UUID gmId, String prefix, String run, int size) {
+        UUID campaignId = campaign(gmId, "Кампания " + prefix + " " + run);
+        List<UUID> playerIds = new ArrayList<>();
+        List<UUID> characterIds = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            UUID playerId = user(prefix + "pl" + i + "_" + run);
+            join(campaignId, playerId, gmId);
+            playerIds.add(playerId);
+            characterIds.add(character(campaignId, playerId, "Герой " + i + " " + run));
+        }
+        return new Party(run, gmId, campaignId, List.copyOf(playerIds), List.copyOf(characterIds));
+    }
+}